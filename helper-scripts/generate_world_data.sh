@@ -0,0 +1,23 @@
+#!/bin/bash
+set -e  # Exit immediately if a command fails
+
+# Usage: ./generate_world_data.sh <scale> [seed] [sql|snapshot]
+SCALE=${1:-10}
+SEED=${2:-42}
+FORMAT=${3:-sql}
+
+cd ..
+echo "🧪 Packaging application..."
+mvn -q -DskipTests package
+
+if [ "$FORMAT" = "sql" ]; then
+  OUTPUT="db/world_db/world_x${SCALE}.sql"
+else
+  OUTPUT="world_x${SCALE}.snapshot"
+fi
+
+echo "🌍 Generating synthetic world data at scale ${SCALE} (seed ${SEED})..."
+java -cp target/devops.jar com.napier.devops.generator.WorldDataGenerator \
+  --scale "$SCALE" --seed "$SEED" --format "$FORMAT" --output "$OUTPUT"
+
+echo "✅ Written to ${OUTPUT}"
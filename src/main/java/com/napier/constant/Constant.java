@@ -11,4 +11,58 @@ public class Constant {
     public static final int DEFAULT_N = 10;
     public static final String DEFAULT_DISTRICT = "California";
     public static final String DEFAULT_CITY_NAME = "New York";
+
+    // System properties for the optional diagnostics mode
+    public static final String DIAGNOSTICS_PROPERTY = "devops.diagnostics";
+    public static final String SLOW_QUERY_MILLIS_PROPERTY = "devops.slowQueryMillis";
+    public static final long DEFAULT_SLOW_QUERY_MILLIS = 200;
+
+    // System property that serves reports from an in-memory snapshot
+    public static final String SNAPSHOT_PROPERTY = "devops.snapshot";
+
+    // System properties for routing report queries to read replicas
+    public static final String REPLICAS_PROPERTY = "devops.replicas";
+    public static final String MAX_REPLICA_LAG_SECONDS_PROPERTY = "devops.maxReplicaLagSeconds";
+    public static final long DEFAULT_MAX_REPLICA_LAG_SECONDS = 30;
+    public static final long REPLICA_HEALTH_CHECK_MILLIS = 5000;
+
+    // System properties for the start-up warm-up phase
+    public static final String WARMUP_PROPERTY = "devops.warmup";
+    public static final String WARMUP_ITERATIONS_PROPERTY = "devops.warmupIterations";
+
+    // System property that serves reports over the binary protocol after the use cases have run
+    public static final String WIRE_PORT_PROPERTY = "devops.wirePort";
+
+    // System property setting how many threads run the reports asked for over the binary protocol
+    public static final String WIRE_WORKERS_PROPERTY = "devops.wireWorkers";
+
+    // System property listing extra named datasets, such as other census years
+    public static final String DATASETS_PROPERTY = "devops.datasets";
+
+    // System property that lets identical concurrent report calls share one query
+    public static final String COALESCE_PROPERTY = "devops.coalesce";
+
+    // System property that sums snapshot populations with the incubating Vector API
+    public static final String VECTOR_PROPERTY = "devops.vector";
+
+    // System property that streams the unbounded city reports through a server-side cursor
+    public static final String STREAM_FETCH_SIZE_PROPERTY = "devops.streamFetchSize";
+
+    // System property that moves the snapshot's city columns off the heap: "direct", or a file to map them from
+    public static final String OFF_HEAP_PROPERTY = "devops.offHeap";
+    public static final String OFF_HEAP_DIRECT = "direct";
+
+    // System properties for query timeouts, the circuit breaker and the stale data fallback
+    public static final String QUERY_TIMEOUT_SECONDS_PROPERTY = "devops.queryTimeoutSeconds";
+    public static final String CIRCUIT_FAILURES_PROPERTY = "devops.circuitFailures";
+    public static final int DEFAULT_CIRCUIT_FAILURES = 5;
+    public static final String CIRCUIT_OPEN_MILLIS_PROPERTY = "devops.circuitOpenMillis";
+    public static final long DEFAULT_CIRCUIT_OPEN_MILLIS = 30000;
+    public static final String FALLBACK_SNAPSHOT_PROPERTY = "devops.fallbackSnapshot";
+
+    // System property that reloads the snapshot in the background every given number of seconds
+    public static final String SNAPSHOT_RELOAD_SECONDS_PROPERTY = "devops.snapshotReloadSeconds";
+
+    // System property that copies the city indexes out of the database at start-up when no snapshot is loaded
+    public static final String INDEXES_PROPERTY = "devops.indexes";
 }
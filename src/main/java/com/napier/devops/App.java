@@ -1,10 +1,50 @@
 package com.napier.devops;
 
+import com.napier.devops.coalescing.CoalescingCityReportService;
+import com.napier.devops.coalescing.CoalescingCountryReportService;
+import com.napier.devops.coalescing.CoalescingPopulationMetricsReportService;
+import com.napier.devops.coalescing.RequestCoalescer;
+import com.napier.devops.dataset.Dataset;
+import com.napier.devops.dataset.DatasetRegistry;
+import com.napier.devops.diagnostics.DiagnosticConnection;
+import com.napier.devops.diagnostics.QueryDiagnostics;
+import com.napier.devops.resilience.CircuitBreaker;
+import com.napier.devops.resilience.FallbackCityReportService;
+import com.napier.devops.resilience.FallbackCountryReportService;
+import com.napier.devops.resilience.FallbackPolicy;
+import com.napier.devops.resilience.FallbackPopulationMetricsReportService;
+import com.napier.devops.resilience.ResilientConnection;
+import com.napier.devops.routing.ReplicaNode;
+import com.napier.devops.routing.ReplicaRouter;
+import com.napier.devops.service.CapitalIndex;
+import com.napier.devops.service.CityNameIndex;
 import com.napier.devops.service.CityReportService;
 import com.napier.devops.service.CountryReportService;
+import com.napier.devops.service.CountryTable;
+import com.napier.devops.service.PopulationIndex;
 import com.napier.devops.service.PopulationMetricsReportService;
-
+import com.napier.devops.snapshot.GeographyTree;
+import com.napier.devops.snapshot.PopulationKernel;
+import com.napier.devops.snapshot.ReloadingCityReportService;
+import com.napier.devops.snapshot.ReloadingPopulationMetricsReportService;
+import com.napier.devops.snapshot.SnapshotCityReportService;
+import com.napier.devops.snapshot.SnapshotCountryReportService;
+import com.napier.devops.snapshot.SnapshotFile;
+import com.napier.devops.snapshot.SnapshotPopulationMetricsReportService;
+import com.napier.devops.snapshot.SnapshotRankReportService;
+import com.napier.devops.snapshot.SnapshotReloader;
+import com.napier.devops.snapshot.WorldSnapshot;
+import com.napier.devops.warmup.WarmUp;
+import com.napier.devops.wire.ReportServer;
+import com.napier.pojo.Staleness;
+import com.napier.pojo.WorldReportPojo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
 
 import static com.napier.constant.Constant.*;
 
@@ -18,6 +58,26 @@ public class App {
      */
     private Connection con = null;
 
+    /**
+     * Host and port of the MySQL server, null until connected.
+     */
+    private String location;
+
+    /**
+     * Routes report queries to read replicas, null unless replicas are configured.
+     */
+    private ReplicaRouter replicaRouter;
+
+    /**
+     * Guards the database connection, null unless query timeouts are configured.
+     */
+    private CircuitBreaker circuitBreaker;
+
+    /**
+     * Serves stale snapshot data while the database is unavailable, null unless enabled.
+     */
+    private FallbackPolicy fallbackPolicy;
+
     /**
      * Service for city-related reports.
      */
@@ -33,6 +93,30 @@ public class App {
      */
     private PopulationMetricsReportService populationMetricsReportService;
 
+    /**
+     * Holds the current in-memory copy of the world tables, null unless snapshot mode is used.
+     */
+    private SnapshotReloader snapshotReloader;
+
+    /**
+     * Where the snapshot's city columns are kept off the heap, null to keep them on it.
+     */
+    private String offHeapTarget;
+
+    /**
+     * The file the current snapshot's city columns are mapped from, if any.
+     */
+    private Path mappedFile;
+
+    /**
+     * Further named datasets served alongside the main database.
+     */
+    private final DatasetRegistry datasets = new DatasetRegistry();
+
+    /**
+     * Shares queries between identical concurrent report calls, null unless enabled.
+     */
+    private RequestCoalescer coalescer;
 
     /**
      * sets the con object of the app, this is useful for mock testing
@@ -86,10 +170,322 @@ public class App {
         return this.populationMetricsReportService;
     }
 
+    /**
+     * Gets the in-memory snapshot.
+     *
+     * @return The snapshot, or null if snapshot mode is not in use.
+     */
+    public WorldSnapshot getSnapshot() {
+        return snapshotReloader == null ? null : snapshotReloader.current().getSnapshot();
+    }
+
+    /**
+     * Gets the holder of the in-memory snapshot, with its reload metrics.
+     *
+     * @return The reloader, or null if snapshot mode is not in use.
+     */
+    public SnapshotReloader getSnapshotReloader() {
+        return this.snapshotReloader;
+    }
+
+    /**
+     * Gets the rank and percentile reports.
+     *
+     * @return The service, or null if snapshot mode is not in use.
+     */
+    public SnapshotRankReportService getRankReportService() {
+        return snapshotReloader == null ? null : snapshotReloader.current().getRanks();
+    }
+
+    /**
+     * Loads the country and city tables into memory and serves the population
+     * metrics and rank reports from that snapshot.
+     */
+    public void loadSnapshot() {
+        SnapshotReloader reloader = new SnapshotReloader(this::readSnapshot);
+        try {
+            WorldSnapshot snapshot = reloader.reload().getSnapshot();
+            this.snapshotReloader = reloader;
+            this.cityReportService = new ReloadingCityReportService(con, reloader);
+            this.populationMetricsReportService = new ReloadingPopulationMetricsReportService(reloader);
+            System.out.println("Snapshot loaded: " + snapshot.getCountryCount() + " countries, "
+                    + snapshot.getCityCount() + " cities");
+        } catch (SQLException | IOException e) {
+            System.out.println("Could not load snapshot: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reloads the snapshot in the background every period. Each reload is built off to the
+     * side with its capital, city name, population and country indexes and swapped in at
+     * once, so reports never wait for it.
+     *
+     * @param periodMillis Time between reloads.
+     */
+    public void startSnapshotReload(long periodMillis) {
+        if (snapshotReloader == null) {
+            return;
+        }
+        snapshotReloader.start(periodMillis);
+        System.out.println("Reloading the snapshot every " + periodMillis + " ms");
+    }
+
+    /**
+     * Reads a new snapshot, over a connection of its own when the server is known so a long
+     * load does not hold up the reports on the shared one, and moves it off the heap if the
+     * current one is.
+     */
+    private WorldSnapshot readSnapshot() throws SQLException, IOException {
+        WorldSnapshot snapshot;
+        if (location == null) {
+            snapshot = WorldSnapshot.load(con);
+        } else {
+            try (Connection reloadConnection = open(location)) {
+                snapshot = WorldSnapshot.load(reloadConnection);
+            }
+        }
+        return offHeapTarget == null ? snapshot : offHeap(snapshot);
+    }
+
+    /**
+     * Copies a snapshot's city columns off the heap. Each version maps a file of its own, as
+     * rewriting a file the previous version still maps would break the reports reading it.
+     */
+    private WorldSnapshot offHeap(WorldSnapshot snapshot) throws IOException {
+        if (OFF_HEAP_DIRECT.equals(offHeapTarget)) {
+            return snapshot.offHeap();
+        }
+        Path previous = mappedFile;
+        Path file = previous == null ? Path.of(offHeapTarget)
+                : Path.of(offHeapTarget + "." + (snapshotReloader.getVersion() + 1));
+        WorldSnapshot moved = snapshot.offHeap(file);
+        mappedFile = file;
+        if (previous != null) {
+            // The previous version's mapping stays readable after its file is unlinked
+            try {
+                Files.deleteIfExists(previous);
+            } catch (IOException e) {
+                System.out.println("Could not delete old snapshot file: " + e.getMessage());
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * Moves the snapshot's city columns out of the Java heap, so its size and GC pauses do
+     * not grow with the number of cities, and serves the reports from the moved copy. Later
+     * reloads are moved off the heap too.
+     *
+     * @param target {@code direct} for direct memory, or the path of a file to map them from.
+     */
+    public void moveSnapshotOffHeap(String target) {
+        if (snapshotReloader == null) {
+            return;
+        }
+        try {
+            this.offHeapTarget = target;
+            snapshotReloader.swap(offHeap(getSnapshot()));
+            System.out.println("Snapshot city columns moved off the heap: " + target);
+        } catch (IOException | IllegalArgumentException e) {
+            this.offHeapTarget = null;
+            System.out.println("Could not move snapshot off the heap: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Sums the snapshot populations with the Vector API, which needs a jar built with
+     * {@code -Pvector} and the JVM started with {@code --add-modules jdk.incubator.vector}.
+     * Without them the plain loops stay in use.
+     */
+    public void enableVectorKernel() {
+        if (PopulationKernel.enableVector()) {
+            System.out.println("Summing snapshot populations with the Vector API");
+        } else {
+            System.out.println("Vector API not available, build with -Pvector and start Java with --add-modules jdk.incubator.vector");
+        }
+    }
+
+    /**
+     * Precomputes the capital cities from the database so the capital reports need no
+     * join. The copy is not refreshed, so the reports see the capitals as they were when
+     * it was built. Snapshot versions carry their own.
+     */
+    public void loadCapitalIndex() {
+        try {
+            if (con == null) {
+                System.out.println("Could not build capital index: not connected to the database");
+                return;
+            }
+            CapitalIndex capitalIndex = CapitalIndex.load(con);
+            cityReportService.setCapitalIndex(capitalIndex);
+            System.out.println("Capital index built: " + capitalIndex.size() + " capitals");
+        } catch (SQLException e) {
+            System.out.println("Could not build capital index: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Sorts every city in the database by population for the range and histogram reports.
+     * The copy is not refreshed, so the reports see the populations as they were when it
+     * was built. Snapshot versions carry their own.
+     */
+    public void loadPopulationIndex() {
+        try {
+            if (con == null) {
+                System.out.println("Could not build population index: not connected to the database");
+                return;
+            }
+            PopulationIndex populationIndex = PopulationIndex.load(con);
+            cityReportService.setPopulationIndex(populationIndex);
+            System.out.println("Population index built: " + populationIndex.size() + " cities");
+        } catch (SQLException e) {
+            System.out.println("Could not build population index: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads every country in the database into memory so the reports that show each city's
+     * country need no join. The copy is not refreshed. Snapshot versions carry their own.
+     */
+    public void loadCountryTable() {
+        try {
+            if (con == null) {
+                System.out.println("Could not build country table: not connected to the database");
+                return;
+            }
+            CountryTable countryTable = CountryTable.load(con);
+            cityReportService.setCountryTable(countryTable);
+            System.out.println("Country table built: " + countryTable.size() + " countries");
+        } catch (SQLException e) {
+            System.out.println("Could not build country table: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Builds the in-memory city name search from the database. The copy is not refreshed,
+     * so cities added later are not found by name. Snapshot versions carry their own.
+     */
+    public void loadCityNameIndex() {
+        try {
+            if (con == null) {
+                System.out.println("Could not build city name index: not connected to the database");
+                return;
+            }
+            CityNameIndex cityNameIndex = CityNameIndex.load(con);
+            cityReportService.setCityNameIndex(cityNameIndex);
+            System.out.println("City name index built: " + cityNameIndex.size() + " cities");
+        } catch (SQLException e) {
+            System.out.println("Could not build city name index: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the registry of extra datasets.
+     *
+     * @return The registry, empty unless datasets are configured.
+     */
+    public DatasetRegistry getDatasets() {
+        return this.datasets;
+    }
+
+    /**
+     * Loads the datasets listed with
+     * {@code -Ddevops.datasets=2019=/data/world-2019.snap,2020=jdbc:db2020:3306}.
+     */
+    public void loadDatasets() {
+        datasets.configure(System.getProperty(DATASETS_PROPERTY, ""), App::open);
+    }
+
+    /**
+     * Serves the reports from a snapshot while the circuit breaker keeps the database out,
+     * or when their queries fail. The current version of the loaded snapshot is used if
+     * there is one, following its reloads, otherwise the snapshot file given. Needs the
+     * breaker, so query timeouts must be set.
+     *
+     * @param snapshotFile A snapshot file to fall back to, or null.
+     */
+    public void enableFallback(String snapshotFile) {
+        if (circuitBreaker == null || fallbackPolicy != null) {
+            return;
+        }
+
+        SnapshotReloader reloader = snapshotReloader;
+        String description;
+        if (reloader != null) {
+            // Read the current version on every fallback, so reloads reach the fallback too
+            description = "the current snapshot";
+            fallbackPolicy = new FallbackPolicy(circuitBreaker, description);
+            cityReportService = new FallbackCityReportService(cityReportService,
+                    () -> reloader.current().getCities(), fallbackPolicy);
+            countryReportService = new FallbackCountryReportService(countryReportService,
+                    () -> reloader.current().getCountries(), fallbackPolicy);
+        } else {
+            if (snapshotFile == null) {
+                return;
+            }
+            WorldSnapshot stale;
+            try {
+                stale = SnapshotFile.read(Path.of(snapshotFile));
+            } catch (IOException e) {
+                System.out.println("Could not load fallback snapshot: " + e.getMessage());
+                return;
+            }
+            description = "snapshot file " + snapshotFile;
+            fallbackPolicy = new FallbackPolicy(circuitBreaker, description);
+            cityReportService = new FallbackCityReportService(cityReportService, new SnapshotCityReportService(stale), fallbackPolicy);
+            countryReportService = new FallbackCountryReportService(countryReportService, new SnapshotCountryReportService(stale), fallbackPolicy);
+            // Snapshot metrics never touch the database, so only database metrics need a fallback
+            if (!(populationMetricsReportService instanceof SnapshotPopulationMetricsReportService)) {
+                populationMetricsReportService = new FallbackPopulationMetricsReportService(populationMetricsReportService,
+                        new SnapshotPopulationMetricsReportService(stale), fallbackPolicy);
+            }
+        }
+        System.out.println("Falling back to " + description + " while the database is unavailable");
+    }
+
+    /**
+     * Gets the fallback policy, which tells whether the last report on a thread was stale.
+     *
+     * @return The policy, or null if the fallback is not enabled.
+     */
+    public FallbackPolicy getFallbackPolicy() {
+        return this.fallbackPolicy;
+    }
+
+    /**
+     * Routes the report calls through a request coalescer, so callers asking for the same
+     * report at the same time share one query.
+     */
+    public void enableCoalescing() {
+        if (coalescer != null) {
+            return;
+        }
+        coalescer = new RequestCoalescer();
+        cityReportService = new CoalescingCityReportService(cityReportService, coalescer);
+        countryReportService = new CoalescingCountryReportService(countryReportService, coalescer);
+        populationMetricsReportService = new CoalescingPopulationMetricsReportService(populationMetricsReportService, coalescer);
+        System.out.println("Request coalescing enabled");
+    }
+
+    /**
+     * Gets the request coalescer.
+     *
+     * @return The coalescer, or null if coalescing is not enabled.
+     */
+    public RequestCoalescer getCoalescer() {
+        return this.coalescer;
+    }
+
     public static void main(String[] args) {
         // Create new Application
         App appIns = new App();
 
+        // Exercise the report code before connecting when started with -Ddevops.warmup=true
+        if (Boolean.getBoolean(WARMUP_PROPERTY)) {
+            int iterations = Integer.getInteger(WARMUP_ITERATIONS_PROPERTY, WarmUp.DEFAULT_ITERATIONS);
+            WarmUp.printReport(new WarmUp(iterations).run());
+        }
+
         // Connect to database
         if(args.length < 1){
             appIns.connect("localhost:3306", 30000);
@@ -97,6 +493,45 @@ public class App {
             appIns.connect(args[0], Integer.parseInt(args[1]));
         }
 
+        // Serve reports from memory when started with -Ddevops.snapshot=true
+        if (Boolean.getBoolean(SNAPSHOT_PROPERTY)) {
+            appIns.loadSnapshot();
+            // Keep the city columns off the heap when started with -Ddevops.offHeap=direct|<file>
+            String offHeap = System.getProperty(OFF_HEAP_PROPERTY);
+            if (offHeap != null) {
+                appIns.moveSnapshotOffHeap(offHeap);
+            }
+            // Refresh the snapshot in the background when started with -Ddevops.snapshotReloadSeconds=<seconds>
+            int reloadSeconds = Integer.getInteger(SNAPSHOT_RELOAD_SECONDS_PROPERTY, 0);
+            if (reloadSeconds > 0) {
+                appIns.startSnapshotReload(reloadSeconds * 1000L);
+            }
+        }
+        // Stream the unbounded city reports when started with -Ddevops.streamFetchSize=<rows>
+        int streamFetchSize = Integer.getInteger(STREAM_FETCH_SIZE_PROPERTY, 0);
+        if (streamFetchSize > 0) {
+            appIns.cityReportService.setStreamFetchSize(streamFetchSize);
+        }
+        // Sum snapshot populations with the Vector API when started with -Ddevops.vector=true
+        if (Boolean.getBoolean(VECTOR_PROPERTY)) {
+            appIns.enableVectorKernel();
+        }
+        // Snapshots carry their own indexes; copy them from the database only when started with -Ddevops.indexes=true
+        if (appIns.getSnapshot() == null && Boolean.getBoolean(INDEXES_PROPERTY)) {
+            appIns.loadCapitalIndex();
+            appIns.loadCityNameIndex();
+            appIns.loadPopulationIndex();
+            appIns.loadCountryTable();
+        }
+        appIns.loadDatasets();
+        // Serve stale snapshot data while the database is down when started with -Ddevops.queryTimeoutSeconds=<seconds>
+        appIns.enableFallback(System.getProperty(FALLBACK_SNAPSHOT_PROPERTY));
+
+        // Share queries between identical concurrent calls when started with -Ddevops.coalesce=true
+        if (Boolean.getBoolean(COALESCE_PROPERTY)) {
+            appIns.enableCoalescing();
+        }
+
         System.out.println("\n=== USE CASE 1:list of all countries sorted by population largest to smallest ===");
         // Get list of all countries sorted by population largest to smallest
         appIns.countryReportService.printAllCountriesByPopulationLargestToSmallest();
@@ -177,26 +612,33 @@ public class App {
         System.out.println("\n=== USE CASE 22: produce a report of the top N most populated capital cities in a region where N is provided ===");
         appIns.cityReportService.printTopCapitalCitiesByRegion(DEFAULT_REGION, DEFAULT_N);
 
+        // Use cases 23 to 29 all come from one pass over the countries
+        WorldReportPojo worldReport = appIns.getPopulationMetricsReportService()
+                .getWorldReport("Asia", DEFAULT_REGION, DEFAULT_COUNTRY_NAME);
+        if (worldReport.isStale()) {
+            System.out.println("\n" + Staleness.NOTE);
+        }
+
         System.out.println("\n=== USE CASE 23: Produce a Population Report for Continents ===");
-        appIns.getPopulationMetricsReportService().printContinentPopulationReport();
+        appIns.getPopulationMetricsReportService().printContinentPopulationReport(worldReport.getContinents());
 
         System.out.println("\n=== USE CASE 24: Produce a Population Report for Regions ===");
-        appIns.getPopulationMetricsReportService().printRegionPopulationReport();
+        appIns.getPopulationMetricsReportService().printRegionPopulationReport(worldReport.getRegions());
 
         System.out.println("\n=== USE CASE 25: Produce a Population Report for Countries ===");
-        appIns.getPopulationMetricsReportService().printCountryPopulationReport();
+        appIns.getPopulationMetricsReportService().printCountryPopulationReport(worldReport.getCountries());
 
         System.out.println("\n=== USE CASE 26: Retrieve the Population of the World ===");
-        appIns.getPopulationMetricsReportService().printWorldPopulationReport();
+        appIns.getPopulationMetricsReportService().printWorldPopulationReport(worldReport.getWorldPopulation());
 
         System.out.println("\n=== USE CASE 27: Retrieve the Population of a Continent ===");
-        appIns.getPopulationMetricsReportService().printPopulationContinentReport("Asia");
+        appIns.getPopulationMetricsReportService().printPopulationContinentReport(worldReport.getContinent(), "Asia");
 
         System.out.println("\n=== USE CASE 28: Retrieve the Population of a Region ===");
-        appIns.countryReportService.printRegionPopulationReport(DEFAULT_REGION);
+        appIns.countryReportService.printRegionPopulationReport(worldReport.getRegion(), DEFAULT_REGION);
 
         System.out.println("\n=== USE CASE 29: Produce a Population Report for a Country. ===");
-        appIns.countryReportService.printCountryPopulationReport(DEFAULT_COUNTRY_NAME);
+        appIns.countryReportService.printCountryPopulationReport(worldReport.getCountry(), DEFAULT_COUNTRY_NAME);
 
         System.out.println("\n=== USE CASE 30: Retrieve the Population of a District. ===");
         appIns.cityReportService.printDistrictPopulationReport(DEFAULT_DISTRICT);
@@ -207,6 +649,61 @@ public class App {
         System.out.println("\n=== USE CASE 32: Produce a Report on Speakers of Major Languages. ===");
         appIns.countryReportService.printMajorLanguageReport();
 
+        System.out.println("\n=== POPULATION RANGE: Cities between 1,000,000 and 5,000,000 in a Region ===");
+        appIns.cityReportService.printCitiesInRegionInPopulationRange(DEFAULT_REGION, 1_000_000, 5_000_000);
+
+        System.out.println("\n=== CITIES WITH COUNTRY: Top N Cities in the World with their Country ===");
+        appIns.cityReportService.printTopNCitiesWithCountryByPopulation(DEFAULT_N);
+
+        System.out.println("\n=== POPULATION HISTOGRAM: Cities by Population in each Continent ===");
+        appIns.cityReportService.printContinentPopulationHistogram(100_000, 500_000, 1_000_000, 5_000_000);
+
+        // Rank and percentile reports need the sorted orders of the snapshot
+        SnapshotRankReportService rankReportService = appIns.getRankReportService();
+        if (rankReportService != null) {
+            System.out.println("\n=== RANK: Rank of a City in its Continent ===");
+            rankReportService.printCityRank(DEFAULT_CITY_NAME, GeographyTree.Level.CONTINENT);
+
+            System.out.println("\n=== RANK: Rank of a Country in its Region ===");
+            rankReportService.printCountryRank(DEFAULT_COUNTRY_CODE, GeographyTree.Level.REGION);
+
+            System.out.println("\n=== RANK: Cities around Rank N in a Continent ===");
+            rankReportService.printCitiesAroundRank(GeographyTree.Level.CONTINENT, DEFAULT_CONTINENT, DEFAULT_N, 2);
+        }
+
+        for (String name : appIns.datasets.getNames()) {
+            Dataset dataset = appIns.datasets.get(name);
+            System.out.println("\n=== DATASET " + dataset + ": Retrieve the Population of the World ===");
+            dataset.getPopulationMetricsReportService().printWorldPopulationReport();
+        }
+
+        if (appIns.coalescer != null) {
+            appIns.coalescer.printStats();
+        }
+        if (appIns.snapshotReloader != null) {
+            appIns.snapshotReloader.printStats();
+        }
+
+        // Keep serving reports to internal clients when started with -Ddevops.wirePort=<port>
+        Integer wirePort = Integer.getInteger(WIRE_PORT_PROPERTY);
+        if (wirePort != null) {
+            appIns.serveReports(wirePort);
+        }
+    }
+
+    /**
+     * Serves the city and country reports over the binary protocol until the process stops,
+     * running them on -Ddevops.wireWorkers threads.
+     *
+     * @param port The port to listen on.
+     */
+    public void serveReports(int port) {
+        int workers = Integer.getInteger(WIRE_WORKERS_PROPERTY, ReportServer.DEFAULT_WORKERS);
+        try (ReportServer server = new ReportServer(cityReportService, countryReportService, port, workers)) {
+            server.serve();
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Could not start report server: " + e.getMessage());
+        }
     }
 
 
@@ -229,10 +726,10 @@ public class App {
                 // Wait a bit for db to start
                 Thread.sleep(delay);
                 // Connect to database
-                con = DriverManager.getConnection("jdbc:mysql://" + location
-                                + "/world?allowPublicKeyRetrieval=true&useSSL=false",
-                        "root", "ei:UA@_oSnDZ");
+                con = open(location);
+                this.location = location;
                 System.out.println("Successfully Connected");
+                con = withCircuitBreaker(withDiagnostics(withReplicas(con)));
                 // Initialize services after successful connection
                 this.cityReportService = new CityReportService(con);
                 this.countryReportService = new CountryReportService(con);
@@ -247,10 +744,101 @@ public class App {
         }
     }
 
+    /**
+     * Opens a connection to the world database.
+     *
+     * @param location Host and port of the MySQL server.
+     */
+    private static Connection open(String location) throws SQLException {
+        // Fetch sizes only bound memory when the driver reads through a server-side cursor
+        String cursorFetch = Integer.getInteger(STREAM_FETCH_SIZE_PROPERTY, 0) > 0 ? "&useCursorFetch=true" : "";
+        // The socket timeout catches a server too stalled to act on the query timeout
+        int queryTimeout = Integer.getInteger(QUERY_TIMEOUT_SECONDS_PROPERTY, 0);
+        String socketTimeout = queryTimeout > 0 ? "&socketTimeout=" + (queryTimeout + 5) * 1000L : "";
+        return DriverManager.getConnection("jdbc:mysql://" + location
+                        + "/world?allowPublicKeyRetrieval=true&useSSL=false" + cursorFetch + socketTimeout,
+                "root", "ei:UA@_oSnDZ");
+    }
+
+    /**
+     * Spreads the report queries over read replicas when they are listed with
+     * {@code -Ddevops.replicas=host1:3306,host2:3306}. Replicas lagging more than
+     * {@code -Ddevops.maxReplicaLagSeconds} behind are left out until they catch up.
+     *
+     * @param primary The connection to the primary.
+     * @return The connection the services should use.
+     */
+    private Connection withReplicas(Connection primary) {
+        String locations = System.getProperty(REPLICAS_PROPERTY, "").trim();
+        if (locations.isEmpty()) {
+            return primary;
+        }
+
+        List<ReplicaNode> replicas = new ArrayList<>();
+        for (String location : locations.split(",")) {
+            String replica = location.trim();
+            if (!replica.isEmpty()) {
+                replicas.add(new ReplicaNode(replica, () -> open(replica)));
+            }
+        }
+
+        long maxLag = Long.getLong(MAX_REPLICA_LAG_SECONDS_PROPERTY, DEFAULT_MAX_REPLICA_LAG_SECONDS);
+        System.out.println("Routing reports to " + replicas.size() + " replicas, max lag " + maxLag + "s");
+        replicaRouter = new ReplicaRouter(primary, replicas, maxLag);
+        replicaRouter.start(REPLICA_HEALTH_CHECK_MILLIS);
+        return replicaRouter.connection();
+    }
+
+    /**
+     * Wraps the connection with query diagnostics when the diagnostics mode is switched on
+     * with {@code -Ddevops.diagnostics=true}. The slow query threshold can be set with
+     * {@code -Ddevops.slowQueryMillis}.
+     *
+     * @param raw The connection returned by the driver.
+     * @return The connection the services should use.
+     */
+    private Connection withDiagnostics(Connection raw) {
+        if (!Boolean.getBoolean(DIAGNOSTICS_PROPERTY)) {
+            return raw;
+        }
+
+        long threshold = Long.getLong(SLOW_QUERY_MILLIS_PROPERTY, DEFAULT_SLOW_QUERY_MILLIS);
+        System.out.println("Query diagnostics enabled, slow query threshold " + threshold + " ms");
+        return DiagnosticConnection.wrap(raw, new QueryDiagnostics(raw, threshold));
+    }
+
+    /**
+     * Gives every query a timeout and guards the database with a circuit breaker when
+     * started with {@code -Ddevops.queryTimeoutSeconds=<seconds>}. The breaker opens after
+     * {@code -Ddevops.circuitFailures} failures in a row and stays open for
+     * {@code -Ddevops.circuitOpenMillis}.
+     *
+     * @param raw The connection the services would otherwise use.
+     * @return The connection the services should use.
+     */
+    private Connection withCircuitBreaker(Connection raw) {
+        int queryTimeout = Integer.getInteger(QUERY_TIMEOUT_SECONDS_PROPERTY, 0);
+        if (queryTimeout <= 0) {
+            return raw;
+        }
+
+        int failures = Integer.getInteger(CIRCUIT_FAILURES_PROPERTY, DEFAULT_CIRCUIT_FAILURES);
+        long openMillis = Long.getLong(CIRCUIT_OPEN_MILLIS_PROPERTY, DEFAULT_CIRCUIT_OPEN_MILLIS);
+        System.out.println("Query timeout " + queryTimeout + "s, circuit breaker opens after " + failures
+                + " failures for " + openMillis + " ms");
+        circuitBreaker = new CircuitBreaker(failures, openMillis);
+        return ResilientConnection.wrap(raw, circuitBreaker, queryTimeout);
+    }
+
     /**
      * Disconnect from the MySQL database.
      */
     public void disconnect() {
+        if (replicaRouter != null) {
+            replicaRouter.close();
+            replicaRouter = null;
+        }
+        datasets.close();
         if (con != null) {
             try {
                 // Close connection
@@ -0,0 +1,39 @@
+package com.napier.devops;
+
+/**
+ * An immutable city row.
+ * <p>
+ * Unlike {@link City}, a record cannot change after it is built, so one instance can be
+ * cached and handed to any number of callers and threads without copying.
+ *
+ * @param id          the city ID
+ * @param name        the city name
+ * @param countryCode the country code
+ * @param district    the district
+ * @param population  the population
+ */
+public record CityRecord(int id, String name, String countryCode, String district, int population) {
+
+    /**
+     * Copies a city bean. Missing numbers become 0, as JDBC reads a NULL column.
+     *
+     * @param city The city to copy.
+     * @return The city as a record.
+     */
+    public static CityRecord of(City city) {
+        return new CityRecord(city.getId() == null ? 0 : city.getId(), city.getName(), city.getCountryCode(),
+                city.getDistrict(), city.getPopulation() == null ? 0 : city.getPopulation());
+    }
+
+    /**
+     * @return A new mutable copy, for code that expects a {@link City}.
+     */
+    public City toCity() {
+        return new City().setAll(id, name, countryCode, district, population);
+    }
+
+    @Override
+    public String toString() {
+        return "City { id=" + id + ", name='" + name + "', countryCode='" + countryCode + "', district='" + district + "', population=" + population + " }\n";
+    }
+}
@@ -4,6 +4,7 @@ package com.napier.devops;
  * Represents a country.
  * <p>
  * Uses getters and setters for encapsulation and data hiding.
+ * The continent and region are interned through the shared {@link SymbolTable}.
  * The {@code toString} method is overridden for easy printing of country details.
  */
 public class Country {
@@ -35,7 +36,7 @@ public class Country {
     }
 
     public void setContinent(String continent) {
-        this.continent = continent;
+        this.continent = SymbolTable.geography().intern(continent);
     }
 
     public String getRegion() {
@@ -43,7 +44,7 @@ public class Country {
     }
 
     public void setRegion(String region) {
-        this.region = region;
+        this.region = SymbolTable.geography().intern(region);
     }
 
     public Integer getPopulation() {
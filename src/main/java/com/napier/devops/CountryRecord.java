@@ -0,0 +1,54 @@
+package com.napier.devops;
+
+/**
+ * An immutable country row.
+ * <p>
+ * Unlike {@link Country}, a record cannot change after it is built, so one instance can be
+ * cached and handed to any number of callers and threads without copying. The continent
+ * and region are interned through the shared {@link SymbolTable}.
+ *
+ * @param code       the country code
+ * @param name       the country name
+ * @param continent  the continent
+ * @param region     the region
+ * @param population the population
+ * @param capital    the ID of the capital city, or 0 if it has none
+ */
+public record CountryRecord(String code, String name, String continent, String region, int population, int capital) {
+
+    public CountryRecord {
+        continent = SymbolTable.geography().intern(continent);
+        region = SymbolTable.geography().intern(region);
+    }
+
+    /**
+     * Copies a country bean. Missing numbers become 0, as JDBC reads a NULL column.
+     *
+     * @param country The country to copy.
+     * @return The country as a record.
+     */
+    public static CountryRecord of(Country country) {
+        return new CountryRecord(country.getCode(), country.getName(), country.getContinent(), country.getRegion(),
+                country.getPopulation() == null ? 0 : country.getPopulation(),
+                country.getCapital() == null ? 0 : country.getCapital());
+    }
+
+    /**
+     * @return A new mutable copy, for code that expects a {@link Country}.
+     */
+    public Country toCountry() {
+        return new Country().setAll(code, name, continent, region, population, capital);
+    }
+
+    @Override
+    public String toString() {
+        return "Country {\t" +
+                "  code='" + code + "',\t" +
+                "  name='" + name + "',\t" +
+                "  continent='" + continent + "',\t" +
+                "  region='" + region + "',\t" +
+                "  population=" + population + ",\t" +
+                "  capital='" + capital + "'\t" +
+                '}';
+    }
+}
@@ -23,6 +23,7 @@ public class PopulationMetrics {
     private long nonCityPopulation;
     private double cityPopulationPercentage;
     private double nonCityPopulationPercentage;
+    private boolean stale;
 
     // Getters and Setters
 
@@ -73,6 +74,12 @@ public class PopulationMetrics {
     public double getNonCityPopulationPercentage() { return nonCityPopulationPercentage; }
     public void setNonCityPopulationPercentage(double nonCityPopulationPercentage) { this.nonCityPopulationPercentage = nonCityPopulationPercentage; }
 
+    /**
+     * @return True if the report was served from an older copy because the database was unavailable.
+     */
+    public boolean isStale() { return stale; }
+    public void setStale(boolean stale) { this.stale = stale; }
+
     /**
      * Sets all the fields of the PopulationMetrics class.
      * (Fixed the bug: uses the parameter 'nameOfArea' instead of the field)
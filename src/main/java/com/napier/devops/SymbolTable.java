@@ -0,0 +1,139 @@
+package com.napier.devops;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary of canonical strings for the low-cardinality geography columns
+ * (continent, region, district and country code).
+ * <p>
+ * Each distinct value is stored once and given a small integer code, so thousands of rows
+ * point at the same few String instances, and the snapshot engine can group by code instead
+ * of comparing strings. Each snapshot and index builds its own table, which goes away with
+ * it. The shared table never shrinks, so only the closed sets of continents and regions
+ * that {@link Country} and {@link CountryRecord} hold are interned into it.
+ */
+public final class SymbolTable {
+
+    /**
+     * The table of continents and regions shared by all countries in the JVM.
+     */
+    private static final SymbolTable GEOGRAPHY = new SymbolTable();
+
+    /**
+     * A table that stands in for the shared one on a single thread, see {@link #withGeography}.
+     */
+    private static final ThreadLocal<SymbolTable> SCOPED = new ThreadLocal<>();
+
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+
+    /**
+     * Symbols indexed by code. Only grown under the lock; a code is published through
+     * {@code codes} after its slot has been written, so readers always see the value.
+     */
+    private volatile String[] symbols = new String[64];
+    private int size;
+
+    /**
+     * @return The shared geography symbol table, or the table standing in for it on this thread.
+     */
+    public static SymbolTable geography() {
+        SymbolTable scoped = SCOPED.get();
+        return scoped != null ? scoped : GEOGRAPHY;
+    }
+
+    /**
+     * Runs a task with {@link #geography()} returning another table on the calling thread, so
+     * the values the task interns, such as those of a generated world, go away with that table
+     * instead of staying in the shared one for the life of the JVM. Other threads keep using
+     * the shared table.
+     *
+     * @param table The table to use in place of the shared one.
+     * @param task  The task to run on the calling thread.
+     */
+    public static void withGeography(SymbolTable table, Runnable task) {
+        SymbolTable previous = SCOPED.get();
+        SCOPED.set(table);
+        try {
+            task.run();
+        } finally {
+            if (previous == null) {
+                SCOPED.remove();
+            } else {
+                SCOPED.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Gets the canonical instance of a value, adding it to the table if needed.
+     *
+     * @param value The value to intern, may be null.
+     * @return The canonical instance, or null when value is null.
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        return symbol(code(value));
+    }
+
+    /**
+     * Gets the code of a value, adding it to the table if needed.
+     *
+     * @param value The value to encode, must not be null.
+     * @return A small, stable integer code for the value.
+     */
+    public int code(String value) {
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+
+        synchronized (this) {
+            code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+
+            String[] current = symbols;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            current[size] = value;
+            symbols = current;
+            codes.put(value, size);
+            return size++;
+        }
+    }
+
+    /**
+     * Looks up the code of a value without adding it.
+     *
+     * @param value The value to look up.
+     * @return The code, or -1 if the value has never been seen.
+     */
+    public int find(String value) {
+        if (value == null) {
+            return -1;
+        }
+        Integer code = codes.get(value);
+        return code == null ? -1 : code;
+    }
+
+    /**
+     * @param code A code returned by {@link #code(String)}.
+     * @return The canonical string for the code.
+     */
+    public String symbol(int code) {
+        return symbols[code];
+    }
+
+    /**
+     * @return The number of distinct symbols, which is also one more than the highest code.
+     */
+    public int size() {
+        return codes.size();
+    }
+}
@@ -0,0 +1,271 @@
+package com.napier.devops.coalescing;
+
+import com.napier.devops.City;
+import com.napier.devops.service.CapitalIndex;
+import com.napier.devops.service.CityIndexes;
+import com.napier.devops.service.CityNameIndex;
+import com.napier.devops.service.CityReportService;
+import com.napier.devops.service.CountryTable;
+import com.napier.devops.service.PopulationIndex;
+import com.napier.pojo.EnrichedCityPojo;
+import com.napier.pojo.Page;
+import com.napier.pojo.PopulationHistogramPojo;
+import com.napier.pojo.PopulationReportPojo;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * City reports that coalesce identical concurrent calls.
+ * <p>
+ * Every report method goes through a {@link RequestCoalescer}, so identical calls made at
+ * the same time share one query. The print methods are inherited and call the coalesced
+ * report methods.
+ */
+public class CoalescingCityReportService extends CityReportService {
+
+    private final CityReportService delegate;
+    private final RequestCoalescer coalescer;
+
+    /**
+     * @param delegate  The service that runs the reports.
+     * @param coalescer The in-flight table, which may be shared with other services.
+     */
+    public CoalescingCityReportService(CityReportService delegate, RequestCoalescer coalescer) {
+        super(null);
+        this.delegate = delegate;
+        this.coalescer = coalescer;
+    }
+
+    /**
+     * Prints here and on the service that runs the reports.
+     */
+    @Override
+    public void setOutput(PrintStream out, PrintStream err) {
+        super.setOutput(out, err);
+        delegate.setOutput(out, err);
+    }
+
+    /**
+     * Sets the capital index on the service that runs the reports.
+     */
+    @Override
+    public void setCapitalIndex(CapitalIndex capitalIndex) {
+        delegate.setCapitalIndex(capitalIndex);
+    }
+
+    /**
+     * Sets the city name index on the service that runs the reports.
+     */
+    @Override
+    public void setCityNameIndex(CityNameIndex cityNameIndex) {
+        delegate.setCityNameIndex(cityNameIndex);
+    }
+
+    /**
+     * Sets the population index on the service that runs the reports.
+     */
+    @Override
+    public void setPopulationIndex(PopulationIndex populationIndex) {
+        delegate.setPopulationIndex(populationIndex);
+    }
+
+    /**
+     * Sets the country table on the service that runs the reports.
+     */
+    @Override
+    public void setCountryTable(CountryTable countryTable) {
+        delegate.setCountryTable(countryTable);
+    }
+
+    /**
+     * Sets every index on the service that runs the reports.
+     */
+    @Override
+    public void setIndexes(CityIndexes indexes) {
+        delegate.setIndexes(indexes);
+    }
+
+    /**
+     * @return The indexes of the service that runs the reports.
+     */
+    @Override
+    public CityIndexes getIndexes() {
+        return delegate.getIndexes();
+    }
+
+    /**
+     * Sets the fetch size on the service that runs the reports.
+     */
+    @Override
+    public void setStreamFetchSize(int fetchSize) {
+        delegate.setStreamFetchSize(fetchSize);
+    }
+
+    /**
+     * @return The fetch size of the service that runs the reports.
+     */
+    @Override
+    public int getStreamFetchSize() {
+        return delegate.getStreamFetchSize();
+    }
+
+    // Each caller's consumer sees the cities as they are read, so streamed reports are not shared
+    @Override
+    public long forEachCityByPopulation(Consumer<City> consumer) {
+        return delegate.forEachCityByPopulation(consumer);
+    }
+
+    @Override
+    public long forEachCityInContinentByPopulation(String continent, Consumer<City> consumer) {
+        return delegate.forEachCityInContinentByPopulation(continent, consumer);
+    }
+
+    @Override
+    public long forEachCityInRegionByPopulation(String region, Consumer<City> consumer) {
+        return delegate.forEachCityInRegionByPopulation(region, consumer);
+    }
+
+    @Override
+    public List<EnrichedCityPojo> getAllCitiesWithCountryByPopulation() {
+        return coalescer.call("CityReportService.getAllCitiesWithCountryByPopulation", delegate::getAllCitiesWithCountryByPopulation);
+    }
+
+    @Override
+    public List<EnrichedCityPojo> getTopNCitiesWithCountryByPopulation(int n) {
+        return coalescer.call("CityReportService.getTopNCitiesWithCountryByPopulation", () -> delegate.getTopNCitiesWithCountryByPopulation(n), n);
+    }
+
+    @Override
+    public List<EnrichedCityPojo> getCitiesWithCountryInPopulationRange(int min, int max) {
+        return coalescer.call("CityReportService.getCitiesWithCountryInPopulationRange", () -> delegate.getCitiesWithCountryInPopulationRange(min, max), min, max);
+    }
+
+    @Override
+    public List<City> getCitiesInPopulationRange(int min, int max) {
+        return coalescer.call("CityReportService.getCitiesInPopulationRange", () -> delegate.getCitiesInPopulationRange(min, max), min, max);
+    }
+
+    @Override
+    public List<City> getCitiesInContinentInPopulationRange(String continent, int min, int max) {
+        return coalescer.call("CityReportService.getCitiesInContinentInPopulationRange", () -> delegate.getCitiesInContinentInPopulationRange(continent, min, max), continent, min, max);
+    }
+
+    @Override
+    public List<City> getCitiesInRegionInPopulationRange(String region, int min, int max) {
+        return coalescer.call("CityReportService.getCitiesInRegionInPopulationRange", () -> delegate.getCitiesInRegionInPopulationRange(region, min, max), region, min, max);
+    }
+
+    @Override
+    public List<PopulationHistogramPojo> getContinentPopulationHistogram(int... bounds) {
+        // Arrays compare by identity, so the key holds the bounds as text
+        return coalescer.call("CityReportService.getContinentPopulationHistogram", () -> delegate.getContinentPopulationHistogram(bounds), Arrays.toString(bounds));
+    }
+
+    @Override
+    public List<City> searchCities(String query, int limit) {
+        return coalescer.call("CityReportService.searchCities", () -> delegate.searchCities(query, limit), query, limit);
+    }
+
+    @Override
+    public City searchBestCity(String query) {
+        return coalescer.call("CityReportService.searchBestCity", () -> delegate.searchBestCity(query), query);
+    }
+
+    @Override
+    public List<City> getAllCitiesByPopulationLargestToSmallest() {
+        return coalescer.call("CityReportService.getAllCitiesByPopulationLargestToSmallest", delegate::getAllCitiesByPopulationLargestToSmallest);
+    }
+
+    @Override
+    public Page<City> getCitiesByPopulationPage(int pageSize, String resumeToken) {
+        return coalescer.call("CityReportService.getCitiesByPopulationPage", () -> delegate.getCitiesByPopulationPage(pageSize, resumeToken), pageSize, resumeToken);
+    }
+
+    @Override
+    public List<City> getAllCitiesInContinentByPopulationLargestToSmallest(String continent) {
+        return coalescer.call("CityReportService.getAllCitiesInContinentByPopulationLargestToSmallest", () -> delegate.getAllCitiesInContinentByPopulationLargestToSmallest(continent), continent);
+    }
+
+    @Override
+    public List<City> getAllCitiesInRegionByPopulationLargestToSmallest(String region) {
+        return coalescer.call("CityReportService.getAllCitiesInRegionByPopulationLargestToSmallest", () -> delegate.getAllCitiesInRegionByPopulationLargestToSmallest(region), region);
+    }
+
+    @Override
+    public List<City> getAllCitiesInCountryByPopulationLargestToSmallest(String countryCode) {
+        return coalescer.call("CityReportService.getAllCitiesInCountryByPopulationLargestToSmallest", () -> delegate.getAllCitiesInCountryByPopulationLargestToSmallest(countryCode), countryCode);
+    }
+
+    @Override
+    public List<City> getAllCitiesInDistrictByPopulationLargestToSmallest(String district) {
+        return coalescer.call("CityReportService.getAllCitiesInDistrictByPopulationLargestToSmallest", () -> delegate.getAllCitiesInDistrictByPopulationLargestToSmallest(district), district);
+    }
+
+    @Override
+    public List<City> getTopNCitiesByPopulationLargestToSmallest(int n) {
+        return coalescer.call("CityReportService.getTopNCitiesByPopulationLargestToSmallest", () -> delegate.getTopNCitiesByPopulationLargestToSmallest(n), n);
+    }
+
+    @Override
+    public List<City> getTopCitiesByContinent(String continent, int limit) {
+        return coalescer.call("CityReportService.getTopCitiesByContinent", () -> delegate.getTopCitiesByContinent(continent, limit), continent, limit);
+    }
+
+    @Override
+    public List<City> getTopCitiesByRegion(String region, int n) {
+        return coalescer.call("CityReportService.getTopCitiesByRegion", () -> delegate.getTopCitiesByRegion(region, n), region, n);
+    }
+
+    @Override
+    public List<City> getTopCitiesByCountry(String countryName, int n) {
+        return coalescer.call("CityReportService.getTopCitiesByCountry", () -> delegate.getTopCitiesByCountry(countryName, n), countryName, n);
+    }
+
+    @Override
+    public List<City> getTopCitiesByDistrict(String districtName, int n) {
+        return coalescer.call("CityReportService.getTopCitiesByDistrict", () -> delegate.getTopCitiesByDistrict(districtName, n), districtName, n);
+    }
+
+    @Override
+    public List<City> getAllCapitalCitiesByPopulation() {
+        return coalescer.call("CityReportService.getAllCapitalCitiesByPopulation", delegate::getAllCapitalCitiesByPopulation);
+    }
+
+    @Override
+    public List<City> getAllCapitalCitiesInContinentByPopulation(String continent) {
+        return coalescer.call("CityReportService.getAllCapitalCitiesInContinentByPopulation", () -> delegate.getAllCapitalCitiesInContinentByPopulation(continent), continent);
+    }
+
+    @Override
+    public List<City> getAllCapitalCitiesInRegionByPopulation(String region) {
+        return coalescer.call("CityReportService.getAllCapitalCitiesInRegionByPopulation", () -> delegate.getAllCapitalCitiesInRegionByPopulation(region), region);
+    }
+
+    @Override
+    public List<City> getTopCapitalCitiesByPopulation(int n) {
+        return coalescer.call("CityReportService.getTopCapitalCitiesByPopulation", () -> delegate.getTopCapitalCitiesByPopulation(n), n);
+    }
+
+    @Override
+    public List<City> getTopCapitalCitiesByContinent(String continent, int n) {
+        return coalescer.call("CityReportService.getTopCapitalCitiesByContinent", () -> delegate.getTopCapitalCitiesByContinent(continent, n), continent, n);
+    }
+
+    @Override
+    public List<City> getTopCapitalCitiesByRegion(String region, int n) {
+        return coalescer.call("CityReportService.getTopCapitalCitiesByRegion", () -> delegate.getTopCapitalCitiesByRegion(region, n), region, n);
+    }
+
+    @Override
+    public PopulationReportPojo getDistrictPopulationReport(String districtName) {
+        return coalescer.call("CityReportService.getDistrictPopulationReport", () -> delegate.getDistrictPopulationReport(districtName), districtName);
+    }
+
+    @Override
+    public PopulationReportPojo getCityPopulationReport(String cityName) {
+        return coalescer.call("CityReportService.getCityPopulationReport", () -> delegate.getCityPopulationReport(cityName), cityName);
+    }
+}
@@ -0,0 +1,82 @@
+package com.napier.devops.coalescing;
+
+import com.napier.devops.Country;
+import com.napier.devops.service.CountryReportService;
+import com.napier.pojo.LanguageReportPojo;
+import com.napier.pojo.Page;
+import com.napier.pojo.PopulationReportPojo;
+
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Country reports that coalesce identical concurrent calls.
+ * <p>
+ * Every report method goes through a {@link RequestCoalescer}, so identical calls made at
+ * the same time share one query. The print methods are inherited and call the coalesced
+ * report methods.
+ */
+public class CoalescingCountryReportService extends CountryReportService {
+
+    private final CountryReportService delegate;
+    private final RequestCoalescer coalescer;
+
+    /**
+     * @param delegate  The service that runs the reports.
+     * @param coalescer The in-flight table, which may be shared with other services.
+     */
+    public CoalescingCountryReportService(CountryReportService delegate, RequestCoalescer coalescer) {
+        super(null);
+        this.delegate = delegate;
+        this.coalescer = coalescer;
+    }
+
+    /**
+     * Prints here and on the service that runs the reports.
+     */
+    @Override
+    public void setOutput(PrintStream out, PrintStream err) {
+        super.setOutput(out, err);
+        delegate.setOutput(out, err);
+    }
+
+    @Override
+    public Country getCountryByCode(String countryCode) {
+        return coalescer.call("CountryReportService.getCountryByCode", () -> delegate.getCountryByCode(countryCode), countryCode);
+    }
+
+    @Override
+    public List<Country> getAllCountriesByPopulationLargestToSmallest() {
+        return coalescer.call("CountryReportService.getAllCountriesByPopulationLargestToSmallest", delegate::getAllCountriesByPopulationLargestToSmallest);
+    }
+
+    @Override
+    public Page<Country> getCountriesByPopulationPage(int pageSize, String resumeToken) {
+        return coalescer.call("CountryReportService.getCountriesByPopulationPage", () -> delegate.getCountriesByPopulationPage(pageSize, resumeToken), pageSize, resumeToken);
+    }
+
+    @Override
+    public List<Country> getAllCountriesInContinentByPopulationLargestToSmallest(String continent) {
+        return coalescer.call("CountryReportService.getAllCountriesInContinentByPopulationLargestToSmallest", () -> delegate.getAllCountriesInContinentByPopulationLargestToSmallest(continent), continent);
+    }
+
+    @Override
+    public List<Country> getAllCountriesInRegionByPopulationLargestToSmallest(String region) {
+        return coalescer.call("CountryReportService.getAllCountriesInRegionByPopulationLargestToSmallest", () -> delegate.getAllCountriesInRegionByPopulationLargestToSmallest(region), region);
+    }
+
+    @Override
+    public PopulationReportPojo getRegionPopulationReport(String regionName) {
+        return coalescer.call("CountryReportService.getRegionPopulationReport", () -> delegate.getRegionPopulationReport(regionName), regionName);
+    }
+
+    @Override
+    public PopulationReportPojo getCountryPopulationReport(String countryName) {
+        return coalescer.call("CountryReportService.getCountryPopulationReport", () -> delegate.getCountryPopulationReport(countryName), countryName);
+    }
+
+    @Override
+    public List<LanguageReportPojo> getMajorLanguageReport() {
+        return coalescer.call("CountryReportService.getMajorLanguageReport", delegate::getMajorLanguageReport);
+    }
+}
@@ -0,0 +1,71 @@
+package com.napier.devops.coalescing;
+
+import com.napier.devops.PopulationMetrics;
+import com.napier.devops.service.PopulationMetricsReportService;
+import com.napier.pojo.WorldReportPojo;
+
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Population metrics reports that coalesce identical concurrent calls.
+ * <p>
+ * Every report method goes through a {@link RequestCoalescer}, so identical calls made at
+ * the same time share one query. The print methods are inherited and call the coalesced
+ * report methods.
+ */
+public class CoalescingPopulationMetricsReportService extends PopulationMetricsReportService {
+
+    private final PopulationMetricsReportService delegate;
+    private final RequestCoalescer coalescer;
+
+    /**
+     * @param delegate  The service that runs the reports.
+     * @param coalescer The in-flight table, which may be shared with other services.
+     */
+    public CoalescingPopulationMetricsReportService(PopulationMetricsReportService delegate, RequestCoalescer coalescer) {
+        super(null);
+        this.delegate = delegate;
+        this.coalescer = coalescer;
+    }
+
+    /**
+     * Prints here and on the service that runs the reports.
+     */
+    @Override
+    public void setOutput(PrintStream out, PrintStream err) {
+        super.setOutput(out, err);
+        delegate.setOutput(out, err);
+    }
+
+    @Override
+    public List<PopulationMetrics> getContinentPopulationReport() {
+        return coalescer.call("PopulationMetricsReportService.getContinentPopulationReport", delegate::getContinentPopulationReport);
+    }
+
+    @Override
+    public List<PopulationMetrics> getRegionPopulationReport() {
+        return coalescer.call("PopulationMetricsReportService.getRegionPopulationReport", delegate::getRegionPopulationReport);
+    }
+
+    @Override
+    public List<PopulationMetrics> getCountryPopulationReport() {
+        return coalescer.call("PopulationMetricsReportService.getCountryPopulationReport", delegate::getCountryPopulationReport);
+    }
+
+    @Override
+    public long getWorldPopulationReport() {
+        return coalescer.call("PopulationMetricsReportService.getWorldPopulationReport", delegate::getWorldPopulationReport);
+    }
+
+    @Override
+    public PopulationMetrics getPopulationContinentReport(String continentName) {
+        return coalescer.call("PopulationMetricsReportService.getPopulationContinentReport", () -> delegate.getPopulationContinentReport(continentName), continentName);
+    }
+
+    @Override
+    public WorldReportPojo getWorldReport(String continentName, String regionName, String countryName) {
+        return coalescer.call("PopulationMetricsReportService.getWorldReport",
+                () -> delegate.getWorldReport(continentName, regionName, countryName), continentName, regionName, countryName);
+    }
+}
@@ -0,0 +1,176 @@
+package com.napier.devops.coalescing;
+
+import com.napier.devops.snapshot.RecordListView;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Table of report calls that are running, so identical calls made at the same time share
+ * one execution.
+ * <p>
+ * The first caller of a method with a given set of arguments runs it. Anyone calling the
+ * same method with equal arguments before it finishes waits for that run and receives an
+ * equal result, or the same exception. Results are only shared while the call is in flight;
+ * a call made after it finishes runs again, so no result is ever stale.
+ * <p>
+ * No caller shares anything it can change with another. The report beans have setters, so
+ * each caller that joined a run gets its own copy of the result, beans and lists included,
+ * and the caller that ran it gets the original, or a copy too if anyone joined. Values that
+ * cannot change, such as strings, numbers, records and a {@link RecordListView} of records,
+ * are handed to every caller as they are. A result of any other type cannot be copied, so
+ * when a run of it is shared its callers get an {@link IllegalArgumentException}.
+ */
+public class RequestCoalescer {
+
+    /**
+     * A method and its arguments.
+     */
+    private record Key(String method, List<Object> arguments) {
+    }
+
+    /**
+     * A running call, with a count of the callers that joined it.
+     */
+    private static final class Call {
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        // Callers that joined, or -1 once the caller running it has taken the result
+        private final AtomicInteger joined = new AtomicInteger();
+
+        /**
+         * @return Whether the caller joined, false if the call has already handed out its result.
+         */
+        private boolean join() {
+            int count;
+            do {
+                count = joined.get();
+                if (count < 0) {
+                    return false;
+                }
+            } while (!joined.compareAndSet(count, count + 1));
+            return true;
+        }
+
+        /**
+         * Stops callers joining.
+         *
+         * @return Whether anyone joined, in which case they copy from the result.
+         */
+        private boolean close() {
+            return joined.getAndSet(-1) > 0;
+        }
+    }
+
+    private final Map<Key, Call> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> coalescedByMethod = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Runs a call, or joins an identical one already running.
+     *
+     * @param method    The name of the method, which together with the arguments identifies the call.
+     * @param work      Runs the call.
+     * @param arguments The arguments of the call.
+     * @return The result of the call, or a copy of it when it was shared with other callers.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T call(String method, Supplier<T> work, Object... arguments) {
+        calls.increment();
+        Key key = new Key(method, Arrays.asList(arguments));
+
+        Call mine = new Call();
+        Call pending;
+        while ((pending = inFlight.putIfAbsent(key, mine)) != null) {
+            if (pending.join()) {
+                coalesced.increment();
+                coalescedByMethod.computeIfAbsent(method, name -> new LongAdder()).increment();
+                return (T) ResultCopies.copy(join(pending.result));
+            }
+            // It finished as this call arrived, so run again rather than share a result being handed out
+            inFlight.remove(key, pending);
+        }
+
+        executions.increment();
+        try {
+            T result = work.get();
+            mine.result.complete(result);
+            inFlight.remove(key, mine);
+            return mine.close() ? (T) ResultCopies.copy(result) : result;
+        } catch (RuntimeException | Error e) {
+            mine.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+            mine.close();
+        }
+    }
+
+    private static Object join(CompletableFuture<Object> pending) {
+        try {
+            return pending.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return The number of calls made.
+     */
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    /**
+     * @return The number of calls that ran.
+     */
+    public long getExecutions() {
+        return executions.sum();
+    }
+
+    /**
+     * @return The number of calls that joined one already running instead of running.
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @param method A method name.
+     * @return The number of calls of the method that joined one already running.
+     */
+    public long getCoalesced(String method) {
+        LongAdder count = coalescedByMethod.get(method);
+        return count == null ? 0 : count.sum();
+    }
+
+    /**
+     * @return The number of distinct calls running now.
+     */
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * Prints how many calls were made and how many of them were coalesced, per method.
+     */
+    public void printStats() {
+        System.out.println("Request coalescing: " + getCalls() + " calls, " + getExecutions()
+                + " executions, " + getCoalesced() + " coalesced");
+        new TreeMap<>(coalescedByMethod).forEach((method, count) ->
+                System.out.println("  " + method + ": " + count.sum() + " coalesced"));
+    }
+}
@@ -0,0 +1,132 @@
+package com.napier.devops.coalescing;
+
+import com.napier.devops.City;
+import com.napier.devops.Country;
+import com.napier.devops.PopulationMetrics;
+import com.napier.devops.snapshot.RecordListView;
+import com.napier.pojo.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Copies of report results, so callers that joined a coalesced call each get their own.
+ * <p>
+ * The report beans have setters, so a caller that changed a shared {@link City} would
+ * change it for every other caller of the same run. Each bean the report services return
+ * is copied field by field, and lists and pages are rebuilt around the copies. Values that
+ * cannot change, such as strings, numbers, records and {@link RecordListView}s of records,
+ * are passed on as they are. A copy of a stale result is stale too.
+ */
+final class ResultCopies {
+
+    private ResultCopies() {
+    }
+
+    /**
+     * @param result A report result, may be null.
+     * @return A copy that shares nothing a caller can change with the result.
+     * @throws IllegalArgumentException If the result is of a type that can change and is not
+     *                                  known here, so cannot safely be shared.
+     */
+    static Object copy(Object result) {
+        if (result == null || isImmutable(result)) {
+            return result;
+        }
+        if (result instanceof List<?> list) {
+            List<Object> copies = list instanceof StaleList<?> ? new StaleList<>() : new ArrayList<>(list.size());
+            for (Object item : list) {
+                copies.add(copy(item));
+            }
+            return copies;
+        }
+        if (result instanceof Page<?> page) {
+            return new Page<>((List<?>) copy(page.getItems()), page.getNextToken(), page.isStale());
+        }
+        if (result instanceof City city) {
+            return copy(city);
+        }
+        if (result instanceof Country country) {
+            return new Country().setAll(country.getCode(), country.getName(), country.getContinent(),
+                    country.getRegion(), country.getPopulation(), country.getCapital());
+        }
+        if (result instanceof PopulationMetrics metrics) {
+            return copy(metrics);
+        }
+        if (result instanceof PopulationReportPojo report) {
+            return copy(report);
+        }
+        if (result instanceof EnrichedCityPojo enriched) {
+            EnrichedCityPojo copy = new EnrichedCityPojo();
+            copy.setCity(enriched.getCity() == null ? null : copy(enriched.getCity()));
+            copy.setCountryName(enriched.getCountryName());
+            copy.setContinent(enriched.getContinent());
+            copy.setRegion(enriched.getRegion());
+            return copy;
+        }
+        if (result instanceof LanguageReportPojo language) {
+            LanguageReportPojo copy = new LanguageReportPojo();
+            copy.setLanguage(language.getLanguage());
+            copy.setSpeakers(language.getSpeakers());
+            copy.setWorldPopulation(language.getWorldPopulation());
+            copy.setPercentageOfWorld(language.getPercentageOfWorld());
+            return copy;
+        }
+        if (result instanceof PopulationHistogramPojo histogram) {
+            PopulationHistogramPojo copy = new PopulationHistogramPojo();
+            copy.setName(histogram.getName());
+            copy.setBounds(histogram.getBounds() == null ? null : histogram.getBounds().clone());
+            copy.setCityCounts(histogram.getCityCounts() == null ? null : histogram.getCityCounts().clone());
+            copy.setPopulations(histogram.getPopulations() == null ? null : histogram.getPopulations().clone());
+            return copy;
+        }
+        if (result instanceof WorldReportPojo world) {
+            return copy(world);
+        }
+        throw new IllegalArgumentException("Cannot copy a " + result.getClass().getName() + " for a coalesced call");
+    }
+
+    private static boolean isImmutable(Object result) {
+        return result instanceof String || result instanceof Number || result instanceof Boolean
+                || result instanceof Enum<?> || result instanceof Record || result instanceof RecordListView<?>;
+    }
+
+    private static City copy(City city) {
+        return new City().setAll(city.getId(), city.getName(), city.getCountryCode(), city.getDistrict(),
+                city.getPopulation());
+    }
+
+    private static PopulationMetrics copy(PopulationMetrics metrics) {
+        PopulationMetrics copy = new PopulationMetrics().setAll(metrics.getNameOfArea(), metrics.getReportType(),
+                metrics.getTotalPopulation(), metrics.getCityPopulation(), metrics.getNonCityPopulation(),
+                metrics.getCityPopulationPercentage(), metrics.getNonCityPopulationPercentage());
+        copy.setStale(metrics.isStale());
+        return copy;
+    }
+
+    private static PopulationReportPojo copy(PopulationReportPojo report) {
+        PopulationReportPojo copy = new PopulationReportPojo();
+        copy.setName(report.getName());
+        copy.setTotalPopulation(report.getTotalPopulation());
+        copy.setPopulationInCities(report.getPopulationInCities());
+        copy.setPercentageInCities(report.getPercentageInCities());
+        copy.setPopulationNotInCities(report.getPopulationNotInCities());
+        copy.setPercentageNotInCities(report.getPercentageNotInCities());
+        copy.setStale(report.isStale());
+        return copy;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static WorldReportPojo copy(WorldReportPojo world) {
+        WorldReportPojo copy = new WorldReportPojo();
+        copy.setContinents((List<PopulationMetrics>) copy(world.getContinents()));
+        copy.setRegions((List<PopulationMetrics>) copy(world.getRegions()));
+        copy.setCountries((List<PopulationMetrics>) copy(world.getCountries()));
+        copy.setWorldPopulation(world.getWorldPopulation());
+        copy.setContinent(world.getContinent() == null ? null : copy(world.getContinent()));
+        copy.setRegion(world.getRegion() == null ? null : copy(world.getRegion()));
+        copy.setCountry(world.getCountry() == null ? null : copy(world.getCountry()));
+        copy.setStale(world.isStale());
+        return copy;
+    }
+}
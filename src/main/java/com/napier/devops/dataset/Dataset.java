@@ -0,0 +1,139 @@
+package com.napier.devops.dataset;
+
+import com.napier.devops.service.CityReportService;
+import com.napier.devops.service.CountryReportService;
+import com.napier.devops.service.PopulationMetricsReportService;
+import com.napier.devops.snapshot.SnapshotCityReportService;
+import com.napier.devops.snapshot.SnapshotCountryReportService;
+import com.napier.devops.snapshot.SnapshotPopulationMetricsReportService;
+import com.napier.devops.snapshot.WorldSnapshot;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * One named version of the world data, such as a census year, with its own set of report services.
+ * <p>
+ * A dataset is backed either by a JDBC connection, whose services query the database, or
+ * by a {@link WorldSnapshot}, whose services answer from memory without a database.
+ */
+public class Dataset implements Closeable {
+
+    private final String name;
+    private final String source;
+    private final Connection connection;
+    private final WorldSnapshot snapshot;
+    private final CityReportService cityReportService;
+    private final CountryReportService countryReportService;
+    private final PopulationMetricsReportService populationMetricsReportService;
+
+    // The dictionary the snapshot's names were taken from, given back on close
+    private final NameDictionary names;
+    private boolean closed;
+
+    private Dataset(String name, String source, Connection connection, WorldSnapshot snapshot, NameDictionary names,
+                    CityReportService cityReportService, CountryReportService countryReportService,
+                    PopulationMetricsReportService populationMetricsReportService) {
+        this.name = name;
+        this.source = source;
+        this.connection = connection;
+        this.snapshot = snapshot;
+        this.names = names;
+        this.cityReportService = cityReportService;
+        this.countryReportService = countryReportService;
+        this.populationMetricsReportService = populationMetricsReportService;
+    }
+
+    /**
+     * A dataset whose reports query a database.
+     *
+     * @param name       The dataset name.
+     * @param source     Where the data comes from, for log messages.
+     * @param connection The connection to the world database, closed with the dataset.
+     */
+    public static Dataset ofConnection(String name, String source, Connection connection) {
+        return new Dataset(name, source, connection, null, null, new CityReportService(connection),
+                new CountryReportService(connection), new PopulationMetricsReportService(connection));
+    }
+
+    /**
+     * A dataset whose reports are served from memory.
+     *
+     * @param name     The dataset name.
+     * @param source   Where the data comes from, for log messages.
+     * @param snapshot The snapshot to serve.
+     */
+    public static Dataset ofSnapshot(String name, String source, WorldSnapshot snapshot) {
+        return ofSnapshot(name, source, snapshot, null);
+    }
+
+    /**
+     * A dataset served from a snapshot whose names were taken from a dictionary, which
+     * gets them back when the dataset is closed.
+     */
+    static Dataset ofSnapshot(String name, String source, WorldSnapshot snapshot, NameDictionary names) {
+        return new Dataset(name, source, null, snapshot, names, new SnapshotCityReportService(snapshot),
+                new SnapshotCountryReportService(snapshot), new SnapshotPopulationMetricsReportService(snapshot));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return The snapshot the dataset is served from, or null if it queries a database.
+     */
+    public WorldSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public CityReportService getCityReportService() {
+        return cityReportService;
+    }
+
+    public CountryReportService getCountryReportService() {
+        return countryReportService;
+    }
+
+    public PopulationMetricsReportService getPopulationMetricsReportService() {
+        return populationMetricsReportService;
+    }
+
+    /**
+     * Closes the database connection, if the dataset has one, and gives the snapshot's names
+     * back to the dictionary they were taken from. Closing twice does nothing.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        if (names != null) {
+            for (int row = 0; row < snapshot.getCountryCount(); row++) {
+                names.release(snapshot.getCountryName(row));
+            }
+            for (int row = 0; row < snapshot.getCityCount(); row++) {
+                names.release(snapshot.getCityName(row));
+            }
+        }
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                System.out.println("Error closing connection to dataset " + name + ": " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + source + ")";
+    }
+}
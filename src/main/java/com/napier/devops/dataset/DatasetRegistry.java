@@ -0,0 +1,189 @@
+package com.napier.devops.dataset;
+
+import com.napier.devops.snapshot.SnapshotFile;
+import com.napier.devops.snapshot.WorldSnapshot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * The named datasets one process serves, so several versions of the world data, such as
+ * yearly censuses, can be reported on side by side without a process and database each.
+ * <p>
+ * Datasets are configured as a comma separated list of {@code name=source} entries, where
+ * a source of {@code jdbc:host:port} is a MySQL server and anything else is a snapshot
+ * file. Snapshot files share one {@link NameDictionary}, so the city and country names
+ * they have in common are held once however many are loaded, and a name is dropped when
+ * the last dataset using it is removed or the registry is closed.
+ */
+public class DatasetRegistry implements Closeable {
+
+    /**
+     * Prefix of a source that is a MySQL server rather than a snapshot file.
+     */
+    public static final String JDBC_PREFIX = "jdbc:";
+
+    /**
+     * Opens a connection to the world database on a server.
+     */
+    @FunctionalInterface
+    public interface ConnectionOpener {
+        Connection open(String location) throws SQLException;
+    }
+
+    private final Map<String, Dataset> datasets = new LinkedHashMap<>();
+
+    // Names of the snapshot datasets read through this registry
+    final NameDictionary names = new NameDictionary();
+
+    /**
+     * Adds a dataset, closing any dataset already registered under its name.
+     *
+     * @param dataset The dataset to add.
+     */
+    public synchronized void register(Dataset dataset) {
+        Dataset previous = datasets.put(dataset.getName(), dataset);
+        if (previous != null && previous != dataset) {
+            previous.close();
+        }
+    }
+
+    /**
+     * Adds a dataset served from a snapshot file.
+     *
+     * @param name The dataset name.
+     * @param path The snapshot file.
+     * @return The new dataset.
+     * @throws IOException If the file cannot be read.
+     */
+    public Dataset registerSnapshotFile(String name, Path path) throws IOException {
+        WorldSnapshot snapshot = SnapshotFile.read(path, names::acquire);
+        Dataset dataset = Dataset.ofSnapshot(name, path.toString(), snapshot, names);
+        register(dataset);
+        return dataset;
+    }
+
+    /**
+     * Adds every dataset in a configuration string. An entry that is malformed or cannot be
+     * loaded is reported and skipped, so one bad entry does not stop the others from loading.
+     *
+     * @param spec   Entries such as {@code 2019=/data/world-2019.snap,2020=jdbc:db2020:3306}.
+     * @param opener Opens connections for the {@code jdbc:} entries.
+     * @return The number of datasets loaded.
+     */
+    public int configure(String spec, ConnectionOpener opener) {
+        int loaded = 0;
+        for (String text : entries(spec)) {
+            Map.Entry<String, String> entry;
+            try {
+                entry = parseEntry(text);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Error: " + e.getMessage());
+                continue;
+            }
+
+            String name = entry.getKey();
+            String source = entry.getValue();
+            try {
+                if (source.startsWith(JDBC_PREFIX)) {
+                    String location = source.substring(JDBC_PREFIX.length());
+                    register(Dataset.ofConnection(name, source, opener.open(location)));
+                } else {
+                    registerSnapshotFile(name, Path.of(source));
+                }
+                System.out.println("Dataset " + name + " loaded from " + source);
+                loaded++;
+            } catch (SQLException | IOException e) {
+                System.out.println("Could not load dataset " + name + ": " + e.getMessage());
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Splits a configuration string into dataset names and sources, in order.
+     *
+     * @throws IllegalArgumentException If an entry has no name or no source.
+     */
+    static Map<String, String> parse(String spec) {
+        Map<String, String> entries = new LinkedHashMap<>();
+        for (String text : entries(spec)) {
+            Map.Entry<String, String> entry = parseEntry(text);
+            entries.put(entry.getKey(), entry.getValue());
+        }
+        return entries;
+    }
+
+    /**
+     * @return The non-empty, trimmed entries of a configuration string.
+     */
+    private static List<String> entries(String spec) {
+        List<String> entries = new ArrayList<>();
+        if (spec == null) {
+            return entries;
+        }
+        for (String entry : spec.split(",")) {
+            String trimmed = entry.trim();
+            if (!trimmed.isEmpty()) {
+                entries.add(trimmed);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Splits one entry into its dataset name and source.
+     *
+     * @throws IllegalArgumentException If the entry has no name or no source.
+     */
+    private static Map.Entry<String, String> parseEntry(String entry) {
+        int equals = entry.indexOf('=');
+        if (equals <= 0 || equals == entry.length() - 1) {
+            throw new IllegalArgumentException("Dataset entry must be name=source: " + entry);
+        }
+        return Map.entry(entry.substring(0, equals).trim(), entry.substring(equals + 1).trim());
+    }
+
+    /**
+     * @param name The dataset name.
+     * @return The dataset, or null if there is none by that name.
+     */
+    public synchronized Dataset get(String name) {
+        return datasets.get(name);
+    }
+
+    /**
+     * @return The dataset names, in the order they were registered.
+     */
+    public synchronized List<String> getNames() {
+        return new ArrayList<>(datasets.keySet());
+    }
+
+    /**
+     * Removes and closes a dataset.
+     *
+     * @param name The dataset name.
+     * @return False if there is no dataset by that name.
+     */
+    public synchronized boolean remove(String name) {
+        Dataset dataset = datasets.remove(name);
+        if (dataset == null) {
+            return false;
+        }
+        dataset.close();
+        return true;
+    }
+
+    /**
+     * Closes every dataset.
+     */
+    @Override
+    public synchronized void close() {
+        datasets.values().forEach(Dataset::close);
+        datasets.clear();
+    }
+}
@@ -0,0 +1,63 @@
+package com.napier.devops.dataset;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * City and country names shared by the snapshot datasets of one registry.
+ * <p>
+ * Snapshots of the same world mostly repeat each other's names, so each name is held once
+ * and every dataset that uses it points at that copy. Each use is counted: a dataset takes
+ * its names when it is read and gives them back when it is closed, and a name is dropped
+ * once no dataset uses it, so the dictionary never holds more than the loaded datasets.
+ */
+public class NameDictionary {
+
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    /**
+     * Gets the shared copy of a name and counts one more use of it.
+     *
+     * @param name The name, may be null.
+     * @return The shared copy, or null when name is null.
+     */
+    public synchronized String acquire(String name) {
+        if (name == null) {
+            return null;
+        }
+        Entry entry = entries.computeIfAbsent(name, Entry::new);
+        entry.uses++;
+        return entry.name;
+    }
+
+    /**
+     * Gives back one use of a name, dropping the name when it has no uses left.
+     *
+     * @param name The name, may be null.
+     */
+    public synchronized void release(String name) {
+        if (name == null) {
+            return;
+        }
+        Entry entry = entries.get(name);
+        if (entry != null && --entry.uses == 0) {
+            entries.remove(name);
+        }
+    }
+
+    /**
+     * @return The number of distinct names in use.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static final class Entry {
+        private final String name;
+        private int uses;
+
+        private Entry(String name) {
+            this.name = name;
+        }
+    }
+}
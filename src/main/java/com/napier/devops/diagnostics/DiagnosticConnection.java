@@ -0,0 +1,116 @@
+package com.napier.devops.diagnostics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Wraps a JDBC connection so that every query the report services run is timed
+ * and handed to {@link QueryDiagnostics}.
+ * <p>
+ * The services keep using the plain {@link Connection} API, so diagnostics can be
+ * switched on without touching any of the report code.
+ */
+public final class DiagnosticConnection {
+
+    private DiagnosticConnection() {
+    }
+
+    /**
+     * Wraps a connection with diagnostics.
+     *
+     * @param connection  The connection the services would normally use.
+     * @param diagnostics The diagnostics that receive every execution.
+     * @return A connection that behaves like the original but reports its queries.
+     */
+    public static Connection wrap(Connection connection, QueryDiagnostics diagnostics) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new ConnectionHandler(connection, diagnostics));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static class ConnectionHandler implements InvocationHandler {
+        private final Connection connection;
+        private final QueryDiagnostics diagnostics;
+
+        ConnectionHandler(Connection connection, QueryDiagnostics diagnostics) {
+            this.connection = connection;
+            this.diagnostics = diagnostics;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = DiagnosticConnection.invoke(connection, method, args);
+
+            if (method.getName().equals("prepareStatement") && result instanceof PreparedStatement) {
+                return Proxy.newProxyInstance(
+                        PreparedStatement.class.getClassLoader(),
+                        new Class<?>[]{PreparedStatement.class},
+                        new StatementHandler((Statement) result, (String) args[0], diagnostics));
+            }
+            if (method.getName().equals("createStatement") && result instanceof Statement) {
+                return Proxy.newProxyInstance(
+                        Statement.class.getClassLoader(),
+                        new Class<?>[]{Statement.class},
+                        new StatementHandler((Statement) result, null, diagnostics));
+            }
+            return result;
+        }
+    }
+
+    private static class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final String preparedSql;
+        private final QueryDiagnostics diagnostics;
+        private final Map<Integer, Object> parameters = new TreeMap<>();
+
+        StatementHandler(Statement statement, String preparedSql, QueryDiagnostics diagnostics) {
+            this.statement = statement;
+            this.preparedSql = preparedSql;
+            this.diagnostics = diagnostics;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+
+            // Remember bound parameters so they can be logged and reused for EXPLAIN
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer
+                    && method.getParameterTypes()[0] == int.class) {
+                parameters.put((Integer) args[0], name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                parameters.clear();
+            }
+
+            if (!name.equals("executeQuery")) {
+                return DiagnosticConnection.invoke(statement, method, args);
+            }
+
+            String sql = (args != null && args.length > 0) ? (String) args[0] : preparedSql;
+            long start = System.nanoTime();
+            Object result = DiagnosticConnection.invoke(statement, method, args);
+            long elapsed = System.nanoTime() - start;
+
+            List<Object> bound = args != null && args.length > 0 ? List.of() : new ArrayList<>(parameters.values());
+            diagnostics.record(sql, bound, elapsed);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.napier.devops.diagnostics;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Opt-in diagnostics for the report SQL.
+ * <p>
+ * The first time a distinct SQL string is executed its plan is captured with
+ * {@code EXPLAIN FORMAT=JSON} and any full table scan or filesort is reported.
+ * Every execution that takes longer than the configured threshold is logged together
+ * with its parameters and the captured plan.
+ */
+public class QueryDiagnostics {
+
+    private final Connection connection;
+    private final long slowQueryThresholdMillis;
+
+    /**
+     * Plans keyed by SQL string, so each statement is only explained once.
+     */
+    private final Map<String, QueryPlan> plans = new ConcurrentHashMap<>();
+
+    /**
+     * @param connection               The raw (unwrapped) connection used to run EXPLAIN.
+     * @param slowQueryThresholdMillis Executions slower than this are logged.
+     */
+    public QueryDiagnostics(Connection connection, long slowQueryThresholdMillis) {
+        this.connection = connection;
+        this.slowQueryThresholdMillis = slowQueryThresholdMillis;
+    }
+
+    public long getSlowQueryThresholdMillis() {
+        return slowQueryThresholdMillis;
+    }
+
+    /**
+     * Gets the plan captured for a SQL string.
+     *
+     * @param sql The SQL string as passed to the JDBC driver.
+     * @return The captured plan, or null if the statement has not been explained yet.
+     */
+    public QueryPlan getPlan(String sql) {
+        return plans.get(sql);
+    }
+
+    /**
+     * Records one execution of a statement.
+     *
+     * @param sql          The SQL string that was executed.
+     * @param parameters   The bound parameters in index order (empty for plain statements).
+     * @param elapsedNanos How long the execution took.
+     */
+    public void record(String sql, List<Object> parameters, long elapsedNanos) {
+        QueryPlan plan = plans.get(sql);
+        if (plan == null) {
+            // EXPLAIN runs outside the map so the round trip does not block other statements;
+            // if two threads explain the same statement at once, the first plan stored wins
+            QueryPlan explained = explain(sql, parameters);
+            plan = plans.putIfAbsent(sql, explained);
+            if (plan == null) {
+                plan = explained;
+                printWarnings(plan);
+            }
+        }
+
+        long elapsedMillis = elapsedNanos / 1_000_000;
+        if (elapsedMillis >= slowQueryThresholdMillis) {
+            System.out.println("Slow query (" + elapsedMillis + " ms): " + oneLine(sql));
+            System.out.println("  parameters: " + parameters);
+            System.out.println("  plan: " + (plan.getJson() == null ? "unavailable" : oneLine(plan.getJson())));
+        }
+    }
+
+    /**
+     * Runs EXPLAIN FORMAT=JSON for a statement using the same parameters it was executed with.
+     */
+    private QueryPlan explain(String sql, List<Object> parameters) {
+        String json = null;
+
+        try (PreparedStatement pstmt = connection.prepareStatement("EXPLAIN FORMAT=JSON " + sql)) {
+            for (int i = 0; i < parameters.size(); i++) {
+                pstmt.setObject(i + 1, parameters.get(i));
+            }
+            try (ResultSet resultSet = pstmt.executeQuery()) {
+                if (resultSet.next()) {
+                    json = resultSet.getString(1);
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println("Explain failed: " + e.getMessage());
+        }
+
+        return new QueryPlan(sql, json);
+    }
+
+    /**
+     * Reports a full table scan or filesort in a newly captured plan.
+     */
+    private static void printWarnings(QueryPlan plan) {
+        if (plan.hasWarnings()) {
+            System.out.println("Query plan warning for: " + oneLine(plan.getSql()));
+            if (!plan.getFullScanTables().isEmpty()) {
+                System.out.println("  full table scan on: " + plan.getFullScanTables());
+            }
+            if (plan.isUsingFilesort()) {
+                System.out.println("  using filesort");
+            }
+        }
+    }
+
+    /**
+     * Collapses the multi-line text blocks used by the services into a single log line.
+     */
+    private static String oneLine(String text) {
+        return text.replaceAll("\\s+", " ").trim();
+    }
+}
@@ -0,0 +1,74 @@
+package com.napier.devops.diagnostics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Holds the result of an {@code EXPLAIN FORMAT=JSON} for a single SQL string,
+ * together with the warnings that were found in the plan.
+ */
+public class QueryPlan {
+
+    /**
+     * Matches a {@code table} block that is read with a full table scan.
+     * MySQL writes the table name before its access type inside the same block.
+     */
+    private static final Pattern FULL_SCAN = Pattern.compile(
+            "\"table_name\"\\s*:\\s*\"([^\"]+)\"\\s*,\\s*\"access_type\"\\s*:\\s*\"ALL\"");
+
+    private static final Pattern FILESORT = Pattern.compile("\"using_filesort\"\\s*:\\s*true");
+
+    private final String sql;
+    private final String json;
+    private final List<String> fullScanTables;
+    private final boolean usingFilesort;
+
+    public QueryPlan(String sql, String json) {
+        this.sql = sql;
+        this.json = json;
+
+        List<String> tables = new ArrayList<>();
+        if (json != null) {
+            Matcher matcher = FULL_SCAN.matcher(json);
+            while (matcher.find()) {
+                tables.add(matcher.group(1));
+            }
+        }
+        this.fullScanTables = Collections.unmodifiableList(tables);
+        this.usingFilesort = json != null && FILESORT.matcher(json).find();
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public String getJson() {
+        return json;
+    }
+
+    /**
+     * @return The tables (or derived table aliases) read with {@code access_type = ALL}.
+     */
+    public List<String> getFullScanTables() {
+        return fullScanTables;
+    }
+
+    public boolean isUsingFilesort() {
+        return usingFilesort;
+    }
+
+    /**
+     * @return true when the plan contains a full table scan or a filesort.
+     */
+    public boolean hasWarnings() {
+        return usingFilesort || !fullScanTables.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "QueryPlan { fullScanTables=" + fullScanTables + ", usingFilesort=" + usingFilesort + " }";
+    }
+}
@@ -0,0 +1,143 @@
+package com.napier.devops.generator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Writes generated rows as a SQL script that replaces the world database, in the same
+ * schema as {@code db/world_db/world.sql}, so it can be loaded by the MySQL container.
+ * Rows are batched into multi-row INSERT statements to keep the load fast.
+ */
+public class SqlWorldDataSink implements WorldDataSink {
+
+    private static final int ROWS_PER_INSERT = 1000;
+
+    private static final String SCHEMA = """
+            /*!50503 SET NAMES utf8mb4 */;
+            SET FOREIGN_KEY_CHECKS=0;
+            SET UNIQUE_CHECKS=0;
+            SET autocommit=0;
+
+            DROP DATABASE IF EXISTS `world`;
+            CREATE DATABASE `world` DEFAULT CHARACTER SET utf8mb4;
+            USE `world`;
+
+            CREATE TABLE `city` (
+              `ID` int NOT NULL AUTO_INCREMENT,
+              `Name` char(35) NOT NULL DEFAULT '',
+              `CountryCode` char(3) NOT NULL DEFAULT '',
+              `District` char(20) NOT NULL DEFAULT '',
+              `Population` int NOT NULL DEFAULT '0',
+              PRIMARY KEY (`ID`),
+              KEY `CountryCode` (`CountryCode`),
+              KEY `Population` (`Population`),
+              CONSTRAINT `city_ibfk_1` FOREIGN KEY (`CountryCode`) REFERENCES `country` (`Code`)
+            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+            CREATE TABLE `country` (
+              `Code` char(3) NOT NULL DEFAULT '',
+              `Name` char(52) NOT NULL DEFAULT '',
+              `Continent` enum('Asia','Europe','North America','Africa','Oceania','Antarctica','South America') NOT NULL DEFAULT 'Asia',
+              `Region` char(26) NOT NULL DEFAULT '',
+              `SurfaceArea` decimal(10,2) NOT NULL DEFAULT '0.00',
+              `IndepYear` smallint DEFAULT NULL,
+              `Population` int NOT NULL DEFAULT '0',
+              `LifeExpectancy` decimal(3,1) DEFAULT NULL,
+              `GNP` decimal(10,2) DEFAULT NULL,
+              `GNPOld` decimal(10,2) DEFAULT NULL,
+              `LocalName` char(45) NOT NULL DEFAULT '',
+              `GovernmentForm` char(45) NOT NULL DEFAULT '',
+              `HeadOfState` char(60) DEFAULT NULL,
+              `Capital` int DEFAULT NULL,
+              `Code2` char(2) NOT NULL DEFAULT '',
+              PRIMARY KEY (`Code`),
+              KEY `Population` (`Population`)
+            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+            CREATE TABLE `countrylanguage` (
+              `CountryCode` char(3) NOT NULL DEFAULT '',
+              `Language` char(30) NOT NULL DEFAULT '',
+              `IsOfficial` enum('T','F') NOT NULL DEFAULT 'F',
+              `Percentage` decimal(4,1) NOT NULL DEFAULT '0.0',
+              PRIMARY KEY (`CountryCode`,`Language`),
+              KEY `CountryCode` (`CountryCode`),
+              CONSTRAINT `countryLanguage_ibfk_1` FOREIGN KEY (`CountryCode`) REFERENCES `country` (`Code`)
+            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+            """;
+
+    private final Writer out;
+    private String currentInsert;
+    private int rowsInStatement;
+
+    public SqlWorldDataSink(Path path) throws IOException {
+        this.out = new BufferedWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    @Override
+    public void begin(int countryCount, int cityCount, int languageCount) throws IOException {
+        out.write("-- Synthetic world database: " + countryCount + " countries, " + cityCount + " cities, "
+                + languageCount + " languages\n");
+        out.write(SCHEMA);
+    }
+
+    @Override
+    public void country(String code, String name, String continent, String region, int population, int capital) throws IOException {
+        row("INSERT INTO `country` (`Code`,`Name`,`Continent`,`Region`,`Population`,`Capital`,`LocalName`) VALUES ",
+                "(" + quote(code) + "," + quote(name) + "," + quote(continent) + "," + quote(region) + ","
+                        + population + "," + (capital == 0 ? "NULL" : capital) + "," + quote(name) + ")");
+    }
+
+    @Override
+    public void city(int id, String name, String countryCode, String district, int population) throws IOException {
+        row("INSERT INTO `city` VALUES ",
+                "(" + id + "," + quote(name) + "," + quote(countryCode) + "," + quote(district) + "," + population + ")");
+    }
+
+    @Override
+    public void language(String countryCode, String language, boolean official, double percentage) throws IOException {
+        row("INSERT INTO `countrylanguage` VALUES ",
+                "(" + quote(countryCode) + "," + quote(language) + "," + (official ? "'T'" : "'F'") + ","
+                        + String.format(Locale.ROOT, "%.1f", percentage) + ")");
+    }
+
+    @Override
+    public void end() throws IOException {
+        finishStatement();
+        out.write("COMMIT;\nSET FOREIGN_KEY_CHECKS=1;\nSET UNIQUE_CHECKS=1;\n");
+        out.close();
+    }
+
+    /**
+     * Appends a row to the current INSERT, starting a new statement when the table changes
+     * or the batch is full.
+     */
+    private void row(String insert, String values) throws IOException {
+        if (!insert.equals(currentInsert) || rowsInStatement == ROWS_PER_INSERT) {
+            finishStatement();
+            out.write(insert);
+            currentInsert = insert;
+        } else {
+            out.write(',');
+        }
+        out.write(values);
+        rowsInStatement++;
+    }
+
+    private void finishStatement() throws IOException {
+        if (rowsInStatement > 0) {
+            out.write(";\n");
+        }
+        rowsInStatement = 0;
+        currentInsert = null;
+    }
+
+    static String quote(String value) {
+        return "'" + value.replace("\\", "\\\\").replace("'", "''") + "'";
+    }
+}
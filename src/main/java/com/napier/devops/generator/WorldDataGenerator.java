@@ -0,0 +1,443 @@
+package com.napier.devops.generator;
+
+import com.napier.devops.snapshot.SnapshotFile;
+import com.napier.devops.snapshot.WorldSnapshot;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic generator of synthetic world data for scale testing.
+ * <p>
+ * A scale factor of 1 gives roughly the size of {@code world.sql} (239 countries, 4079 cities);
+ * the city table grows linearly with the scale and the country table with its square root.
+ * Country sizes, city populations and district sizes are skewed the way the real data is,
+ * so a few countries and cities dominate. The same scale and seed always produce the same rows.
+ * <p>
+ * Usage: {@code java -cp devops.jar com.napier.devops.generator.WorldDataGenerator
+ * --scale 1000 --seed 42 --format sql|snapshot --output world_1000.sql}
+ */
+public class WorldDataGenerator {
+
+    public static final int BASE_COUNTRIES = 239;
+    public static final int BASE_CITIES = 4079;
+
+    /**
+     * Largest number of distinct three letter country codes.
+     */
+    private static final int MAX_COUNTRIES = 26 * 26 * 26;
+
+    /**
+     * Continent, region and the number of countries the region has in world.sql.
+     */
+    private static final Object[][] REGIONS = {
+            {"Africa", "Central Africa", 9}, {"Africa", "Eastern Africa", 20}, {"Africa", "Northern Africa", 7},
+            {"Africa", "Southern Africa", 5}, {"Africa", "Western Africa", 17}, {"Antarctica", "Antarctica", 5},
+            {"Asia", "Eastern Asia", 8}, {"Asia", "Middle East", 18}, {"Asia", "Southeast Asia", 11},
+            {"Asia", "Southern and Central Asia", 14}, {"Europe", "Baltic Countries", 3}, {"Europe", "British Islands", 2},
+            {"Europe", "Eastern Europe", 10}, {"Europe", "Nordic Countries", 7}, {"Europe", "Southern Europe", 15},
+            {"Europe", "Western Europe", 9}, {"North America", "Caribbean", 24}, {"North America", "Central America", 8},
+            {"North America", "North America", 5}, {"Oceania", "Australia and New Zealand", 5}, {"Oceania", "Melanesia", 5},
+            {"Oceania", "Micronesia", 7}, {"Oceania", "Micronesia/Caribbean", 1}, {"Oceania", "Polynesia", 10},
+            {"South America", "South America", 14}
+    };
+
+    /**
+     * Languages, most widely spoken first so that low indexes are picked most often.
+     */
+    private static final String[] LANGUAGES = {
+            "English", "Arabic", "Spanish", "French", "Chinese", "German", "Russian", "Hindi", "Portuguese",
+            "Italian", "Turkish", "Ukrainian", "Polish", "Creole English", "Ful", "Serbo-Croatian", "Creole French",
+            "Hungarian", "Romani", "Malay", "Korean", "Tamil", "Kazakh", "Dutch", "Greek", "Armenian", "Japanese",
+            "Vietnamese", "Danish", "Norwegian", "Swahili", "Bengali", "Javanese", "Punjabi", "Telugu", "Marathi"
+    };
+
+    private static final String[] SYLLABLES = {
+            "ka", "lo", "ma", "ri", "san", "ta", "vi", "no", "be", "da", "el", "gra", "hu", "jo", "lin", "mor",
+            "po", "ra", "sel", "tor", "ur", "ven", "wa", "yo", "zan", "ber", "cas", "dor", "fen", "são", "lé", "mü"
+    };
+
+    private final double scale;
+    private final long seed;
+    private final int countryCount;
+    private final int cityCount;
+
+    // Country plan, small enough to hold in memory at any scale
+    private String[] codes;
+    private String[] names;
+    private int[] regions;
+    private int[] populations;
+    private int[] capitals;
+    private int[] firstCityIds;
+    private int[] cityCounts;
+    private int[] languageCounts;
+
+    /**
+     * @param scale Size relative to world.sql, must be greater than 0.
+     * @param seed  Seed for all random choices.
+     */
+    public WorldDataGenerator(double scale, long seed) {
+        if (scale <= 0) {
+            throw new IllegalArgumentException("Scale must be greater than 0");
+        }
+        this.scale = scale;
+        this.seed = seed;
+        this.countryCount = (int) Math.max(1, Math.min(MAX_COUNTRIES, Math.round(BASE_COUNTRIES * Math.sqrt(scale))));
+        this.cityCount = (int) Math.max(1, Math.min(Integer.MAX_VALUE - 1, Math.round(BASE_CITIES * scale)));
+    }
+
+    public double getScale() {
+        return scale;
+    }
+
+    public int getCountryCount() {
+        return countryCount;
+    }
+
+    public int getCityCount() {
+        return cityCount;
+    }
+
+    public static void main(String[] args) throws IOException {
+        double scale = 1;
+        long seed = 42;
+        String format = "sql";
+        Path output = null;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--scale" -> scale = Double.parseDouble(args[i + 1]);
+                case "--seed" -> seed = Long.parseLong(args[i + 1]);
+                case "--format" -> format = args[i + 1];
+                case "--output" -> output = Path.of(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        if (output == null) {
+            System.err.println("Usage: WorldDataGenerator --output <file> [--scale 1] [--seed 42] [--format sql|snapshot]");
+            return;
+        }
+
+        WorldDataGenerator generator = new WorldDataGenerator(scale, seed);
+        long start = System.nanoTime();
+        generator.write(format, output);
+        System.out.println("Generated " + generator.getCountryCount() + " countries and " + generator.getCityCount()
+                + " cities in " + (System.nanoTime() - start) / 1_000_000 + " ms to " + output);
+    }
+
+    /**
+     * Writes the data to a file.
+     *
+     * @param format "sql" for a MySQL script or "snapshot" for a {@link SnapshotFile}.
+     * @param output The file to write.
+     */
+    public void write(String format, Path output) throws IOException {
+        switch (format) {
+            case "sql" -> generate(new SqlWorldDataSink(output));
+            case "snapshot" -> generate(new SnapshotFileSink(output));
+            default -> throw new IllegalArgumentException("Unknown format " + format);
+        }
+    }
+
+    /**
+     * Generates the data straight into an in-memory snapshot.
+     */
+    public WorldSnapshot generateSnapshot() {
+        WorldSnapshot.Builder builder = WorldSnapshot.builder();
+        try {
+            generate(new WorldDataSink() {
+                @Override
+                public void begin(int countryCount, int cityCount, int languageCount) {
+                }
+
+                @Override
+                public void country(String code, String name, String continent, String region, int population, int capital) {
+                    builder.addCountry(code, name, continent, region, population, capital);
+                }
+
+                @Override
+                public void city(int id, String name, String countryCode, String district, int population) {
+                    builder.addCity(id, name, countryCode, district, population);
+                }
+
+                @Override
+                public void language(String countryCode, String language, boolean official, double percentage) {
+                    builder.addLanguage(countryCode, language, official, percentage);
+                }
+
+                @Override
+                public void end() {
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Streams every row into a sink.
+     */
+    public void generate(WorldDataSink sink) throws IOException {
+        plan();
+
+        int languageTotal = 0;
+        for (int count : languageCounts) {
+            languageTotal += count;
+        }
+        sink.begin(countryCount, cityCount, languageTotal);
+
+        for (int country = 0; country < countryCount; country++) {
+            Object[] region = REGIONS[regions[country]];
+            sink.country(codes[country], names[country], (String) region[0], (String) region[1],
+                    populations[country], capitals[country]);
+        }
+
+        for (int country = 0; country < countryCount; country++) {
+            writeCities(sink, country);
+        }
+
+        for (int country = 0; country < countryCount; country++) {
+            writeLanguages(sink, country);
+        }
+
+        sink.end();
+    }
+
+    /**
+     * Decides everything about the countries: region, how many cities they get, their
+     * populations and capitals. City populations are generated here only to size the country,
+     * and regenerated from the same seed when the cities are written.
+     */
+    private void plan() {
+        codes = new String[countryCount];
+        names = new String[countryCount];
+        regions = new int[countryCount];
+        populations = new int[countryCount];
+        capitals = new int[countryCount];
+        firstCityIds = new int[countryCount];
+        cityCounts = new int[countryCount];
+        languageCounts = new int[countryCount];
+
+        SplittableRandom random = new SplittableRandom(seed);
+        int regionWeight = 0;
+        for (Object[] region : REGIONS) {
+            regionWeight += (Integer) region[2];
+        }
+
+        // Country sizes are log-normal, and about one in twenty countries has no cities at all
+        double[] weights = new double[countryCount];
+        double totalWeight = 0;
+        Set<String> usedNames = new HashSet<>();
+        for (int country = 0; country < countryCount; country++) {
+            codes[country] = code(country);
+            names[country] = uniqueName(random, usedNames);
+            regions[country] = pickRegion(random.nextInt(regionWeight));
+            weights[country] = random.nextDouble() < 0.05 ? 0 : Math.exp(random.nextGaussian() * 1.3);
+            totalWeight += weights[country];
+            languageCounts[country] = 1 + (int) (Math.pow(random.nextDouble(), 2) * 4);
+        }
+        if (totalWeight == 0) {
+            weights[0] = 1;
+            totalWeight = 1;
+        }
+
+        // Share the cities out in proportion to the weights, giving the rounding leftovers to the first countries
+        long assigned = 0;
+        for (int country = 0; country < countryCount; country++) {
+            cityCounts[country] = (int) (cityCount * (weights[country] / totalWeight));
+            assigned += cityCounts[country];
+        }
+        for (int country = 0; assigned < cityCount; country = (country + 1) % countryCount) {
+            if (weights[country] > 0) {
+                cityCounts[country]++;
+                assigned++;
+            }
+        }
+
+        int nextId = 1;
+        for (int country = 0; country < countryCount; country++) {
+            firstCityIds[country] = nextId;
+            nextId += cityCounts[country];
+
+            SplittableRandom countryRandom = countryRandom(country, 0);
+            int[] cityPopulations = cityPopulations(country);
+            long citySum = 0;
+            for (int population : cityPopulations) {
+                citySum += population;
+            }
+
+            if (cityPopulations.length == 0) {
+                populations[country] = countryRandom.nextDouble() < 0.5 ? 0 : (int) logNormal(countryRandom, 2_000_000, 1.5, 50, 50_000_000);
+                capitals[country] = 0;
+            } else {
+                double urbanShare = 0.1 + countryRandom.nextDouble() * 0.75;
+                populations[country] = (int) Math.min(Integer.MAX_VALUE, Math.round(citySum / urbanShare));
+                // Usually the largest city, sometimes one of the next few
+                int capitalRank = (int) (Math.pow(countryRandom.nextDouble(), 3) * Math.min(5, cityPopulations.length));
+                capitals[country] = firstCityIds[country] + capitalRank;
+            }
+        }
+    }
+
+    private void writeCities(WorldDataSink sink, int country) throws IOException {
+        int[] cityPopulations = cityPopulations(country);
+        SplittableRandom random = countryRandom(country, 2);
+
+        int districtCount = (int) Math.max(1, Math.round(Math.sqrt(cityPopulations.length) * 1.5));
+        String[] districts = new String[districtCount];
+        for (int i = 0; i < districtCount; i++) {
+            districts[i] = name(random, 2, 3, 20);
+        }
+
+        for (int i = 0; i < cityPopulations.length; i++) {
+            // Squaring the uniform value makes the first districts hold most of the cities
+            String district = districts[(int) (Math.pow(random.nextDouble(), 2) * districtCount)];
+            sink.city(firstCityIds[country] + i, name(random, 2, 4, 35), codes[country], district, cityPopulations[i]);
+        }
+    }
+
+    private void writeLanguages(WorldDataSink sink, int country) throws IOException {
+        SplittableRandom random = countryRandom(country, 3);
+        boolean[] used = new boolean[LANGUAGES.length];
+        double remaining = 100.0;
+
+        for (int i = 0; i < languageCounts[country]; i++) {
+            int language;
+            do {
+                language = (int) (Math.pow(random.nextDouble(), 2.5) * LANGUAGES.length);
+            } while (used[language]);
+            used[language] = true;
+
+            double share = i == 0 ? 50 + random.nextDouble() * 49 : random.nextDouble() * remaining * 0.8;
+            double percentage = Math.round(Math.min(share, remaining) * 10) / 10.0;
+            remaining -= percentage;
+            sink.language(codes[country], LANGUAGES[language], i == 0, percentage);
+        }
+    }
+
+    /**
+     * City populations of a country, largest first. Log-normal around 120,000 like world.sql,
+     * scaled down if the country's total would not fit in the INT population column.
+     */
+    private int[] cityPopulations(int country) {
+        SplittableRandom random = countryRandom(country, 1);
+        int[] cityPopulations = new int[cityCounts[country]];
+        long sum = 0;
+        for (int i = 0; i < cityPopulations.length; i++) {
+            cityPopulations[i] = (int) logNormal(random, 120_000, 1.1, 500, 25_000_000);
+            sum += cityPopulations[i];
+        }
+
+        long limit = (long) (Integer.MAX_VALUE * 0.8);
+        if (sum > limit) {
+            double factor = (double) limit / sum;
+            for (int i = 0; i < cityPopulations.length; i++) {
+                cityPopulations[i] = (int) Math.max(1, cityPopulations[i] * factor);
+            }
+        }
+
+        Arrays.sort(cityPopulations);
+        for (int i = 0, j = cityPopulations.length - 1; i < j; i++, j--) {
+            int swap = cityPopulations[i];
+            cityPopulations[i] = cityPopulations[j];
+            cityPopulations[j] = swap;
+        }
+        return cityPopulations;
+    }
+
+    /**
+     * An independent random stream per country and purpose, so that each country's rows
+     * can be regenerated on their own and in any order.
+     */
+    private SplittableRandom countryRandom(int country, int stream) {
+        long mixed = seed + 0x9E3779B97F4A7C15L * (country * 4L + stream + 1);
+        mixed = (mixed ^ (mixed >>> 30)) * 0xBF58476D1CE4E5B9L;
+        mixed = (mixed ^ (mixed >>> 27)) * 0x94D049BB133111EBL;
+        return new SplittableRandom(mixed ^ (mixed >>> 31));
+    }
+
+    private static double logNormal(SplittableRandom random, double median, double sigma, double min, double max) {
+        double value = median * Math.exp(random.nextGaussian() * sigma);
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static int pickRegion(int ticket) {
+        for (int region = 0; region < REGIONS.length; region++) {
+            ticket -= (Integer) REGIONS[region][2];
+            if (ticket < 0) {
+                return region;
+            }
+        }
+        return REGIONS.length - 1;
+    }
+
+    /**
+     * Three letter code for a country index: AAA, AAB, ... ZZZ.
+     */
+    static String code(int index) {
+        return "" + (char) ('A' + index / 676) + (char) ('A' + index / 26 % 26) + (char) ('A' + index % 26);
+    }
+
+    private static String uniqueName(SplittableRandom random, Set<String> used) {
+        String base = name(random, 2, 4, 45);
+        String name = base;
+        for (int suffix = 2; !used.add(name); suffix++) {
+            name = base + " " + suffix;
+        }
+        return name;
+    }
+
+    private static String name(SplittableRandom random, int minSyllables, int maxSyllables, int maxLength) {
+        int count = minSyllables + random.nextInt(maxSyllables - minSyllables + 1);
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+        return name.length() > maxLength ? name.substring(0, maxLength) : name.toString();
+    }
+
+    /**
+     * Streams rows straight into a snapshot file.
+     */
+    private static class SnapshotFileSink implements WorldDataSink {
+        private final Path path;
+        private SnapshotFile.Writer writer;
+
+        SnapshotFileSink(Path path) {
+            this.path = path;
+        }
+
+        @Override
+        public void begin(int countryCount, int cityCount, int languageCount) throws IOException {
+            writer = new SnapshotFile.Writer(path, countryCount, cityCount, languageCount);
+        }
+
+        @Override
+        public void country(String code, String name, String continent, String region, int population, int capital) throws IOException {
+            writer.writeCountry(code, name, continent, region, population, capital);
+        }
+
+        @Override
+        public void city(int id, String name, String countryCode, String district, int population) throws IOException {
+            writer.writeCity(id, name, countryCode, district, population);
+        }
+
+        @Override
+        public void language(String countryCode, String language, boolean official, double percentage) throws IOException {
+            writer.writeLanguage(countryCode, language, official, percentage);
+        }
+
+        @Override
+        public void end() throws IOException {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.napier.devops.generator;
+
+import java.io.IOException;
+
+/**
+ * Receives the rows produced by {@link WorldDataGenerator}.
+ * <p>
+ * Rows arrive in table order: all countries, then all cities, then all languages,
+ * so a sink can stream them straight to disk.
+ */
+public interface WorldDataSink {
+
+    /**
+     * Called once before any rows, with the exact number of rows that will follow.
+     */
+    void begin(int countryCount, int cityCount, int languageCount) throws IOException;
+
+    void country(String code, String name, String continent, String region, int population, int capital) throws IOException;
+
+    void city(int id, String name, String countryCode, String district, int population) throws IOException;
+
+    void language(String countryCode, String language, boolean official, double percentage) throws IOException;
+
+    /**
+     * Called once after the last row.
+     */
+    void end() throws IOException;
+}
@@ -0,0 +1,191 @@
+package com.napier.devops.loadtest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a {@link Workload} against a {@link LoadTarget} from several threads and measures
+ * throughput and latency.
+ * <p>
+ * With no target rate the test is closed loop: each thread sends its next request as soon
+ * as the last one returns, which finds the most requests per second the target sustains.
+ * With a target rate the test is open loop: requests are scheduled at fixed intervals
+ * whether or not earlier ones have returned, and latency is measured from when a request
+ * was due rather than when it was sent. A target that falls behind then shows its queueing
+ * delay in the percentiles instead of silently slowing the test down.
+ * <p>
+ * The target's report output is discarded while the test runs, as the services print their
+ * errors. Other output of the JVM is left alone.
+ */
+public class LoadGenerator {
+
+    private final LoadTarget target;
+    private final Workload workload;
+    private final ParameterPool parameters;
+    private final int threads;
+    private final double requestsPerSecond;
+    private final long seed;
+
+    /**
+     * @param target            Where to send requests.
+     * @param workload          The mix of use cases; ones the target does not support are left out.
+     * @param parameters        The values arguments are drawn from.
+     * @param threads           The number of worker threads.
+     * @param requestsPerSecond The rate to send requests at across all threads, or 0 for closed loop.
+     * @param seed              Seeds each thread's choice of use cases and arguments, so runs repeat.
+     */
+    public LoadGenerator(LoadTarget target, Workload workload, ParameterPool parameters, int threads,
+                         double requestsPerSecond, long seed) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Threads must be greater than 0");
+        }
+        this.target = target;
+        this.workload = workload.filter(target::supports);
+        this.parameters = parameters;
+        this.threads = threads;
+        this.requestsPerSecond = Math.max(0, requestsPerSecond);
+        this.seed = seed;
+    }
+
+    /**
+     * @return The mix actually sent, without the use cases the target does not support.
+     */
+    public Workload getWorkload() {
+        return workload;
+    }
+
+    /**
+     * Runs the test.
+     *
+     * @param warmUpMillis   How long to send requests before measuring.
+     * @param durationMillis How long to measure for.
+     * @return What was measured.
+     * @throws IOException          If a worker cannot open a session.
+     * @throws InterruptedException If interrupted while waiting for the workers.
+     */
+    public LoadResult run(long warmUpMillis, long durationMillis) throws IOException, InterruptedException {
+        List<Worker> workers = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                workers.add(new Worker(target.open(), new Random(seed + i)));
+            }
+
+            PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+            long now = System.nanoTime();
+            long start = now + warmUpMillis * 1_000_000;
+            long end = start + durationMillis * 1_000_000;
+            try {
+                target.setOutput(discard, discard);
+
+                List<Thread> running = new ArrayList<>();
+                for (int i = 0; i < workers.size(); i++) {
+                    Worker worker = workers.get(i);
+                    // Stagger the open loop schedules so the threads do not send in bursts
+                    long firstDue = now + (requestsPerSecond > 0 ? (long) (i * 1e9 / requestsPerSecond) : 0);
+                    Thread thread = new Thread(() -> worker.run(firstDue, start, end), "load-" + i);
+                    thread.start();
+                    running.add(thread);
+                }
+                for (Thread thread : running) {
+                    thread.join();
+                }
+            } finally {
+                target.setOutput(null, null);
+            }
+
+            return collect(workers, end - start);
+        } finally {
+            for (Worker worker : workers) {
+                try {
+                    worker.session.close();
+                } catch (IOException e) {
+                    System.out.println("Could not close load test session: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private LoadResult collect(List<Worker> workers, long elapsedNanos) {
+        LatencyHistogram all = new LatencyHistogram();
+        Map<UseCase, LatencyHistogram> byUseCase = new EnumMap<>(UseCase.class);
+        long errors = 0;
+        String firstError = null;
+        for (Worker worker : workers) {
+            worker.latencies.forEach((useCase, histogram) -> {
+                all.add(histogram);
+                byUseCase.computeIfAbsent(useCase, u -> new LatencyHistogram()).add(histogram);
+            });
+            errors += worker.errors;
+            if (firstError == null) {
+                firstError = worker.firstError;
+            }
+        }
+        return new LoadResult(elapsedNanos, errors, all, byUseCase, firstError);
+    }
+
+    /**
+     * One thread's session, random source and measurements.
+     */
+    private class Worker {
+        final LoadTarget.Session session;
+        final Random random;
+        final Map<UseCase, LatencyHistogram> latencies = new EnumMap<>(UseCase.class);
+        long errors;
+        String firstError;
+
+        Worker(LoadTarget.Session session, Random random) {
+            this.session = session;
+            this.random = random;
+        }
+
+        void run(long firstDue, long measureFrom, long end) {
+            // Each thread sends its share of the rate, so its interval is threads times the overall one
+            long interval = requestsPerSecond > 0 ? (long) (threads * 1e9 / requestsPerSecond) : 0;
+            long due = firstDue;
+
+            while (true) {
+                long sent;
+                if (interval > 0) {
+                    long wait = due - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    sent = due;
+                    due += interval;
+                } else {
+                    sent = System.nanoTime();
+                }
+                if (sent >= end) {
+                    return;
+                }
+
+                UseCase useCase = workload.next(random);
+                String text = parameters.pick(useCase.getParameter(), random);
+                int n = useCase.takesN() ? parameters.pickN(random) : 0;
+
+                boolean failed = false;
+                try {
+                    session.run(useCase, text, n);
+                } catch (Exception e) {
+                    failed = true;
+                    if (firstError == null) {
+                        firstError = useCase + ": " + e;
+                    }
+                }
+                if (sent >= measureFrom) {
+                    latencies.computeIfAbsent(useCase, u -> new LatencyHistogram()).record(System.nanoTime() - sent);
+                    if (failed) {
+                        errors++;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.napier.devops.loadtest;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * What a load test measured: how many requests completed, how many failed, and their latencies.
+ */
+public class LoadResult {
+
+    private final long elapsedNanos;
+    private final long errors;
+    private final LatencyHistogram latencies;
+    private final Map<UseCase, LatencyHistogram> latenciesByUseCase;
+    private final String firstError;
+
+    LoadResult(long elapsedNanos, long errors, LatencyHistogram latencies,
+               Map<UseCase, LatencyHistogram> latenciesByUseCase, String firstError) {
+        this.elapsedNanos = elapsedNanos;
+        this.errors = errors;
+        this.latencies = latencies;
+        this.latenciesByUseCase = Collections.unmodifiableMap(new EnumMap<>(latenciesByUseCase));
+        this.firstError = firstError;
+    }
+
+    /**
+     * @return The number of requests made, including the ones that failed.
+     */
+    public long getRequests() {
+        return latencies.getCount();
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return The message of the first request that failed, or null if none did.
+     */
+    public String getFirstError() {
+        return firstError;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return Requests completed per second.
+     */
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0 : getRequests() * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * @return The latencies of every request.
+     */
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * @return The latencies of each use case that ran.
+     */
+    public Map<UseCase, LatencyHistogram> getLatenciesByUseCase() {
+        return latenciesByUseCase;
+    }
+
+    /**
+     * Prints the throughput and latency percentiles, overall and per use case.
+     */
+    public void print() {
+        System.out.printf("Load test: %d requests in %.1f s, %.1f requests/s, %d errors%n",
+                getRequests(), elapsedNanos / 1e9, getThroughput(), errors);
+        if (firstError != null) {
+            System.out.println("First error: " + firstError);
+        }
+        System.out.println(line("ALL", latencies));
+        latenciesByUseCase.forEach((useCase, histogram) ->
+                System.out.println(line(useCase.getNumber() + " " + useCase, histogram)));
+    }
+
+    private static String line(String label, LatencyHistogram histogram) {
+        return String.format("%-32s %9d   p50 %10.3f ms   p99 %10.3f ms   p99.9 %10.3f ms   max %10.3f ms", label,
+                histogram.getCount(), histogram.getPercentile(50) / 1e6, histogram.getPercentile(99) / 1e6,
+                histogram.getPercentile(99.9) / 1e6, histogram.getMax() / 1e6);
+    }
+}
@@ -0,0 +1,44 @@
+package com.napier.devops.loadtest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+
+/**
+ * Where a load test sends its requests.
+ */
+public interface LoadTarget {
+
+    /**
+     * One worker's connection to the target. A session is only used by one thread.
+     */
+    interface Session extends Closeable {
+        /**
+         * Runs one request and waits for its whole result.
+         *
+         * @throws Exception If the request fails.
+         */
+        void run(UseCase useCase, String text, int n) throws Exception;
+    }
+
+    /**
+     * @return Whether the target can serve a use case.
+     */
+    boolean supports(UseCase useCase);
+
+    /**
+     * Sends the report output and errors the target prints elsewhere. A target that prints
+     * nothing in this process, such as a remote server, ignores it.
+     *
+     * @param out The stream for reports, or null for {@link System#out}.
+     * @param err The stream for errors, or null for {@link System#err}.
+     */
+    default void setOutput(PrintStream out, PrintStream err) {
+    }
+
+    /**
+     * @return A new session for one worker.
+     * @throws IOException If the target cannot be reached.
+     */
+    Session open() throws IOException;
+}
@@ -0,0 +1,104 @@
+package com.napier.devops.loadtest;
+
+import com.napier.devops.App;
+import com.napier.devops.dataset.Dataset;
+import com.napier.devops.generator.WorldDataGenerator;
+import com.napier.devops.snapshot.SnapshotFile;
+import com.napier.devops.snapshot.WorldSnapshot;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+/**
+ * Measures how many report requests per second one application instance sustains.
+ * <p>
+ * The source is {@code jdbc:host:port} for the dockerized MySQL server, {@code wire:host:port}
+ * for an application serving reports with {@code -Ddevops.wirePort}, {@code generated} or
+ * {@code generated:scale} for a generated in-memory world, or the path of a snapshot file.
+ * Arguments are drawn from the data under test where it can be read, and from values known
+ * to exist in the world database otherwise.
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String source = "generated";
+        int threads = Runtime.getRuntime().availableProcessors();
+        double rate = 0;
+        long warmUpSeconds = 5;
+        long seconds = 30;
+        long seed = 42;
+        Workload workload = Workload.standard();
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--source" -> source = args[i + 1];
+                case "--threads" -> threads = Integer.parseInt(args[i + 1]);
+                case "--rate" -> rate = Double.parseDouble(args[i + 1]);
+                case "--warmup" -> warmUpSeconds = Long.parseLong(args[i + 1]);
+                case "--seconds" -> seconds = Long.parseLong(args[i + 1]);
+                case "--seed" -> seed = Long.parseLong(args[i + 1]);
+                case "--mix" -> workload = args[i + 1].equals("uniform") ? Workload.uniform() : Workload.parse(args[i + 1]);
+                default -> {
+                    System.err.println("Usage: LoadTest [--source generated|jdbc:host:port|wire:host:port|<snapshot file>]"
+                            + " [--threads n] [--rate requests/s, 0 for closed loop] [--warmup s] [--seconds s]"
+                            + " [--seed n] [--mix standard|uniform|useCase=weight,...]");
+                    return;
+                }
+            }
+        }
+
+        LoadTarget target;
+        ParameterPool parameters;
+        App app = null;
+        if (source.startsWith("jdbc:")) {
+            app = new App();
+            app.connect(source.substring("jdbc:".length()), 0);
+            if (app.getCon() == null) {
+                return;
+            }
+            target = new ServiceTarget(app.getCityReportService(), app.getCountryReportService(),
+                    app.getPopulationMetricsReportService());
+            parameters = parameters(app);
+        } else if (source.startsWith("wire:")) {
+            String location = source.substring("wire:".length());
+            int colon = location.lastIndexOf(':');
+            target = new WireTarget(location.substring(0, colon), Integer.parseInt(location.substring(colon + 1)));
+            parameters = ParameterPool.defaults();
+        } else {
+            WorldSnapshot snapshot;
+            if (source.startsWith("generated")) {
+                double scale = source.startsWith("generated:") ? Double.parseDouble(source.substring("generated:".length())) : 1;
+                snapshot = new WorldDataGenerator(scale, seed).generateSnapshot();
+            } else {
+                snapshot = SnapshotFile.read(Path.of(source));
+            }
+            target = ServiceTarget.of(Dataset.ofSnapshot("load", source, snapshot));
+            parameters = ParameterPool.of(snapshot);
+        }
+
+        LoadGenerator generator = new LoadGenerator(target, workload, parameters, threads, rate, seed);
+        System.out.println("Load test against " + source + ": " + threads + " threads, "
+                + (rate > 0 ? rate + " requests/s" : "closed loop") + ", " + generator.getWorkload().getUseCases().size()
+                + " use cases, " + warmUpSeconds + " s warm-up, " + seconds + " s measured");
+        try {
+            generator.run(warmUpSeconds * 1000, seconds * 1000).print();
+        } finally {
+            if (app != null) {
+                app.disconnect();
+            }
+        }
+    }
+
+    /**
+     * Reads the arguments from the database under test, so they match its data.
+     */
+    private static ParameterPool parameters(App app) {
+        try {
+            return ParameterPool.of(WorldSnapshot.load(app.getCon()));
+        } catch (SQLException e) {
+            System.out.println("Query failed: " + e.getMessage());
+            return ParameterPool.defaults();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.napier.devops.loadtest;
+
+import com.napier.devops.SymbolTable;
+import com.napier.devops.snapshot.WorldSnapshot;
+
+import java.util.*;
+
+/**
+ * The values a load test draws use case arguments from, so requests spread over the data
+ * the way real users' do instead of repeating one query the cache or buffer pool answers.
+ */
+public class ParameterPool {
+
+    /**
+     * Largest N drawn for the top N reports.
+     */
+    public static final int MAX_N = 50;
+
+    private final Map<UseCase.Parameter, String[]> values = new EnumMap<>(UseCase.Parameter.class);
+
+    private ParameterPool() {
+    }
+
+    /**
+     * Values taken from a snapshot of the data under test.
+     *
+     * @param snapshot The snapshot.
+     * @return Every continent, region, country, district and city name in the snapshot.
+     */
+    public static ParameterPool of(WorldSnapshot snapshot) {
+        SymbolTable symbols = snapshot.getSymbols();
+        Set<String> continents = new TreeSet<>();
+        Set<String> regions = new TreeSet<>();
+        Set<String> codes = new TreeSet<>();
+        Set<String> countries = new TreeSet<>();
+        Set<String> districts = new TreeSet<>();
+        Set<String> cities = new TreeSet<>();
+
+        for (int row = 0; row < snapshot.getCountryCount(); row++) {
+            continents.add(symbols.symbol(snapshot.getCountryContinent(row)));
+            regions.add(symbols.symbol(snapshot.getCountryRegion(row)));
+            codes.add(snapshot.getCountryCode(row));
+            countries.add(snapshot.getCountryName(row));
+        }
+        for (int row = 0; row < snapshot.getCityCount(); row++) {
+            districts.add(symbols.symbol(snapshot.getCityDistrict(row)));
+            cities.add(snapshot.getCityName(row));
+        }
+
+        ParameterPool pool = new ParameterPool();
+        pool.put(UseCase.Parameter.CONTINENT, continents);
+        pool.put(UseCase.Parameter.REGION, regions);
+        pool.put(UseCase.Parameter.COUNTRY_CODE, codes);
+        pool.put(UseCase.Parameter.COUNTRY_NAME, countries);
+        pool.put(UseCase.Parameter.DISTRICT, districts);
+        pool.put(UseCase.Parameter.CITY_NAME, cities);
+        return pool;
+    }
+
+    /**
+     * Values from the world database, for a target whose data cannot be read up front.
+     *
+     * @return A fixed set of values that all exist in the world database.
+     */
+    public static ParameterPool defaults() {
+        ParameterPool pool = new ParameterPool();
+        pool.put(UseCase.Parameter.CONTINENT, List.of("Asia", "Europe", "North America", "Africa", "Oceania",
+                "Antarctica", "South America"));
+        pool.put(UseCase.Parameter.REGION, List.of("Caribbean", "Southern and Central Asia", "Central Africa",
+                "Southern Europe", "Middle East", "South America", "Polynesia", "Western Europe", "Eastern Asia",
+                "North America", "Eastern Europe", "Southeast Asia", "Western Africa", "Central America"));
+        pool.put(UseCase.Parameter.COUNTRY_CODE, List.of("USA", "CHN", "IND", "BRA", "GBR", "DEU", "JPN", "NGA",
+                "FRA", "MEX", "RUS", "AUS", "EGY", "ARG", "CAN"));
+        pool.put(UseCase.Parameter.COUNTRY_NAME, List.of("United States", "China", "India", "Brazil",
+                "United Kingdom", "Germany", "Japan", "Nigeria", "France", "Mexico", "Australia", "Egypt"));
+        pool.put(UseCase.Parameter.DISTRICT, List.of("California", "Texas", "São Paulo", "Maharashtra", "England",
+                "Tokyo-to", "Buenos Aires", "Shanghai", "Scotland", "Île-de-France", "Bayern", "Lagos"));
+        pool.put(UseCase.Parameter.CITY_NAME, List.of("Edinburgh", "London", "Tokyo", "Mumbai (Bombay)", "Seoul",
+                "São Paulo", "Jakarta", "Karachi", "New York", "Cairo", "Paris", "Lagos"));
+        return pool;
+    }
+
+    private void put(UseCase.Parameter parameter, Collection<String> choices) {
+        values.put(parameter, choices.stream().filter(Objects::nonNull).toArray(String[]::new));
+    }
+
+    /**
+     * @param parameter The kind of argument.
+     * @param random    The source of randomness.
+     * @return A random value of the kind, or null for {@link UseCase.Parameter#NONE} or a kind with no values.
+     */
+    public String pick(UseCase.Parameter parameter, Random random) {
+        String[] choices = values.get(parameter);
+        if (choices == null || choices.length == 0) {
+            return null;
+        }
+        return choices[random.nextInt(choices.length)];
+    }
+
+    /**
+     * @param random The source of randomness.
+     * @return A random N between 1 and {@link #MAX_N}.
+     */
+    public int pickN(Random random) {
+        return 1 + random.nextInt(MAX_N);
+    }
+}
@@ -0,0 +1,64 @@
+package com.napier.devops.loadtest;
+
+import com.napier.devops.dataset.Dataset;
+import com.napier.devops.service.CityReportService;
+import com.napier.devops.service.CountryReportService;
+import com.napier.devops.service.PopulationMetricsReportService;
+
+import java.io.PrintStream;
+
+/**
+ * Calls the report services in process, so a load test measures the services and the
+ * database or snapshot behind them without any network front end.
+ * <p>
+ * Every session shares the same services, as the application's callers do. A service that
+ * catches a failed query and returns an empty report is not counted as an error, since the
+ * caller cannot tell either.
+ */
+public class ServiceTarget implements LoadTarget {
+
+    private final CityReportService cities;
+    private final CountryReportService countries;
+    private final PopulationMetricsReportService metrics;
+
+    public ServiceTarget(CityReportService cities, CountryReportService countries,
+                         PopulationMetricsReportService metrics) {
+        this.cities = cities;
+        this.countries = countries;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param dataset The dataset whose services to call.
+     */
+    public static ServiceTarget of(Dataset dataset) {
+        return new ServiceTarget(dataset.getCityReportService(), dataset.getCountryReportService(),
+                dataset.getPopulationMetricsReportService());
+    }
+
+    @Override
+    public boolean supports(UseCase useCase) {
+        return true;
+    }
+
+    @Override
+    public void setOutput(PrintStream out, PrintStream err) {
+        cities.setOutput(out, err);
+        countries.setOutput(out, err);
+        metrics.setOutput(out, err);
+    }
+
+    @Override
+    public Session open() {
+        return new Session() {
+            @Override
+            public void run(UseCase useCase, String text, int n) {
+                useCase.run(cities, countries, metrics, text, n);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
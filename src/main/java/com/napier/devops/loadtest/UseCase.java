@@ -0,0 +1,152 @@
+package com.napier.devops.loadtest;
+
+import com.napier.devops.service.CityReportService;
+import com.napier.devops.service.CountryReportService;
+import com.napier.devops.service.PopulationMetricsReportService;
+import com.napier.devops.wire.WireReport;
+
+/**
+ * The 32 use cases the application reports on, each with the report call it makes, the
+ * argument it takes and, where the binary protocol serves it, the matching {@link WireReport}.
+ */
+public enum UseCase {
+    ALL_COUNTRIES(1, Parameter.NONE, false, WireReport.ALL_COUNTRIES,
+            (cities, countries, metrics, text, n) -> countries.getAllCountriesByPopulationLargestToSmallest()),
+    COUNTRIES_IN_CONTINENT(2, Parameter.CONTINENT, false, WireReport.COUNTRIES_IN_CONTINENT,
+            (cities, countries, metrics, text, n) -> countries.getAllCountriesInContinentByPopulationLargestToSmallest(text)),
+    COUNTRIES_IN_REGION(3, Parameter.REGION, false, WireReport.COUNTRIES_IN_REGION,
+            (cities, countries, metrics, text, n) -> countries.getAllCountriesInRegionByPopulationLargestToSmallest(text)),
+    TOP_COUNTRIES(4, Parameter.NONE, true, null,
+            (cities, countries, metrics, text, n) -> countries.printTopNCountriesByPopulation(n)),
+    TOP_COUNTRIES_IN_CONTINENT(5, Parameter.CONTINENT, true, null,
+            (cities, countries, metrics, text, n) -> countries.printTopNCountriesInContinentByPopulation(text, n)),
+    TOP_COUNTRIES_IN_REGION(6, Parameter.REGION, true, null,
+            (cities, countries, metrics, text, n) -> countries.printTopNCountriesInRegionByPopulation(text, n)),
+    ALL_CITIES(7, Parameter.NONE, false, WireReport.ALL_CITIES,
+            (cities, countries, metrics, text, n) -> cities.getAllCitiesByPopulationLargestToSmallest()),
+    CITIES_IN_CONTINENT(8, Parameter.CONTINENT, false, WireReport.CITIES_IN_CONTINENT,
+            (cities, countries, metrics, text, n) -> cities.getAllCitiesInContinentByPopulationLargestToSmallest(text)),
+    CITIES_IN_REGION(9, Parameter.REGION, false, WireReport.CITIES_IN_REGION,
+            (cities, countries, metrics, text, n) -> cities.getAllCitiesInRegionByPopulationLargestToSmallest(text)),
+    CITIES_IN_COUNTRY(10, Parameter.COUNTRY_CODE, false, WireReport.CITIES_IN_COUNTRY,
+            (cities, countries, metrics, text, n) -> cities.getAllCitiesInCountryByPopulationLargestToSmallest(text)),
+    CITIES_IN_DISTRICT(11, Parameter.DISTRICT, false, WireReport.CITIES_IN_DISTRICT,
+            (cities, countries, metrics, text, n) -> cities.getAllCitiesInDistrictByPopulationLargestToSmallest(text)),
+    TOP_CITIES(12, Parameter.NONE, true, WireReport.TOP_CITIES,
+            (cities, countries, metrics, text, n) -> cities.getTopNCitiesByPopulationLargestToSmallest(n)),
+    TOP_CITIES_IN_CONTINENT(13, Parameter.CONTINENT, true, WireReport.TOP_CITIES_IN_CONTINENT,
+            (cities, countries, metrics, text, n) -> cities.getTopCitiesByContinent(text, n)),
+    TOP_CITIES_IN_REGION(14, Parameter.REGION, true, WireReport.TOP_CITIES_IN_REGION,
+            (cities, countries, metrics, text, n) -> cities.getTopCitiesByRegion(text, n)),
+    TOP_CITIES_IN_COUNTRY(15, Parameter.COUNTRY_NAME, true, null,
+            (cities, countries, metrics, text, n) -> cities.getTopCitiesByCountry(text, n)),
+    TOP_CITIES_IN_DISTRICT(16, Parameter.DISTRICT, true, null,
+            (cities, countries, metrics, text, n) -> cities.getTopCitiesByDistrict(text, n)),
+    ALL_CAPITALS(17, Parameter.NONE, false, WireReport.ALL_CAPITALS,
+            (cities, countries, metrics, text, n) -> cities.getAllCapitalCitiesByPopulation()),
+    CAPITALS_IN_CONTINENT(18, Parameter.CONTINENT, false, WireReport.CAPITALS_IN_CONTINENT,
+            (cities, countries, metrics, text, n) -> cities.getAllCapitalCitiesInContinentByPopulation(text)),
+    CAPITALS_IN_REGION(19, Parameter.REGION, false, WireReport.CAPITALS_IN_REGION,
+            (cities, countries, metrics, text, n) -> cities.getAllCapitalCitiesInRegionByPopulation(text)),
+    TOP_CAPITALS(20, Parameter.NONE, true, null,
+            (cities, countries, metrics, text, n) -> cities.getTopCapitalCitiesByPopulation(n)),
+    TOP_CAPITALS_IN_CONTINENT(21, Parameter.CONTINENT, true, null,
+            (cities, countries, metrics, text, n) -> cities.getTopCapitalCitiesByContinent(text, n)),
+    TOP_CAPITALS_IN_REGION(22, Parameter.REGION, true, null,
+            (cities, countries, metrics, text, n) -> cities.getTopCapitalCitiesByRegion(text, n)),
+    CONTINENT_POPULATIONS(23, Parameter.NONE, false, null,
+            (cities, countries, metrics, text, n) -> metrics.getContinentPopulationReport()),
+    REGION_POPULATIONS(24, Parameter.NONE, false, null,
+            (cities, countries, metrics, text, n) -> metrics.getRegionPopulationReport()),
+    COUNTRY_POPULATIONS(25, Parameter.NONE, false, null,
+            (cities, countries, metrics, text, n) -> metrics.getCountryPopulationReport()),
+    WORLD_POPULATION(26, Parameter.NONE, false, null,
+            (cities, countries, metrics, text, n) -> metrics.getWorldPopulationReport()),
+    CONTINENT_POPULATION(27, Parameter.CONTINENT, false, null,
+            (cities, countries, metrics, text, n) -> metrics.getPopulationContinentReport(text)),
+    REGION_POPULATION(28, Parameter.REGION, false, null,
+            (cities, countries, metrics, text, n) -> countries.getRegionPopulationReport(text)),
+    COUNTRY_POPULATION(29, Parameter.COUNTRY_NAME, false, null,
+            (cities, countries, metrics, text, n) -> countries.getCountryPopulationReport(text)),
+    DISTRICT_POPULATION(30, Parameter.DISTRICT, false, null,
+            (cities, countries, metrics, text, n) -> cities.getDistrictPopulationReport(text)),
+    CITY_POPULATION(31, Parameter.CITY_NAME, false, null,
+            (cities, countries, metrics, text, n) -> cities.getCityPopulationReport(text)),
+    MAJOR_LANGUAGES(32, Parameter.NONE, false, null,
+            (cities, countries, metrics, text, n) -> countries.getMajorLanguageReport());
+
+    /**
+     * The kind of text argument a use case takes.
+     */
+    public enum Parameter {
+        NONE, CONTINENT, REGION, COUNTRY_CODE, COUNTRY_NAME, DISTRICT, CITY_NAME
+    }
+
+    /**
+     * Runs a use case against the report services.
+     */
+    @FunctionalInterface
+    interface Query {
+        Object run(CityReportService cities, CountryReportService countries, PopulationMetricsReportService metrics,
+                   String text, int n);
+    }
+
+    private final int number;
+    private final Parameter parameter;
+    private final boolean takesN;
+    private final WireReport wireReport;
+    private final Query query;
+
+    UseCase(int number, Parameter parameter, boolean takesN, WireReport wireReport, Query query) {
+        this.number = number;
+        this.parameter = parameter;
+        this.takesN = takesN;
+        this.wireReport = wireReport;
+        this.query = query;
+    }
+
+    /**
+     * @return The use case number, as the application's report headings give it.
+     */
+    public int getNumber() {
+        return number;
+    }
+
+    public Parameter getParameter() {
+        return parameter;
+    }
+
+    /**
+     * @return Whether the use case takes a number N of rows to report.
+     */
+    public boolean takesN() {
+        return takesN;
+    }
+
+    /**
+     * @return The report that serves this use case over the binary protocol, or null if none does.
+     */
+    public WireReport getWireReport() {
+        return wireReport;
+    }
+
+    Object run(CityReportService cities, CountryReportService countries, PopulationMetricsReportService metrics,
+               String text, int n) {
+        return query.run(cities, countries, metrics, text, n);
+    }
+
+    /**
+     * @param name A use case name, such as {@code CITIES_IN_COUNTRY}, or number, such as {@code 10}.
+     * @return The use case.
+     * @throws IllegalArgumentException If there is no such use case.
+     */
+    public static UseCase parse(String name) {
+        String trimmed = name.trim();
+        for (UseCase useCase : values()) {
+            if (useCase.name().equalsIgnoreCase(trimmed) || String.valueOf(useCase.number).equals(trimmed)) {
+                return useCase;
+            }
+        }
+        throw new IllegalArgumentException("Unknown use case " + name);
+    }
+}
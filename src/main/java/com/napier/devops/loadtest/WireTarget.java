@@ -0,0 +1,49 @@
+package com.napier.devops.loadtest;
+
+import com.napier.devops.wire.ReportClient;
+import com.napier.devops.wire.WireFormat;
+import com.napier.devops.wire.WireReport;
+
+import java.io.IOException;
+
+/**
+ * Sends requests to a {@link com.napier.devops.wire.ReportServer} over the binary protocol,
+ * so a load test measures the whole path a remote client sees. Each session has its own
+ * connection. Only the use cases the protocol serves can be run.
+ */
+public class WireTarget implements LoadTarget {
+
+    private final String host;
+    private final int port;
+
+    public WireTarget(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    @Override
+    public boolean supports(UseCase useCase) {
+        return useCase.getWireReport() != null;
+    }
+
+    @Override
+    public Session open() throws IOException {
+        ReportClient client = new ReportClient(host, port);
+        return new Session() {
+            @Override
+            public void run(UseCase useCase, String text, int n) throws IOException {
+                WireReport report = useCase.getWireReport();
+                if (report.getRowType() == WireFormat.CITY_ROWS) {
+                    client.getCities(report, text, n);
+                } else {
+                    client.getCountries(report, text, n);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                client.close();
+            }
+        };
+    }
+}
@@ -0,0 +1,122 @@
+package com.napier.devops.loadtest;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * A weighted mix of use cases. Each request picks a use case with probability proportional
+ * to its weight.
+ */
+public class Workload {
+
+    private final UseCase[] useCases;
+    private final long[] cumulativeWeights;
+
+    /**
+     * @param weights The weight of each use case in the mix; use cases with no positive weight are left out.
+     * @throws IllegalArgumentException If no use case has a positive weight.
+     */
+    public Workload(Map<UseCase, Integer> weights) {
+        List<UseCase> chosen = new ArrayList<>();
+        List<Long> cumulative = new ArrayList<>();
+        long total = 0;
+        for (UseCase useCase : UseCase.values()) {
+            Integer weight = weights.get(useCase);
+            if (weight != null && weight > 0) {
+                total += weight;
+                chosen.add(useCase);
+                cumulative.add(total);
+            }
+        }
+        if (chosen.isEmpty()) {
+            throw new IllegalArgumentException("Workload has no use cases");
+        }
+        this.useCases = chosen.toArray(new UseCase[0]);
+        this.cumulativeWeights = cumulative.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Every use case equally often.
+     */
+    public static Workload uniform() {
+        Map<UseCase, Integer> weights = new EnumMap<>(UseCase.class);
+        for (UseCase useCase : UseCase.values()) {
+            weights.put(useCase, 1);
+        }
+        return new Workload(weights);
+    }
+
+    /**
+     * A mix shaped like interactive use: filtered and top N reports are common, and the
+     * reports that list every city or country are rare.
+     */
+    public static Workload standard() {
+        Map<UseCase, Integer> weights = new EnumMap<>(UseCase.class);
+        for (UseCase useCase : UseCase.values()) {
+            boolean wholeWorld = useCase.getParameter() == UseCase.Parameter.NONE && !useCase.takesN();
+            weights.put(useCase, wholeWorld ? 1 : 5);
+        }
+        weights.put(UseCase.CITIES_IN_COUNTRY, 20);
+        weights.put(UseCase.TOP_CITIES, 10);
+        weights.put(UseCase.CITY_POPULATION, 10);
+        return new Workload(weights);
+    }
+
+    /**
+     * Reads a mix such as {@code CITIES_IN_COUNTRY=20,12=5,WORLD_POPULATION=1}, naming use
+     * cases by name or number.
+     *
+     * @throws IllegalArgumentException If an entry is not a known use case and a weight.
+     */
+    public static Workload parse(String spec) {
+        Map<UseCase, Integer> weights = new EnumMap<>(UseCase.class);
+        for (String entry : spec.split(",")) {
+            String trimmed = entry.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int equals = trimmed.indexOf('=');
+            if (equals <= 0) {
+                throw new IllegalArgumentException("Workload entry must be useCase=weight: " + trimmed);
+            }
+            try {
+                weights.put(UseCase.parse(trimmed.substring(0, equals)),
+                        Integer.parseInt(trimmed.substring(equals + 1).trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Workload entry must be useCase=weight: " + trimmed);
+            }
+        }
+        return new Workload(weights);
+    }
+
+    /**
+     * @param keep Which use cases to keep.
+     * @return This mix without the use cases that fail the test, with the weights of the rest unchanged.
+     */
+    public Workload filter(Predicate<UseCase> keep) {
+        Map<UseCase, Integer> weights = new EnumMap<>(UseCase.class);
+        for (int i = 0; i < useCases.length; i++) {
+            if (keep.test(useCases[i])) {
+                weights.put(useCases[i], (int) (cumulativeWeights[i] - (i == 0 ? 0 : cumulativeWeights[i - 1])));
+            }
+        }
+        return new Workload(weights);
+    }
+
+    /**
+     * @return The use cases in the mix, in use case order.
+     */
+    public List<UseCase> getUseCases() {
+        return List.of(useCases);
+    }
+
+    /**
+     * @param random The source of randomness.
+     * @return The next use case to run.
+     */
+    public UseCase next(Random random) {
+        long pick = (long) (random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1]);
+        int index = Arrays.binarySearch(cumulativeWeights, pick + 1);
+        return useCases[index >= 0 ? index : -index - 1];
+    }
+}
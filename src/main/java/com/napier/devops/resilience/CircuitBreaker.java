@@ -0,0 +1,151 @@
+package com.napier.devops.resilience;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Stops sending queries to a database that keeps failing, so callers fail fast instead of
+ * each waiting for its own timeout.
+ * <p>
+ * The breaker starts closed. After a number of failures in a row it opens, and every query
+ * is refused for a cool-down period. Once that has passed it lets a single probe query
+ * through: if the probe succeeds the breaker closes again, and if it fails the breaker
+ * opens for another cool-down. All methods are synchronized, so one breaker can guard a
+ * connection shared by several threads.
+ * <p>
+ * Failures are also remembered per thread, so a caller can tell whether the queries it just
+ * ran failed even though the report services only print their errors.
+ */
+public class CircuitBreaker {
+
+    /**
+     * The states of a breaker.
+     */
+    public enum State {
+        /** Queries run normally. */
+        CLOSED,
+        /** Queries are refused until the cool-down has passed. */
+        OPEN,
+        /** A single probe query is allowed to test whether the database has recovered. */
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final LongSupplier clock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+    private long rejected;
+
+    private final ThreadLocal<Boolean> threadFailed = ThreadLocal.withInitial(() -> false);
+
+    /**
+     * @param failureThreshold The number of failures in a row that opens the breaker.
+     * @param openMillis       How long the breaker stays open before it lets a probe through.
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this(failureThreshold, openMillis, System::currentTimeMillis);
+    }
+
+    /**
+     * @param failureThreshold The number of failures in a row that opens the breaker.
+     * @param openMillis       How long the breaker stays open before it lets a probe through.
+     * @param clock            The current time in milliseconds.
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis, LongSupplier clock) {
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException("Failure threshold must be greater than 0");
+        }
+        if (openMillis < 0) {
+            throw new IllegalArgumentException("Open time cannot be negative");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Asks to run a query. A caller that is allowed must report the outcome with
+     * {@link #recordSuccess()} or {@link #recordFailure()}.
+     *
+     * @return False if the query should be refused.
+     */
+    public synchronized boolean allowRequest() {
+        if (state == State.OPEN && clock.getAsLong() - openedAt >= openMillis) {
+            state = State.HALF_OPEN;
+        }
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && !probeInFlight) {
+            probeInFlight = true;
+            return true;
+        }
+        rejected++;
+        threadFailed.set(true);
+        return false;
+    }
+
+    /**
+     * @return True if a query asked for now would be allowed. Unlike {@link #allowRequest()}
+     * this does not take the probe of a half open breaker.
+     */
+    public synchronized boolean isAvailable() {
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> clock.getAsLong() - openedAt >= openMillis;
+            case HALF_OPEN -> !probeInFlight;
+        };
+    }
+
+    /**
+     * Records a query that succeeded, closing the breaker.
+     */
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        probeInFlight = false;
+        state = State.CLOSED;
+    }
+
+    /**
+     * Records a query that failed because the database is unhealthy, opening the breaker
+     * after too many in a row or when the probe fails.
+     */
+    public synchronized void recordFailure() {
+        threadFailed.set(true);
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = clock.getAsLong();
+            probeInFlight = false;
+        }
+    }
+
+    /**
+     * Clears the current thread's failure flag.
+     *
+     * @return True if a query on this thread failed or was refused since the flag was last cleared.
+     */
+    public boolean clearThreadFailure() {
+        boolean failed = threadFailed.get();
+        threadFailed.set(false);
+        return failed;
+    }
+
+    /**
+     * @return The current state. An open breaker whose cool-down has passed still reports
+     * OPEN until the next query is asked for.
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return The number of queries refused so far.
+     */
+    public synchronized long getRejected() {
+        return rejected;
+    }
+}
@@ -0,0 +1,303 @@
+package com.napier.devops.resilience;
+
+import com.napier.devops.City;
+import com.napier.devops.service.CapitalIndex;
+import com.napier.devops.service.CityIndexes;
+import com.napier.devops.service.CityNameIndex;
+import com.napier.devops.service.CityReportService;
+import com.napier.devops.service.CountryTable;
+import com.napier.devops.service.PopulationIndex;
+import com.napier.pojo.EnrichedCityPojo;
+import com.napier.pojo.Page;
+import com.napier.pojo.PopulationHistogramPojo;
+import com.napier.pojo.PopulationReportPojo;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * City reports that fall back to stale in-memory data when the database is unavailable.
+ * <p>
+ * Every report method goes through a {@link FallbackPolicy}: it runs against the database
+ * while the circuit breaker allows, and against the fallback service when the breaker is open
+ * or the report's queries fail. The print methods are inherited and call these methods.
+ */
+public class FallbackCityReportService extends CityReportService {
+
+    private final CityReportService delegate;
+    private final Supplier<? extends CityReportService> fallback;
+    private final FallbackPolicy policy;
+
+    /**
+     * @param delegate The service that runs the reports against the database.
+     * @param fallback The service that runs the same reports against an older in-memory copy.
+     * @param policy   Decides which of the two serves each report.
+     */
+    public FallbackCityReportService(CityReportService delegate, CityReportService fallback, FallbackPolicy policy) {
+        this(delegate, () -> fallback, policy);
+    }
+
+    /**
+     * @param delegate The service that runs the reports against the database.
+     * @param fallback Gives the service to fall back to each time one is needed, so the
+     *                 fallback can follow a snapshot that is reloaded.
+     * @param policy   Decides which of the two serves each report.
+     */
+    public FallbackCityReportService(CityReportService delegate, Supplier<? extends CityReportService> fallback, FallbackPolicy policy) {
+        super(null);
+        this.delegate = delegate;
+        this.fallback = fallback;
+        this.policy = policy;
+    }
+
+    /**
+     * Prints here and on the service that runs the reports.
+     */
+    @Override
+    public void setOutput(PrintStream out, PrintStream err) {
+        super.setOutput(out, err);
+        delegate.setOutput(out, err);
+    }
+
+    /**
+     * Sets the capital index on the service that runs the reports.
+     */
+    @Override
+    public void setCapitalIndex(CapitalIndex capitalIndex) {
+        delegate.setCapitalIndex(capitalIndex);
+    }
+
+    /**
+     * Sets the city name index on the service that runs the reports.
+     */
+    @Override
+    public void setCityNameIndex(CityNameIndex cityNameIndex) {
+        delegate.setCityNameIndex(cityNameIndex);
+    }
+
+    /**
+     * Sets the population index on the service that runs the reports.
+     */
+    @Override
+    public void setPopulationIndex(PopulationIndex populationIndex) {
+        delegate.setPopulationIndex(populationIndex);
+    }
+
+    /**
+     * Sets the country table on the service that runs the reports.
+     */
+    @Override
+    public void setCountryTable(CountryTable countryTable) {
+        delegate.setCountryTable(countryTable);
+    }
+
+    /**
+     * Sets every index on the service that runs the reports.
+     */
+    @Override
+    public void setIndexes(CityIndexes indexes) {
+        delegate.setIndexes(indexes);
+    }
+
+    /**
+     * @return The indexes of the service that runs the reports.
+     */
+    @Override
+    public CityIndexes getIndexes() {
+        return delegate.getIndexes();
+    }
+
+    /**
+     * Sets the fetch size on the service that runs the reports.
+     */
+    @Override
+    public void setStreamFetchSize(int fetchSize) {
+        delegate.setStreamFetchSize(fetchSize);
+    }
+
+    /**
+     * @return The fetch size of the service that runs the reports.
+     */
+    @Override
+    public int getStreamFetchSize() {
+        return delegate.getStreamFetchSize();
+    }
+
+    @Override
+    public long forEachCityByPopulation(Consumer<City> consumer) {
+        return stream(delegate::forEachCityByPopulation, service -> service::forEachCityByPopulation, consumer);
+    }
+
+    @Override
+    public long forEachCityInContinentByPopulation(String continent, Consumer<City> consumer) {
+        return stream(c -> delegate.forEachCityInContinentByPopulation(continent, c),
+                service -> c -> service.forEachCityInContinentByPopulation(continent, c), consumer);
+    }
+
+    @Override
+    public long forEachCityInRegionByPopulation(String region, Consumer<City> consumer) {
+        return stream(c -> delegate.forEachCityInRegionByPopulation(region, c),
+                service -> c -> service.forEachCityInRegionByPopulation(region, c), consumer);
+    }
+
+    /**
+     * Streams a report from the database, or from the fallback if the database is unavailable.
+     * Cities already handed over cannot be taken back, so the fallback only streams if the
+     * database failed before its first city; otherwise the report stops where it failed.
+     */
+    private long stream(ToLongFunction<Consumer<City>> primary,
+                        Function<CityReportService, ToLongFunction<Consumer<City>>> secondary,
+                        Consumer<City> consumer) {
+        long[] handed = new long[1];
+        Consumer<City> counting = city -> {
+            handed[0]++;
+            consumer.accept(city);
+        };
+        return policy.call(() -> primary.applyAsLong(counting),
+                () -> handed[0] > 0 ? handed[0] : secondary.apply(fallback.get()).applyAsLong(consumer));
+    }
+
+    @Override
+    public List<EnrichedCityPojo> getAllCitiesWithCountryByPopulation() {
+        return policy.call(delegate::getAllCitiesWithCountryByPopulation, () -> fallback.get().getAllCitiesWithCountryByPopulation());
+    }
+
+    @Override
+    public List<EnrichedCityPojo> getTopNCitiesWithCountryByPopulation(int n) {
+        return policy.call(() -> delegate.getTopNCitiesWithCountryByPopulation(n), () -> fallback.get().getTopNCitiesWithCountryByPopulation(n));
+    }
+
+    @Override
+    public List<EnrichedCityPojo> getCitiesWithCountryInPopulationRange(int min, int max) {
+        return policy.call(() -> delegate.getCitiesWithCountryInPopulationRange(min, max), () -> fallback.get().getCitiesWithCountryInPopulationRange(min, max));
+    }
+
+    @Override
+    public List<City> getCitiesInPopulationRange(int min, int max) {
+        return policy.call(() -> delegate.getCitiesInPopulationRange(min, max), () -> fallback.get().getCitiesInPopulationRange(min, max));
+    }
+
+    @Override
+    public List<City> getCitiesInContinentInPopulationRange(String continent, int min, int max) {
+        return policy.call(() -> delegate.getCitiesInContinentInPopulationRange(continent, min, max), () -> fallback.get().getCitiesInContinentInPopulationRange(continent, min, max));
+    }
+
+    @Override
+    public List<City> getCitiesInRegionInPopulationRange(String region, int min, int max) {
+        return policy.call(() -> delegate.getCitiesInRegionInPopulationRange(region, min, max), () -> fallback.get().getCitiesInRegionInPopulationRange(region, min, max));
+    }
+
+    @Override
+    public List<PopulationHistogramPojo> getContinentPopulationHistogram(int... bounds) {
+        return policy.call(() -> delegate.getContinentPopulationHistogram(bounds), () -> fallback.get().getContinentPopulationHistogram(bounds));
+    }
+
+    @Override
+    public List<City> searchCities(String query, int limit) {
+        return policy.call(() -> delegate.searchCities(query, limit), () -> fallback.get().searchCities(query, limit));
+    }
+
+    @Override
+    public City searchBestCity(String query) {
+        return policy.call(() -> delegate.searchBestCity(query), () -> fallback.get().searchBestCity(query));
+    }
+
+    @Override
+    public List<City> getAllCitiesByPopulationLargestToSmallest() {
+        return policy.call(delegate::getAllCitiesByPopulationLargestToSmallest, () -> fallback.get().getAllCitiesByPopulationLargestToSmallest());
+    }
+
+    @Override
+    public Page<City> getCitiesByPopulationPage(int pageSize, String resumeToken) {
+        return policy.call(() -> delegate.getCitiesByPopulationPage(pageSize, resumeToken), () -> fallback.get().getCitiesByPopulationPage(pageSize, resumeToken));
+    }
+
+    @Override
+    public List<City> getAllCitiesInContinentByPopulationLargestToSmallest(String continent) {
+        return policy.call(() -> delegate.getAllCitiesInContinentByPopulationLargestToSmallest(continent), () -> fallback.get().getAllCitiesInContinentByPopulationLargestToSmallest(continent));
+    }
+
+    @Override
+    public List<City> getAllCitiesInRegionByPopulationLargestToSmallest(String region) {
+        return policy.call(() -> delegate.getAllCitiesInRegionByPopulationLargestToSmallest(region), () -> fallback.get().getAllCitiesInRegionByPopulationLargestToSmallest(region));
+    }
+
+    @Override
+    public List<City> getAllCitiesInCountryByPopulationLargestToSmallest(String countryCode) {
+        return policy.call(() -> delegate.getAllCitiesInCountryByPopulationLargestToSmallest(countryCode), () -> fallback.get().getAllCitiesInCountryByPopulationLargestToSmallest(countryCode));
+    }
+
+    @Override
+    public List<City> getAllCitiesInDistrictByPopulationLargestToSmallest(String district) {
+        return policy.call(() -> delegate.getAllCitiesInDistrictByPopulationLargestToSmallest(district), () -> fallback.get().getAllCitiesInDistrictByPopulationLargestToSmallest(district));
+    }
+
+    @Override
+    public List<City> getTopNCitiesByPopulationLargestToSmallest(int n) {
+        return policy.call(() -> delegate.getTopNCitiesByPopulationLargestToSmallest(n), () -> fallback.get().getTopNCitiesByPopulationLargestToSmallest(n));
+    }
+
+    @Override
+    public List<City> getTopCitiesByContinent(String continent, int limit) {
+        return policy.call(() -> delegate.getTopCitiesByContinent(continent, limit), () -> fallback.get().getTopCitiesByContinent(continent, limit));
+    }
+
+    @Override
+    public List<City> getTopCitiesByRegion(String region, int n) {
+        return policy.call(() -> delegate.getTopCitiesByRegion(region, n), () -> fallback.get().getTopCitiesByRegion(region, n));
+    }
+
+    @Override
+    public List<City> getTopCitiesByCountry(String countryName, int n) {
+        return policy.call(() -> delegate.getTopCitiesByCountry(countryName, n), () -> fallback.get().getTopCitiesByCountry(countryName, n));
+    }
+
+    @Override
+    public List<City> getTopCitiesByDistrict(String districtName, int n) {
+        return policy.call(() -> delegate.getTopCitiesByDistrict(districtName, n), () -> fallback.get().getTopCitiesByDistrict(districtName, n));
+    }
+
+    @Override
+    public List<City> getAllCapitalCitiesByPopulation() {
+        return policy.call(delegate::getAllCapitalCitiesByPopulation, () -> fallback.get().getAllCapitalCitiesByPopulation());
+    }
+
+    @Override
+    public List<City> getAllCapitalCitiesInContinentByPopulation(String continent) {
+        return policy.call(() -> delegate.getAllCapitalCitiesInContinentByPopulation(continent), () -> fallback.get().getAllCapitalCitiesInContinentByPopulation(continent));
+    }
+
+    @Override
+    public List<City> getAllCapitalCitiesInRegionByPopulation(String region) {
+        return policy.call(() -> delegate.getAllCapitalCitiesInRegionByPopulation(region), () -> fallback.get().getAllCapitalCitiesInRegionByPopulation(region));
+    }
+
+    @Override
+    public List<City> getTopCapitalCitiesByPopulation(int n) {
+        return policy.call(() -> delegate.getTopCapitalCitiesByPopulation(n), () -> fallback.get().getTopCapitalCitiesByPopulation(n));
+    }
+
+    @Override
+    public List<City> getTopCapitalCitiesByContinent(String continent, int n) {
+        return policy.call(() -> delegate.getTopCapitalCitiesByContinent(continent, n), () -> fallback.get().getTopCapitalCitiesByContinent(continent, n));
+    }
+
+    @Override
+    public List<City> getTopCapitalCitiesByRegion(String region, int n) {
+        return policy.call(() -> delegate.getTopCapitalCitiesByRegion(region, n), () -> fallback.get().getTopCapitalCitiesByRegion(region, n));
+    }
+
+    @Override
+    public PopulationReportPojo getDistrictPopulationReport(String districtName) {
+        return policy.call(() -> delegate.getDistrictPopulationReport(districtName), () -> fallback.get().getDistrictPopulationReport(districtName));
+    }
+
+    @Override
+    public PopulationReportPojo getCityPopulationReport(String cityName) {
+        return policy.call(() -> delegate.getCityPopulationReport(cityName), () -> fallback.get().getCityPopulationReport(cityName));
+    }
+}
@@ -0,0 +1,96 @@
+package com.napier.devops.resilience;
+
+import com.napier.devops.Country;
+import com.napier.devops.service.CountryReportService;
+import com.napier.pojo.LanguageReportPojo;
+import com.napier.pojo.Page;
+import com.napier.pojo.PopulationReportPojo;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Country reports that fall back to stale in-memory data when the database is unavailable.
+ * <p>
+ * Every report method goes through a {@link FallbackPolicy}: it runs against the database
+ * while the circuit breaker allows, and against the fallback service when the breaker is open
+ * or the report's queries fail. The print methods are inherited and call these methods.
+ */
+public class FallbackCountryReportService extends CountryReportService {
+
+    private final CountryReportService delegate;
+    private final Supplier<? extends CountryReportService> fallback;
+    private final FallbackPolicy policy;
+
+    /**
+     * @param delegate The service that runs the reports against the database.
+     * @param fallback The service that runs the same reports against an older in-memory copy.
+     * @param policy   Decides which of the two serves each report.
+     */
+    public FallbackCountryReportService(CountryReportService delegate, CountryReportService fallback, FallbackPolicy policy) {
+        this(delegate, () -> fallback, policy);
+    }
+
+    /**
+     * @param delegate The service that runs the reports against the database.
+     * @param fallback Gives the service to fall back to each time one is needed, so the
+     *                 fallback can follow a snapshot that is reloaded.
+     * @param policy   Decides which of the two serves each report.
+     */
+    public FallbackCountryReportService(CountryReportService delegate, Supplier<? extends CountryReportService> fallback, FallbackPolicy policy) {
+        super(null);
+        this.delegate = delegate;
+        this.fallback = fallback;
+        this.policy = policy;
+    }
+
+    /**
+     * Prints here and on the service that runs the reports.
+     */
+    @Override
+    public void setOutput(PrintStream out, PrintStream err) {
+        super.setOutput(out, err);
+        delegate.setOutput(out, err);
+    }
+
+    @Override
+    public Country getCountryByCode(String countryCode) {
+        return policy.call(() -> delegate.getCountryByCode(countryCode), () -> fallback.get().getCountryByCode(countryCode));
+    }
+
+    @Override
+    public List<Country> getAllCountriesByPopulationLargestToSmallest() {
+        return policy.call(delegate::getAllCountriesByPopulationLargestToSmallest, () -> fallback.get().getAllCountriesByPopulationLargestToSmallest());
+    }
+
+    @Override
+    public Page<Country> getCountriesByPopulationPage(int pageSize, String resumeToken) {
+        return policy.call(() -> delegate.getCountriesByPopulationPage(pageSize, resumeToken), () -> fallback.get().getCountriesByPopulationPage(pageSize, resumeToken));
+    }
+
+    @Override
+    public List<Country> getAllCountriesInContinentByPopulationLargestToSmallest(String continent) {
+        return policy.call(() -> delegate.getAllCountriesInContinentByPopulationLargestToSmallest(continent), () -> fallback.get().getAllCountriesInContinentByPopulationLargestToSmallest(continent));
+    }
+
+    @Override
+    public List<Country> getAllCountriesInRegionByPopulationLargestToSmallest(String region) {
+        return policy.call(() -> delegate.getAllCountriesInRegionByPopulationLargestToSmallest(region), () -> fallback.get().getAllCountriesInRegionByPopulationLargestToSmallest(region));
+    }
+
+    @Override
+    public PopulationReportPojo getRegionPopulationReport(String regionName) {
+        return policy.call(() -> delegate.getRegionPopulationReport(regionName), () -> fallback.get().getRegionPopulationReport(regionName));
+    }
+
+    @Override
+    public PopulationReportPojo getCountryPopulationReport(String countryName) {
+        return policy.call(() -> delegate.getCountryPopulationReport(countryName), () -> fallback.get().getCountryPopulationReport(countryName));
+    }
+
+    @Override
+    public List<LanguageReportPojo> getMajorLanguageReport() {
+        return policy.call(delegate::getMajorLanguageReport, () -> fallback.get().getMajorLanguageReport());
+    }
+}
@@ -0,0 +1,56 @@
+package com.napier.devops.resilience;
+
+import com.napier.pojo.Staleness;
+
+import java.util.function.Supplier;
+
+/**
+ * Decides whether a report is served by the database or by an older in-memory copy.
+ * <p>
+ * A report goes to the database while its {@link CircuitBreaker} lets queries through. If the
+ * breaker is open, or the report's own queries fail or are refused, the same report is served
+ * from the fallback instead, which may be out of date. A result served from the fallback is
+ * marked with {@link Staleness#mark}, so the mark goes wherever the result goes and can be
+ * read back with {@link Staleness#isStale}; a warning is also printed each time.
+ */
+public class FallbackPolicy {
+
+    private final CircuitBreaker breaker;
+    private final String fallbackDescription;
+
+    /**
+     * @param breaker             The breaker guarding the database connection.
+     * @param fallbackDescription What the stale results come from, for the warning.
+     */
+    public FallbackPolicy(CircuitBreaker breaker, String fallbackDescription) {
+        this.breaker = breaker;
+        this.fallbackDescription = fallbackDescription;
+    }
+
+    /**
+     * Runs a report against the database, or the fallback if the database is unavailable.
+     *
+     * @param primary  Runs the report against the database.
+     * @param fallback Runs the same report against the fallback copy.
+     * @return The result, from the database if it could be reached, otherwise marked as stale.
+     */
+    public <T> T call(Supplier<T> primary, Supplier<T> fallback) {
+        if (breaker.isAvailable()) {
+            breaker.clearThreadFailure();
+            T result = primary.get();
+            if (!breaker.clearThreadFailure()) {
+                return result;
+            }
+        }
+
+        System.err.println("Warning: Database unavailable, serving stale data from " + fallbackDescription + ".");
+        return Staleness.mark(fallback.get());
+    }
+
+    /**
+     * @return The breaker guarding the database connection.
+     */
+    public CircuitBreaker getBreaker() {
+        return breaker;
+    }
+}
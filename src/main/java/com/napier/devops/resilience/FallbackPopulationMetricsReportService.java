@@ -0,0 +1,74 @@
+package com.napier.devops.resilience;
+
+import com.napier.devops.PopulationMetrics;
+import com.napier.devops.service.PopulationMetricsReportService;
+import com.napier.pojo.WorldReportPojo;
+
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Population metrics reports that fall back to stale in-memory data when the database is unavailable.
+ * <p>
+ * Every report method goes through a {@link FallbackPolicy}: it runs against the database
+ * while the circuit breaker allows, and against the fallback service when the breaker is open
+ * or the report's queries fail. The print methods are inherited and call these methods.
+ */
+public class FallbackPopulationMetricsReportService extends PopulationMetricsReportService {
+
+    private final PopulationMetricsReportService delegate;
+    private final PopulationMetricsReportService fallback;
+    private final FallbackPolicy policy;
+
+    /**
+     * @param delegate The service that runs the reports against the database.
+     * @param fallback The service that runs the same reports against an older in-memory copy.
+     * @param policy   Decides which of the two serves each report.
+     */
+    public FallbackPopulationMetricsReportService(PopulationMetricsReportService delegate, PopulationMetricsReportService fallback, FallbackPolicy policy) {
+        super(null);
+        this.delegate = delegate;
+        this.fallback = fallback;
+        this.policy = policy;
+    }
+
+    /**
+     * Prints here, on the service that runs the reports and on the one it falls back to.
+     */
+    @Override
+    public void setOutput(PrintStream out, PrintStream err) {
+        super.setOutput(out, err);
+        delegate.setOutput(out, err);
+        fallback.setOutput(out, err);
+    }
+
+    @Override
+    public List<PopulationMetrics> getContinentPopulationReport() {
+        return policy.call(delegate::getContinentPopulationReport, fallback::getContinentPopulationReport);
+    }
+
+    @Override
+    public List<PopulationMetrics> getRegionPopulationReport() {
+        return policy.call(delegate::getRegionPopulationReport, fallback::getRegionPopulationReport);
+    }
+
+    @Override
+    public List<PopulationMetrics> getCountryPopulationReport() {
+        return policy.call(delegate::getCountryPopulationReport, fallback::getCountryPopulationReport);
+    }
+
+    @Override
+    public long getWorldPopulationReport() {
+        return policy.call(delegate::getWorldPopulationReport, fallback::getWorldPopulationReport);
+    }
+
+    @Override
+    public PopulationMetrics getPopulationContinentReport(String continentName) {
+        return policy.call(() -> delegate.getPopulationContinentReport(continentName), () -> fallback.getPopulationContinentReport(continentName));
+    }
+
+    @Override
+    public WorldReportPojo getWorldReport(String continentName, String regionName, String countryName) {
+        return policy.call(() -> delegate.getWorldReport(continentName, regionName, countryName), () -> fallback.getWorldReport(continentName, regionName, countryName));
+    }
+}
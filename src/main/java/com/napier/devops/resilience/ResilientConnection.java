@@ -0,0 +1,137 @@
+package com.napier.devops.resilience;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+
+/**
+ * Wraps a JDBC connection so that every query the report services run has a timeout and
+ * goes through a {@link CircuitBreaker}.
+ * <p>
+ * Every statement the connection creates gets the query timeout, so a stalled server makes
+ * the query fail with a {@link SQLTimeoutException} instead of blocking forever. Timeouts and
+ * lost connections count as failures of the database; other errors, such as bad SQL, mean
+ * the database answered and count as successes. While the breaker is open, queries fail at
+ * once with an {@link SQLException}, which the services report like any other failed query.
+ */
+public final class ResilientConnection {
+
+    /**
+     * Message of the exception thrown for a query the breaker refuses.
+     */
+    public static final String CIRCUIT_OPEN_MESSAGE = "Circuit breaker open: database unavailable";
+
+    private ResilientConnection() {
+    }
+
+    /**
+     * Wraps a connection with a timeout and circuit breaker.
+     *
+     * @param connection          The connection the services would normally use.
+     * @param breaker             The breaker guarding the database.
+     * @param queryTimeoutSeconds The timeout of every query, or 0 for none.
+     * @return A connection that behaves like the original but times out and fails fast.
+     */
+    public static Connection wrap(Connection connection, CircuitBreaker breaker, int queryTimeoutSeconds) {
+        if (queryTimeoutSeconds < 0) {
+            throw new IllegalArgumentException("Query timeout cannot be negative");
+        }
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new ConnectionHandler(connection, breaker, queryTimeoutSeconds));
+    }
+
+    /**
+     * @return True if an exception means the database is unhealthy rather than the query wrong.
+     */
+    static boolean isUnhealthy(SQLException e) {
+        String state = e.getSQLState();
+        return e instanceof SQLTimeoutException
+                || e instanceof SQLTransientConnectionException
+                || e instanceof SQLNonTransientConnectionException
+                || e instanceof SQLRecoverableException
+                || (state != null && state.startsWith("08"));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static class ConnectionHandler implements InvocationHandler {
+        private final Connection connection;
+        private final CircuitBreaker breaker;
+        private final int queryTimeoutSeconds;
+
+        ConnectionHandler(Connection connection, CircuitBreaker breaker, int queryTimeoutSeconds) {
+            this.connection = connection;
+            this.breaker = breaker;
+            this.queryTimeoutSeconds = queryTimeoutSeconds;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = ResilientConnection.invoke(connection, method, args);
+
+            if (method.getName().equals("prepareStatement") && result instanceof PreparedStatement statement) {
+                statement.setQueryTimeout(queryTimeoutSeconds);
+                return Proxy.newProxyInstance(
+                        PreparedStatement.class.getClassLoader(),
+                        new Class<?>[]{PreparedStatement.class},
+                        new StatementHandler(statement, breaker));
+            }
+            if (method.getName().equals("createStatement") && result instanceof Statement statement) {
+                statement.setQueryTimeout(queryTimeoutSeconds);
+                return Proxy.newProxyInstance(
+                        Statement.class.getClassLoader(),
+                        new Class<?>[]{Statement.class},
+                        new StatementHandler(statement, breaker));
+            }
+            return result;
+        }
+    }
+
+    private static class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final CircuitBreaker breaker;
+
+        StatementHandler(Statement statement, CircuitBreaker breaker) {
+            this.statement = statement;
+            this.breaker = breaker;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (!method.getName().startsWith("execute")) {
+                return ResilientConnection.invoke(statement, method, args);
+            }
+
+            if (!breaker.allowRequest()) {
+                throw new SQLException(CIRCUIT_OPEN_MESSAGE, "08000");
+            }
+            try {
+                Object result = ResilientConnection.invoke(statement, method, args);
+                breaker.recordSuccess();
+                return result;
+            } catch (SQLException e) {
+                if (isUnhealthy(e)) {
+                    breaker.recordFailure();
+                } else {
+                    // The database answered, so it is healthy even though the query was wrong
+                    breaker.recordSuccess();
+                }
+                throw e;
+            } catch (RuntimeException | Error e) {
+                // Settle the outcome so a half open breaker does not wait for a probe forever
+                breaker.recordFailure();
+                throw e;
+            }
+        }
+    }
+}
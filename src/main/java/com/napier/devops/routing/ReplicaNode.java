@@ -0,0 +1,117 @@
+package com.napier.devops.routing;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A read replica known to the {@link ReplicaRouter}: its connection, how many statements
+ * are currently running on it, and whether the last health check left it in rotation.
+ */
+public class ReplicaNode {
+
+    /**
+     * Opens a connection to a replica, again after it has failed.
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+
+    private final String name;
+    private final ConnectionFactory factory;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private volatile Connection connection;
+    private volatile boolean healthy;
+    private volatile boolean checked;
+    private volatile long lagSeconds = -1;
+
+    /**
+     * @param name    A name for the replica in log messages, such as its host and port.
+     * @param factory Opens connections to the replica.
+     */
+    public ReplicaNode(String name, ConnectionFactory factory) {
+        this.name = name;
+        this.factory = factory;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The number of statements open on the replica.
+     */
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    /**
+     * @return The replication lag seen by the last health check, or -1 if it is not known.
+     */
+    public long getLagSeconds() {
+        return lagSeconds;
+    }
+
+    Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Returns the open connection, opening a new one if there is none or it has failed.
+     */
+    Connection connect() throws SQLException {
+        Connection current = connection;
+        if (current == null || current.isClosed() || !current.isValid(2)) {
+            closeQuietly();
+            current = factory.open();
+            connection = current;
+        }
+        return current;
+    }
+
+    /**
+     * @return Whether a health check has run on the replica yet.
+     */
+    public boolean isChecked() {
+        return checked;
+    }
+
+    void setHealthy(boolean healthy) {
+        this.healthy = healthy;
+        this.checked = true;
+    }
+
+    void setLagSeconds(long lagSeconds) {
+        this.lagSeconds = lagSeconds;
+    }
+
+    void acquire() {
+        outstanding.incrementAndGet();
+    }
+
+    void release() {
+        outstanding.decrementAndGet();
+    }
+
+    void closeQuietly() {
+        Connection current = connection;
+        connection = null;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (SQLException e) {
+                // The connection is being dropped anyway
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name + (healthy ? " (healthy, lag " + lagSeconds + "s, " + outstanding.get() + " running)" : " (ejected)");
+    }
+}
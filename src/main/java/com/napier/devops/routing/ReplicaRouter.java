@@ -0,0 +1,246 @@
+package com.napier.devops.routing;
+
+import java.io.Closeable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spreads the report queries over a set of MySQL read replicas.
+ * <p>
+ * {@link #connection()} returns a connection the report services use as normal. Every
+ * statement they create is opened on the healthy replica with the fewest statements
+ * running, and on the primary when no replica is healthy. Everything else, such as
+ * transactions and metadata, goes to the primary.
+ * <p>
+ * {@link #checkHealth()} reconnects failed replicas and reads their replication lag.
+ * A replica that cannot be reached, whose replication has stopped, or whose lag is over
+ * the limit is ejected until a later check finds it caught up. A replica is also ejected
+ * straight away if a query on it fails.
+ */
+public class ReplicaRouter implements Closeable {
+
+    private final Connection primary;
+    private final List<ReplicaNode> replicas;
+    private final long maxLagSeconds;
+    private final AtomicInteger rotation = new AtomicInteger();
+    private ScheduledExecutorService healthChecks;
+
+    /**
+     * @param primary       The connection to the primary, used when no replica is healthy.
+     * @param replicas      The replicas to spread queries over.
+     * @param maxLagSeconds The most a replica may lag behind the primary and stay in rotation.
+     */
+    public ReplicaRouter(Connection primary, List<ReplicaNode> replicas, long maxLagSeconds) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.maxLagSeconds = maxLagSeconds;
+    }
+
+    public List<ReplicaNode> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * @return A connection that routes statements to the replicas.
+     */
+    public Connection connection() {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new ConnectionHandler());
+    }
+
+    /**
+     * Runs {@link #checkHealth()} now and then in the background every period.
+     *
+     * @param periodMillis Time between health checks.
+     */
+    public synchronized void start(long periodMillis) {
+        checkHealth();
+        if (healthChecks == null) {
+            healthChecks = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "replica-health-check");
+                thread.setDaemon(true);
+                return thread;
+            });
+            healthChecks.scheduleWithFixedDelay(this::checkHealth, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Checks every replica and puts it in or takes it out of rotation.
+     */
+    public void checkHealth() {
+        for (ReplicaNode replica : replicas) {
+            try {
+                long lag = replicationLag(replica.connect());
+                replica.setLagSeconds(lag);
+                if (lag < 0) {
+                    eject(replica, "replication is not running");
+                } else if (lag > maxLagSeconds) {
+                    eject(replica, "lagging " + lag + "s behind the primary");
+                } else if (!replica.isHealthy()) {
+                    replica.setHealthy(true);
+                    System.out.println("Replica " + replica.getName() + " in rotation, lag " + lag + "s");
+                }
+            } catch (SQLException e) {
+                replica.setLagSeconds(-1);
+                replica.closeQuietly();
+                eject(replica, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reads how far a replica is behind its source.
+     *
+     * @return The lag in seconds, 0 for a server that is not replicating from anything,
+     * or -1 if replication is configured but stopped.
+     */
+    static long replicationLag(Connection connection) throws SQLException {
+        try {
+            return replicationLag(connection, "SHOW REPLICA STATUS", "Seconds_Behind_Source");
+        } catch (SQLSyntaxErrorException e) {
+            // Servers before MySQL 8.0.22 only know the old names
+            return replicationLag(connection, "SHOW SLAVE STATUS", "Seconds_Behind_Master");
+        }
+    }
+
+    private static long replicationLag(Connection connection, String sql, String column) throws SQLException {
+        try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            if (!rs.next()) {
+                return 0;
+            }
+            long lag = rs.getLong(column);
+            return rs.wasNull() ? -1 : lag;
+        }
+    }
+
+    /**
+     * @return The healthy replica with the fewest statements running, or null if there is none.
+     * Ties go round robin so that idle replicas share the load.
+     */
+    ReplicaNode choose() {
+        int size = replicas.size();
+        int start = size == 0 ? 0 : Math.floorMod(rotation.getAndIncrement(), size);
+        ReplicaNode best = null;
+        for (int i = 0; i < size; i++) {
+            ReplicaNode replica = replicas.get((start + i) % size);
+            if (replica.isHealthy() && (best == null || replica.getOutstanding() < best.getOutstanding())) {
+                best = replica;
+            }
+        }
+        return best;
+    }
+
+    private void eject(ReplicaNode replica, String reason) {
+        // Only log when a replica leaves rotation, or on its first check
+        if (replica.isHealthy() || !replica.isChecked()) {
+            System.out.println("Replica " + replica.getName() + " ejected: " + reason);
+        }
+        replica.setHealthy(false);
+    }
+
+    /**
+     * Stops the health checks and closes the replica connections. The primary is left open.
+     */
+    @Override
+    public synchronized void close() {
+        if (healthChecks != null) {
+            healthChecks.shutdownNow();
+            healthChecks = null;
+        }
+        for (ReplicaNode replica : replicas) {
+            replica.setHealthy(false);
+            replica.closeQuietly();
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (!name.equals("createStatement") && !name.equals("prepareStatement")) {
+                return ReplicaRouter.invoke(primary, method, args);
+            }
+
+            ReplicaNode replica = choose();
+            if (replica == null) {
+                return ReplicaRouter.invoke(primary, method, args);
+            }
+
+            Connection connection = replica.getConnection();
+            if (connection == null) {
+                return ReplicaRouter.invoke(primary, method, args);
+            }
+
+            Statement statement;
+            try {
+                statement = (Statement) ReplicaRouter.invoke(connection, method, args);
+            } catch (SQLException e) {
+                eject(replica, e.getMessage());
+                return ReplicaRouter.invoke(primary, method, args);
+            }
+
+            replica.acquire();
+            Class<?> type = statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+            return Proxy.newProxyInstance(
+                    type.getClassLoader(),
+                    new Class<?>[]{type},
+                    new StatementHandler(statement, replica));
+        }
+    }
+
+    /**
+     * Counts a statement against its replica until it is closed, and ejects the replica
+     * if a query on it fails.
+     */
+    private class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final ReplicaNode replica;
+        private boolean closed;
+
+        StatementHandler(Statement statement, ReplicaNode replica) {
+            this.statement = statement;
+            this.replica = replica;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("close")) {
+                synchronized (this) {
+                    if (!closed) {
+                        closed = true;
+                        replica.release();
+                    }
+                }
+            }
+
+            try {
+                return ReplicaRouter.invoke(statement, method, args);
+            } catch (SQLException e) {
+                if (name.startsWith("execute")) {
+                    eject(replica, e.getMessage());
+                }
+                throw e;
+            }
+        }
+    }
+}
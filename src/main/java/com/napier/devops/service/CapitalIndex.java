@@ -0,0 +1,170 @@
+package com.napier.devops.service;
+
+import com.napier.devops.City;
+import com.napier.devops.SymbolTable;
+import com.napier.devops.snapshot.WorldSnapshot;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+
+/**
+ * Precomputed capital city records for the capital city reports (use cases 17 to 22).
+ * <p>
+ * The country.Capital = city.ID join is done once, when the index is built. Each capital is
+ * stored with its country's continent and region, and the records are sorted by population
+ * largest first, so a report is a walk from the front of the arrays that keeps the rows
+ * matching its filter and stops once it has enough of them.
+ */
+public class CapitalIndex {
+
+    private static final String SQL = """
+            SELECT city.ID, city.Name AS CityName, city.District, city.CountryCode, city.Population,
+                   country.Continent, country.Region
+            FROM city
+            INNER JOIN country ON country.Capital = city.ID
+            """;
+
+    private final int size;
+    private final int[] ids;
+    private final String[] names;
+    private final String[] districts;
+    private final String[] countryCodes;
+    private final int[] populations;
+    private final int[] continents;
+    private final int[] regions;
+
+    // Continent and region codes by lower case name, as the database compares them case-insensitively
+    private final Map<String, Integer> continentCodes = new HashMap<>();
+    private final Map<String, Integer> regionCodes = new HashMap<>();
+
+    private CapitalIndex(SymbolTable symbols, List<Capital> records) {
+        // Largest first, ties by ID so the order is stable between builds
+        records.sort(Comparator.comparingInt(Capital::population).reversed().thenComparingInt(Capital::id));
+
+        this.size = records.size();
+        this.ids = new int[size];
+        this.names = new String[size];
+        this.districts = new String[size];
+        this.countryCodes = new String[size];
+        this.populations = new int[size];
+        this.continents = new int[size];
+        this.regions = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            Capital record = records.get(i);
+            ids[i] = record.id();
+            names[i] = record.name();
+            districts[i] = symbols.intern(record.district());
+            countryCodes[i] = symbols.intern(record.countryCode());
+            populations[i] = record.population();
+            continents[i] = symbols.code(record.continent());
+            regions[i] = symbols.code(record.region());
+            continentCodes.put(record.continent().toLowerCase(Locale.ROOT), continents[i]);
+            regionCodes.put(record.region().toLowerCase(Locale.ROOT), regions[i]);
+        }
+    }
+
+    /**
+     * Builds the index with a single join query.
+     *
+     * @param connection The connection to the world database.
+     * @return A new index of every capital city.
+     * @throws SQLException If the query fails.
+     */
+    public static CapitalIndex load(Connection connection) throws SQLException {
+        List<Capital> records = new ArrayList<>();
+        try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(SQL)) {
+            while (rs.next()) {
+                records.add(new Capital(rs.getInt("ID"), rs.getString("CityName"), rs.getString("District"),
+                        rs.getString("CountryCode"), rs.getInt("Population"),
+                        rs.getString("Continent"), rs.getString("Region")));
+            }
+        }
+        return new CapitalIndex(new SymbolTable(), records);
+    }
+
+    /**
+     * Builds the index from an in-memory snapshot without touching the database.
+     *
+     * @param snapshot The snapshot to read the countries and cities from.
+     * @return A new index of every capital city in the snapshot.
+     */
+    public static CapitalIndex of(WorldSnapshot snapshot) {
+        Map<Integer, Integer> cityRows = new HashMap<>(snapshot.getCityCount() * 2);
+        for (int row = 0; row < snapshot.getCityCount(); row++) {
+            cityRows.put(snapshot.getCityId(row), row);
+        }
+
+        SymbolTable symbols = snapshot.getSymbols();
+        List<Capital> records = new ArrayList<>();
+        for (int country = 0; country < snapshot.getCountryCount(); country++) {
+            Integer city = cityRows.get(snapshot.getCountryCapital(country));
+            if (city != null) {
+                records.add(new Capital(snapshot.getCityId(city), snapshot.getCityName(city),
+                        symbols.symbol(snapshot.getCityDistrict(city)), snapshot.getCityCountryCode(city),
+                        snapshot.getCityPopulation(city), symbols.symbol(snapshot.getCountryContinent(country)),
+                        symbols.symbol(snapshot.getCountryRegion(country))));
+            }
+        }
+        return new CapitalIndex(symbols, records);
+    }
+
+    /**
+     * @return The number of capital cities in the index.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param limit The most capitals to return.
+     * @return The largest capitals in the world, largest first.
+     */
+    public List<City> top(int limit) {
+        return walk(null, -1, limit);
+    }
+
+    /**
+     * @param continent The continent, matched case-insensitively.
+     * @param limit     The most capitals to return.
+     * @return The largest capitals in the continent, largest first.
+     */
+    public List<City> topInContinent(String continent, int limit) {
+        Integer code = continentCodes.get(continent.toLowerCase(Locale.ROOT));
+        return code == null ? new ArrayList<>() : walk(continents, code, limit);
+    }
+
+    /**
+     * @param region The region, matched case-insensitively.
+     * @param limit  The most capitals to return.
+     * @return The largest capitals in the region, largest first.
+     */
+    public List<City> topInRegion(String region, int limit) {
+        Integer code = regionCodes.get(region.toLowerCase(Locale.ROOT));
+        return code == null ? new ArrayList<>() : walk(regions, code, limit);
+    }
+
+    /**
+     * Walks the records from the largest, keeping those whose column equals the code,
+     * until the limit is reached. A null column keeps every record.
+     */
+    private List<City> walk(int[] column, int code, int limit) {
+        List<City> capitals = new ArrayList<>(Math.min(limit, size));
+        for (int i = 0; i < size && capitals.size() < limit; i++) {
+            if (column == null || column[i] == code) {
+                capitals.add(new City().setAll(ids[i], names[i], countryCodes[i], districts[i], populations[i]));
+            }
+        }
+        return capitals;
+    }
+
+    /**
+     * A capital city joined with its country, used while the index is built.
+     */
+    private record Capital(int id, String name, String district, String countryCode, int population,
+                           String continent, String region) {
+    }
+}
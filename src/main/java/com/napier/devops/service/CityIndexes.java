@@ -0,0 +1,100 @@
+package com.napier.devops.service;
+
+import com.napier.devops.snapshot.WorldSnapshot;
+
+/**
+ * The in-memory indexes a {@link CityReportService} answers from instead of querying the
+ * database: capitals, city names, cities by population and countries by code.
+ * <p>
+ * A set of indexes does not change, and a report reads the set once and uses it to the
+ * end, so indexes built from one snapshot are never mixed with indexes built from another.
+ * Any of them may be null, in which case the reports that use it query the database.
+ */
+public final class CityIndexes {
+
+    /**
+     * No indexes, so every report queries the database.
+     */
+    public static final CityIndexes NONE = new CityIndexes(null, null, null, null);
+
+    private final CapitalIndex capitalIndex;
+    private final CityNameIndex cityNameIndex;
+    private final PopulationIndex populationIndex;
+    private final CountryTable countryTable;
+
+    public CityIndexes(CapitalIndex capitalIndex, CityNameIndex cityNameIndex, PopulationIndex populationIndex,
+                       CountryTable countryTable) {
+        this.capitalIndex = capitalIndex;
+        this.cityNameIndex = cityNameIndex;
+        this.populationIndex = populationIndex;
+        this.countryTable = countryTable;
+    }
+
+    /**
+     * Builds every index from an in-memory snapshot.
+     *
+     * @param snapshot The snapshot to read the cities and countries from.
+     * @return Indexes of the snapshot.
+     */
+    public static CityIndexes of(WorldSnapshot snapshot) {
+        return new CityIndexes(CapitalIndex.of(snapshot), CityNameIndex.of(snapshot), PopulationIndex.of(snapshot),
+                CountryTable.of(snapshot));
+    }
+
+    /**
+     * Builds only the indexes that grow with the number of countries, the capitals and the
+     * country table. The city name and population indexes hold every city on the heap, so
+     * they are left out for snapshots whose cities are kept off it, and the reports that
+     * use them query the database instead.
+     *
+     * @param snapshot The snapshot to read the capitals and countries from.
+     * @return The capital and country indexes of the snapshot.
+     */
+    public static CityIndexes ofCountries(WorldSnapshot snapshot) {
+        return new CityIndexes(CapitalIndex.of(snapshot), null, null, CountryTable.of(snapshot));
+    }
+
+    /**
+     * @return The capitals by population, or null to query the database.
+     */
+    public CapitalIndex getCapitalIndex() {
+        return capitalIndex;
+    }
+
+    /**
+     * @return The city name search, or null to match names exactly in the database.
+     */
+    public CityNameIndex getCityNameIndex() {
+        return cityNameIndex;
+    }
+
+    /**
+     * @return Every city by population, or null to query the database.
+     */
+    public PopulationIndex getPopulationIndex() {
+        return populationIndex;
+    }
+
+    /**
+     * @return Every country by code, or null if not loaded.
+     */
+    public CountryTable getCountryTable() {
+        return countryTable;
+    }
+
+    public CityIndexes withCapitalIndex(CapitalIndex capitalIndex) {
+        return new CityIndexes(capitalIndex, cityNameIndex, populationIndex, countryTable);
+    }
+
+    public CityIndexes withCityNameIndex(CityNameIndex cityNameIndex) {
+        return new CityIndexes(capitalIndex, cityNameIndex, populationIndex, countryTable);
+    }
+
+    public CityIndexes withPopulationIndex(PopulationIndex populationIndex) {
+        return new CityIndexes(capitalIndex, cityNameIndex, populationIndex, countryTable);
+    }
+
+    public CityIndexes withCountryTable(CountryTable countryTable) {
+        return new CityIndexes(capitalIndex, cityNameIndex, populationIndex, countryTable);
+    }
+}
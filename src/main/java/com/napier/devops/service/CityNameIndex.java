@@ -0,0 +1,287 @@
+package com.napier.devops.service;
+
+import com.napier.devops.City;
+import com.napier.devops.snapshot.WorldSnapshot;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory search over city names, so users can find "new yor" or "Sao Paulo" without
+ * the database scanning every row with LIKE.
+ * <p>
+ * Names are normalised by stripping accents, lower-casing and collapsing punctuation to
+ * single spaces. Prefix search binary searches a sorted array of every name and every
+ * word-suffix of a name, so "york" finds "New York" as well as "Yorkton". Typos are handled
+ * with a trigram index: names sharing enough three-letter grams with the query match.
+ * Results are ranked by population, prefix matches ahead of fuzzy ones.
+ */
+public class CityNameIndex {
+
+    /**
+     * Smallest share of trigrams a name must have in common with the query to match.
+     */
+    static final double MIN_SIMILARITY = 0.45;
+
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // City columns, sorted by population largest first so row order is rank order
+    private final int size;
+    private final int[] ids;
+    private final String[] names;
+    private final String[] normalizedNames;
+    private final String[] countryCodes;
+    private final String[] districts;
+    private final int[] populations;
+    private final int[] trigramCounts;
+
+    // Every name and word-suffix of a name, sorted, with the row it came from
+    private final String[] keys;
+    private final int[] keyRows;
+
+    // Rows containing each trigram, in ascending row order
+    private final Map<String, int[]> trigrams;
+
+    private CityNameIndex(List<City> cities) {
+        cities.sort(Comparator.comparing(City::getPopulation).reversed().thenComparing(City::getId));
+
+        this.size = cities.size();
+        this.ids = new int[size];
+        this.names = new String[size];
+        this.normalizedNames = new String[size];
+        this.countryCodes = new String[size];
+        this.districts = new String[size];
+        this.populations = new int[size];
+        this.trigramCounts = new int[size];
+
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(size * 2);
+        Map<String, List<Integer>> postings = new HashMap<>();
+
+        for (int row = 0; row < size; row++) {
+            City city = cities.get(row);
+            ids[row] = city.getId();
+            names[row] = city.getName();
+            countryCodes[row] = city.getCountryCode();
+            districts[row] = city.getDistrict();
+            populations[row] = city.getPopulation();
+
+            String normalized = normalize(city.getName());
+            normalizedNames[row] = normalized;
+            entries.add(Map.entry(normalized, row));
+            for (int space = normalized.indexOf(' '); space >= 0; space = normalized.indexOf(' ', space + 1)) {
+                entries.add(Map.entry(normalized.substring(space + 1), row));
+            }
+
+            Set<String> grams = trigrams(normalized);
+            trigramCounts[row] = grams.size();
+            for (String gram : grams) {
+                postings.computeIfAbsent(gram, key -> new ArrayList<>()).add(row);
+            }
+        }
+
+        entries.sort(Map.Entry.<String, Integer>comparingByKey().thenComparing(Map.Entry.comparingByValue()));
+        this.keys = new String[entries.size()];
+        this.keyRows = new int[entries.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = entries.get(i).getKey();
+            keyRows[i] = entries.get(i).getValue();
+        }
+
+        this.trigrams = new HashMap<>(postings.size() * 2);
+        postings.forEach((gram, rows) -> trigrams.put(gram, rows.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    /**
+     * Builds the index from the city table.
+     *
+     * @param connection The connection to the world database.
+     * @return A new index of every city.
+     * @throws SQLException If the query fails.
+     */
+    public static CityNameIndex load(Connection connection) throws SQLException {
+        List<City> cities = new ArrayList<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT ID, Name, CountryCode, District, Population FROM city")) {
+            while (rs.next()) {
+                cities.add(new City().setAll(rs.getInt("ID"), rs.getString("Name"), rs.getString("CountryCode"),
+                        rs.getString("District"), rs.getInt("Population")));
+            }
+        }
+        return new CityNameIndex(cities);
+    }
+
+    /**
+     * Builds the index from an in-memory snapshot without touching the database.
+     *
+     * @param snapshot The snapshot to read the cities from.
+     * @return A new index of every city in the snapshot.
+     */
+    public static CityNameIndex of(WorldSnapshot snapshot) {
+        List<City> cities = new ArrayList<>(snapshot.getCityCount());
+        for (int row = 0; row < snapshot.getCityCount(); row++) {
+            cities.add(snapshot.toCity(row));
+        }
+        return new CityNameIndex(cities);
+    }
+
+    /**
+     * @return The number of cities in the index.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds cities whose name, or a word in it, starts with the query, then cities whose
+     * name is close to the query, each group largest first.
+     *
+     * @param query Part of a city name, in any case and with or without accents.
+     * @param limit The most cities to return.
+     * @return The matching cities, best first.
+     */
+    public List<City> search(String query, int limit) {
+        List<City> results = new ArrayList<>();
+        String normalized = normalize(query);
+        if (normalized.isEmpty() || limit <= 0) {
+            return results;
+        }
+
+        BitSet prefixRows = prefixMatches(normalized);
+        for (int row = prefixRows.nextSetBit(0); row >= 0 && results.size() < limit; row = prefixRows.nextSetBit(row + 1)) {
+            results.add(toCity(row));
+        }
+
+        if (results.size() < limit) {
+            BitSet fuzzyRows = fuzzyMatches(normalized);
+            fuzzyRows.andNot(prefixRows);
+            for (int row = fuzzyRows.nextSetBit(0); row >= 0 && results.size() < limit; row = fuzzyRows.nextSetBit(row + 1)) {
+                results.add(toCity(row));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @param query Part of a city name.
+     * @return The largest city whose whole name matches the query ignoring case and accents,
+     * otherwise the first search result, or null if the query finds nothing.
+     */
+    public City best(String query) {
+        String normalized = normalize(query);
+        if (normalized.isEmpty()) {
+            return null;
+        }
+
+        BitSet prefixRows = prefixMatches(normalized);
+        for (int row = prefixRows.nextSetBit(0); row >= 0; row = prefixRows.nextSetBit(row + 1)) {
+            if (normalizedNames[row].equals(normalized)) {
+                return toCity(row);
+            }
+        }
+
+        List<City> results = search(query, 1);
+        return results.isEmpty() ? null : results.get(0);
+    }
+
+    /**
+     * Rows with a key starting with the query. Rows are in population order, so a BitSet
+     * both removes duplicates and ranks them.
+     */
+    private BitSet prefixMatches(String prefix) {
+        BitSet rows = new BitSet(size);
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        for (int i = low; i < keys.length && keys[i].startsWith(prefix); i++) {
+            rows.set(keyRows[i]);
+        }
+        return rows;
+    }
+
+    /**
+     * Rows whose trigrams overlap the query's enough, by the Dice coefficient.
+     * <p>
+     * Only rows on the query's posting lists are counted. The lists are copied into one
+     * array and sorted, so each row appears once per trigram it shares with the query, and
+     * the work grows with the rows that share a trigram rather than with every city.
+     */
+    private BitSet fuzzyMatches(String query) {
+        Set<String> grams = trigrams(query);
+        int[][] postings = new int[grams.size()][];
+        int lists = 0;
+        int total = 0;
+        for (String gram : grams) {
+            int[] posting = trigrams.get(gram);
+            if (posting != null) {
+                postings[lists++] = posting;
+                total += posting.length;
+            }
+        }
+
+        int[] hits = new int[total];
+        int filled = 0;
+        for (int i = 0; i < lists; i++) {
+            System.arraycopy(postings[i], 0, hits, filled, postings[i].length);
+            filled += postings[i].length;
+        }
+        Arrays.sort(hits);
+
+        BitSet rows = new BitSet();
+        int end;
+        for (int start = 0; start < total; start = end) {
+            int row = hits[start];
+            end = start + 1;
+            while (end < total && hits[end] == row) {
+                end++;
+            }
+            int common = end - start;
+            if (2.0 * common / (grams.size() + trigramCounts[row]) >= MIN_SIMILARITY) {
+                rows.set(row);
+            }
+        }
+        return rows;
+    }
+
+    private City toCity(int row) {
+        return new City().setAll(ids[row], names[row], countryCodes[row], districts[row], populations[row]);
+    }
+
+    /**
+     * Lower-cases a name, strips its accents and collapses anything but letters and digits to single spaces.
+     *
+     * @param name A city name or query.
+     * @return The normalised form, for example "sao paulo" for "São Paulo".
+     */
+    static String normalize(String name) {
+        if (name == null) {
+            return "";
+        }
+        String stripped = ACCENTS.matcher(Normalizer.normalize(name, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARATORS.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    /**
+     * The three-letter grams of a normalised name, padded so word starts and ends count.
+     */
+    static Set<String> trigrams(String normalized) {
+        Set<String> grams = new HashSet<>();
+        String padded = "  " + normalized + " ";
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+}
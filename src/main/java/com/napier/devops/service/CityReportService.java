@@ -1,13 +1,24 @@
 package com.napier.devops.service;
 
 import com.napier.devops.City;
+import com.napier.pojo.EnrichedCityPojo;
+import com.napier.pojo.Page;
+import com.napier.pojo.PageToken;
+import com.napier.pojo.PopulationHistogramPojo;
 import com.napier.pojo.PopulationReportPojo;
+import com.napier.pojo.Staleness;
 
+import java.io.PrintStream;
 import java.sql.*;
 import java.text.NumberFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
 
 /**
  * Service class for city-related reporting functionality.
@@ -15,12 +26,317 @@ import java.util.Locale;
  */
 public class CityReportService {
 
+    private static final String ALL_CITIES_SQL =
+            "SELECT ID, Name, CountryCode, District, Population FROM city ORDER BY Population DESC";
+    private static final String CITIES_IN_CONTINENT_SQL = "SELECT c.ID, c.Name, c.CountryCode, c.District, c.Population "
+            + "FROM city c JOIN country co ON c.CountryCode = co.Code WHERE co.Continent = ? ORDER BY c.Population DESC";
+    private static final String CITIES_IN_REGION_SQL = "SELECT c.ID, c.Name, c.CountryCode, c.District, c.Population "
+            + "FROM city c JOIN country co ON c.CountryCode = co.Code WHERE co.Region = ? ORDER BY c.Population DESC";
+
+    private static final String CITIES_IN_RANGE_SQL = "SELECT ID, Name, CountryCode, District, Population FROM city "
+            + "WHERE Population BETWEEN ? AND ? ORDER BY Population DESC, ID DESC";
+    private static final String CITIES_IN_CONTINENT_IN_RANGE_SQL = "SELECT c.ID, c.Name, c.CountryCode, c.District, c.Population "
+            + "FROM city c JOIN country co ON c.CountryCode = co.Code WHERE co.Continent = ? "
+            + "AND c.Population BETWEEN ? AND ? ORDER BY c.Population DESC, c.ID DESC";
+    private static final String CITIES_IN_REGION_IN_RANGE_SQL = "SELECT c.ID, c.Name, c.CountryCode, c.District, c.Population "
+            + "FROM city c JOIN country co ON c.CountryCode = co.Code WHERE co.Region = ? "
+            + "AND c.Population BETWEEN ? AND ? ORDER BY c.Population DESC, c.ID DESC";
+
     private final Connection connection;
 
+    /**
+     * Where reports are printed, or null for {@link System#out}.
+     */
+    private volatile PrintStream out;
+
+    /**
+     * Where errors are printed, or null for {@link System#err}.
+     */
+    private volatile PrintStream err;
+
+    /**
+     * Capitals, city names, cities by population and countries, read once per report.
+     */
+    private volatile CityIndexes indexes = CityIndexes.NONE;
+
+    /**
+     * Rows fetched per round trip by the streamed reports, 0 to let the driver decide.
+     */
+    private int streamFetchSize;
+
     public CityReportService(Connection connection) {
         this.connection = connection;
     }
 
+    /**
+     * Prints this service's reports and errors to the given streams instead of the console,
+     * without touching {@link System#out} and {@link System#err}, which other threads share.
+     *
+     * @param out The stream for reports, or null for {@link System#out}.
+     * @param err The stream for errors, or null for {@link System#err}.
+     */
+    public void setOutput(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
+    }
+
+    /**
+     * @return The stream reports are printed to.
+     */
+    protected PrintStream out() {
+        PrintStream stream = out;
+        return stream != null ? stream : System.out;
+    }
+
+    /**
+     * @return The stream errors are printed to.
+     */
+    protected PrintStream err() {
+        PrintStream stream = err;
+        return stream != null ? stream : System.err;
+    }
+
+    /**
+     * Notes in the report output that a result was served from an older copy.
+     */
+    private void printStale(Object result) {
+        if (Staleness.isStale(result)) {
+            out().println(Staleness.NOTE);
+        }
+    }
+
+    /**
+     * Streams the unbounded reports (use cases 7, 8 and 9) instead of reading them into a list:
+     * the print methods write each city as it is read, and the {@code forEachCity} methods
+     * hand cities over one at a time.
+     * <p>
+     * Connector/J reads a whole result set into memory unless the connection has
+     * {@code useCursorFetch=true}. With it, a fetch size makes the server hold the rows in a
+     * cursor and send that many per round trip, so the heap holds at most one batch however
+     * large the report is.
+     *
+     * @param fetchSize Rows per round trip, or 0 to read the reports into lists again.
+     */
+    public void setStreamFetchSize(int fetchSize) {
+        if (fetchSize < 0) {
+            throw new IllegalArgumentException("Fetch size cannot be negative");
+        }
+        this.streamFetchSize = fetchSize;
+    }
+
+    /**
+     * @return Rows per round trip of the streamed reports, or 0 if they are not streamed.
+     */
+    public int getStreamFetchSize() {
+        return streamFetchSize;
+    }
+
+    /**
+     * USE CASE 7, streamed: hands every city to a consumer as it is read, largest population first.
+     *
+     * @param consumer Receives each city. It may keep or drop it; the service keeps none.
+     * @return The number of cities read.
+     */
+    public long forEachCityByPopulation(Consumer<City> consumer) {
+        return stream(ALL_CITIES_SQL, consumer);
+    }
+
+    /**
+     * USE CASE 8, streamed.
+     *
+     * @param continent The continent name to filter cities by.
+     * @param consumer  Receives each city, largest population first.
+     * @return The number of cities read.
+     */
+    public long forEachCityInContinentByPopulation(String continent, Consumer<City> consumer) {
+        return stream(CITIES_IN_CONTINENT_SQL, consumer, continent);
+    }
+
+    /**
+     * USE CASE 9, streamed.
+     *
+     * @param region   The region name to filter cities by.
+     * @param consumer Receives each city, largest population first.
+     * @return The number of cities read.
+     */
+    public long forEachCityInRegionByPopulation(String region, Consumer<City> consumer) {
+        return stream(CITIES_IN_REGION_SQL, consumer, region);
+    }
+
+    /**
+     * Runs a city query as a forward-only cursor, reading {@link #streamFetchSize} rows at a time.
+     *
+     * @return The number of cities handed to the consumer, including any read before a failure.
+     */
+    private long stream(String sql, Consumer<City> consumer, String... parameters) {
+        long count = 0;
+        try (PreparedStatement pstmt = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY)) {
+            if (streamFetchSize > 0) {
+                pstmt.setFetchSize(streamFetchSize);
+            }
+            for (int i = 0; i < parameters.length; i++) {
+                pstmt.setString(i + 1, parameters[i]);
+            }
+
+            try (ResultSet resultSet = pstmt.executeQuery()) {
+                while (resultSet.next()) {
+                    City city = new City();
+                    city.setId(resultSet.getInt("ID"));
+                    city.setName(resultSet.getString("Name"));
+                    city.setCountryCode(resultSet.getString("CountryCode"));
+                    city.setDistrict(resultSet.getString("District"));
+                    city.setPopulation(resultSet.getInt("Population"));
+
+                    consumer.accept(city);
+                    count++;
+                }
+            }
+        } catch (SQLException e) {
+            out().println("Query failed: " + e.getMessage());
+        }
+        return count;
+    }
+
+    /**
+     * Prints a streamed report. The count comes after the cities, as it is only known once the last row is read.
+     */
+    private void printStreamed(String title, String notFound, ToLongFunction<Consumer<City>> report) {
+        out().println(title);
+        out().println("=".repeat(80));
+        long count = report.applyAsLong(city -> out().println(city.toString()));
+
+        if (count == 0) {
+            err().println(notFound);
+        } else {
+            out().println("Total cities found: " + count);
+        }
+    }
+
+    /**
+     * Serves the capital city reports from a precomputed index instead of joining
+     * country and city on every call.
+     *
+     * @param capitalIndex The index to use, or null to go back to querying the database.
+     */
+    public synchronized void setCapitalIndex(CapitalIndex capitalIndex) {
+        this.indexes = indexes.withCapitalIndex(capitalIndex);
+    }
+
+    /**
+     * Enables prefix, accent-insensitive and typo-tolerant city name search, which
+     * {@link #searchCities(String, int)} and {@link #getCityPopulationReport(String)} use.
+     *
+     * @param cityNameIndex The index to use, or null to match names exactly.
+     */
+    public synchronized void setCityNameIndex(CityNameIndex cityNameIndex) {
+        this.indexes = indexes.withCityNameIndex(cityNameIndex);
+    }
+
+    /**
+     * Serves the population range and histogram reports from a sorted index instead of
+     * scanning the city table on every call.
+     *
+     * @param populationIndex The index to use, or null to go back to querying the database.
+     */
+    public synchronized void setPopulationIndex(PopulationIndex populationIndex) {
+        this.indexes = indexes.withPopulationIndex(populationIndex);
+    }
+
+    /**
+     * Enables the reports that show each city's country name, continent and region, which
+     * join the cities to this table in memory instead of in every query.
+     *
+     * @param countryTable The table to use, or null to disable those reports.
+     */
+    public synchronized void setCountryTable(CountryTable countryTable) {
+        this.indexes = indexes.withCountryTable(countryTable);
+    }
+
+    /**
+     * Replaces every index at once, so no report sees some indexes from one set and some
+     * from another.
+     *
+     * @param indexes The indexes to use, {@link CityIndexes#NONE} to query the database.
+     */
+    public synchronized void setIndexes(CityIndexes indexes) {
+        this.indexes = indexes;
+    }
+
+    /**
+     * @return The indexes for the next report. Each report calls this once, so it uses
+     * one consistent set throughout.
+     */
+    public CityIndexes getIndexes() {
+        return indexes;
+    }
+
+    /**
+     * Searches city names, ignoring case and accents and allowing typos.
+     *
+     * @param query Part of a city name, such as "new yor" or "Sao Paulo".
+     * @param limit The most cities to return.
+     * @return The matching cities, prefix matches first, each ranked by population.
+     */
+    public List<City> searchCities(String query, int limit) {
+        if (query == null || query.trim().isEmpty() || limit <= 0) {
+            err().println("Error: Invalid parameters provided.");
+            return new ArrayList<>();
+        }
+
+        CityNameIndex cityNameIndex = getIndexes().getCityNameIndex();
+        if (cityNameIndex == null) {
+            err().println("Error: City name search is not available.");
+            return new ArrayList<>();
+        }
+
+        return cityNameIndex.search(query, limit);
+    }
+
+    /**
+     * Resolves a partial, unaccented or misspelt city name to the city the user most likely
+     * meant. The population report of use case 31 takes the name exactly as given, so a
+     * caller that wants a loose name resolved looks it up here first.
+     *
+     * @param query A city name, such as "sao paulo" or "Brasilla".
+     * @return The largest city with exactly that name ignoring case and accents, otherwise
+     * the best search result, or null if nothing matches.
+     */
+    public City searchBestCity(String query) {
+        if (query == null || query.trim().isEmpty()) {
+            err().println("Error: City name cannot be null or empty.");
+            return null;
+        }
+
+        CityNameIndex cityNameIndex = getIndexes().getCityNameIndex();
+        if (cityNameIndex == null) {
+            err().println("Error: City name search is not available.");
+            return null;
+        }
+
+        return cityNameIndex.best(query);
+    }
+
+    /**
+     * Prints the cities a name search finds.
+     *
+     * @param query Part of a city name.
+     * @param limit The most cities to print.
+     */
+    public void printCitySearch(String query, int limit) {
+        List<City> cityList = searchCities(query, limit);
+        printStale(cityList);
+
+        if (cityList.isEmpty()) {
+            err().println("Error: No cities found matching: " + query);
+        } else {
+            out().println("Report: Cities matching \"" + query + "\"");
+            out().println("Total cities found: " + cityList.size());
+            out().println("=".repeat(100));
+            cityList.forEach(city -> out().println(city.toString()));
+        }
+    }
+
     /**
      * USE CASE 7: Get all cities organized by population descending.
      * Produce a Report on All Cities in the World by Population
@@ -29,7 +345,7 @@ public class CityReportService {
      */
     public List<City> getAllCitiesByPopulationLargestToSmallest() {
         List<City> cities = new ArrayList<>();
-        String sql = "SELECT ID, Name, CountryCode, District, Population FROM city ORDER BY Population DESC";
+        String sql = ALL_CITIES_SQL;
 
         // Use PreparedStatement to prevent SQL injection and try-with-resources for automatic closing of resources
         try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
@@ -47,12 +363,82 @@ public class CityReportService {
                 cities.add(city);
             }
         } catch (SQLException e) {
-            System.out.println("Query failed: " + e.getMessage());
+            out().println("Query failed: " + e.getMessage());
         }
 
         return cities;
     }
 
+    /**
+     * USE CASE 7, paged: Get one page of all cities organized by population descending.
+     * Each page seeks past the last (Population, ID) of the previous one rather than skipping
+     * rows with OFFSET, so every page costs the same however deep into the report it is.
+     * Cities with the same population are ordered by ID descending.
+     *
+     * @param pageSize    The number of cities per page.
+     * @param resumeToken The next token of the previous page, or null for the first page.
+     * @return The page of cities, with the token for the next page if there is one.
+     */
+    public Page<City> getCitiesByPopulationPage(int pageSize, String resumeToken) {
+        List<City> cities = new ArrayList<>();
+
+        if (pageSize <= 0) {
+            err().println("Error: Page size must be greater than 0.");
+            return new Page<>(cities, null);
+        }
+
+        PageToken after;
+        int afterId = 0;
+        try {
+            after = resumeToken == null ? null : PageToken.decode(resumeToken);
+            if (after != null) {
+                afterId = Integer.parseInt(after.getKey());
+            }
+        } catch (IllegalArgumentException e) {
+            err().println("Error: Invalid page token.");
+            return new Page<>(cities, null);
+        }
+
+        String sql = after == null
+                ? "SELECT ID, Name, CountryCode, District, Population FROM city "
+                + "ORDER BY Population DESC, ID DESC LIMIT ?"
+                : "SELECT ID, Name, CountryCode, District, Population FROM city "
+                + "WHERE Population < ? OR (Population = ? AND ID < ?) "
+                + "ORDER BY Population DESC, ID DESC LIMIT ?";
+
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            int index = 1;
+            if (after != null) {
+                pstmt.setLong(index++, after.getPopulation());
+                pstmt.setLong(index++, after.getPopulation());
+                pstmt.setInt(index++, afterId);
+            }
+            // One extra row tells us whether there is a next page
+            pstmt.setInt(index, pageSize + 1);
+            ResultSet resultSet = pstmt.executeQuery();
+
+            while (resultSet.next()) {
+                City city = new City();
+                city.setId(resultSet.getInt("ID"));
+                city.setName(resultSet.getString("Name"));
+                city.setCountryCode(resultSet.getString("CountryCode"));
+                city.setDistrict(resultSet.getString("District"));
+                city.setPopulation(resultSet.getInt("Population"));
+                cities.add(city);
+            }
+        } catch (SQLException e) {
+            out().println("Query failed: " + e.getMessage());
+        }
+
+        if (cities.size() <= pageSize) {
+            return new Page<>(cities, null);
+        }
+
+        cities = new ArrayList<>(cities.subList(0, pageSize));
+        City last = cities.get(pageSize - 1);
+        return new Page<>(cities, new PageToken(last.getPopulation(), String.valueOf(last.getId())).encode());
+    }
+
     /**
      * USE CASE 8: Get all cities in a continent organized by population descending.
      * Produce a Report on Cities in a Continent by Population
@@ -64,11 +450,11 @@ public class CityReportService {
         List<City> cities = new ArrayList<>();
 
         if (continent == null || continent.trim().isEmpty()) {
-            System.err.println("Error: Continent parameter cannot be null or empty.");
+            err().println("Error: Continent parameter cannot be null or empty.");
             return cities;
         }
 
-        String sql = "SELECT c.ID, c.Name, c.CountryCode, c.District, c.Population " + "FROM city c " + "JOIN country co ON c.CountryCode = co.Code " + "WHERE co.Continent = ? " + "ORDER BY c.Population DESC";
+        String sql = CITIES_IN_CONTINENT_SQL;
 
         // Use PreparedStatement to prevent SQL injection and try-with-resources for automatic closing of resources
         try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
@@ -87,7 +473,7 @@ public class CityReportService {
                 cities.add(city);
             }
         } catch (SQLException e) {
-            System.out.println("Query failed: " + e.getMessage());
+            out().println("Query failed: " + e.getMessage());
         }
 
         return cities;
@@ -104,11 +490,11 @@ public class CityReportService {
         List<City> cities = new ArrayList<>();
 
         if (region == null || region.trim().isEmpty()) {
-            System.err.println("Error: Region parameter cannot be null or empty.");
+            err().println("Error: Region parameter cannot be null or empty.");
             return cities;
         }
 
-        String sql = "SELECT c.ID, c.Name, c.CountryCode, c.District, c.Population " + "FROM city c " + "JOIN country co ON c.CountryCode = co.Code " + "WHERE co.Region = ? " + "ORDER BY c.Population DESC";
+        String sql = CITIES_IN_REGION_SQL;
 
         try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setString(1, region);
@@ -125,7 +511,7 @@ public class CityReportService {
                 cities.add(city);
             }
         } catch (SQLException e) {
-            System.out.println("Query failed: " + e.getMessage());
+            out().println("Query failed: " + e.getMessage());
         }
 
         return cities;
@@ -142,7 +528,7 @@ public class CityReportService {
         List<City> cities = new ArrayList<>();
 
         if (countryCode == null || countryCode.trim().isEmpty()) {
-            System.err.println("Error: Country code parameter cannot be null or empty.");
+            err().println("Error: Country code parameter cannot be null or empty.");
             return cities;
         }
 
@@ -163,7 +549,7 @@ public class CityReportService {
                 cities.add(city);
             }
         } catch (SQLException e) {
-            System.out.println("Query failed: " + e.getMessage());
+            out().println("Query failed: " + e.getMessage());
         }
 
         return cities;
@@ -180,7 +566,7 @@ public class CityReportService {
         List<City> cities = new ArrayList<>();
 
         if (district == null || district.trim().isEmpty()) {
-            System.err.println("Error: District parameter cannot be null or empty.");
+            err().println("Error: District parameter cannot be null or empty.");
             return cities;
         }
 
@@ -201,7 +587,7 @@ public class CityReportService {
                 cities.add(city);
             }
         } catch (SQLException e) {
-            System.out.println("Query failed: " + e.getMessage());
+            out().println("Query failed: " + e.getMessage());
         }
 
         return cities;
@@ -218,7 +604,7 @@ public class CityReportService {
         List<City> cities = new ArrayList<>();
 
         if (n <= 0) {
-            System.err.println("Error: N parameter must be greater than 0.");
+            err().println("Error: N parameter must be greater than 0.");
             return cities;
         }
 
@@ -239,7 +625,7 @@ public class CityReportService {
                 cities.add(city);
             }
         } catch (SQLException e) {
-            System.out.println("Query failed: " + e.getMessage());
+            out().println("Query failed: " + e.getMessage());
         }
 
         return cities;
@@ -250,19 +636,26 @@ public class CityReportService {
      * USE CASE 7: Produce a Report on All Cities in the World by Population
      */
     public void printAllCitiesByPopulationLargestToSmallest() {
+        if (getStreamFetchSize() > 0) {
+            printStreamed("Report: All Cities in the World by Population (Largest to Smallest)",
+                    "Error: No city data found.", this::forEachCityByPopulation);
+            return;
+        }
+
         // Get list of all cities sorted by population
         List<City> cityList = getAllCitiesByPopulationLargestToSmallest();
+        printStale(cityList);
 
         if (cityList == null || cityList.isEmpty()) {
-            System.err.println("Error: No city data found.");
+            err().println("Error: No city data found.");
         } else {
-            System.out.println("Report: All Cities in the World by Population (Largest to Smallest)");
-            System.out.println("Total cities found: " + cityList.size());
-            System.out.println("=".repeat(80));
+            out().println("Report: All Cities in the World by Population (Largest to Smallest)");
+            out().println("Total cities found: " + cityList.size());
+            out().println("=".repeat(80));
 
             // Print the details of all the cities
             for (City city : cityList) {
-                System.out.println(city.toString());
+                out().println(city.toString());
             }
         }
     }
@@ -275,23 +668,31 @@ public class CityReportService {
      */
     public void printAllCitiesInContinentByPopulationLargestToSmallest(String continent) {
         if (continent == null || continent.trim().isEmpty()) {
-            System.err.println("Error: Continent parameter cannot be null or empty.");
+            err().println("Error: Continent parameter cannot be null or empty.");
+            return;
+        }
+
+        if (getStreamFetchSize() > 0) {
+            printStreamed("Report: All Cities in " + continent + " by Population (Largest to Smallest)",
+                    "Error: No city data found for continent: " + continent,
+                    consumer -> forEachCityInContinentByPopulation(continent, consumer));
             return;
         }
 
         // Get list of all cities in the continent sorted by population
         List<City> cityList = getAllCitiesInContinentByPopulationLargestToSmallest(continent);
+        printStale(cityList);
 
         if (cityList == null || cityList.isEmpty()) {
-            System.err.println("Error: No city data found for continent: " + continent);
+            err().println("Error: No city data found for continent: " + continent);
         } else {
-            System.out.println("Report: All Cities in " + continent + " by Population (Largest to Smallest)");
-            System.out.println("Total cities found: " + cityList.size());
-            System.out.println("=".repeat(80));
+            out().println("Report: All Cities in " + continent + " by Population (Largest to Smallest)");
+            out().println("Total cities found: " + cityList.size());
+            out().println("=".repeat(80));
 
             // Print the details of all the cities
             for (City city : cityList) {
-                System.out.println(city.toString());
+                out().println(city.toString());
             }
         }
     }
@@ -304,21 +705,29 @@ public class CityReportService {
      */
     public void printAllCitiesInRegionByPopulationLargestToSmallest(String region) {
         if (region == null || region.trim().isEmpty()) {
-            System.err.println("Error: Region parameter cannot be null or empty.");
+            err().println("Error: Region parameter cannot be null or empty.");
+            return;
+        }
+
+        if (getStreamFetchSize() > 0) {
+            printStreamed("Report: All Cities in " + region + " by Population (Largest to Smallest)",
+                    "Error: No city data found for region: " + region,
+                    consumer -> forEachCityInRegionByPopulation(region, consumer));
             return;
         }
 
         List<City> cityList = getAllCitiesInRegionByPopulationLargestToSmallest(region);
+        printStale(cityList);
 
         if (cityList == null || cityList.isEmpty()) {
-            System.err.println("Error: No city data found for region: " + region);
+            err().println("Error: No city data found for region: " + region);
         } else {
-            System.out.println("Report: All Cities in " + region + " by Population (Largest to Smallest)");
-            System.out.println("Total cities found: " + cityList.size());
-            System.out.println("=".repeat(80));
+            out().println("Report: All Cities in " + region + " by Population (Largest to Smallest)");
+            out().println("Total cities found: " + cityList.size());
+            out().println("=".repeat(80));
 
             for (City city : cityList) {
-                System.out.println(city.toString());
+                out().println(city.toString());
             }
         }
     }
@@ -331,21 +740,22 @@ public class CityReportService {
      */
     public void printAllCitiesInCountryByPopulationLargestToSmallest(String countryCode) {
         if (countryCode == null || countryCode.trim().isEmpty()) {
-            System.err.println("Error: Country code parameter cannot be null or empty.");
+            err().println("Error: Country code parameter cannot be null or empty.");
             return;
         }
 
         List<City> cityList = getAllCitiesInCountryByPopulationLargestToSmallest(countryCode);
+        printStale(cityList);
 
         if (cityList == null || cityList.isEmpty()) {
-            System.err.println("Error: No city data found for country: " + countryCode);
+            err().println("Error: No city data found for country: " + countryCode);
         } else {
-            System.out.println("Report: All Cities in " + countryCode + " by Population (Largest to Smallest)");
-            System.out.println("Total cities found: " + cityList.size());
-            System.out.println("=".repeat(80));
+            out().println("Report: All Cities in " + countryCode + " by Population (Largest to Smallest)");
+            out().println("Total cities found: " + cityList.size());
+            out().println("=".repeat(80));
 
             for (City city : cityList) {
-                System.out.println(city.toString());
+                out().println(city.toString());
             }
         }
     }
@@ -358,21 +768,22 @@ public class CityReportService {
      */
     public void printAllCitiesInDistrictByPopulationLargestToSmallest(String district) {
         if (district == null || district.trim().isEmpty()) {
-            System.err.println("Error: District parameter cannot be null or empty.");
+            err().println("Error: District parameter cannot be null or empty.");
             return;
         }
 
         List<City> cityList = getAllCitiesInDistrictByPopulationLargestToSmallest(district);
+        printStale(cityList);
 
         if (cityList == null || cityList.isEmpty()) {
-            System.err.println("Error: No city data found for district: " + district);
+            err().println("Error: No city data found for district: " + district);
         } else {
-            System.out.println("Report: All Cities in " + district + " by Population (Largest to Smallest)");
-            System.out.println("Total cities found: " + cityList.size());
-            System.out.println("=".repeat(80));
+            out().println("Report: All Cities in " + district + " by Population (Largest to Smallest)");
+            out().println("Total cities found: " + cityList.size());
+            out().println("=".repeat(80));
 
             for (City city : cityList) {
-                System.out.println(city.toString());
+                out().println(city.toString());
             }
         }
     }
@@ -385,21 +796,22 @@ public class CityReportService {
      */
     public void printTopNCitiesByPopulationLargestToSmallest(int n) {
         if (n <= 0) {
-            System.err.println("Error: N parameter must be greater than 0.");
+            err().println("Error: N parameter must be greater than 0.");
             return;
         }
 
         List<City> cityList = getTopNCitiesByPopulationLargestToSmallest(n);
+        printStale(cityList);
 
         if (cityList == null || cityList.isEmpty()) {
-            System.err.println("Error: No city data found.");
+            err().println("Error: No city data found.");
         } else {
-            System.out.println("Report: Top " + n + " Cities in the World by Population (Largest to Smallest)");
-            System.out.println("Total cities found: " + cityList.size());
-            System.out.println("=".repeat(80));
+            out().println("Report: Top " + n + " Cities in the World by Population (Largest to Smallest)");
+            out().println("Total cities found: " + cityList.size());
+            out().println("=".repeat(80));
 
             for (City city : cityList) {
-                System.out.println(city.toString());
+                out().println(city.toString());
             }
         }
     }
@@ -437,7 +849,7 @@ public class CityReportService {
                 cities.add(city);
             }
         } catch (SQLException e) {
-            System.out.println("Query failed: " + e.getMessage());
+            out().println("Query failed: " + e.getMessage());
         }
         return cities;
     }
@@ -448,18 +860,19 @@ public class CityReportService {
      */
     public void printTopCitiesByContinent(String continent, int n) {
         if (continent == null || continent.trim().isEmpty()) {
-            System.err.println("Error: Continent parameter cannot be null or empty.");
+            err().println("Error: Continent parameter cannot be null or empty.");
             return;
         }
 
         List<City> cityList = getTopCitiesByContinent(continent, n);
+        printStale(cityList);
 
         if (cityList == null || cityList.isEmpty()) {
-            System.err.println("Error: No city data found for continent: " + continent);
+            err().println("Error: No city data found for continent: " + continent);
         } else {
-            System.out.println("Report: Top " + n + " Cities in " + continent + " by Population");
-            System.out.println("=".repeat(100));
-            cityList.forEach(city -> System.out.println(city.toString()));
+            out().println("Report: Top " + n + " Cities in " + continent + " by Population");
+            out().println("=".repeat(100));
+            cityList.forEach(city -> out().println(city.toString()));
         }
     }
 
@@ -497,7 +910,7 @@ public class CityReportService {
                 cities.add(city);
             }
         } catch (SQLException e) {
-            System.out.println("Query failed: " + e.getMessage());
+            out().println("Query failed: " + e.getMessage());
         }
 
         return cities;
@@ -509,18 +922,19 @@ public class CityReportService {
      */
     public void printTopCitiesByRegion(String region, int n) {
         if (region == null || region.trim().isEmpty()) {
-            System.err.println("Error: Region parameter cannot be null or empty.");
+            err().println("Error: Region parameter cannot be null or empty.");
             return;
         }
 
         List<City> cityList = getTopCitiesByRegion(region, n);
+        printStale(cityList);
 
         if (cityList == null || cityList.isEmpty()) {
-            System.err.println("Error: No city data found for region: " + region);
+            err().println("Error: No city data found for region: " + region);
         } else {
-            System.out.println("Report: Top " + n + " Cities in " + region + " by Population");
-            System.out.println("=".repeat(100));
-            cityList.forEach(city -> System.out.println(city.toString()));
+            out().println("Report: Top " + n + " Cities in " + region + " by Population");
+            out().println("=".repeat(100));
+            cityList.forEach(city -> out().println(city.toString()));
         }
     }
 
@@ -558,7 +972,7 @@ public class CityReportService {
                 cities.add(city);
             }
         } catch (SQLException e) {
-            System.out.println("Query failed: " + e.getMessage());
+            out().println("Query failed: " + e.getMessage());
         }
 
         return cities;
@@ -570,18 +984,19 @@ public class CityReportService {
      */
     public void printTopCitiesByCountry(String country, int n) {
         if (country == null || country.trim().isEmpty()) {
-            System.err.println("Error: Country parameter cannot be null or empty.");
+            err().println("Error: Country parameter cannot be null or empty.");
             return;
         }
 
         List<City> cityList = getTopCitiesByCountry(country, n);
+        printStale(cityList);
 
         if (cityList == null || cityList.isEmpty()) {
-            System.err.println("Error: No city data found for country: " + country);
+            err().println("Error: No city data found for country: " + country);
         } else {
-            System.out.println("Report: Top " + n + " Cities in " + country + " by Population");
-            System.out.println("=".repeat(100));
-            cityList.forEach(city -> System.out.println(city.toString()));
+            out().println("Report: Top " + n + " Cities in " + country + " by Population");
+            out().println("=".repeat(100));
+            cityList.forEach(city -> out().println(city.toString()));
         }
     }
 
@@ -620,7 +1035,7 @@ public class CityReportService {
                 cities.add(city);
             }
         } catch (SQLException e) {
-            System.out.println("Query failed: " + e.getMessage());
+            out().println("Query failed: " + e.getMessage());
         }
 
         return cities;
@@ -632,18 +1047,311 @@ public class CityReportService {
      */
     public void printTopCitiesByDistrict(String district, int n) {
         if (district == null || district.trim().isEmpty()) {
-            System.err.println("Error: District parameter cannot be null or empty.");
+            err().println("Error: District parameter cannot be null or empty.");
             return;
         }
 
         List<City> cityList = getTopCitiesByDistrict(district, n);
+        printStale(cityList);
+
+        if (cityList == null || cityList.isEmpty()) {
+            err().println("Error: No city data found for district: " + district);
+        } else {
+            out().println("Report: Top " + n + " Cities in " + district + " by Population");
+            out().println("=".repeat(100));
+            cityList.forEach(city -> out().println(city.toString()));
+        }
+    }
+
+
+    /**
+     * Produce a Report on all Cities in the World with a Population in a Range.
+     *
+     * @param min The smallest population to include.
+     * @param max The largest population to include.
+     * @return The cities with a population from min to max, largest first.
+     */
+    public List<City> getCitiesInPopulationRange(int min, int max) {
+        if (!isValidRange(min, max)) {
+            return new ArrayList<>();
+        }
+        PopulationIndex populationIndex = getIndexes().getPopulationIndex();
+        if (populationIndex != null) {
+            return populationIndex.inRange(min, max);
+        }
+        return queryCitiesInRange(CITIES_IN_RANGE_SQL, null, min, max);
+    }
+
+    /**
+     * Produce a Report on all Cities in a Continent with a Population in a Range.
+     *
+     * @param continent The continent to filter cities by.
+     * @param min       The smallest population to include.
+     * @param max       The largest population to include.
+     * @return The cities in the continent with a population from min to max, largest first.
+     */
+    public List<City> getCitiesInContinentInPopulationRange(String continent, int min, int max) {
+        if (continent == null || continent.trim().isEmpty()) {
+            err().println("Error: Continent parameter cannot be null or empty.");
+            return new ArrayList<>();
+        }
+        if (!isValidRange(min, max)) {
+            return new ArrayList<>();
+        }
+        PopulationIndex populationIndex = getIndexes().getPopulationIndex();
+        if (populationIndex != null) {
+            return populationIndex.inRangeInContinent(continent, min, max);
+        }
+        return queryCitiesInRange(CITIES_IN_CONTINENT_IN_RANGE_SQL, continent, min, max);
+    }
+
+    /**
+     * Produce a Report on all Cities in a Region with a Population in a Range.
+     *
+     * @param region The region to filter cities by.
+     * @param min    The smallest population to include.
+     * @param max    The largest population to include.
+     * @return The cities in the region with a population from min to max, largest first.
+     */
+    public List<City> getCitiesInRegionInPopulationRange(String region, int min, int max) {
+        if (region == null || region.trim().isEmpty()) {
+            err().println("Error: Region parameter cannot be null or empty.");
+            return new ArrayList<>();
+        }
+        if (!isValidRange(min, max)) {
+            return new ArrayList<>();
+        }
+        PopulationIndex populationIndex = getIndexes().getPopulationIndex();
+        if (populationIndex != null) {
+            return populationIndex.inRangeInRegion(region, min, max);
+        }
+        return queryCitiesInRange(CITIES_IN_REGION_IN_RANGE_SQL, region, min, max);
+    }
+
+    /**
+     * Print all cities in the world with a population in a range.
+     */
+    public void printCitiesInPopulationRange(int min, int max) {
+        printRange("the World", min, max, getCitiesInPopulationRange(min, max));
+    }
+
+    /**
+     * Print all cities in a continent with a population in a range.
+     */
+    public void printCitiesInContinentInPopulationRange(String continent, int min, int max) {
+        printRange(continent, min, max, getCitiesInContinentInPopulationRange(continent, min, max));
+    }
+
+    /**
+     * Print all cities in a region with a population in a range.
+     */
+    public void printCitiesInRegionInPopulationRange(String region, int min, int max) {
+        printRange(region, min, max, getCitiesInRegionInPopulationRange(region, min, max));
+    }
+
+    /**
+     * Produce a Population Histogram of the Cities in each Continent. The database counts
+     * each city into its bucket with {@code INTERVAL}, so both ways are one pass over the cities.
+     *
+     * @param bounds The lower bound of every bucket after the first, in increasing order.
+     * @return A histogram for each continent, in alphabetical order.
+     */
+    public List<PopulationHistogramPojo> getContinentPopulationHistogram(int... bounds) {
+        if (bounds == null || bounds.length == 0) {
+            err().println("Error: Histogram bounds cannot be null or empty.");
+            return new ArrayList<>();
+        }
+        for (int i = 1; i < bounds.length; i++) {
+            if (bounds[i] <= bounds[i - 1]) {
+                err().println("Error: Histogram bounds must be in increasing order.");
+                return new ArrayList<>();
+            }
+        }
+        PopulationIndex populationIndex = getIndexes().getPopulationIndex();
+        if (populationIndex != null) {
+            return populationIndex.continentHistograms(bounds);
+        }
+
+        String sql = """
+                    SELECT country.Continent, INTERVAL(city.Population, %s) AS Bucket,
+                           COUNT(*) AS Cities, SUM(city.Population) AS Population
+                    FROM city
+                    INNER JOIN country ON city.CountryCode = country.Code
+                    GROUP BY country.Continent, Bucket
+                """.formatted(String.join(", ", Collections.nCopies(bounds.length, "?")));
+
+        Map<String, PopulationHistogramPojo> histograms = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            for (int i = 0; i < bounds.length; i++) {
+                pstmt.setInt(i + 1, bounds[i]);
+            }
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                PopulationHistogramPojo histogram = histograms.computeIfAbsent(rs.getString("Continent"), continent -> {
+                    PopulationHistogramPojo empty = new PopulationHistogramPojo();
+                    empty.setName(continent);
+                    empty.setBounds(bounds.clone());
+                    empty.setCityCounts(new int[bounds.length + 1]);
+                    empty.setPopulations(new long[bounds.length + 1]);
+                    return empty;
+                });
+                int bucket = rs.getInt("Bucket");
+                histogram.getCityCounts()[bucket] = rs.getInt("Cities");
+                histogram.getPopulations()[bucket] = rs.getLong("Population");
+            }
+        } catch (SQLException e) {
+            out().println("Query failed: " + e.getMessage());
+        }
+
+        return new ArrayList<>(histograms.values());
+    }
+
+    /**
+     * Print the population histogram of the cities in each continent.
+     */
+    public void printContinentPopulationHistogram(int... bounds) {
+        List<PopulationHistogramPojo> histograms = getContinentPopulationHistogram(bounds);
+        printStale(histograms);
+
+        if (histograms == null || histograms.isEmpty()) {
+            err().println("Error: No city data found for the histogram.");
+        } else {
+            out().println("Report: Population Histogram of Cities by Continent");
+            out().println("=".repeat(80));
+            histograms.forEach(out()::println);
+        }
+    }
+
+    /**
+     * USE CASE 7 with the country of every city.
+     *
+     * @return Every city with its country's name, continent and region, largest population first.
+     */
+    public List<EnrichedCityPojo> getAllCitiesWithCountryByPopulation() {
+        CountryTable countryTable = getIndexes().getCountryTable();
+        if (countryTable == null) {
+            err().println("Error: Country table is not available.");
+            return new ArrayList<>();
+        }
+        return countryTable.enrich(getAllCitiesByPopulationLargestToSmallest());
+    }
+
+    /**
+     * USE CASE 12 with the country of every city.
+     *
+     * @param n The number of top cities to retrieve.
+     * @return The top N cities with their country's name, continent and region, largest first.
+     */
+    public List<EnrichedCityPojo> getTopNCitiesWithCountryByPopulation(int n) {
+        CountryTable countryTable = getIndexes().getCountryTable();
+        if (countryTable == null) {
+            err().println("Error: Country table is not available.");
+            return new ArrayList<>();
+        }
+        return countryTable.enrich(getTopNCitiesByPopulationLargestToSmallest(n));
+    }
 
+    /**
+     * Cities in the world with a population in a range, with the country of every city.
+     *
+     * @param min The smallest population to include.
+     * @param max The largest population to include.
+     * @return The cities with their country's name, continent and region, largest first.
+     */
+    public List<EnrichedCityPojo> getCitiesWithCountryInPopulationRange(int min, int max) {
+        CountryTable countryTable = getIndexes().getCountryTable();
+        if (countryTable == null) {
+            err().println("Error: Country table is not available.");
+            return new ArrayList<>();
+        }
+        return countryTable.enrich(getCitiesInPopulationRange(min, max));
+    }
+
+    /**
+     * Print every city in the world with its country, largest population first.
+     */
+    public void printAllCitiesWithCountryByPopulation() {
+        printWithCountry("Report: All Cities in the World with their Country by Population",
+                getAllCitiesWithCountryByPopulation());
+    }
+
+    /**
+     * Print the top N cities in the world with their country.
+     */
+    public void printTopNCitiesWithCountryByPopulation(int n) {
+        printWithCountry("Report: Top " + n + " Cities in the World with their Country by Population",
+                getTopNCitiesWithCountryByPopulation(n));
+    }
+
+    /**
+     * Print the cities in the world with a population in a range, with their country.
+     */
+    public void printCitiesWithCountryInPopulationRange(int min, int max) {
+        NumberFormat nf = NumberFormat.getInstance(Locale.US);
+        printWithCountry("Report: Cities in the World with their Country with Population between "
+                + nf.format(min) + " and " + nf.format(max), getCitiesWithCountryInPopulationRange(min, max));
+    }
+
+    private void printWithCountry(String title, List<EnrichedCityPojo> cityList) {
+        printStale(cityList);
         if (cityList == null || cityList.isEmpty()) {
-            System.err.println("Error: No city data found for district: " + district);
+            err().println("Error: No city data found.");
         } else {
-            System.out.println("Report: Top " + n + " Cities in " + district + " by Population");
-            System.out.println("=".repeat(100));
-            cityList.forEach(city -> System.out.println(city.toString()));
+            out().println(title);
+            out().println("Total cities found: " + cityList.size());
+            out().println("=".repeat(100));
+            cityList.forEach(city -> out().println(city.toString()));
+        }
+    }
+
+    private boolean isValidRange(int min, int max) {
+        if (min > max) {
+            err().println("Error: Minimum population cannot be greater than maximum population.");
+            return false;
+        }
+        return true;
+    }
+
+    private List<City> queryCitiesInRange(String sql, String area, int min, int max) {
+        List<City> cities = new ArrayList<>();
+
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            int parameter = 1;
+            if (area != null) {
+                pstmt.setString(parameter++, area);
+            }
+            pstmt.setInt(parameter++, min);
+            pstmt.setInt(parameter, max);
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                City city = new City();
+                city.setId(rs.getInt("ID"));
+                city.setName(rs.getString("Name"));
+                city.setCountryCode(rs.getString("CountryCode"));
+                city.setDistrict(rs.getString("District"));
+                city.setPopulation(rs.getInt("Population"));
+                cities.add(city);
+            }
+        } catch (SQLException e) {
+            out().println("Query failed: " + e.getMessage());
+        }
+
+        return cities;
+    }
+
+    private void printRange(String area, int min, int max, List<City> cityList) {
+        printStale(cityList);
+        if (cityList == null || cityList.isEmpty()) {
+            err().println("Error: No city data found in " + area + " with population between " + min + " and " + max);
+        } else {
+            NumberFormat nf = NumberFormat.getInstance(Locale.US);
+            out().println("Report: Cities in " + area + " with Population between " + nf.format(min)
+                    + " and " + nf.format(max));
+            out().println("Total cities found: " + cityList.size());
+            out().println("=".repeat(100));
+            cityList.forEach(city -> out().println(city.toString()));
         }
     }
 
@@ -654,6 +1362,11 @@ public class CityReportService {
      * @return A List of City objects containing details of all capital cities ordered by population descending.
      */
     public List<City> getAllCapitalCitiesByPopulation() {
+        CapitalIndex capitalIndex = getIndexes().getCapitalIndex();
+        if (capitalIndex != null) {
+            return capitalIndex.top(Integer.MAX_VALUE);
+        }
+
         List<City> capitals = new ArrayList<>();
         String sql = """
                     SELECT city.ID, city.Name AS CityName, city.District, city.CountryCode, city.Population
@@ -675,7 +1388,7 @@ public class CityReportService {
             }
 
         } catch (SQLException e) {
-            System.out.println("Query failed: " + e.getMessage());
+            out().println("Query failed: " + e.getMessage());
         }
 
         return capitals;
@@ -688,14 +1401,15 @@ public class CityReportService {
      */
     public void printAllCapitalCitiesByPopulation() {
         List<City> cityList = getAllCapitalCitiesByPopulation();
+        printStale(cityList);
 
         if (cityList == null || cityList.isEmpty()) {
-            System.err.println("Error: No capital city data found.");
+            err().println("Error: No capital city data found.");
         } else {
-            System.out.println("Report: All Capital Cities in the World by Population (Largest to Smallest)");
-            System.out.println("Total capitals found: " + cityList.size());
-            System.out.println("=".repeat(100));
-            cityList.forEach(city -> System.out.println(city.toString()));
+            out().println("Report: All Capital Cities in the World by Population (Largest to Smallest)");
+            out().println("Total capitals found: " + cityList.size());
+            out().println("=".repeat(100));
+            cityList.forEach(city -> out().println(city.toString()));
         }
     }
 
@@ -710,10 +1424,15 @@ public class CityReportService {
         List<City> capitals = new ArrayList<>();
 
         if (continent == null || continent.trim().isEmpty()) {
-            System.err.println("Error: Continent parameter cannot be null or empty.");
+            err().println("Error: Continent parameter cannot be null or empty.");
             return capitals;
         }
 
+        CapitalIndex capitalIndex = getIndexes().getCapitalIndex();
+        if (capitalIndex != null) {
+            return capitalIndex.topInContinent(continent, Integer.MAX_VALUE);
+        }
+
         String sql = """
                 SELECT city.ID, city.Name AS CityName, city.District, city.CountryCode, city.Population
                 FROM city
@@ -736,7 +1455,7 @@ public class CityReportService {
                 capitals.add(city);
             }
         } catch (SQLException e) {
-            System.out.println("Query failed: " + e.getMessage());
+            out().println("Query failed: " + e.getMessage());
         }
 
         return capitals;
@@ -750,19 +1469,20 @@ public class CityReportService {
      */
     public void printAllCapitalCitiesInContinentByPopulation(String continent) {
         if (continent == null || continent.trim().isEmpty()) {
-            System.err.println("Error: Continent parameter cannot be null or empty.");
+            err().println("Error: Continent parameter cannot be null or empty.");
             return;
         }
 
         List<City> cityList = getAllCapitalCitiesInContinentByPopulation(continent);
+        printStale(cityList);
 
         if (cityList == null || cityList.isEmpty()) {
-            System.err.println("Error: No capital city data found for continent: " + continent);
+            err().println("Error: No capital city data found for continent: " + continent);
         } else {
-            System.out.println("Report: All Capital Cities in " + continent + " by Population (Largest to Smallest)");
-            System.out.println("Total capitals found: " + cityList.size());
-            System.out.println("=".repeat(100));
-            cityList.forEach(city -> System.out.println(city.toString()));
+            out().println("Report: All Capital Cities in " + continent + " by Population (Largest to Smallest)");
+            out().println("Total capitals found: " + cityList.size());
+            out().println("=".repeat(100));
+            cityList.forEach(city -> out().println(city.toString()));
         }
     }
 
@@ -777,10 +1497,15 @@ public class CityReportService {
         List<City> capitals = new ArrayList<>();
 
         if (region == null || region.trim().isEmpty()) {
-            System.err.println("Error: Region parameter cannot be null or empty.");
+            err().println("Error: Region parameter cannot be null or empty.");
             return capitals;
         }
 
+        CapitalIndex capitalIndex = getIndexes().getCapitalIndex();
+        if (capitalIndex != null) {
+            return capitalIndex.topInRegion(region, Integer.MAX_VALUE);
+        }
+
         String sql = """
                 SELECT city.ID, city.Name AS CityName, city.District, city.CountryCode, city.Population
                 FROM city
@@ -803,7 +1528,7 @@ public class CityReportService {
                 capitals.add(city);
             }
         } catch (SQLException e) {
-            System.out.println("Query failed: " + e.getMessage());
+            out().println("Query failed: " + e.getMessage());
         }
 
         return capitals;
@@ -817,19 +1542,20 @@ public class CityReportService {
      */
     public void printAllCapitalCitiesInRegionByPopulation(String region) {
         if (region == null || region.trim().isEmpty()) {
-            System.err.println("Error: Region parameter cannot be null or empty.");
+            err().println("Error: Region parameter cannot be null or empty.");
             return;
         }
 
         List<City> cityList = getAllCapitalCitiesInRegionByPopulation(region);
+        printStale(cityList);
 
         if (cityList == null || cityList.isEmpty()) {
-            System.err.println("Error: No capital city data found for region: " + region);
+            err().println("Error: No capital city data found for region: " + region);
         } else {
-            System.out.println("Report: All Capital Cities in " + region + " by Population (Largest to Smallest)");
-            System.out.println("Total capitals found: " + cityList.size());
-            System.out.println("=".repeat(100));
-            cityList.forEach(city -> System.out.println(city.toString()));
+            out().println("Report: All Capital Cities in " + region + " by Population (Largest to Smallest)");
+            out().println("Total capitals found: " + cityList.size());
+            out().println("=".repeat(100));
+            cityList.forEach(city -> out().println(city.toString()));
         }
     }
 
@@ -844,10 +1570,15 @@ public class CityReportService {
         List<City> capitals = new ArrayList<>();
 
         if (n <= 0) {
-            System.err.println("Error: N parameter must be greater than 0.");
+            err().println("Error: N parameter must be greater than 0.");
             return capitals;
         }
 
+        CapitalIndex capitalIndex = getIndexes().getCapitalIndex();
+        if (capitalIndex != null) {
+            return capitalIndex.top(n);
+        }
+
         String sql = """
                 SELECT city.ID, city.Name AS CityName, city.District, city.CountryCode, city.Population
                 FROM city
@@ -870,7 +1601,7 @@ public class CityReportService {
                 capitals.add(city);
             }
         } catch (SQLException e) {
-            System.out.println("Query failed: " + e.getMessage());
+            out().println("Query failed: " + e.getMessage());
         }
 
         return capitals;
@@ -884,19 +1615,20 @@ public class CityReportService {
      */
     public void printTopCapitalCitiesByPopulation(int n) {
         if (n <= 0) {
-            System.err.println("Error: N parameter must be greater than 0.");
+            err().println("Error: N parameter must be greater than 0.");
             return;
         }
 
         List<City> cityList = getTopCapitalCitiesByPopulation(n);
+        printStale(cityList);
 
         if (cityList == null || cityList.isEmpty()) {
-            System.err.println("Error: No capital city data found.");
+            err().println("Error: No capital city data found.");
         } else {
-            System.out.println("Report: Top " + n + " Capital Cities in the World by Population");
-            System.out.println("Total capitals found: " + cityList.size());
-            System.out.println("=".repeat(100));
-            cityList.forEach(city -> System.out.println(city.toString()));
+            out().println("Report: Top " + n + " Capital Cities in the World by Population");
+            out().println("Total capitals found: " + cityList.size());
+            out().println("=".repeat(100));
+            cityList.forEach(city -> out().println(city.toString()));
 
         }
     }
@@ -913,10 +1645,15 @@ public class CityReportService {
         List<City> capitals = new ArrayList<>();
 
         if (continent == null || continent.trim().isEmpty() || n <= 0) {
-            System.err.println("Error: Invalid parameters provided.");
+            err().println("Error: Invalid parameters provided.");
             return capitals;
         }
 
+        CapitalIndex capitalIndex = getIndexes().getCapitalIndex();
+        if (capitalIndex != null) {
+            return capitalIndex.topInContinent(continent, n);
+        }
+
         String sql = """
                 SELECT city.ID, city.Name AS CityName, city.District, city.CountryCode, city.Population
                 FROM city
@@ -941,7 +1678,7 @@ public class CityReportService {
                 capitals.add(city);
             }
         } catch (SQLException e) {
-            System.out.println("Query failed: " + e.getMessage());
+            out().println("Query failed: " + e.getMessage());
         }
 
         return capitals;
@@ -956,24 +1693,25 @@ public class CityReportService {
      */
     public void printTopCapitalCitiesByContinent(String continent, int n) {
         if (continent == null || continent.trim().isEmpty()) {
-            System.err.println("Error: Continent parameter cannot be null or empty.");
+            err().println("Error: Continent parameter cannot be null or empty.");
             return;
         }
 
         if (n <= 0) {
-            System.err.println("Error: N parameter must be greater than 0.");
+            err().println("Error: N parameter must be greater than 0.");
             return;
         }
 
         List<City> cityList = getTopCapitalCitiesByContinent(continent, n);
+        printStale(cityList);
 
         if (cityList == null || cityList.isEmpty()) {
-            System.err.println("Error: No capital city data found for continent: " + continent);
+            err().println("Error: No capital city data found for continent: " + continent);
         } else {
-            System.out.println("Report: Top " + n + " Capital Cities in " + continent + " by Population");
-            System.out.println("Total capitals found: " + cityList.size());
-            System.out.println("=".repeat(100));
-            cityList.forEach(city -> System.out.println(city.toString()));
+            out().println("Report: Top " + n + " Capital Cities in " + continent + " by Population");
+            out().println("Total capitals found: " + cityList.size());
+            out().println("=".repeat(100));
+            cityList.forEach(city -> out().println(city.toString()));
         }
     }
 
@@ -989,10 +1727,15 @@ public class CityReportService {
         List<City> capitals = new ArrayList<>();
 
         if (region == null || region.trim().isEmpty() || n <= 0) {
-            System.err.println("Error: Invalid parameters provided.");
+            err().println("Error: Invalid parameters provided.");
             return capitals;
         }
 
+        CapitalIndex capitalIndex = getIndexes().getCapitalIndex();
+        if (capitalIndex != null) {
+            return capitalIndex.topInRegion(region, n);
+        }
+
         String sql = """
                 SELECT city.ID, city.Name AS CityName, city.District, city.CountryCode, city.Population
                 FROM city
@@ -1017,7 +1760,7 @@ public class CityReportService {
                 capitals.add(city);
             }
         } catch (SQLException e) {
-            System.out.println("Query failed: " + e.getMessage());
+            out().println("Query failed: " + e.getMessage());
         }
 
         return capitals;
@@ -1032,24 +1775,25 @@ public class CityReportService {
      */
     public void printTopCapitalCitiesByRegion(String region, int n) {
         if (region == null || region.trim().isEmpty()) {
-            System.err.println("Error: Region parameter cannot be null or empty.");
+            err().println("Error: Region parameter cannot be null or empty.");
             return;
         }
 
         if (n <= 0) {
-            System.err.println("Error: N parameter must be greater than 0.");
+            err().println("Error: N parameter must be greater than 0.");
             return;
         }
 
         List<City> cityList = getTopCapitalCitiesByRegion(region, n);
+        printStale(cityList);
 
         if (cityList == null || cityList.isEmpty()) {
-            System.err.println("Error: No capital city data found for region: " + region);
+            err().println("Error: No capital city data found for region: " + region);
         } else {
-            System.out.println("Report: Top " + n + " Capital Cities in " + region + " by Population");
-            System.out.println("Total capitals found: " + cityList.size());
-            System.out.println("=".repeat(100));
-            cityList.forEach(city -> System.out.println(city.toString()));
+            out().println("Report: Top " + n + " Capital Cities in " + region + " by Population");
+            out().println("Total capitals found: " + cityList.size());
+            out().println("=".repeat(100));
+            cityList.forEach(city -> out().println(city.toString()));
         }
     }
 
@@ -1065,7 +1809,7 @@ public class CityReportService {
         long cityPopulation = 0;
 
         if (districtName == null || districtName.trim().isEmpty()) {
-            System.err.println("Error: District name cannot be null or empty.");
+            err().println("Error: District name cannot be null or empty.");
             return null;
         }
 
@@ -1111,7 +1855,7 @@ public class CityReportService {
             return report;
 
         } catch (SQLException e) {
-            System.err.println("SQL Error retrieving population report for district: " + e.getMessage());
+            err().println("SQL Error retrieving population report for district: " + e.getMessage());
             return null;
         }
     }
@@ -1125,22 +1869,23 @@ public class CityReportService {
      */
     public PopulationReportPojo printDistrictPopulationReport(String districtName) {
         PopulationReportPojo report = getDistrictPopulationReport(districtName);
+        printStale(report);
 
         if (report == null) {
-            System.err.println("Error: No population data found for district: " + districtName);
+            err().println("Error: No population data found for district: " + districtName);
             return null;
         }
 
         NumberFormat nf = NumberFormat.getInstance(Locale.US);
 
-        System.out.println("========================================");
-        System.out.println("        DISTRICT POPULATION REPORT      ");
-        System.out.println("========================================");
-        System.out.println("District: " + report.getName());
-        System.out.println("Total Population: " + nf.format(report.getTotalPopulation()));
-        System.out.println("Population in Cities: " + nf.format(report.getPopulationInCities()) + " (" + String.format("%.2f", report.getPercentageInCities()) + "%)");
-        System.out.println("Population Not in Cities: " + nf.format(report.getPopulationNotInCities()) + " (" + String.format("%.2f", report.getPercentageNotInCities()) + "%)");
-        System.out.println("========================================");
+        out().println("========================================");
+        out().println("        DISTRICT POPULATION REPORT      ");
+        out().println("========================================");
+        out().println("District: " + report.getName());
+        out().println("Total Population: " + nf.format(report.getTotalPopulation()));
+        out().println("Population in Cities: " + nf.format(report.getPopulationInCities()) + " (" + String.format("%.2f", report.getPercentageInCities()) + "%)");
+        out().println("Population Not in Cities: " + nf.format(report.getPopulationNotInCities()) + " (" + String.format("%.2f", report.getPercentageNotInCities()) + "%)");
+        out().println("========================================");
 
         return report;
     }
@@ -1157,7 +1902,7 @@ public class CityReportService {
         long cityPopulation = 0;
 
         if (cityName == null || cityName.trim().isEmpty()) {
-            System.err.println("Error: City name cannot be null or empty.");
+            err().println("Error: City name cannot be null or empty.");
             return null;
         }
 
@@ -1203,7 +1948,7 @@ public class CityReportService {
             return report;
 
         } catch (SQLException e) {
-            System.err.println("SQL Error retrieving population report for city: " + e.getMessage());
+            err().println("SQL Error retrieving population report for city: " + e.getMessage());
             return null;
         }
     }
@@ -1218,22 +1963,23 @@ public class CityReportService {
      */
     public PopulationReportPojo printCityPopulationReport(String cityName) {
         PopulationReportPojo report = getCityPopulationReport(cityName);
+        printStale(report);
 
         if (report == null) {
-            System.err.println("Error: No population data found for city: " + cityName);
+            err().println("Error: No population data found for city: " + cityName);
             return null;
         }
 
         NumberFormat nf = NumberFormat.getInstance(Locale.US);
 
-        System.out.println("=========================================");
-        System.out.println("            CITY POPULATION REPORT       ");
-        System.out.println("=========================================");
-        System.out.println("City: " + report.getName());
-        System.out.println("Total Population: " + nf.format(report.getTotalPopulation()));
-        System.out.println("Population in City: " + nf.format(report.getPopulationInCities()) + " (" + String.format("%.2f", report.getPercentageInCities()) + "%)");
-        System.out.println("Population Not in City: " + nf.format(report.getPopulationNotInCities()) + " (" + String.format("%.2f", report.getPercentageNotInCities()) + "%)");
-        System.out.println("========================================");
+        out().println("=========================================");
+        out().println("            CITY POPULATION REPORT       ");
+        out().println("=========================================");
+        out().println("City: " + report.getName());
+        out().println("Total Population: " + nf.format(report.getTotalPopulation()));
+        out().println("Population in City: " + nf.format(report.getPopulationInCities()) + " (" + String.format("%.2f", report.getPercentageInCities()) + "%)");
+        out().println("Population Not in City: " + nf.format(report.getPopulationNotInCities()) + " (" + String.format("%.2f", report.getPercentageNotInCities()) + "%)");
+        out().println("========================================");
 
         return report;
     }
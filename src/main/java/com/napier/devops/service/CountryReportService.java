@@ -2,8 +2,12 @@ package com.napier.devops.service;
 
 import com.napier.devops.Country;
 import com.napier.pojo.LanguageReportPojo;
+import com.napier.pojo.Page;
+import com.napier.pojo.PageToken;
 import com.napier.pojo.PopulationReportPojo;
+import com.napier.pojo.Staleness;
 
+import java.io.PrintStream;
 import java.sql.*;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -24,10 +28,57 @@ public class CountryReportService {
 
     private final Connection connection;
 
+    /**
+     * Where reports are printed, or null for {@link System#out}.
+     */
+    private volatile PrintStream out;
+
+    /**
+     * Where errors are printed, or null for {@link System#err}.
+     */
+    private volatile PrintStream err;
+
     public CountryReportService(Connection connection) {
         this.connection = connection;
     }
 
+    /**
+     * Prints this service's reports and errors to the given streams instead of the console,
+     * without touching {@link System#out} and {@link System#err}, which other threads share.
+     *
+     * @param out The stream for reports, or null for {@link System#out}.
+     * @param err The stream for errors, or null for {@link System#err}.
+     */
+    public void setOutput(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
+    }
+
+    /**
+     * @return The stream reports are printed to.
+     */
+    protected PrintStream out() {
+        PrintStream stream = out;
+        return stream != null ? stream : System.out;
+    }
+
+    /**
+     * @return The stream errors are printed to.
+     */
+    protected PrintStream err() {
+        PrintStream stream = err;
+        return stream != null ? stream : System.err;
+    }
+
+    /**
+     * Notes in the report output that a result was served from an older copy.
+     */
+    private void printStale(Object result) {
+        if (Staleness.isStale(result)) {
+            out().println(Staleness.NOTE);
+        }
+    }
+
     /**
      * Get a country by its code.
      *
@@ -53,7 +104,7 @@ public class CountryReportService {
                 country.setCapital(resultSet.getInt("capital"));
             }
         } catch (SQLException e) {
-            System.out.println("Query failed: " + e.getMessage());
+            out().println("Query failed: " + e.getMessage());
         }
         return country;
     }
@@ -84,12 +135,79 @@ public class CountryReportService {
                 countries.add(country);
             }
         } catch (SQLException e) {
-            System.out.println("Query failed: " + e.getMessage());
+            out().println("Query failed: " + e.getMessage());
         }
 
         return countries;
     }
 
+    /**
+     * Retrieves one page of all countries sorted by population in descending order. Each page
+     * seeks past the last (Population, Code) of the previous one rather than skipping rows with
+     * OFFSET, so every page costs the same however deep into the report it is. Countries with
+     * the same population are ordered by code descending.
+     *
+     * @param pageSize    The number of countries per page.
+     * @param resumeToken The next token of the previous page, or null for the first page.
+     * @return The page of countries, with the token for the next page if there is one.
+     */
+    public Page<Country> getCountriesByPopulationPage(int pageSize, String resumeToken) {
+        List<Country> countries = new ArrayList<>();
+
+        if (pageSize <= 0) {
+            err().println("Error: Page size must be greater than 0.");
+            return new Page<>(countries, null);
+        }
+
+        PageToken after;
+        try {
+            after = resumeToken == null ? null : PageToken.decode(resumeToken);
+        } catch (IllegalArgumentException e) {
+            err().println("Error: Invalid page token.");
+            return new Page<>(countries, null);
+        }
+
+        String sql = after == null
+                ? "SELECT code, name, continent, region, population, capital FROM country "
+                + "ORDER BY population DESC, code DESC LIMIT ?"
+                : "SELECT code, name, continent, region, population, capital FROM country "
+                + "WHERE population < ? OR (population = ? AND code < ?) "
+                + "ORDER BY population DESC, code DESC LIMIT ?";
+
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            int index = 1;
+            if (after != null) {
+                pstmt.setLong(index++, after.getPopulation());
+                pstmt.setLong(index++, after.getPopulation());
+                pstmt.setString(index++, after.getKey());
+            }
+            // One extra row tells us whether there is a next page
+            pstmt.setInt(index, pageSize + 1);
+            ResultSet resultSet = pstmt.executeQuery();
+
+            while (resultSet.next()) {
+                Country country = new Country();
+                country.setCode(resultSet.getString("code"));
+                country.setName(resultSet.getString("name"));
+                country.setContinent(resultSet.getString("continent"));
+                country.setRegion(resultSet.getString("region"));
+                country.setPopulation(resultSet.getInt("population"));
+                country.setCapital(resultSet.getInt("capital"));
+                countries.add(country);
+            }
+        } catch (SQLException e) {
+            out().println("Query failed: " + e.getMessage());
+        }
+
+        if (countries.size() <= pageSize) {
+            return new Page<>(countries, null);
+        }
+
+        countries = new ArrayList<>(countries.subList(0, pageSize));
+        Country last = countries.get(pageSize - 1);
+        return new Page<>(countries, new PageToken(last.getPopulation(), last.getCode()).encode());
+    }
+
     /**
      * This function retrieves all countries from a specific continent and sorts them by population in
      * descending order.
@@ -116,7 +234,7 @@ public class CountryReportService {
                 countries.add(country);
             }
         } catch (SQLException e) {
-            System.out.println("Query failed: " + e.getMessage());
+            out().println("Query failed: " + e.getMessage());
         }
         return countries;
     }
@@ -127,13 +245,14 @@ public class CountryReportService {
     public void printAllCountriesByPopulationLargestToSmallest() {
         // Get list of all countries sorted by population
         List<Country> countryList = getAllCountriesByPopulationLargestToSmallest();
+        printStale(countryList);
 
         if (countryList == null || countryList.isEmpty()) {
-            System.err.println("Error: No country data found.");
+            err().println("Error: No country data found.");
         } else {
             // Print the details of all the countries
             for (Country country : countryList) {
-                System.out.println(country.toString());
+                out().println(country.toString());
             }
         }
     }
@@ -147,13 +266,14 @@ public class CountryReportService {
     public void printAllCountriesByPopulationInAContinentLargestToSmallest(String continent) {
         // Get list of all countries in the provided continent sorted by population
         List<Country> countryList = getAllCountriesInContinentByPopulationLargestToSmallest(continent);
+        printStale(countryList);
 
         if (countryList == null || countryList.isEmpty()) {
-            System.err.println("Error: No country data found for continent: " + continent);
+            err().println("Error: No country data found for continent: " + continent);
         } else {
             // Print the details of all the countries
             for (Country country : countryList) {
-                System.out.println(country.toString());
+                out().println(country.toString());
             }
         }
     }
@@ -188,7 +308,7 @@ public class CountryReportService {
                 countries.add(country);
             }
         } catch (SQLException e) {
-            System.out.println("Query failed: " + e.getMessage());
+            out().println("Query failed: " + e.getMessage());
         }
 
         return countries;
@@ -203,13 +323,14 @@ public class CountryReportService {
     public void printAllCountriesByPopulationInARegionLargestToSmallest(String region) {
         // Get list of all countries in the provided region sorted by population
         List<Country> countryList = getAllCountriesInRegionByPopulationLargestToSmallest(region);
+        printStale(countryList);
 
         if (countryList == null || countryList.isEmpty()) {
-            System.err.println("Error: No country data found for region: " + region);
+            err().println("Error: No country data found for region: " + region);
         } else {
             // Print the details of all the countries
             for (Country country : countryList) {
-                System.out.println(country.toString());
+                out().println(country.toString());
             }
         }
     }
@@ -226,18 +347,19 @@ public class CountryReportService {
 
         // Get list of all countries sorted by population
         List<Country> countryList = getAllCountriesByPopulationLargestToSmallest();
+        printStale(countryList);
         List<Country> topNCountryList = new ArrayList<>();
 
 
         if (countryList == null || countryList.isEmpty()) {
-            System.err.println("Error: No country data found.");
+            err().println("Error: No country data found.");
         } else {
             // Ensure we don't go out of bounds if the list is less than defaultN
             int count = Math.min(n, countryList.size());
 
             // Print the details of top N countries
             for (int i = 0; i < count; i++) {
-                System.out.println(countryList.get(i).toString());
+                out().println(countryList.get(i).toString());
                 topNCountryList.add(countryList.get(i));
             }
         }
@@ -256,17 +378,18 @@ public class CountryReportService {
     public List<Country> printTopNCountriesInContinentByPopulation(String continent, int n) {
         // Get list of all countries in the provided continent sorted by population
         List<Country> countryList = getAllCountriesInContinentByPopulationLargestToSmallest(continent);
+        printStale(countryList);
         List<Country> topNCountryList = new ArrayList<>();
 
         if (countryList == null || countryList.isEmpty()) {
-            System.err.println("Error: No country data found for continent: " + continent);
+            err().println("Error: No country data found for continent: " + continent);
         } else {
             // Ensure we don't go out of bounds if the list is less than n
             int count = Math.min(n, countryList.size());
 
             // Print the details of top N countries
             for (int i = 0; i < count; i++) {
-                System.out.println(countryList.get(i).toString());
+                out().println(countryList.get(i).toString());
                 topNCountryList.add(countryList.get(i));
             }
         }
@@ -285,17 +408,18 @@ public class CountryReportService {
     public List<Country> printTopNCountriesInRegionByPopulation(String defaultRegion, int defaultN) {
 
         List<Country> countryList = getAllCountriesInRegionByPopulationLargestToSmallest(defaultRegion);
+        printStale(countryList);
         List<Country> topNCountryList = new ArrayList<>();
 
         if (countryList == null || countryList.isEmpty()) {
-            System.err.println("Error: No country data found for region: " + defaultRegion);
+            err().println("Error: No country data found for region: " + defaultRegion);
         } else {
             // Ensure we don't go out of bounds if the list is less than defaultN
             int count = Math.min(defaultN, countryList.size());
 
             // Print the details of top N countries
             for (int i = 0; i < count; i++) {
-                System.out.println(countryList.get(i).toString());
+                out().println(countryList.get(i).toString());
                 topNCountryList.add(countryList.get(i));
             }
         }
@@ -314,7 +438,7 @@ public class CountryReportService {
         long cityPopulation = 0;
 
         if (regionName == null || regionName.trim().isEmpty()) {
-            System.err.println("Error: Region name cannot be null or empty.");
+            err().println("Error: Region name cannot be null or empty.");
             return null;
         }
 
@@ -365,7 +489,7 @@ public class CountryReportService {
             return report;
 
         } catch (SQLException e) {
-            System.err.println("SQL Error retrieving population report: " + e.getMessage());
+            err().println("SQL Error retrieving population report: " + e.getMessage());
             return null;
         }
     }
@@ -377,25 +501,35 @@ public class CountryReportService {
      * @param defaultRegion Name of the region
      */
     public void printRegionPopulationReport(String defaultRegion) {
-        PopulationReportPojo report = getRegionPopulationReport(defaultRegion);
+        printRegionPopulationReport(getRegionPopulationReport(defaultRegion), defaultRegion);
+    }
+
+    /**
+     * USE CASE 28: Prints a population report for a region.
+     *
+     * @param report        The report, or null if it could not be produced.
+     * @param defaultRegion Name of the region that was asked for
+     */
+    public void printRegionPopulationReport(PopulationReportPojo report, String defaultRegion) {
+        printStale(report);
 
         if (report == null) {
-            System.err.println("Error: No population data found for region: " + defaultRegion);
+            err().println("Error: No population data found for region: " + defaultRegion);
             return;
         }
 
         NumberFormat nf = NumberFormat.getInstance(Locale.US);
 
-        System.out.println("========================================");
-        System.out.println("       REGION POPULATION REPORT         ");
-        System.out.println("========================================");
-        System.out.println("Region: " + report.getName());
-        System.out.println("Total Population: " + nf.format(report.getTotalPopulation()));
-        System.out.println("Population in Cities: " + nf.format(report.getPopulationInCities()) +
+        out().println("========================================");
+        out().println("       REGION POPULATION REPORT         ");
+        out().println("========================================");
+        out().println("Region: " + report.getName());
+        out().println("Total Population: " + nf.format(report.getTotalPopulation()));
+        out().println("Population in Cities: " + nf.format(report.getPopulationInCities()) +
                 " (" + String.format("%.2f", report.getPercentageInCities()) + "%)");
-        System.out.println("Population Not in Cities: " + nf.format(report.getPopulationNotInCities()) +
+        out().println("Population Not in Cities: " + nf.format(report.getPopulationNotInCities()) +
                 " (" + String.format("%.2f", report.getPercentageNotInCities()) + "%)");
-        System.out.println("========================================");
+        out().println("========================================");
     }
 
 
@@ -410,7 +544,7 @@ public class CountryReportService {
         long cityPopulation = 0;
 
         if (countryName == null || countryName.trim().isEmpty()) {
-            System.err.println("Error: Country name cannot be null or empty.");
+            err().println("Error: Country name cannot be null or empty.");
             return null;
         }
 
@@ -462,7 +596,7 @@ public class CountryReportService {
             return report;
 
         } catch (SQLException e) {
-            System.err.println("SQL Error retrieving population report: " + e.getMessage());
+            err().println("SQL Error retrieving population report: " + e.getMessage());
             return null;
         }
     }
@@ -475,25 +609,35 @@ public class CountryReportService {
      * @param countryName Name of the country
      */
     public void printCountryPopulationReport(String countryName) {
-        PopulationReportPojo report = getCountryPopulationReport(countryName);
+        printCountryPopulationReport(getCountryPopulationReport(countryName), countryName);
+    }
+
+    /**
+     * USE CASE 29: Prints a population report for a country.
+     *
+     * @param report      The report, or null if it could not be produced.
+     * @param countryName Name of the country that was asked for
+     */
+    public void printCountryPopulationReport(PopulationReportPojo report, String countryName) {
+        printStale(report);
 
         if (report == null) {
-            System.err.println("Error: No population data found for country: " + countryName);
+            err().println("Error: No population data found for country: " + countryName);
             return;
         }
 
         NumberFormat nf = NumberFormat.getInstance(Locale.US);
 
-        System.out.println("========================================");
-        System.out.println("        COUNTRY POPULATION REPORT       ");
-        System.out.println("========================================");
-        System.out.println("Country: " + report.getName());
-        System.out.println("Total Population: " + nf.format(report.getTotalPopulation()));
-        System.out.println("Population in Cities: " + nf.format(report.getPopulationInCities()) +
+        out().println("========================================");
+        out().println("        COUNTRY POPULATION REPORT       ");
+        out().println("========================================");
+        out().println("Country: " + report.getName());
+        out().println("Total Population: " + nf.format(report.getTotalPopulation()));
+        out().println("Population in Cities: " + nf.format(report.getPopulationInCities()) +
                 " (" + String.format("%.2f", report.getPercentageInCities()) + "%)");
-        System.out.println("Population Not in Cities: " + nf.format(report.getPopulationNotInCities()) +
+        out().println("Population Not in Cities: " + nf.format(report.getPopulationNotInCities()) +
                 " (" + String.format("%.2f", report.getPercentageNotInCities()) + "%)");
-        System.out.println("========================================");
+        out().println("========================================");
     }
 
 
@@ -533,7 +677,7 @@ public class CountryReportService {
 
             // Validate world population
             if (worldPopulation == 0) {
-                System.err.println("Error: Could not determine world population.");
+                err().println("Error: Could not determine world population.");
                 return languageReports;
             }
 
@@ -558,7 +702,7 @@ public class CountryReportService {
             }
 
         } catch (SQLException e) {
-            System.err.println("SQL Error retrieving major language report: " + e.getMessage());
+            err().println("SQL Error retrieving major language report: " + e.getMessage());
             return Collections.emptyList();
         }
 
@@ -571,29 +715,30 @@ public class CountryReportService {
      */
     public void printMajorLanguageReport() {
         List<LanguageReportPojo> reports = getMajorLanguageReport();
+        printStale(reports);
 
         if (reports == null || reports.isEmpty()) {
-            System.err.println("Error: No language report data found.");
+            err().println("Error: No language report data found.");
             return;
         }
 
         NumberFormat nf = NumberFormat.getInstance(Locale.US); // ensures commas
 
-        System.out.println("===============================================================");
-        System.out.println("           MAJOR LANGUAGES SPEAKERS REPORT                     ");
-        System.out.println("===============================================================");
-        System.out.printf("%-15s %-20s %-15s%n", "Language", "Speakers", "% of World Pop");
-        System.out.println("---------------------------------------------------------------");
+        out().println("===============================================================");
+        out().println("           MAJOR LANGUAGES SPEAKERS REPORT                     ");
+        out().println("===============================================================");
+        out().printf("%-15s %-20s %-15s%n", "Language", "Speakers", "% of World Pop");
+        out().println("---------------------------------------------------------------");
 
         for (LanguageReportPojo report : reports) {
             String formattedSpeakers = nf.format(report.getSpeakers());
-            System.out.printf("%-15s %-20s %-15.2f%n",
+            out().printf("%-15s %-20s %-15.2f%n",
                     report.getLanguage(),
                     formattedSpeakers,
                     report.getPercentageOfWorld());
         }
 
-        System.out.println("===============================================================");
+        out().println("===============================================================");
     }
 
 
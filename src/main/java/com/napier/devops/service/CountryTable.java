@@ -0,0 +1,188 @@
+package com.napier.devops.service;
+
+import com.napier.devops.City;
+import com.napier.devops.SymbolTable;
+import com.napier.devops.snapshot.WorldSnapshot;
+import com.napier.pojo.EnrichedCityPojo;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The name, continent and region of every country, for city reports that show them.
+ * <p>
+ * A country code is three letters, so it packs into a number below 26 * 26 * 26 that
+ * indexes a dense array holding the country's row. Joining a city to its country is then
+ * three character reads and two array loads, with no query and no hashing per city.
+ */
+public class CountryTable {
+
+    private static final String SQL = "SELECT Code, Name, Continent, Region FROM country";
+
+    private static final int LETTERS = 26;
+    private static final int SLOTS = LETTERS * LETTERS * LETTERS;
+
+    private final int size;
+    private final String[] codes;
+    private final String[] names;
+    private final String[] continents;
+    private final String[] regions;
+
+    // Row of each country by packed code, -1 for codes with no country
+    private final short[] rows = new short[SLOTS];
+
+    private CountryTable(SymbolTable symbols, List<Row> records) {
+        if (records.size() > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many countries: " + records.size());
+        }
+        this.size = records.size();
+        this.codes = new String[size];
+        this.names = new String[size];
+        this.continents = new String[size];
+        this.regions = new String[size];
+        Arrays.fill(rows, (short) -1);
+
+        for (int i = 0; i < size; i++) {
+            Row record = records.get(i);
+            codes[i] = symbols.intern(record.code());
+            names[i] = record.name();
+            continents[i] = symbols.intern(record.continent());
+            regions[i] = symbols.intern(record.region());
+            int slot = slot(record.code());
+            if (slot >= 0) {
+                rows[slot] = (short) i;
+            }
+        }
+    }
+
+    /**
+     * Builds the table with a single query.
+     *
+     * @param connection The connection to the world database.
+     * @return A new table of every country.
+     * @throws SQLException If the query fails.
+     */
+    public static CountryTable load(Connection connection) throws SQLException {
+        List<Row> records = new ArrayList<>();
+        try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(SQL)) {
+            while (rs.next()) {
+                records.add(new Row(rs.getString("Code"), rs.getString("Name"),
+                        rs.getString("Continent"), rs.getString("Region")));
+            }
+        }
+        return new CountryTable(new SymbolTable(), records);
+    }
+
+    /**
+     * Builds the table from an in-memory snapshot without touching the database.
+     *
+     * @param snapshot The snapshot to read the countries from.
+     * @return A new table of every country in the snapshot, with the snapshot's country rows.
+     */
+    public static CountryTable of(WorldSnapshot snapshot) {
+        SymbolTable symbols = snapshot.getSymbols();
+        List<Row> records = new ArrayList<>(snapshot.getCountryCount());
+        for (int row = 0; row < snapshot.getCountryCount(); row++) {
+            records.add(new Row(snapshot.getCountryCode(row), snapshot.getCountryName(row),
+                    symbols.symbol(snapshot.getCountryContinent(row)), symbols.symbol(snapshot.getCountryRegion(row))));
+        }
+        return new CountryTable(symbols, records);
+    }
+
+    /**
+     * @return The number of countries in the table.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param code A country code such as "USA", matched case-insensitively.
+     * @return The row of the country, or -1 if it is not in the table.
+     */
+    public int rowOf(String code) {
+        int slot = slot(code);
+        return slot < 0 ? -1 : rows[slot];
+    }
+
+    public String getCode(int row) {
+        return codes[row];
+    }
+
+    public String getName(int row) {
+        return names[row];
+    }
+
+    public String getContinent(int row) {
+        return continents[row];
+    }
+
+    public String getRegion(int row) {
+        return regions[row];
+    }
+
+    /**
+     * Joins a city to its country.
+     *
+     * @param city The city to enrich.
+     * @return The city with its country's name, continent and region, which are null if the
+     * country is not in the table.
+     */
+    public EnrichedCityPojo enrich(City city) {
+        EnrichedCityPojo enriched = new EnrichedCityPojo();
+        enriched.setCity(city);
+        int row = rowOf(city.getCountryCode());
+        if (row >= 0) {
+            enriched.setCountryName(names[row]);
+            enriched.setContinent(continents[row]);
+            enriched.setRegion(regions[row]);
+        }
+        return enriched;
+    }
+
+    /**
+     * Joins every city in a report to its country, keeping the report's order.
+     *
+     * @param cities The cities to enrich.
+     * @return The enriched cities.
+     */
+    public List<EnrichedCityPojo> enrich(List<City> cities) {
+        List<EnrichedCityPojo> enriched = new ArrayList<>(cities.size());
+        for (City city : cities) {
+            enriched.add(enrich(city));
+        }
+        return enriched;
+    }
+
+    /**
+     * Packs a three letter code into a number below {@link #SLOTS}, folding lower case letters
+     * to upper case.
+     *
+     * @return The packed code, or -1 if the code is not three letters.
+     */
+    static int slot(String code) {
+        if (code == null || code.length() != 3) {
+            return -1;
+        }
+        int slot = 0;
+        for (int i = 0; i < 3; i++) {
+            int letter = (code.charAt(i) | 0x20) - 'a';
+            if (letter < 0 || letter >= LETTERS) {
+                return -1;
+            }
+            slot = slot * LETTERS + letter;
+        }
+        return slot;
+    }
+
+    /**
+     * A country, used while the table is built.
+     */
+    private record Row(String code, String name, String continent, String region) {
+    }
+}
@@ -0,0 +1,288 @@
+package com.napier.devops.service;
+
+import com.napier.devops.City;
+import com.napier.devops.SymbolTable;
+import com.napier.devops.snapshot.WorldSnapshot;
+import com.napier.pojo.PopulationHistogramPojo;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Every city sorted by population, for the population range and histogram reports.
+ * <p>
+ * The cities are stored largest first, ties by descending ID like the paged report, each
+ * with its country's continent and region. Every continent and region also keeps the
+ * positions of its cities in that order, so a range report is a binary search for the
+ * largest city in the range followed by a walk over the k cities in it, O(log n + k), and
+ * the continent histograms are one pass over the sorted cities. Cities whose country is
+ * not known are only in the world order.
+ */
+public class PopulationIndex {
+
+    private static final String SQL = """
+            SELECT city.ID, city.Name AS CityName, city.District, city.CountryCode, city.Population,
+                   country.Continent, country.Region
+            FROM city
+            LEFT JOIN country ON city.CountryCode = country.Code
+            """;
+
+    private final int size;
+    private final int[] ids;
+    private final String[] names;
+    private final String[] districts;
+    private final String[] countryCodes;
+    private final int[] populations;
+
+    // Index of each city's continent in continentNames, or -1 if its country is not known
+    private final int[] continents;
+
+    // Continent and region names in alphabetical order, and the positions of their cities
+    private final List<String> continentNames;
+    private final int[][] continentPositions;
+    private final int[][] regionPositions;
+
+    // Continent and region indexes by lower case name, as the database compares them case-insensitively
+    private final Map<String, Integer> continentIndexes;
+    private final Map<String, Integer> regionIndexes;
+
+    private PopulationIndex(SymbolTable symbols, List<Row> records) {
+        records.sort(Comparator.comparingInt(Row::population).thenComparingInt(Row::id).reversed());
+
+        this.size = records.size();
+        this.ids = new int[size];
+        this.names = new String[size];
+        this.districts = new String[size];
+        this.countryCodes = new String[size];
+        this.populations = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            Row record = records.get(i);
+            ids[i] = record.id();
+            names[i] = record.name();
+            districts[i] = symbols.intern(record.district());
+            countryCodes[i] = symbols.intern(record.countryCode());
+            populations[i] = record.population();
+        }
+
+        this.continentNames = areaNames(records, Row::continent);
+        this.continentIndexes = indexes(continentNames);
+        this.continents = areaIndexes(records, Row::continent, continentIndexes);
+        this.continentPositions = positions(continents, continentNames.size());
+
+        List<String> regionNames = areaNames(records, Row::region);
+        this.regionIndexes = indexes(regionNames);
+        this.regionPositions = positions(areaIndexes(records, Row::region, regionIndexes), regionNames.size());
+    }
+
+    /**
+     * Builds the index with a single query.
+     *
+     * @param connection The connection to the world database.
+     * @return A new index of every city.
+     * @throws SQLException If the query fails.
+     */
+    public static PopulationIndex load(Connection connection) throws SQLException {
+        List<Row> records = new ArrayList<>();
+        try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(SQL)) {
+            while (rs.next()) {
+                records.add(new Row(rs.getInt("ID"), rs.getString("CityName"), rs.getString("District"),
+                        rs.getString("CountryCode"), rs.getInt("Population"),
+                        rs.getString("Continent"), rs.getString("Region")));
+            }
+        }
+        return new PopulationIndex(new SymbolTable(), records);
+    }
+
+    /**
+     * Builds the index from an in-memory snapshot without touching the database.
+     *
+     * @param snapshot The snapshot to read the cities from.
+     * @return A new index of every city in the snapshot.
+     */
+    public static PopulationIndex of(WorldSnapshot snapshot) {
+        SymbolTable symbols = snapshot.getSymbols();
+        List<Row> records = new ArrayList<>(snapshot.getCityCount());
+        for (int row = 0; row < snapshot.getCityCount(); row++) {
+            int country = snapshot.getCityCountry(row);
+            records.add(new Row(snapshot.getCityId(row), snapshot.getCityName(row),
+                    symbols.symbol(snapshot.getCityDistrict(row)), snapshot.getCityCountryCode(row),
+                    snapshot.getCityPopulation(row),
+                    country < 0 ? null : symbols.symbol(snapshot.getCountryContinent(country)),
+                    country < 0 ? null : symbols.symbol(snapshot.getCountryRegion(country))));
+        }
+        return new PopulationIndex(symbols, records);
+    }
+
+    /**
+     * @return The number of cities in the index.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param min The smallest population to include.
+     * @param max The largest population to include.
+     * @return The cities in the world with a population from min to max, largest first.
+     */
+    public List<City> inRange(int min, int max) {
+        return walk(null, min, max);
+    }
+
+    /**
+     * @param continent The continent, matched case-insensitively.
+     * @param min       The smallest population to include.
+     * @param max       The largest population to include.
+     * @return The cities in the continent with a population from min to max, largest first.
+     */
+    public List<City> inRangeInContinent(String continent, int min, int max) {
+        Integer index = continentIndexes.get(continent.toLowerCase(Locale.ROOT));
+        return index == null ? new ArrayList<>() : walk(continentPositions[index], min, max);
+    }
+
+    /**
+     * @param region The region, matched case-insensitively.
+     * @param min    The smallest population to include.
+     * @param max    The largest population to include.
+     * @return The cities in the region with a population from min to max, largest first.
+     */
+    public List<City> inRangeInRegion(String region, int min, int max) {
+        Integer index = regionIndexes.get(region.toLowerCase(Locale.ROOT));
+        return index == null ? new ArrayList<>() : walk(regionPositions[index], min, max);
+    }
+
+    /**
+     * Counts the cities of every continent into population buckets in one pass. As the
+     * cities are sorted, the bucket of each city is the bucket of the one before it or a
+     * lower one, so no search is needed.
+     *
+     * @param bounds The lower bounds of every bucket after the first, in increasing order.
+     * @return A histogram for each continent, in alphabetical order.
+     */
+    public List<PopulationHistogramPojo> continentHistograms(int[] bounds) {
+        int[][] cityCounts = new int[continentNames.size()][bounds.length + 1];
+        long[][] totals = new long[continentNames.size()][bounds.length + 1];
+
+        int bucket = bounds.length;
+        for (int i = 0; i < size; i++) {
+            while (bucket > 0 && populations[i] < bounds[bucket - 1]) {
+                bucket--;
+            }
+            int continent = continents[i];
+            if (continent >= 0) {
+                cityCounts[continent][bucket]++;
+                totals[continent][bucket] += populations[i];
+            }
+        }
+
+        List<PopulationHistogramPojo> histograms = new ArrayList<>(continentNames.size());
+        for (int continent = 0; continent < continentNames.size(); continent++) {
+            PopulationHistogramPojo histogram = new PopulationHistogramPojo();
+            histogram.setName(continentNames.get(continent));
+            histogram.setBounds(bounds.clone());
+            histogram.setCityCounts(cityCounts[continent]);
+            histogram.setPopulations(totals[continent]);
+            histograms.add(histogram);
+        }
+        return histograms;
+    }
+
+    /**
+     * Walks the cities from the largest with a population no greater than max, found by a
+     * binary search, until one is smaller than min. Null positions walk every city.
+     */
+    private List<City> walk(int[] positions, int min, int max) {
+        int count = positions == null ? size : positions.length;
+
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (populations[position(positions, mid)] > max) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        List<City> cities = new ArrayList<>();
+        for (int i = low; i < count; i++) {
+            int at = position(positions, i);
+            if (populations[at] < min) {
+                break;
+            }
+            cities.add(new City().setAll(ids[at], names[at], countryCodes[at], districts[at], populations[at]));
+        }
+        return cities;
+    }
+
+    private static int position(int[] positions, int i) {
+        return positions == null ? i : positions[i];
+    }
+
+    /**
+     * @return The distinct area names, ignoring case, in alphabetical order.
+     */
+    private static List<String> areaNames(List<Row> records, Function<Row, String> area) {
+        Set<String> names = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        for (Row record : records) {
+            if (area.apply(record) != null) {
+                names.add(area.apply(record));
+            }
+        }
+        return new ArrayList<>(names);
+    }
+
+    private static Map<String, Integer> indexes(List<String> names) {
+        Map<String, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            indexes.put(names.get(i).toLowerCase(Locale.ROOT), i);
+        }
+        return indexes;
+    }
+
+    private static int[] areaIndexes(List<Row> records, Function<Row, String> area,
+                                     Map<String, Integer> indexes) {
+        int[] areas = new int[records.size()];
+        for (int i = 0; i < areas.length; i++) {
+            String name = area.apply(records.get(i));
+            areas[i] = name == null ? -1 : indexes.get(name.toLowerCase(Locale.ROOT));
+        }
+        return areas;
+    }
+
+    /**
+     * @return The positions of each area's cities, in the sorted order.
+     */
+    private static int[][] positions(int[] areas, int areaCount) {
+        int[] counts = new int[areaCount];
+        for (int area : areas) {
+            if (area >= 0) {
+                counts[area]++;
+            }
+        }
+        int[][] positions = new int[areaCount][];
+        for (int area = 0; area < areaCount; area++) {
+            positions[area] = new int[counts[area]];
+            counts[area] = 0;
+        }
+        for (int i = 0; i < areas.length; i++) {
+            if (areas[i] >= 0) {
+                positions[areas[i]][counts[areas[i]]++] = i;
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * A city joined with its country, used while the index is built.
+     */
+    private record Row(int id, String name, String district, String countryCode, int population,
+                       String continent, String region) {
+    }
+}
@@ -2,7 +2,10 @@ package com.napier.devops.service;
 
 
 import com.napier.devops.PopulationMetrics;
+import com.napier.pojo.Staleness;
+import com.napier.pojo.WorldReportPojo;
 
+import java.io.PrintStream;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -16,10 +19,57 @@ public class PopulationMetricsReportService {
 
     private final Connection connection;
 
+    /**
+     * Where reports are printed, or null for {@link System#out}.
+     */
+    private volatile PrintStream out;
+
+    /**
+     * Where errors are printed, or null for {@link System#err}.
+     */
+    private volatile PrintStream err;
+
     public PopulationMetricsReportService(Connection connection) {
         this.connection = connection;
     }
 
+    /**
+     * Prints this service's reports and errors to the given streams instead of the console,
+     * without touching {@link System#out} and {@link System#err}, which other threads share.
+     *
+     * @param out The stream for reports, or null for {@link System#out}.
+     * @param err The stream for errors, or null for {@link System#err}.
+     */
+    public void setOutput(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
+    }
+
+    /**
+     * @return The stream reports are printed to.
+     */
+    protected PrintStream out() {
+        PrintStream stream = out;
+        return stream != null ? stream : System.out;
+    }
+
+    /**
+     * @return The stream errors are printed to.
+     */
+    protected PrintStream err() {
+        PrintStream stream = err;
+        return stream != null ? stream : System.err;
+    }
+
+    /**
+     * Notes in the report output that a result was served from an older copy.
+     */
+    private void printStale(Object result) {
+        if (Staleness.isStale(result)) {
+            out().println(Staleness.NOTE);
+        }
+    }
+
 
     /**
      * Executes the query for Use Case 23 and displays the results.
@@ -56,7 +106,7 @@ public class PopulationMetricsReportService {
                 continents.add(continent);
             }
         } catch (SQLException e) {
-            System.out.println("Query failed: " + e.getMessage());
+            out().println("Query failed: " + e.getMessage());
         }
         return continents;
     }
@@ -65,9 +115,16 @@ public class PopulationMetricsReportService {
      * Prints the population report for all continents (Use Case 23).
      */
     public void printContinentPopulationReport() {
-        // Get the data from the method
-        List<PopulationMetrics> continentList = getContinentPopulationReport();
+        printContinentPopulationReport(getContinentPopulationReport());
+    }
 
+    /**
+     * Prints a population report for continents (Use Case 23).
+     *
+     * @param continentList The continents to print.
+     */
+    public void printContinentPopulationReport(List<PopulationMetrics> continentList) {
+        printStale(continentList);
         // Check if any data was returned
         if (continentList == null || continentList.isEmpty()) {
             return;
@@ -75,17 +132,17 @@ public class PopulationMetricsReportService {
 
         // Print a clear header
         String separator = "===================================================================================================================================================";
-        System.out.println(separator);
-        System.out.println("|                                               USE CASE 23: Continent Population Report                                                      |");
-        System.out.println(separator);
+        out().println(separator);
+        out().println("|                                               USE CASE 23: Continent Population Report                                                      |");
+        out().println(separator);
 
         // Loop through the list and print each item
         for (PopulationMetrics continent : continentList) {
-            System.out.println(continent);
+            out().println(continent);
         }
 
         // Print a footer
-        System.out.println(separator);
+        out().println(separator);
     }
 
     /**
@@ -129,7 +186,7 @@ public class PopulationMetricsReportService {
             }
 
         } catch (SQLException e) {
-            System.out.println("Query failed: " + e.getMessage());
+            out().println("Query failed: " + e.getMessage());
         }
         return regions;
     }
@@ -138,16 +195,25 @@ public class PopulationMetricsReportService {
      * Prints the population report for all regions (Use Case 24).
      */
     public void printRegionPopulationReport() {
-        List<PopulationMetrics> regionList = getRegionPopulationReport();
+        printRegionPopulationReport(getRegionPopulationReport());
+    }
+
+    /**
+     * Prints a population report for regions (Use Case 24).
+     *
+     * @param regionList The regions to print.
+     */
+    public void printRegionPopulationReport(List<PopulationMetrics> regionList) {
+        printStale(regionList);
 
         if (regionList == null || regionList.isEmpty()) {
             return;
         }
 
 
-        System.out.println("=================================================================================================================================================");
-        System.out.println("|                                  USE CASE: 24 Produce a Population Report for Regions                                                       |");
-        System.out.println("=================================================================================================================================================");
+        out().println("=================================================================================================================================================");
+        out().println("|                                  USE CASE: 24 Produce a Population Report for Regions                                                       |");
+        out().println("=================================================================================================================================================");
 
 
 
@@ -155,10 +221,10 @@ public class PopulationMetricsReportService {
 
         for (PopulationMetrics rp : regionList) {
             // Print the simple string format
-            System.out.println(rp.toString());
+            out().println(rp.toString());
         }
 
-        System.out.println("=================================================================================================================================================");
+        out().println("=================================================================================================================================================");
     }
     /**
      * Executes the query for Use Case 25.
@@ -209,23 +275,32 @@ public class PopulationMetricsReportService {
      * Prints the Country Population Report for Use Case 25.
      */
     public void printCountryPopulationReport() {
-        List<PopulationMetrics> countryPopulationList = getCountryPopulationReport();
+        printCountryPopulationReport(getCountryPopulationReport());
+    }
+
+    /**
+     * Prints a Country Population Report for Use Case 25.
+     *
+     * @param countryPopulationList The countries to print.
+     */
+    public void printCountryPopulationReport(List<PopulationMetrics> countryPopulationList) {
+        printStale(countryPopulationList);
 
         if (countryPopulationList == null || countryPopulationList.isEmpty()) {
             return;
         }
 
-        System.out.println("=================================================================================================================================================");
-        System.out.println("|                                               USE CASE 25: Produce a Population Report for Countries                                            |");
-        System.out.println("=================================================================================================================================================");
+        out().println("=================================================================================================================================================");
+        out().println("|                                               USE CASE 25: Produce a Population Report for Countries                                            |");
+        out().println("=================================================================================================================================================");
 
 
         for (PopulationMetrics populationMetrics : countryPopulationList) {
 
             // Prints the data in the simple string format defined.
-            System.out.println(populationMetrics.toString());
+            out().println(populationMetrics.toString());
         }
-        System.out.println("=================================================================================================================================================");
+        out().println("=================================================================================================================================================");
     }
 
     /**
@@ -264,29 +339,37 @@ public class PopulationMetricsReportService {
      * Use Case 26.
      */
     public void printWorldPopulationReport() {
-        long population = getWorldPopulationReport(); // Calls the method
+        printWorldPopulationReport(getWorldPopulationReport()); // Calls the method
+    }
+
+    /**
+     * Prints a total population of the world (Use Case 26).
+     *
+     * @param population The world population, or -1 if it could not be retrieved.
+     */
+    public void printWorldPopulationReport(long population) {
 
         // Define the separator line
         String separator = "=================================================================================================================================================";
 
         if (population == -1) {
-            System.out.println("Error: Could not retrieve world population.");
+            out().println("Error: Could not retrieve world population.");
             return;
         }
 
         // Header
-        System.out.println(separator);
-        System.out.println("|                                                         USE CASE 26: World Population Report                                                          |");
-        System.out.println(separator);
+        out().println(separator);
+        out().println("|                                                         USE CASE 26: World Population Report                                                          |");
+        out().println(separator);
 
         //Structured string format
-        System.out.println("World {\t" +
+        out().println("World {\t" +
                 "  name='The World',\t" +
                 "  totalPopulation=" + population + "\t" +
                 '}');
 
         // Footer
-        System.out.println(separator);
+        out().println(separator);
     }
 
 
@@ -343,31 +426,77 @@ public class PopulationMetricsReportService {
      * @param continentName The name of the continent to display.
      */
     public void printPopulationContinentReport(String continentName) {
+        printPopulationContinentReport(getPopulationContinentReport(continentName), continentName);
+    }
 
-        PopulationMetrics continent = getPopulationContinentReport(continentName);
+    /**
+     * Prints the Population of a Continent (Use Case 27).
+     *
+     * @param continent     The continent's metrics, or null if they could not be retrieved.
+     * @param continentName The name of the continent that was asked for.
+     */
+    public void printPopulationContinentReport(PopulationMetrics continent, String continentName) {
+        printStale(continent);
 
         // Define the separator line
         String separator = "=================================================================================================================================================";
 
         // Check if the object is null
         if (continent == null) {
-            System.out.println("Error: Could not retrieve population for continent: " + continentName);
+            out().println("Error: Could not retrieve population for continent: " + continentName);
             return;
         }
 
         // Header
-        System.out.println(separator);
+        out().println(separator);
         // Modified header line
-        System.out.println("|                                      USE CASE 27: Continent Total Population Report (" + continentName + ")                                     |");
-        System.out.println(separator);
+        out().println("|                                      USE CASE 27: Continent Total Population Report (" + continentName + ")                                     |");
+        out().println(separator);
 
         // Display ONLY the total population
-        System.out.println("Continent {\t" +
+        out().println("Continent {\t" +
                 "  name='" + continent.getNameOfArea() + "',\t" +
                 "  totalPopulation=" + continent.getTotalPopulation() + "\t" +
                 '}');
 
         // Footer
-        System.out.println(separator);
+        out().println(separator);
+    }
+
+    /**
+     * Produces use cases 23 to 29 together from one query. The country table and the city
+     * population of each country are read once, and the continent, region and country
+     * breakdowns, the world total and the three named reports are all accumulated from
+     * those rows, so a full report run takes one round trip instead of seven.
+     *
+     * @param continentName The continent of use case 27.
+     * @param regionName    The region of use case 28.
+     * @param countryName   The country of use case 29.
+     * @return The reports. If the query fails, the lists are empty, the world population is -1
+     * and the named reports are null, as if each separate query had failed.
+     */
+    public WorldReportPojo getWorldReport(String continentName, String regionName, String countryName) {
+        String sql = "SELECT A.Name, A.Continent, A.Region, A.Population, " +
+                "COALESCE(B.CityPopulation, 0) AS CityPopulation " +
+                "FROM country AS A LEFT JOIN (SELECT CountryCode, SUM(Population) AS CityPopulation FROM city GROUP BY CountryCode) AS B " +
+                "ON A.Code = B.CountryCode ORDER BY A.Code";
+
+        WorldReportAccumulator accumulator = new WorldReportAccumulator(continentName, regionName, countryName);
+
+        try (Statement stmt = connection.createStatement();
+             ResultSet resultSet = stmt.executeQuery(sql)) {
+
+            while (resultSet.next()) {
+                accumulator.add(resultSet.getString("Name"), resultSet.getString("Continent"),
+                        resultSet.getString("Region"), resultSet.getLong("Population"),
+                        resultSet.getLong("CityPopulation"));
+            }
+        } catch (SQLException e) {
+            out().println("Query failed: " + e.getMessage());
+            WorldReportPojo failed = new WorldReportPojo();
+            failed.setWorldPopulation(-1);
+            return failed;
+        }
+        return accumulator.build(err());
     }
-}
\ No newline at end of file
+}
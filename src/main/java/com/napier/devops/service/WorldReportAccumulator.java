@@ -0,0 +1,189 @@
+package com.napier.devops.service;
+
+import com.napier.devops.PopulationMetrics;
+import com.napier.pojo.PopulationReportPojo;
+import com.napier.pojo.WorldReportPojo;
+
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.Collator;
+import java.util.*;
+
+/**
+ * Builds the population reports of use cases 23 to 29 from one pass over the countries.
+ * <p>
+ * Each country is added once with its own population and the population of its cities.
+ * The continent and region totals, the world total and the three named reports are
+ * accumulated as the countries arrive, and every figure is derived the way the separate
+ * SQL reports derive it, so a {@link WorldReportPojo} matches what the seven queries return.
+ */
+public class WorldReportAccumulator {
+
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    private final String continentName;
+    private final String regionName;
+    private final String countryName;
+
+    // Totals and city totals by continent and region, in the order they were first seen
+    private final Map<String, long[]> continents = new LinkedHashMap<>();
+    private final Map<String, long[]> regions = new LinkedHashMap<>();
+    private final List<PopulationMetrics> countries = new ArrayList<>();
+    private long worldPopulation;
+
+    // The continent as named in the data, and the totals of the requested region and country
+    private String continentMatch;
+    private long regionTotal;
+    private long regionInCities;
+    private boolean countryFound;
+    private long countryTotal;
+    private long countryInCities;
+
+    /**
+     * @param continentName The continent of use case 27.
+     * @param regionName    The region of use case 28.
+     * @param countryName   The country of use case 29.
+     */
+    public WorldReportAccumulator(String continentName, String regionName, String countryName) {
+        this.continentName = continentName;
+        this.regionName = regionName;
+        this.countryName = countryName;
+    }
+
+    /**
+     * Adds a country. When several countries share the requested country name, the country
+     * report takes its total from the first one added, as the SQL takes the first row it reads.
+     *
+     * @param name           The country name.
+     * @param continent      The country's continent.
+     * @param region         The country's region.
+     * @param population     The country's population.
+     * @param cityPopulation The total population of the country's cities.
+     */
+    public void add(String name, String continent, String region, long population, long cityPopulation) {
+        worldPopulation += population;
+        addTo(continents, continent, population, cityPopulation);
+        addTo(regions, region, population, cityPopulation);
+        countries.add(metrics(name, PopulationMetrics.ReportType.COUNTRY, population, cityPopulation));
+
+        // Names are matched ignoring case, as the database collation does
+        if (continentMatch == null && continent.equalsIgnoreCase(continentName)) {
+            continentMatch = continent;
+        }
+        if (region.equalsIgnoreCase(regionName)) {
+            regionTotal += population;
+            regionInCities += cityPopulation;
+        }
+        if (name.equalsIgnoreCase(countryName)) {
+            if (!countryFound) {
+                countryFound = true;
+                countryTotal = population;
+            }
+            countryInCities += cityPopulation;
+        }
+    }
+
+    /**
+     * @param err Where to print an error for a missing region or country name.
+     * @return The reports of every country added so far.
+     */
+    public WorldReportPojo build(PrintStream err) {
+        WorldReportPojo report = new WorldReportPojo();
+        report.setContinents(groups(continents, PopulationMetrics.ReportType.CONTINENT));
+        report.setRegions(groups(regions, PopulationMetrics.ReportType.REGION));
+
+        // MySQL sorts names accent and case insensitively
+        Collator collator = Collator.getInstance(Locale.ROOT);
+        collator.setStrength(Collator.PRIMARY);
+        List<PopulationMetrics> byName = new ArrayList<>(countries);
+        byName.sort(Comparator.comparing(PopulationMetrics::getNameOfArea, collator));
+        report.setCountries(byName);
+
+        report.setWorldPopulation(worldPopulation);
+        report.setContinent(continentReport());
+
+        if (regionName == null || regionName.trim().isEmpty()) {
+            err.println("Error: Region name cannot be null or empty.");
+        } else {
+            report.setRegion(populationReport(regionName, regionTotal, regionInCities));
+        }
+        if (countryName == null || countryName.trim().isEmpty()) {
+            err.println("Error: Country name cannot be null or empty.");
+        } else {
+            report.setCountry(populationReport(countryName, countryTotal, countryInCities));
+        }
+        return report;
+    }
+
+    /**
+     * USE CASE 27, whose SQL does not round its percentages.
+     */
+    private PopulationMetrics continentReport() {
+        if (continentMatch == null) {
+            return null;
+        }
+        long[] totals = continents.get(continentMatch);
+        long total = totals[0];
+        long inCities = totals[1];
+        double cityPercent = total == 0 ? 0.0 : inCities * 100.0 / total;
+        double nonCityPercent = total == 0 ? 0.0 : (total - inCities) * 100.0 / total;
+        return new PopulationMetrics().setAll(continentMatch, PopulationMetrics.ReportType.CONTINENT,
+                total, inCities, total - inCities, cityPercent, nonCityPercent);
+    }
+
+    private static void addTo(Map<String, long[]> groups, String key, long population, long cityPopulation) {
+        long[] totals = groups.computeIfAbsent(key, k -> new long[2]);
+        totals[0] += population;
+        totals[1] += cityPopulation;
+    }
+
+    /**
+     * The groups as report rows, largest total population first.
+     */
+    private static List<PopulationMetrics> groups(Map<String, long[]> groups, PopulationMetrics.ReportType reportType) {
+        List<PopulationMetrics> rows = new ArrayList<>(groups.size());
+        groups.forEach((name, totals) -> rows.add(metrics(name, reportType, totals[0], totals[1])));
+        rows.sort(Comparator.comparingLong(PopulationMetrics::getTotalPopulation).reversed());
+        return rows;
+    }
+
+    /**
+     * Builds one row of the use case 23 to 25 reports, deriving the non-city figures the
+     * same way the SQL does.
+     */
+    public static PopulationMetrics metrics(String name, PopulationMetrics.ReportType reportType, long total, long inCities) {
+        return new PopulationMetrics().setAll(name, reportType, total, inCities, total - inCities,
+                percentage(inCities, total), percentage(total - inCities, total));
+    }
+
+    /**
+     * Matches {@code ROUND((part / total) * 100, 2)} in MySQL: the decimal division keeps four
+     * digits, rounded half up, and a division by zero gives NULL, which JDBC reads as 0.
+     */
+    public static double percentage(long part, long total) {
+        if (total == 0) {
+            return 0.0;
+        }
+        return BigDecimal.valueOf(part)
+                .divide(BigDecimal.valueOf(total), 4, RoundingMode.HALF_UP)
+                .multiply(HUNDRED)
+                .doubleValue();
+    }
+
+    /**
+     * Builds a use case 28 or 29 report the way the SQL versions derive their figures.
+     */
+    static PopulationReportPojo populationReport(String name, long total, long inCities) {
+        double cityPercentage = total > 0 ? ((inCities * 100.0) / total) : 0.0;
+
+        PopulationReportPojo report = new PopulationReportPojo();
+        report.setName(name);
+        report.setTotalPopulation(total);
+        report.setPopulationInCities(inCities);
+        report.setPopulationNotInCities(total - inCities);
+        report.setPercentageInCities(cityPercentage);
+        report.setPercentageNotInCities(100.0 - cityPercentage);
+        return report;
+    }
+}
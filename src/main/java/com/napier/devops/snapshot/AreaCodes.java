@@ -0,0 +1,82 @@
+package com.napier.devops.snapshot;
+
+import java.util.Arrays;
+
+/**
+ * A dense code space for the continents or regions of one snapshot.
+ * <p>
+ * The symbol table is shared with districts and languages, so its codes run into the
+ * thousands while a snapshot has a handful of continents and a few dozen regions. Each
+ * distinct area gets a code from 0 up, in order of first appearance, so arrays that
+ * group by area are sized by the areas in the snapshot rather than by the symbol table.
+ */
+final class AreaCodes {
+
+    private final int[] symbols;
+    private final int[] byCountry;
+
+    private AreaCodes(int[] symbols, int[] byCountry) {
+        this.symbols = symbols;
+        this.byCountry = byCountry;
+    }
+
+    /**
+     * @param keys  The symbol code of each country row's area.
+     * @param count The number of country rows.
+     */
+    static AreaCodes of(int[] keys, int count) {
+        int[] symbols = new int[8];
+        int size = 0;
+        int[] byCountry = new int[count];
+        for (int row = 0; row < count; row++) {
+            int area = indexOf(symbols, size, keys[row]);
+            if (area < 0) {
+                if (size == symbols.length) {
+                    symbols = Arrays.copyOf(symbols, size * 2);
+                }
+                symbols[size] = keys[row];
+                area = size++;
+            }
+            byCountry[row] = area;
+        }
+        return new AreaCodes(Arrays.copyOf(symbols, size), byCountry);
+    }
+
+    /**
+     * @return The number of distinct areas.
+     */
+    int size() {
+        return symbols.length;
+    }
+
+    /**
+     * @return The area code of a country row.
+     */
+    int of(int countryRow) {
+        return byCountry[countryRow];
+    }
+
+    /**
+     * @return The symbol code of an area.
+     */
+    int symbol(int area) {
+        return symbols[area];
+    }
+
+    /**
+     * @return The area with a symbol code, or -1 if no country is in it.
+     */
+    int find(int symbol) {
+        return indexOf(symbols, symbols.length, symbol);
+    }
+
+    // There are few enough areas that a scan beats hashing
+    private static int indexOf(int[] symbols, int size, int symbol) {
+        for (int area = 0; area < size; area++) {
+            if (symbols[area] == symbol) {
+                return area;
+            }
+        }
+        return -1;
+    }
+}
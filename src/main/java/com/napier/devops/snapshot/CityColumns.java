@@ -0,0 +1,177 @@
+package com.napier.devops.snapshot;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The city columns of a {@link WorldSnapshot}, held on the Java heap or outside it.
+ * <p>
+ * Every integer column is an {@link IntBuffer} indexed by row. On the heap the buffers wrap
+ * plain arrays and the names are interned strings. Off the heap the buffers are direct or
+ * mapped from a file, and the names are stored as UTF-8 bytes with an offset column, decoded
+ * when a row is read. Off-heap columns are invisible to the garbage collector, so the heap
+ * size and collection pauses do not grow with the number of cities; the JVM's direct memory
+ * limit, {@code -XX:MaxDirectMemorySize}, must leave room for the direct columns.
+ */
+final class CityColumns {
+
+    final int count;
+    final IntBuffer ids;
+    final IntBuffer countries;
+    final IntBuffer districts;
+    final IntBuffer populations;
+
+    // Heap names, or UTF-8 name bytes with the offset of each row's name and one past the last
+    private final String[] names;
+    private final ByteBuffer nameBytes;
+    private final IntBuffer nameOffsets;
+
+    private CityColumns(int count, IntBuffer ids, IntBuffer countries, IntBuffer districts, IntBuffer populations,
+                        String[] names, ByteBuffer nameBytes, IntBuffer nameOffsets) {
+        this.count = count;
+        this.ids = ids;
+        this.countries = countries;
+        this.districts = districts;
+        this.populations = populations;
+        this.names = names;
+        this.nameBytes = nameBytes;
+        this.nameOffsets = nameOffsets;
+    }
+
+    /**
+     * Wraps heap arrays of exactly {@code count} rows without copying them.
+     */
+    static CityColumns heap(int count, int[] ids, String[] names, int[] countries, int[] districts, int[] populations) {
+        return new CityColumns(count, IntBuffer.wrap(ids), IntBuffer.wrap(countries), IntBuffer.wrap(districts),
+                IntBuffer.wrap(populations), names, null, null);
+    }
+
+    /**
+     * @return A copy of these columns in direct memory.
+     * @throws IllegalArgumentException If the names take more than 2 GB.
+     */
+    CityColumns toDirect() {
+        try {
+            return copy(bytes -> ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder()));
+        } catch (IOException e) {
+            // Direct allocation does no I/O
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param file The file to hold the columns, which is created or replaced.
+     * @return A copy of these columns in memory mapped from the file, so the operating system
+     * can page them in and out like any other file.
+     * @throws IOException If the file cannot be written or mapped.
+     */
+    CityColumns toMapped(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long[] position = {0};
+            // A mapping stays valid after its channel is closed
+            return copy(bytes -> {
+                ByteBuffer region = channel.map(FileChannel.MapMode.READ_WRITE, position[0], bytes);
+                position[0] += bytes;
+                return region.order(ByteOrder.nativeOrder());
+            });
+        }
+    }
+
+    /**
+     * @return True if the columns are outside the Java heap.
+     */
+    boolean isOffHeap() {
+        return names == null;
+    }
+
+    int id(int row) {
+        return ids.get(row);
+    }
+
+    int country(int row) {
+        return countries.get(row);
+    }
+
+    int district(int row) {
+        return districts.get(row);
+    }
+
+    int population(int row) {
+        return populations.get(row);
+    }
+
+    String name(int row) {
+        if (names != null) {
+            return names[row];
+        }
+        int start = nameOffsets.get(row);
+        int end = nameOffsets.get(row + 1);
+        if (end == start) {
+            return null;
+        }
+        byte[] bytes = new byte[end - start - 1];
+        nameBytes.get(start + 1, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Copies the columns into buffers from an allocator, one buffer per column.
+     */
+    private CityColumns copy(Allocator allocator) throws IOException {
+        // Each name is a marker byte followed by its UTF-8 bytes; a null name takes no bytes
+        long totalBytes = 0;
+        for (int row = 0; row < count; row++) {
+            byte[] name = encodedName(row);
+            totalBytes += name == null ? 0 : name.length + 1;
+        }
+        if (totalBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("City names take more than 2 GB: " + totalBytes + " bytes");
+        }
+
+        IntBuffer newIds = copy(ids, allocator);
+        IntBuffer newCountries = copy(countries, allocator);
+        IntBuffer newDistricts = copy(districts, allocator);
+        IntBuffer newPopulations = copy(populations, allocator);
+
+        ByteBuffer newNameBytes = allocator.allocate((int) totalBytes);
+        IntBuffer newNameOffsets = allocator.allocate((count + 1) * Integer.BYTES).asIntBuffer();
+        int offset = 0;
+        for (int row = 0; row < count; row++) {
+            newNameOffsets.put(row, offset);
+            byte[] name = encodedName(row);
+            if (name != null) {
+                newNameBytes.put(offset, (byte) 1);
+                newNameBytes.put(offset + 1, name);
+                offset += name.length + 1;
+            }
+        }
+        newNameOffsets.put(count, offset);
+
+        return new CityColumns(count, newIds, newCountries, newDistricts, newPopulations, null,
+                newNameBytes, newNameOffsets);
+    }
+
+    private byte[] encodedName(int row) {
+        String name = name(row);
+        return name == null ? null : name.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private IntBuffer copy(IntBuffer column, Allocator allocator) throws IOException {
+        IntBuffer copy = allocator.allocate(count * Integer.BYTES).asIntBuffer();
+        copy.put(0, column, 0, count);
+        return copy;
+    }
+
+    @FunctionalInterface
+    private interface Allocator {
+        ByteBuffer allocate(int bytes) throws IOException;
+    }
+}
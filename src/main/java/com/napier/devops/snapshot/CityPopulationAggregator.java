@@ -0,0 +1,104 @@
+package com.napier.devops.snapshot;
+
+import java.nio.IntBuffer;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork/join version of {@code SELECT CountryCode, SUM(Population) FROM city GROUP BY CountryCode}
+ * over the city columns of a {@link WorldSnapshot}.
+ * <p>
+ * The city rows are split into chunks, each chunk builds its own partial sums indexed by
+ * country row, and the partial arrays are added together as the tasks join. The partial
+ * arrays are only as long as the country table, so merging is cheap however many cities there are.
+ */
+public class CityPopulationAggregator {
+
+    /**
+     * Rows summed by one task before it stops splitting.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    public CityPopulationAggregator() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param pool      The pool the tasks run in.
+     * @param chunkSize Rows summed by one task before it stops splitting.
+     */
+    public CityPopulationAggregator(ForkJoinPool pool, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be greater than 0");
+        }
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Sums the population of the cities in each country.
+     *
+     * @param snapshot The snapshot to aggregate.
+     * @return The city population of each country, indexed by country row.
+     */
+    public long[] sumByCountry(WorldSnapshot snapshot) {
+        SumTask task = new SumTask(snapshot.cities.countries, snapshot.cities.populations,
+                snapshot.countryCount, 0, snapshot.cityCount, chunkSize);
+
+        // Small tables are not worth handing to the pool
+        if (snapshot.cityCount <= chunkSize) {
+            return task.compute();
+        }
+        return pool.invoke(task);
+    }
+
+    private static class SumTask extends RecursiveTask<long[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final IntBuffer countries;
+        private final IntBuffer populations;
+        private final int countryCount;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+
+        SumTask(IntBuffer countries, IntBuffer populations, int countryCount, int from, int to, int chunkSize) {
+            this.countries = countries;
+            this.populations = populations;
+            this.countryCount = countryCount;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from <= chunkSize) {
+                long[] sums = new long[countryCount];
+                for (int row = from; row < to; row++) {
+                    int country = countries.get(row);
+                    if (country >= 0) {
+                        sums[country] += populations.get(row);
+                    }
+                }
+                return sums;
+            }
+
+            int middle = (from + to) >>> 1;
+            SumTask left = new SumTask(countries, populations, countryCount, from, middle, chunkSize);
+            SumTask right = new SumTask(countries, populations, countryCount, middle, to, chunkSize);
+            left.fork();
+            long[] sums = right.compute();
+            long[] leftSums = left.join();
+
+            for (int country = 0; country < countryCount; country++) {
+                sums[country] += leftSums[country];
+            }
+            return sums;
+        }
+    }
+}
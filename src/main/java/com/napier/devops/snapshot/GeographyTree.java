@@ -0,0 +1,249 @@
+package com.napier.devops.snapshot;
+
+import java.util.*;
+
+/**
+ * The World → Continent → Region → Country → District → City hierarchy of a
+ * {@link WorldSnapshot}, with every node's population totals computed once when the tree
+ * is built, so each "population of X" report is a name lookup instead of a scan.
+ * <p>
+ * World, continent, region and country nodes carry the country table's population; district
+ * and city nodes carry the city table's. Every node also carries the population living in
+ * its cities and how many countries and cities it holds. Names are looked up ignoring case,
+ * as the database collation does, and a name may match several nodes on one level, such as
+ * a district name used in two countries. Cities whose country is not in the snapshot are
+ * found by district and city name but sit outside the hierarchy, as they belong to no country.
+ */
+public class GeographyTree {
+
+    /**
+     * The levels of the hierarchy, from the top.
+     */
+    public enum Level {
+        WORLD, CONTINENT, REGION, COUNTRY, DISTRICT, CITY
+    }
+
+    /**
+     * One area of the hierarchy. Nodes do not change once the tree is built.
+     */
+    public static final class Node {
+        private final Level level;
+        private final String name;
+        private final Node parent;
+        private final List<Node> children = new ArrayList<>();
+        private final int id;
+        private long population;
+        private long cityPopulation;
+        private int countryCount;
+        private int cityCount;
+
+        private Node(Level level, String name, Node parent, int id) {
+            this.level = level;
+            this.name = name;
+            this.parent = parent;
+            this.id = id;
+            if (parent != null) {
+                parent.children.add(this);
+            }
+        }
+
+        public Level getLevel() {
+            return level;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return The area this one is part of, or null for the world and for districts outside the hierarchy.
+         */
+        public Node getParent() {
+            return parent;
+        }
+
+        /**
+         * @return The areas directly below this one, in the order they first appear in the snapshot.
+         */
+        public List<Node> getChildren() {
+            return Collections.unmodifiableList(children);
+        }
+
+        /**
+         * @return The city ID of a city node, or 0 for any other level.
+         */
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * @return The total population of the area.
+         */
+        public long getPopulation() {
+            return population;
+        }
+
+        /**
+         * @return The population living in the area's cities.
+         */
+        public long getCityPopulation() {
+            return cityPopulation;
+        }
+
+        /**
+         * @return The number of countries in the area; 1 for a country and 0 below it.
+         */
+        public int getCountryCount() {
+            return countryCount;
+        }
+
+        /**
+         * @return The number of cities in the area; 1 for a city.
+         */
+        public int getCityCount() {
+            return cityCount;
+        }
+
+        @Override
+        public String toString() {
+            return level + " " + name + " { population=" + population + ", cityPopulation=" + cityPopulation
+                    + ", countries=" + countryCount + ", cities=" + cityCount + ", children=" + children.size() + " }";
+        }
+    }
+
+    private final Node world;
+    private final Map<Level, Map<String, List<Node>>> byName = new EnumMap<>(Level.class);
+
+    // The node of each country and city row
+    private final Node[] countryNodes;
+    private final Node[] cityNodes;
+
+    private GeographyTree(Node world, int countryCount, int cityCount) {
+        this.world = world;
+        this.countryNodes = new Node[countryCount];
+        this.cityNodes = new Node[cityCount];
+    }
+
+    /**
+     * Builds the tree in one pass over the country rows and one over the city rows. The
+     * world totals are summed by the {@link PopulationKernel} instead.
+     *
+     * @param snapshot The snapshot to build from.
+     * @return The tree.
+     */
+    public static GeographyTree of(WorldSnapshot snapshot) {
+        GeographyTree tree = new GeographyTree(new Node(Level.WORLD, "World", null, 0),
+                snapshot.countryCount, snapshot.cityCount);
+        Map<Integer, Node> continents = new HashMap<>();
+        Map<Long, Node> regions = new HashMap<>();
+        Map<Long, Node> districts = new HashMap<>();
+        Node[] countries = tree.countryNodes;
+
+        for (int row = 0; row < snapshot.countryCount; row++) {
+            int continentCode = snapshot.countryContinents[row];
+            int regionCode = snapshot.countryRegions[row];
+            Node continent = continents.computeIfAbsent(continentCode,
+                    code -> tree.add(Level.CONTINENT, snapshot.symbols.symbol(code), tree.world, 0));
+            Node region = regions.computeIfAbsent(key(continentCode, regionCode),
+                    key -> tree.add(Level.REGION, snapshot.symbols.symbol(regionCode), continent, 0));
+            Node country = tree.add(Level.COUNTRY, snapshot.countryNames[row], region, 0);
+            countries[row] = country;
+
+            for (Node area = country; area != tree.world; area = area.parent) {
+                area.population += snapshot.countryPopulations[row];
+                area.countryCount++;
+            }
+        }
+
+        for (int row = 0; row < snapshot.cityCount; row++) {
+            int countryRow = snapshot.getCityCountry(row);
+            int districtCode = snapshot.getCityDistrict(row);
+            Node district = districts.computeIfAbsent(key(countryRow, districtCode),
+                    key -> tree.add(Level.DISTRICT, snapshot.symbols.symbol(districtCode),
+                            countryRow < 0 ? null : countries[countryRow], 0));
+            Node city = tree.add(Level.CITY, snapshot.getCityName(row), district, snapshot.getCityId(row));
+            tree.cityNodes[row] = city;
+
+            int population = snapshot.getCityPopulation(row);
+            city.population = population;
+            district.population += population;
+            for (Node area = city; area != null && area != tree.world; area = area.parent) {
+                area.cityPopulation += population;
+                area.cityCount++;
+            }
+        }
+
+        // The world covers every row, so its totals are whole-column scans
+        PopulationKernel kernel = PopulationKernel.get();
+        tree.world.population = kernel.sum(snapshot.countryPopulations);
+        tree.world.countryCount = snapshot.countryCount;
+        tree.world.cityPopulation = kernel.sum(snapshot.cities.populations)
+                - kernel.sumWhereEqual(snapshot.cities.populations, snapshot.cities.countries, -1);
+        tree.world.cityCount = snapshot.cityCount - kernel.countWhereEqual(snapshot.cities.countries, -1);
+
+        // The city report reads the largest city of a name, ties going to the higher ID like the paged report
+        for (List<Node> cities : tree.byName.getOrDefault(Level.CITY, Map.of()).values()) {
+            cities.sort(Comparator.comparingLong(Node::getPopulation).thenComparingInt(Node::getId).reversed());
+        }
+        return tree;
+    }
+
+    private Node add(Level level, String name, Node parent, int id) {
+        Node node = new Node(level, name, parent, id);
+        if (name != null) {
+            byName.computeIfAbsent(level, l -> new HashMap<>())
+                    .computeIfAbsent(name.toLowerCase(Locale.ROOT), n -> new ArrayList<>(1))
+                    .add(node);
+        }
+        return node;
+    }
+
+    private static long key(int high, int low) {
+        return ((long) high << 32) | (low & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return The root of the tree.
+     */
+    public Node getWorld() {
+        return world;
+    }
+
+    /**
+     * @param level The level to look on.
+     * @param name  The name, in any case.
+     * @return The nodes on the level with the name: countries in snapshot order, cities largest
+     * first, and empty if there are none.
+     */
+    public List<Node> find(Level level, String name) {
+        if (name == null) {
+            return List.of();
+        }
+        List<Node> nodes = byName.getOrDefault(level, Map.of()).get(name.toLowerCase(Locale.ROOT));
+        return nodes == null ? List.of() : Collections.unmodifiableList(nodes);
+    }
+
+    /**
+     * @param level The level to look on.
+     * @param name  The name, in any case.
+     * @return The first node {@link #find} returns, or null if there is none.
+     */
+    public Node get(Level level, String name) {
+        List<Node> nodes = find(level, name);
+        return nodes.isEmpty() ? null : nodes.get(0);
+    }
+
+    /**
+     * @return The node of a country row.
+     */
+    Node countryNode(int row) {
+        return countryNodes[row];
+    }
+
+    /**
+     * @return The node of a city row.
+     */
+    Node cityNode(int row) {
+        return cityNodes[row];
+    }
+}
@@ -0,0 +1,250 @@
+package com.napier.devops.snapshot;
+
+import com.napier.devops.PopulationMetrics;
+import com.napier.devops.service.WorldReportAccumulator;
+
+import java.util.*;
+
+/**
+ * Running population totals per country that follow changes to the city table without
+ * re-aggregating it.
+ * <p>
+ * Each country keeps two totals: its population and the population of its cities.
+ * Inserting, deleting or resizing a city applies the change in population to its country,
+ * so every change costs the same however many cities there are. Regions, continents and
+ * the world are summed from the country totals when read, by the same code as
+ * {@link SnapshotPopulationMetricsReportService}, and the non-city population and the
+ * percentages are derived the same way the reports derive them.
+ * <p>
+ * The snapshot's cities are kept as primitive columns sorted by ID and found by binary
+ * search; only cities inserted with a new ID take a map entry.
+ * <p>
+ * All methods are synchronized, so changes and reads can come from different threads.
+ */
+public class LivePopulationMetrics {
+
+    private final WorldSnapshot snapshot;
+
+    // Totals by country row
+    private final long[] countryTotals;
+    private final long[] countryInCities;
+
+    // The snapshot's cities by ascending ID, with the country row and current population of each
+    private final int[] cityIds;
+    private final int[] cityCountries;
+    private final int[] cityPopulations;
+    private final BitSet deleted = new BitSet();
+
+    // The country row and population of each city inserted with an ID the snapshot does not have
+    private final Map<Integer, int[]> inserted = new HashMap<>();
+
+    /**
+     * Starts from the countries and cities of a snapshot. The countries are fixed after
+     * this; cities come and go through the update methods.
+     *
+     * @param snapshot The snapshot to take the starting totals from.
+     */
+    public LivePopulationMetrics(WorldSnapshot snapshot) {
+        this.snapshot = snapshot;
+        this.countryTotals = new long[snapshot.countryCount];
+        this.countryInCities = new long[snapshot.countryCount];
+
+        for (int row = 0; row < snapshot.countryCount; row++) {
+            countryTotals[row] = snapshot.countryPopulations[row];
+        }
+
+        // Pack each ID with its row so one primitive sort orders both
+        long[] idRows = new long[snapshot.cityCount];
+        for (int row = 0; row < snapshot.cityCount; row++) {
+            idRows[row] = (long) snapshot.getCityId(row) << 32 | row;
+        }
+        Arrays.sort(idRows);
+
+        this.cityIds = new int[idRows.length];
+        this.cityCountries = new int[idRows.length];
+        this.cityPopulations = new int[idRows.length];
+        for (int i = 0; i < idRows.length; i++) {
+            int row = (int) idRows[i];
+            cityIds[i] = (int) (idRows[i] >> 32);
+            cityCountries[i] = snapshot.getCityCountry(row);
+            cityPopulations[i] = snapshot.getCityPopulation(row);
+            addCityPopulation(cityCountries[i], cityPopulations[i]);
+        }
+    }
+
+    /**
+     * Adds a city.
+     *
+     * @param id          The city ID.
+     * @param countryCode The code of the city's country, which must be in the snapshot.
+     * @param population  The city's population.
+     * @throws IllegalArgumentException If the ID is taken or the country is unknown.
+     */
+    public synchronized void insertCity(int id, String countryCode, int population) {
+        int country = snapshot.findCountryRow(countryCode);
+        if (country < 0) {
+            throw new IllegalArgumentException("Unknown country code: " + countryCode);
+        }
+        int index = Arrays.binarySearch(cityIds, id);
+        if ((index >= 0 && !deleted.get(index)) || inserted.containsKey(id)) {
+            throw new IllegalArgumentException("City " + id + " already exists");
+        }
+
+        if (index >= 0) {
+            cityCountries[index] = country;
+            cityPopulations[index] = population;
+            deleted.clear(index);
+        } else {
+            inserted.put(id, new int[]{country, population});
+        }
+        addCityPopulation(country, population);
+    }
+
+    /**
+     * Removes a city.
+     *
+     * @param id The city ID.
+     * @return False if there is no such city.
+     */
+    public synchronized boolean deleteCity(int id) {
+        int index = find(id);
+        if (index >= 0) {
+            addCityPopulation(cityCountries[index], -cityPopulations[index]);
+            deleted.set(index);
+            return true;
+        }
+
+        int[] city = inserted.remove(id);
+        if (city == null) {
+            return false;
+        }
+
+        addCityPopulation(city[0], -city[1]);
+        return true;
+    }
+
+    /**
+     * Changes the population of a city.
+     *
+     * @param id         The city ID.
+     * @param population The city's new population.
+     * @return False if there is no such city.
+     */
+    public synchronized boolean updateCityPopulation(int id, int population) {
+        int index = find(id);
+        if (index >= 0) {
+            addCityPopulation(cityCountries[index], (long) population - cityPopulations[index]);
+            cityPopulations[index] = population;
+            return true;
+        }
+
+        int[] city = inserted.get(id);
+        if (city == null) {
+            return false;
+        }
+
+        addCityPopulation(city[0], (long) population - city[1]);
+        city[1] = population;
+        return true;
+    }
+
+    /**
+     * Changes the total population of a country.
+     *
+     * @param countryCode The country code.
+     * @param population  The country's new population.
+     * @return False if there is no such country.
+     */
+    public synchronized boolean updateCountryPopulation(String countryCode, long population) {
+        int country = snapshot.findCountryRow(countryCode);
+        if (country < 0) {
+            return false;
+        }
+
+        countryTotals[country] = population;
+        return true;
+    }
+
+    /**
+     * @return The metrics of a country, or null if the country is unknown.
+     */
+    public synchronized PopulationMetrics getCountry(String countryCode) {
+        int country = snapshot.findCountryRow(countryCode);
+        return country < 0 ? null : SnapshotPopulationMetricsReportService.metrics(snapshot.countryNames[country],
+                PopulationMetrics.ReportType.COUNTRY, countryTotals[country], countryInCities[country]);
+    }
+
+    /**
+     * @return The metrics of a region, or null if no country is in the region.
+     */
+    public synchronized PopulationMetrics getRegion(String region) {
+        return SnapshotPopulationMetricsReportService.group(snapshot, snapshot.regions, region,
+                PopulationMetrics.ReportType.REGION, countryTotals, countryInCities);
+    }
+
+    /**
+     * @return The metrics of a continent, or null if no country is in the continent.
+     */
+    public synchronized PopulationMetrics getContinent(String continent) {
+        return SnapshotPopulationMetricsReportService.group(snapshot, snapshot.continents, continent,
+                PopulationMetrics.ReportType.CONTINENT, countryTotals, countryInCities);
+    }
+
+    /**
+     * @return Every continent, largest population first.
+     */
+    public synchronized List<PopulationMetrics> getContinents() {
+        return SnapshotPopulationMetricsReportService.groupBy(snapshot, snapshot.continents,
+                PopulationMetrics.ReportType.CONTINENT, countryTotals, countryInCities);
+    }
+
+    /**
+     * @return Every region, largest population first.
+     */
+    public synchronized List<PopulationMetrics> getRegions() {
+        return SnapshotPopulationMetricsReportService.groupBy(snapshot, snapshot.regions,
+                PopulationMetrics.ReportType.REGION, countryTotals, countryInCities);
+    }
+
+    /**
+     * @return Every country, ordered by name like the SQL report.
+     */
+    public synchronized List<PopulationMetrics> getCountries() {
+        return SnapshotPopulationMetricsReportService.byCountry(snapshot, countryTotals, countryInCities);
+    }
+
+    /**
+     * @return The population of the world.
+     */
+    public synchronized long getWorldPopulation() {
+        long world = 0;
+        for (long total : countryTotals) {
+            world += total;
+        }
+        return world;
+    }
+
+    /**
+     * Adds every country's current totals to a world report.
+     *
+     * @param accumulator The report to add the countries to.
+     */
+    public synchronized void addCountriesTo(WorldReportAccumulator accumulator) {
+        SnapshotPopulationMetricsReportService.addCountries(snapshot, accumulator, countryTotals, countryInCities);
+    }
+
+    private void addCityPopulation(int country, long delta) {
+        // Cities whose country is missing count towards no country, as in the SQL join
+        if (country >= 0) {
+            countryInCities[country] += delta;
+        }
+    }
+
+    /**
+     * @return The index of a snapshot city that has not been deleted, or -1.
+     */
+    private int find(int id) {
+        int index = Arrays.binarySearch(cityIds, id);
+        return index >= 0 && !deleted.get(index) ? index : -1;
+    }
+}
@@ -0,0 +1,134 @@
+package com.napier.devops.snapshot;
+
+import java.nio.IntBuffer;
+
+/**
+ * The filtered sums and counts behind the population totals of the in-memory reports.
+ * <p>
+ * The scalar kernel is always available. The vector kernel uses the incubating
+ * {@code jdk.incubator.vector} module, so it is only built with the {@code vector} Maven
+ * profile, and only used when the JVM is started with
+ * {@code --add-modules jdk.incubator.vector} and it has been enabled; otherwise the scalar
+ * kernel is used and the vector classes are never loaded. Both return exactly the same results.
+ */
+public interface PopulationKernel {
+
+    /**
+     * @param values A column.
+     * @return The sum of every value.
+     */
+    long sum(int[] values);
+
+    /**
+     * @param values A column.
+     * @param keys   A column of the same length, such as symbol codes or country rows.
+     * @param key    The key to match.
+     * @return The sum of the values in the rows whose key matches.
+     */
+    long sumWhereEqual(int[] values, int[] keys, int key);
+
+    /**
+     * @param keys A column.
+     * @param key  The key to match.
+     * @return The number of rows whose key matches.
+     */
+    int countWhereEqual(int[] keys, int key);
+
+    /**
+     * {@link #sum(int[])} over a column that may be off the heap. Heap columns use the
+     * array method; off-heap columns are read with a plain loop.
+     */
+    default long sum(IntBuffer values) {
+        if (isArray(values)) {
+            return sum(values.array());
+        }
+        long sum = 0;
+        for (int row = 0; row < values.limit(); row++) {
+            sum += values.get(row);
+        }
+        return sum;
+    }
+
+    /**
+     * {@link #sumWhereEqual(int[], int[], int)} over columns that may be off the heap.
+     */
+    default long sumWhereEqual(IntBuffer values, IntBuffer keys, int key) {
+        if (isArray(values) && isArray(keys)) {
+            return sumWhereEqual(values.array(), keys.array(), key);
+        }
+        if (keys.limit() != values.limit()) {
+            throw new IllegalArgumentException("Columns differ in length");
+        }
+        long sum = 0;
+        for (int row = 0; row < values.limit(); row++) {
+            if (keys.get(row) == key) {
+                sum += values.get(row);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * {@link #countWhereEqual(int[], int)} over a column that may be off the heap.
+     */
+    default int countWhereEqual(IntBuffer keys, int key) {
+        if (isArray(keys)) {
+            return countWhereEqual(keys.array(), key);
+        }
+        int count = 0;
+        for (int row = 0; row < keys.limit(); row++) {
+            if (keys.get(row) == key) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return True if the buffer is exactly a whole heap array.
+     */
+    private static boolean isArray(IntBuffer column) {
+        return column.hasArray() && column.arrayOffset() == 0 && column.limit() == column.array().length;
+    }
+
+    /**
+     * @return The kernel the snapshot services use.
+     */
+    static PopulationKernel get() {
+        return PopulationKernels.current;
+    }
+
+    /**
+     * @return The plain loop kernel.
+     */
+    static PopulationKernel scalar() {
+        return PopulationKernels.SCALAR;
+    }
+
+    /**
+     * @return The vector kernel, or null if the vector module is not available.
+     */
+    static PopulationKernel vector() {
+        return PopulationKernels.VECTOR;
+    }
+
+    /**
+     * Makes the snapshot services use the vector kernel, if it is available.
+     *
+     * @return False if the vector module is not available, leaving the scalar kernel in use.
+     */
+    static boolean enableVector() {
+        if (PopulationKernels.VECTOR == null) {
+            return false;
+        }
+        PopulationKernels.current = PopulationKernels.VECTOR;
+        return true;
+    }
+
+    /**
+     * Makes the snapshot services use the scalar kernel.
+     */
+    static void disableVector() {
+        PopulationKernels.current = PopulationKernels.SCALAR;
+    }
+}
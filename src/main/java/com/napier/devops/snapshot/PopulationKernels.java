@@ -0,0 +1,27 @@
+package com.napier.devops.snapshot;
+
+/**
+ * Holds the {@link PopulationKernel}s, so the vector one is only looked up when a kernel is first used.
+ */
+final class PopulationKernels {
+
+    static final PopulationKernel SCALAR = new ScalarPopulationKernel();
+    static final PopulationKernel VECTOR = loadVector();
+    static volatile PopulationKernel current = SCALAR;
+
+    private PopulationKernels() {
+    }
+
+    private static PopulationKernel loadVector() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            // Loaded by name so the scalar path never links against the vector module
+            return (PopulationKernel) Class.forName("com.napier.devops.snapshot.VectorPopulationKernel")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.napier.devops.snapshot;
+
+import java.util.AbstractList;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.IntFunction;
+
+/**
+ * A read-only list of immutable records read from snapshot rows, optionally reordered by an
+ * array of row numbers.
+ * <p>
+ * Nothing is copied or kept per row: each {@link #get} builds the record for its row from the
+ * snapshot's columns, and {@link #subList} returns another view over the same rows. The rows
+ * array may not change after the view is made, which holds for the arrays a
+ * {@link WorldSnapshot}'s report services build once, so views can be cached and shared
+ * across threads as they are. Records read twice are equal but not the same instance.
+ *
+ * @param <T> The record type.
+ */
+public final class RecordListView<T> extends AbstractList<T> implements RandomAccess {
+
+    private final IntFunction<T> records;
+    private final int[] rows;
+    private final int from;
+    private final int size;
+
+    private RecordListView(IntFunction<T> records, int[] rows, int from, int size) {
+        this.records = records;
+        this.rows = rows;
+        this.from = from;
+        this.size = size;
+    }
+
+    /**
+     * @param records Builds the record of a row.
+     * @param size    The number of rows, listed in row order.
+     * @return A view of every row.
+     */
+    public static <T> RecordListView<T> of(IntFunction<T> records, int size) {
+        return new RecordListView<>(Objects.requireNonNull(records), null, 0, size);
+    }
+
+    /**
+     * @param records Builds the record of a row.
+     * @param rows    The rows to list, in list order.
+     * @return A view of the records at the rows.
+     */
+    public static <T> RecordListView<T> of(IntFunction<T> records, int[] rows) {
+        return new RecordListView<>(Objects.requireNonNull(records), Objects.requireNonNull(rows), 0, rows.length);
+    }
+
+    @Override
+    public T get(int index) {
+        Objects.checkIndex(index, size);
+        return records.apply(rows == null ? from + index : rows[from + index]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a view of part of this list, without copying.
+     */
+    @Override
+    public RecordListView<T> subList(int fromIndex, int toIndex) {
+        Objects.checkFromToIndex(fromIndex, toIndex, size);
+        return new RecordListView<>(records, rows, from + fromIndex, toIndex - fromIndex);
+    }
+
+    /**
+     * @param n The most records to keep.
+     * @return A view of the first n records, or of the whole list if it is shorter.
+     */
+    public RecordListView<T> first(int n) {
+        return subList(0, Math.max(0, Math.min(n, size)));
+    }
+}
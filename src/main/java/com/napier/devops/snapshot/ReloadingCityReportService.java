@@ -0,0 +1,55 @@
+package com.napier.devops.snapshot;
+
+import com.napier.devops.City;
+import com.napier.devops.service.CityIndexes;
+import com.napier.devops.service.CityReportService;
+
+import java.sql.Connection;
+import java.util.function.Consumer;
+
+/**
+ * City reports that query the database, with the capital, city name, population and
+ * country indexes of whichever snapshot a {@link SnapshotReloader} holds. The streamed
+ * reports of use cases 7 to 9 walk the current snapshot instead of opening a cursor.
+ * <p>
+ * Each report reads the indexes of the current version once, so a reload swapped in
+ * halfway through a report does not mix indexes of two snapshots, and the indexes change
+ * in the same write that swaps in the snapshot they were built from. Indexes set on this
+ * service are ignored.
+ */
+public class ReloadingCityReportService extends CityReportService {
+
+    private final SnapshotReloader reloader;
+
+    /**
+     * @param connection The connection the reports without an index query.
+     * @param reloader   Holds the current snapshot; it must have loaded one.
+     */
+    public ReloadingCityReportService(Connection connection, SnapshotReloader reloader) {
+        super(connection);
+        this.reloader = reloader;
+    }
+
+    /**
+     * @return The indexes of the current version.
+     */
+    @Override
+    public CityIndexes getIndexes() {
+        return reloader.current().getIndexes();
+    }
+
+    @Override
+    public long forEachCityByPopulation(Consumer<City> consumer) {
+        return reloader.current().getCities().forEachCityByPopulation(consumer);
+    }
+
+    @Override
+    public long forEachCityInContinentByPopulation(String continent, Consumer<City> consumer) {
+        return reloader.current().getCities().forEachCityInContinentByPopulation(continent, consumer);
+    }
+
+    @Override
+    public long forEachCityInRegionByPopulation(String region, Consumer<City> consumer) {
+        return reloader.current().getCities().forEachCityInRegionByPopulation(region, consumer);
+    }
+}
@@ -0,0 +1,61 @@
+package com.napier.devops.snapshot;
+
+import com.napier.devops.PopulationMetrics;
+import com.napier.devops.service.PopulationMetricsReportService;
+import com.napier.pojo.WorldReportPojo;
+
+import java.util.List;
+
+/**
+ * Population metrics served from whichever snapshot a {@link SnapshotReloader} holds.
+ * <p>
+ * Every report method reads the current version once and runs entirely on it, so a reload
+ * swapped in halfway through a report does not mix two snapshots. The print methods are
+ * inherited and call these methods.
+ */
+public class ReloadingPopulationMetricsReportService extends PopulationMetricsReportService {
+
+    private final SnapshotReloader reloader;
+
+    /**
+     * @param reloader Holds the current snapshot; it must have loaded one.
+     */
+    public ReloadingPopulationMetricsReportService(SnapshotReloader reloader) {
+        super(null);
+        this.reloader = reloader;
+    }
+
+    @Override
+    public List<PopulationMetrics> getContinentPopulationReport() {
+        return metrics().getContinentPopulationReport();
+    }
+
+    @Override
+    public List<PopulationMetrics> getRegionPopulationReport() {
+        return metrics().getRegionPopulationReport();
+    }
+
+    @Override
+    public List<PopulationMetrics> getCountryPopulationReport() {
+        return metrics().getCountryPopulationReport();
+    }
+
+    @Override
+    public long getWorldPopulationReport() {
+        return metrics().getWorldPopulationReport();
+    }
+
+    @Override
+    public PopulationMetrics getPopulationContinentReport(String continentName) {
+        return metrics().getPopulationContinentReport(continentName);
+    }
+
+    @Override
+    public WorldReportPojo getWorldReport(String continentName, String regionName, String countryName) {
+        return metrics().getWorldReport(continentName, regionName, countryName);
+    }
+
+    private SnapshotPopulationMetricsReportService metrics() {
+        return reloader.current().getMetrics();
+    }
+}
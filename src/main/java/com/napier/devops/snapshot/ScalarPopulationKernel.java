@@ -0,0 +1,41 @@
+package com.napier.devops.snapshot;
+
+/**
+ * {@link PopulationKernel} as plain loops, which the JIT may still unroll or auto-vectorise.
+ */
+final class ScalarPopulationKernel implements PopulationKernel {
+
+    @Override
+    public long sum(int[] values) {
+        long sum = 0;
+        for (int value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    @Override
+    public long sumWhereEqual(int[] values, int[] keys, int key) {
+        if (keys.length != values.length) {
+            throw new IllegalArgumentException("Columns differ in length");
+        }
+        long sum = 0;
+        for (int row = 0; row < values.length; row++) {
+            if (keys[row] == key) {
+                sum += values[row];
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    public int countWhereEqual(int[] keys, int key) {
+        int count = 0;
+        for (int value : keys) {
+            if (value == key) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,418 @@
+package com.napier.devops.snapshot;
+
+import com.napier.devops.City;
+import com.napier.devops.CityRecord;
+import com.napier.devops.service.CapitalIndex;
+import com.napier.devops.service.CityIndexes;
+import com.napier.devops.service.CityNameIndex;
+import com.napier.devops.service.CityReportService;
+import com.napier.devops.service.CountryTable;
+import com.napier.devops.service.PopulationIndex;
+import com.napier.pojo.Page;
+import com.napier.pojo.PageToken;
+import com.napier.pojo.PopulationReportPojo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+
+/**
+ * City reports served from a {@link WorldSnapshot} instead of MySQL.
+ * <p>
+ * The city rows are sorted by population once, largest first with ties by descending ID
+ * like the paged report, and every list report walks that order with a filter. Names are
+ * matched ignoring case, as the database collation does. The capital reports, name search
+ * and population range reports use a {@link CapitalIndex}, {@link CityNameIndex} and
+ * {@link PopulationIndex} built from the same snapshot, the reports with each city's country
+ * use a {@link CountryTable} of it, and the print methods are inherited unchanged.
+ * <p>
+ * The {@code getCityRecords} methods return the same rows as immutable {@link CityRecord}s in
+ * a {@link RecordListView}, which reads each record from the snapshot's columns through the
+ * population order when it is asked for, so the result can be cached and shared as it is and
+ * holds no record per city.
+ */
+public class SnapshotCityReportService extends CityReportService {
+
+    private final WorldSnapshot snapshot;
+
+    /**
+     * City rows, largest population first.
+     */
+    private final int[] byPopulation;
+
+    /**
+     * Every city as a record, largest population first.
+     */
+    private final RecordListView<CityRecord> recordsByPopulation;
+
+    public SnapshotCityReportService(WorldSnapshot snapshot) {
+        this(snapshot, CityIndexes.of(snapshot));
+    }
+
+    /**
+     * @param snapshot The snapshot to serve.
+     * @param indexes  Indexes already built from the same snapshot.
+     */
+    public SnapshotCityReportService(WorldSnapshot snapshot, CityIndexes indexes) {
+        super(null);
+        this.snapshot = snapshot;
+        this.byPopulation = sortByPopulation(snapshot);
+        setIndexes(indexes);
+        this.recordsByPopulation = RecordListView.of(snapshot::toCityRecord, byPopulation);
+    }
+
+    /**
+     * USE CASE 7 as a shared read-only view.
+     *
+     * @return Every city, largest population first.
+     */
+    public RecordListView<CityRecord> getCityRecordsByPopulation() {
+        return recordsByPopulation;
+    }
+
+    /**
+     * USE CASE 12 as a shared read-only view.
+     *
+     * @param n The number of cities.
+     * @return The n most populated cities, or an empty view if n is not positive.
+     */
+    public RecordListView<CityRecord> getTopNCityRecordsByPopulation(int n) {
+        return recordsByPopulation.first(n);
+    }
+
+    /**
+     * USE CASE 8 as a read-only view. Only the row numbers of the matching cities are collected.
+     *
+     * @param continent The continent.
+     * @return The cities in the continent, largest population first.
+     */
+    public RecordListView<CityRecord> getCityRecordsInContinent(String continent) {
+        if (continent == null) {
+            return recordsByPopulation.first(0);
+        }
+        IntPredicate filter = inContinent(continent);
+        int[] rows = Arrays.stream(byPopulation).filter(filter).toArray();
+        return RecordListView.of(snapshot::toCityRecord, rows);
+    }
+
+    /**
+     * USE CASE 7 served from the snapshot.
+     */
+    @Override
+    public List<City> getAllCitiesByPopulationLargestToSmallest() {
+        return cities(row -> true, Integer.MAX_VALUE);
+    }
+
+    /**
+     * USE CASE 7, streamed from the snapshot: each city is built as it is handed over.
+     */
+    @Override
+    public long forEachCityByPopulation(Consumer<City> consumer) {
+        return forEachCity(row -> true, consumer);
+    }
+
+    /**
+     * USE CASE 8, streamed from the snapshot.
+     */
+    @Override
+    public long forEachCityInContinentByPopulation(String continent, Consumer<City> consumer) {
+        return continent == null ? 0 : forEachCity(inContinent(continent), consumer);
+    }
+
+    /**
+     * USE CASE 9, streamed from the snapshot.
+     */
+    @Override
+    public long forEachCityInRegionByPopulation(String region, Consumer<City> consumer) {
+        return region == null ? 0 : forEachCity(inRegion(region), consumer);
+    }
+
+    /**
+     * USE CASE 7, paged, served from the snapshot. The page starts with a binary search for
+     * the first city after the token.
+     */
+    @Override
+    public Page<City> getCitiesByPopulationPage(int pageSize, String resumeToken) {
+        List<City> cities = new ArrayList<>();
+
+        if (pageSize <= 0) {
+            err().println("Error: Page size must be greater than 0.");
+            return new Page<>(cities, null);
+        }
+
+        PageToken after;
+        int afterId = 0;
+        try {
+            after = resumeToken == null ? null : PageToken.decode(resumeToken);
+            if (after != null) {
+                afterId = Integer.parseInt(after.getKey());
+            }
+        } catch (IllegalArgumentException e) {
+            err().println("Error: Invalid page token.");
+            return new Page<>(cities, null);
+        }
+
+        int start = after == null ? 0 : firstAfter(after.getPopulation(), afterId);
+        int end = (int) Math.min(byPopulation.length, (long) start + pageSize);
+        for (int i = start; i < end; i++) {
+            cities.add(snapshot.toCity(byPopulation[i]));
+        }
+
+        if (end == byPopulation.length) {
+            return new Page<>(cities, null);
+        }
+        City last = cities.get(cities.size() - 1);
+        return new Page<>(cities, new PageToken(last.getPopulation(), String.valueOf(last.getId())).encode());
+    }
+
+    /**
+     * USE CASE 8 served from the snapshot.
+     */
+    @Override
+    public List<City> getAllCitiesInContinentByPopulationLargestToSmallest(String continent) {
+        if (continent == null || continent.trim().isEmpty()) {
+            err().println("Error: Continent parameter cannot be null or empty.");
+            return new ArrayList<>();
+        }
+        return cities(inContinent(continent), Integer.MAX_VALUE);
+    }
+
+    /**
+     * USE CASE 9 served from the snapshot.
+     */
+    @Override
+    public List<City> getAllCitiesInRegionByPopulationLargestToSmallest(String region) {
+        if (region == null || region.trim().isEmpty()) {
+            err().println("Error: Region parameter cannot be null or empty.");
+            return new ArrayList<>();
+        }
+        return cities(inRegion(region), Integer.MAX_VALUE);
+    }
+
+    /**
+     * USE CASE 10 served from the snapshot.
+     */
+    @Override
+    public List<City> getAllCitiesInCountryByPopulationLargestToSmallest(String countryCode) {
+        if (countryCode == null || countryCode.trim().isEmpty()) {
+            err().println("Error: Country code parameter cannot be null or empty.");
+            return new ArrayList<>();
+        }
+        return cities(row -> countryCode.equalsIgnoreCase(snapshot.getCityCountryCode(row)), Integer.MAX_VALUE);
+    }
+
+    /**
+     * USE CASE 11 served from the snapshot.
+     */
+    @Override
+    public List<City> getAllCitiesInDistrictByPopulationLargestToSmallest(String district) {
+        if (district == null || district.trim().isEmpty()) {
+            err().println("Error: District parameter cannot be null or empty.");
+            return new ArrayList<>();
+        }
+        return cities(inDistrict(district), Integer.MAX_VALUE);
+    }
+
+    /**
+     * USE CASE 12 served from the snapshot.
+     */
+    @Override
+    public List<City> getTopNCitiesByPopulationLargestToSmallest(int n) {
+        if (n <= 0) {
+            err().println("Error: N parameter must be greater than 0.");
+            return new ArrayList<>();
+        }
+        return cities(row -> true, n);
+    }
+
+    /**
+     * USE CASE 13 served from the snapshot.
+     */
+    @Override
+    public List<City> getTopCitiesByContinent(String continent, int limit) {
+        return continent == null ? new ArrayList<>() : cities(inContinent(continent), limit);
+    }
+
+    /**
+     * USE CASE 14 served from the snapshot.
+     */
+    @Override
+    public List<City> getTopCitiesByRegion(String region, int n) {
+        return region == null ? new ArrayList<>() : cities(inRegion(region), n);
+    }
+
+    /**
+     * USE CASE 15 served from the snapshot.
+     */
+    @Override
+    public List<City> getTopCitiesByCountry(String countryName, int n) {
+        if (countryName == null) {
+            return new ArrayList<>();
+        }
+        return cities(row -> {
+            int country = snapshot.getCityCountry(row);
+            return country >= 0 && countryName.equalsIgnoreCase(snapshot.countryNames[country]);
+        }, n);
+    }
+
+    /**
+     * USE CASE 16 served from the snapshot. Like the SQL, only cities whose country is known count.
+     */
+    @Override
+    public List<City> getTopCitiesByDistrict(String districtName, int n) {
+        if (districtName == null) {
+            return new ArrayList<>();
+        }
+        IntPredicate inDistrict = inDistrict(districtName);
+        return cities(row -> snapshot.getCityCountry(row) >= 0 && inDistrict.test(row), n);
+    }
+
+    /**
+     * USE CASE 30 served from the snapshot's {@link GeographyTree}, adding up the districts of
+     * that name in every country.
+     */
+    @Override
+    public PopulationReportPojo getDistrictPopulationReport(String districtName) {
+        if (districtName == null || districtName.trim().isEmpty()) {
+            err().println("Error: District name cannot be null or empty.");
+            return null;
+        }
+
+        long population = 0;
+        for (GeographyTree.Node district : snapshot.getGeography().find(GeographyTree.Level.DISTRICT, districtName)) {
+            population += district.getPopulation();
+        }
+        return report(districtName, population, population);
+    }
+
+    /**
+     * USE CASE 31 served from the snapshot's {@link GeographyTree}. The name is matched
+     * exactly, ignoring case; when several cities share it, the largest is used.
+     */
+    @Override
+    public PopulationReportPojo getCityPopulationReport(String cityName) {
+        if (cityName == null || cityName.trim().isEmpty()) {
+            err().println("Error: City name cannot be null or empty.");
+            return null;
+        }
+
+        GeographyTree.Node city = snapshot.getGeography().get(GeographyTree.Level.CITY, cityName);
+        long population = city == null ? 0 : city.getPopulation();
+        return report(cityName, population, population);
+    }
+
+    /**
+     * Hands the cities passing a filter to a consumer in population order, keeping none.
+     */
+    private long forEachCity(IntPredicate filter, Consumer<City> consumer) {
+        long count = 0;
+        for (int row : byPopulation) {
+            if (filter.test(row)) {
+                consumer.accept(snapshot.toCity(row));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The cities passing a filter, in population order, up to a limit.
+     */
+    private List<City> cities(IntPredicate filter, int limit) {
+        List<City> cities = new ArrayList<>();
+        for (int i = 0; i < byPopulation.length && cities.size() < limit; i++) {
+            int row = byPopulation[i];
+            if (filter.test(row)) {
+                cities.add(snapshot.toCity(row));
+            }
+        }
+        return cities;
+    }
+
+    private IntPredicate inContinent(String continent) {
+        boolean[] areas = matchingAreas(snapshot.continents, continent);
+        return row -> {
+            int country = snapshot.getCityCountry(row);
+            return country >= 0 && areas[snapshot.continents.of(country)];
+        };
+    }
+
+    private IntPredicate inRegion(String region) {
+        boolean[] areas = matchingAreas(snapshot.regions, region);
+        return row -> {
+            int country = snapshot.getCityCountry(row);
+            return country >= 0 && areas[snapshot.regions.of(country)];
+        };
+    }
+
+    private IntPredicate inDistrict(String district) {
+        // Compare each distinct district once, remembering the answer by symbol code
+        Map<Integer, Boolean> codes = new HashMap<>();
+        return row -> codes.computeIfAbsent(snapshot.getCityDistrict(row),
+                code -> district.equalsIgnoreCase(snapshot.symbols.symbol(code)));
+    }
+
+    /**
+     * Marks the areas equal to a value ignoring case, so filters compare codes, not strings.
+     */
+    private boolean[] matchingAreas(AreaCodes areas, String value) {
+        boolean[] matches = new boolean[areas.size()];
+        for (int area = 0; area < matches.length; area++) {
+            matches[area] = value.equalsIgnoreCase(snapshot.symbols.symbol(areas.symbol(area)));
+        }
+        return matches;
+    }
+
+    /**
+     * Position in the population order of the first city after a page token's city.
+     */
+    private int firstAfter(long population, int id) {
+        int low = 0;
+        int high = byPopulation.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int row = byPopulation[mid];
+            long midPopulation = snapshot.getCityPopulation(row);
+            boolean after = midPopulation < population || (midPopulation == population && snapshot.getCityId(row) < id);
+            if (after) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return The city rows, largest population first with ties by descending ID.
+     */
+    static int[] sortByPopulation(WorldSnapshot snapshot) {
+        Integer[] rows = new Integer[snapshot.cityCount];
+        Arrays.setAll(rows, row -> row);
+        Arrays.sort(rows, (a, b) -> {
+            int order = Integer.compare(snapshot.getCityPopulation(b), snapshot.getCityPopulation(a));
+            return order != 0 ? order : Integer.compare(snapshot.getCityId(b), snapshot.getCityId(a));
+        });
+        return Arrays.stream(rows).mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Builds a report the way the SQL versions derive their figures.
+     */
+    static PopulationReportPojo report(String name, long total, long inCities) {
+        double cityPercentage = total > 0 ? ((inCities * 100.0) / total) : 0.0;
+
+        PopulationReportPojo report = new PopulationReportPojo();
+        report.setName(name);
+        report.setTotalPopulation(total);
+        report.setPopulationInCities(inCities);
+        report.setPopulationNotInCities(total - inCities);
+        report.setPercentageInCities(cityPercentage);
+        report.setPercentageNotInCities(100.0 - cityPercentage);
+        return report;
+    }
+}
@@ -0,0 +1,289 @@
+package com.napier.devops.snapshot;
+
+import com.napier.devops.Country;
+import com.napier.devops.CountryRecord;
+import com.napier.devops.service.CountryReportService;
+import com.napier.pojo.LanguageReportPojo;
+import com.napier.pojo.Page;
+import com.napier.pojo.PageToken;
+import com.napier.pojo.PopulationReportPojo;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.IntPredicate;
+
+/**
+ * Country reports served from a {@link WorldSnapshot} instead of MySQL.
+ * <p>
+ * The country rows are sorted by population once, largest first with ties by descending
+ * code like the paged report, and every list report walks that order with a filter.
+ * Names are matched ignoring case, as the database collation does. The print methods are
+ * inherited unchanged.
+ * <p>
+ * The {@code getCountryRecords} methods return the same rows as immutable
+ * {@link CountryRecord}s in a {@link RecordListView}, without copying.
+ */
+public class SnapshotCountryReportService extends CountryReportService {
+
+    /**
+     * The languages of use case 32.
+     */
+    private static final List<String> MAJOR_LANGUAGES = List.of("Chinese", "English", "Hindi", "Spanish", "Arabic");
+
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    private final WorldSnapshot snapshot;
+
+    /**
+     * Country rows, largest population first.
+     */
+    private final int[] byPopulation;
+
+    /**
+     * Every country as a record, largest population first.
+     */
+    private final RecordListView<CountryRecord> recordsByPopulation;
+
+    public SnapshotCountryReportService(WorldSnapshot snapshot) {
+        super(null);
+        this.snapshot = snapshot;
+        this.byPopulation = sortByPopulation(snapshot);
+        this.recordsByPopulation = RecordListView.of(snapshot::toCountryRecord, byPopulation);
+    }
+
+    /**
+     * USE CASE 1 as a shared read-only view.
+     *
+     * @return Every country, largest population first.
+     */
+    public RecordListView<CountryRecord> getCountryRecordsByPopulation() {
+        return recordsByPopulation;
+    }
+
+    /**
+     * USE CASE 2 as a read-only view. Only the row numbers of the matching countries are collected.
+     *
+     * @param continent The continent.
+     * @return The countries in the continent, largest population first.
+     */
+    public RecordListView<CountryRecord> getCountryRecordsInContinent(String continent) {
+        if (continent == null) {
+            return recordsByPopulation.first(0);
+        }
+        int[] rows = Arrays.stream(byPopulation)
+                .filter(row -> continent.equalsIgnoreCase(snapshot.symbols.symbol(snapshot.countryContinents[row])))
+                .toArray();
+        return RecordListView.of(snapshot::toCountryRecord, rows);
+    }
+
+    /**
+     * Looks a country up in the snapshot.
+     */
+    @Override
+    public Country getCountryByCode(String countryCode) {
+        int row = countryCode == null ? -1 : snapshot.findCountryRow(countryCode.toUpperCase(Locale.ROOT));
+        return row < 0 ? null : snapshot.toCountry(row);
+    }
+
+    /**
+     * Served from the snapshot.
+     */
+    @Override
+    public List<Country> getAllCountriesByPopulationLargestToSmallest() {
+        return countries(row -> true);
+    }
+
+    /**
+     * Served from the snapshot, starting with a binary search for the first country after the token.
+     */
+    @Override
+    public Page<Country> getCountriesByPopulationPage(int pageSize, String resumeToken) {
+        List<Country> countries = new ArrayList<>();
+
+        if (pageSize <= 0) {
+            err().println("Error: Page size must be greater than 0.");
+            return new Page<>(countries, null);
+        }
+
+        PageToken after;
+        try {
+            after = resumeToken == null ? null : PageToken.decode(resumeToken);
+        } catch (IllegalArgumentException e) {
+            err().println("Error: Invalid page token.");
+            return new Page<>(countries, null);
+        }
+
+        int start = after == null ? 0 : firstAfter(after.getPopulation(), after.getKey());
+        int end = (int) Math.min(byPopulation.length, (long) start + pageSize);
+        for (int i = start; i < end; i++) {
+            countries.add(snapshot.toCountry(byPopulation[i]));
+        }
+
+        if (end == byPopulation.length) {
+            return new Page<>(countries, null);
+        }
+        Country last = countries.get(countries.size() - 1);
+        return new Page<>(countries, new PageToken(last.getPopulation(), last.getCode()).encode());
+    }
+
+    /**
+     * Served from the snapshot.
+     */
+    @Override
+    public List<Country> getAllCountriesInContinentByPopulationLargestToSmallest(String continent) {
+        if (continent == null) {
+            return new ArrayList<>();
+        }
+        return countries(row -> continent.equalsIgnoreCase(snapshot.symbols.symbol(snapshot.countryContinents[row])));
+    }
+
+    /**
+     * Served from the snapshot.
+     */
+    @Override
+    public List<Country> getAllCountriesInRegionByPopulationLargestToSmallest(String region) {
+        if (region == null) {
+            return new ArrayList<>();
+        }
+        return countries(row -> region.equalsIgnoreCase(snapshot.symbols.symbol(snapshot.countryRegions[row])));
+    }
+
+    /**
+     * USE CASE 28 served from the snapshot's {@link GeographyTree}.
+     */
+    @Override
+    public PopulationReportPojo getRegionPopulationReport(String regionName) {
+        if (regionName == null || regionName.trim().isEmpty()) {
+            err().println("Error: Region name cannot be null or empty.");
+            return null;
+        }
+
+        long total = 0;
+        long inCities = 0;
+        for (GeographyTree.Node region : snapshot.getGeography().find(GeographyTree.Level.REGION, regionName)) {
+            total += region.getPopulation();
+            inCities += region.getCityPopulation();
+        }
+        return SnapshotCityReportService.report(regionName, total, inCities);
+    }
+
+    /**
+     * USE CASE 29 served from the snapshot's {@link GeographyTree}.
+     */
+    @Override
+    public PopulationReportPojo getCountryPopulationReport(String countryName) {
+        if (countryName == null || countryName.trim().isEmpty()) {
+            err().println("Error: Country name cannot be null or empty.");
+            return null;
+        }
+
+        List<GeographyTree.Node> countries = snapshot.getGeography().find(GeographyTree.Level.COUNTRY, countryName);
+        // The SQL reads the first matching country's total but sums the cities of all of them
+        long total = countries.isEmpty() ? 0 : countries.get(0).getPopulation();
+        long inCities = 0;
+        for (GeographyTree.Node country : countries) {
+            inCities += country.getCityPopulation();
+        }
+        return SnapshotCityReportService.report(countryName, total, inCities);
+    }
+
+    /**
+     * USE CASE 32 served from the snapshot, summing speakers exactly as the decimal SQL does.
+     */
+    @Override
+    public List<LanguageReportPojo> getMajorLanguageReport() {
+        List<LanguageReportPojo> languageReports = new ArrayList<>();
+
+        long worldPopulation = 0;
+        for (int row = 0; row < snapshot.countryCount; row++) {
+            worldPopulation += snapshot.countryPopulations[row];
+        }
+        if (worldPopulation == 0) {
+            err().println("Error: Could not determine world population.");
+            return languageReports;
+        }
+
+        for (String language : MAJOR_LANGUAGES) {
+            int code = snapshot.symbols.find(language);
+            if (code < 0) {
+                continue;
+            }
+
+            BigDecimal sum = BigDecimal.ZERO;
+            boolean spoken = false;
+            for (int row = 0; row < snapshot.languageCount; row++) {
+                int country = snapshot.languageCountries[row];
+                if (snapshot.languageNames[row] == code && country >= 0) {
+                    spoken = true;
+                    sum = sum.add(BigDecimal.valueOf(snapshot.countryPopulations[country])
+                            .multiply(BigDecimal.valueOf(snapshot.languagePercentages[row])));
+                }
+            }
+            if (!spoken) {
+                continue;
+            }
+
+            long speakers = sum.divide(HUNDRED).longValue();
+            LanguageReportPojo report = new LanguageReportPojo();
+            report.setLanguage(language);
+            report.setSpeakers(speakers);
+            report.setWorldPopulation(worldPopulation);
+            report.setPercentageOfWorld(speakers > 0 ? ((speakers * 100.0) / worldPopulation) : 0.0);
+            languageReports.add(report);
+        }
+
+        languageReports.sort(Comparator.comparingLong(LanguageReportPojo::getSpeakers).reversed());
+        return languageReports;
+    }
+
+    /**
+     * The countries passing a filter, in population order.
+     */
+    private List<Country> countries(IntPredicate filter) {
+        List<Country> countries = new ArrayList<>();
+        for (int row : byPopulation) {
+            if (filter.test(row)) {
+                countries.add(snapshot.toCountry(row));
+            }
+        }
+        return countries;
+    }
+
+    /**
+     * Position in the population order of the first country after a page token's country.
+     */
+    private int firstAfter(long population, String code) {
+        int low = 0;
+        int high = byPopulation.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int row = byPopulation[mid];
+            long midPopulation = snapshot.countryPopulations[row];
+            boolean after = midPopulation < population
+                    || (midPopulation == population && snapshot.countryCodes[row].compareTo(code) < 0);
+            if (after) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return The country rows, largest population first with ties by descending code.
+     */
+    static int[] sortByPopulation(WorldSnapshot snapshot) {
+        Integer[] rows = new Integer[snapshot.countryCount];
+        Arrays.setAll(rows, row -> row);
+        Arrays.sort(rows, (a, b) -> {
+            int order = Integer.compare(snapshot.countryPopulations[b], snapshot.countryPopulations[a]);
+            return order != 0 ? order : snapshot.countryCodes[b].compareTo(snapshot.countryCodes[a]);
+        });
+        return Arrays.stream(rows).mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -0,0 +1,186 @@
+package com.napier.devops.snapshot;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Reads and writes {@link WorldSnapshot}s as a compact binary file.
+ * <p>
+ * The file holds a header with the row counts, then the country, city and language rows in
+ * that order. Low-cardinality strings are dictionary coded as the file is written: the first
+ * time a value appears it is written in full and given the next code, afterwards only the code
+ * is written. This lets the file be streamed out row by row without knowing the values up front.
+ */
+public final class SnapshotFile {
+
+    private static final int MAGIC = 0x57534E50; // "WSNP"
+    private static final int VERSION = 1;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Writes a snapshot to a file.
+     *
+     * @param snapshot The snapshot to write.
+     * @param path     The file to create or overwrite.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(WorldSnapshot snapshot, Path path) throws IOException {
+        try (Writer writer = new Writer(path, snapshot.countryCount, snapshot.cityCount, snapshot.languageCount)) {
+            for (int row = 0; row < snapshot.countryCount; row++) {
+                writer.writeCountry(snapshot.countryCodes[row], snapshot.countryNames[row],
+                        snapshot.symbols.symbol(snapshot.countryContinents[row]),
+                        snapshot.symbols.symbol(snapshot.countryRegions[row]),
+                        snapshot.countryPopulations[row], snapshot.countryCapitals[row]);
+            }
+            for (int row = 0; row < snapshot.cityCount; row++) {
+                writer.writeCity(snapshot.getCityId(row), snapshot.getCityName(row), snapshot.getCityCountryCode(row),
+                        snapshot.symbols.symbol(snapshot.getCityDistrict(row)), snapshot.getCityPopulation(row));
+            }
+            for (int row = 0; row < snapshot.languageCount; row++) {
+                int country = snapshot.languageCountries[row];
+                writer.writeLanguage(country < 0 ? null : snapshot.countryCodes[country],
+                        snapshot.symbols.symbol(snapshot.languageNames[row]),
+                        snapshot.languageOfficial[row], snapshot.languagePercentages[row]);
+            }
+        }
+    }
+
+    /**
+     * Reads a snapshot from a file.
+     *
+     * @param path The file to read.
+     * @return A new snapshot whose strings are interned in a symbol table of its own.
+     * @throws IOException If the file cannot be read or is not a snapshot file.
+     */
+    public static WorldSnapshot read(Path path) throws IOException {
+        return read(path, UnaryOperator.identity());
+    }
+
+    /**
+     * Reads a snapshot from a file, passing its city and country names through a dictionary.
+     *
+     * @param path  The file to read.
+     * @param names Returns the copy of a name to keep, see {@link WorldSnapshot.Builder#names}.
+     * @return A new snapshot whose strings are interned in a symbol table of its own.
+     * @throws IOException If the file cannot be read or is not a snapshot file.
+     */
+    public static WorldSnapshot read(Path path, UnaryOperator<String> names) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a world snapshot file: " + path);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot file version " + version);
+            }
+
+            int countryCount = in.readInt();
+            int cityCount = in.readInt();
+            int languageCount = in.readInt();
+            List<String> dictionary = new ArrayList<>();
+            WorldSnapshot.Builder builder = WorldSnapshot.builder().names(names);
+
+            for (int row = 0; row < countryCount; row++) {
+                builder.addCountry(readSymbol(in, dictionary), in.readUTF(), readSymbol(in, dictionary),
+                        readSymbol(in, dictionary), in.readInt(), in.readInt());
+            }
+            for (int row = 0; row < cityCount; row++) {
+                builder.addCity(in.readInt(), in.readUTF(), readSymbol(in, dictionary),
+                        readSymbol(in, dictionary), in.readInt());
+            }
+            for (int row = 0; row < languageCount; row++) {
+                builder.addLanguage(readSymbol(in, dictionary), readSymbol(in, dictionary),
+                        in.readBoolean(), in.readDouble());
+            }
+            return builder.build();
+        }
+    }
+
+    private static String readSymbol(DataInputStream in, List<String> dictionary) throws IOException {
+        int code = in.readInt();
+        if (code == -1) {
+            return null;
+        }
+        if (code == dictionary.size()) {
+            dictionary.add(in.readUTF());
+        }
+        return dictionary.get(code);
+    }
+
+    /**
+     * Streams rows into a snapshot file. The row counts are fixed when the writer is opened
+     * and the rows must be written countries first, then cities, then languages.
+     */
+    public static class Writer implements Closeable {
+        private final DataOutputStream out;
+        private final Map<String, Integer> dictionary = new HashMap<>();
+
+        public Writer(Path path, int countryCount, int cityCount, int languageCount) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(countryCount);
+            out.writeInt(cityCount);
+            out.writeInt(languageCount);
+        }
+
+        public void writeCountry(String code, String name, String continent, String region,
+                                 int population, int capital) throws IOException {
+            writeSymbol(code);
+            out.writeUTF(name);
+            writeSymbol(continent);
+            writeSymbol(region);
+            out.writeInt(population);
+            out.writeInt(capital);
+        }
+
+        public void writeCity(int id, String name, String countryCode, String district, int population) throws IOException {
+            out.writeInt(id);
+            out.writeUTF(name);
+            writeSymbol(countryCode);
+            writeSymbol(district);
+            out.writeInt(population);
+        }
+
+        public void writeLanguage(String countryCode, String language, boolean official, double percentage) throws IOException {
+            writeSymbol(countryCode);
+            writeSymbol(language);
+            out.writeBoolean(official);
+            out.writeDouble(percentage);
+        }
+
+        /**
+         * Writes the code of a symbol, followed by its text the first time it is seen.
+         */
+        private void writeSymbol(String value) throws IOException {
+            if (value == null) {
+                out.writeInt(-1);
+                return;
+            }
+
+            Integer code = dictionary.get(value);
+            if (code != null) {
+                out.writeInt(code);
+                return;
+            }
+
+            code = dictionary.size();
+            dictionary.put(value, code);
+            out.writeInt(code);
+            out.writeUTF(value);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
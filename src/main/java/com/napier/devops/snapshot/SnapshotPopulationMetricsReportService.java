@@ -0,0 +1,214 @@
+package com.napier.devops.snapshot;
+
+import com.napier.devops.PopulationMetrics;
+import com.napier.devops.service.PopulationMetricsReportService;
+import com.napier.devops.service.WorldReportAccumulator;
+import com.napier.pojo.WorldReportPojo;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Population metrics served from a {@link WorldSnapshot} instead of MySQL.
+ * <p>
+ * Produces the same lists as {@link PopulationMetricsReportService}. The city populations are
+ * summed per country by a {@link CityPopulationAggregator}, then continents and regions are
+ * grouped by their symbol codes. The print methods are inherited unchanged.
+ */
+public class SnapshotPopulationMetricsReportService extends PopulationMetricsReportService {
+
+    private final WorldSnapshot snapshot;
+    private final CityPopulationAggregator aggregator;
+
+    public SnapshotPopulationMetricsReportService(WorldSnapshot snapshot) {
+        this(snapshot, new CityPopulationAggregator());
+    }
+
+    public SnapshotPopulationMetricsReportService(WorldSnapshot snapshot, CityPopulationAggregator aggregator) {
+        super(null);
+        this.snapshot = snapshot;
+        this.aggregator = aggregator;
+    }
+
+    /**
+     * USE CASE 23 served from the snapshot.
+     */
+    @Override
+    public List<PopulationMetrics> getContinentPopulationReport() {
+        return groupBy(snapshot, snapshot.continents, PopulationMetrics.ReportType.CONTINENT, countryTotals(),
+                cityPopulationByCountry());
+    }
+
+    /**
+     * USE CASE 24 served from the snapshot.
+     */
+    @Override
+    public List<PopulationMetrics> getRegionPopulationReport() {
+        return groupBy(snapshot, snapshot.regions, PopulationMetrics.ReportType.REGION, countryTotals(),
+                cityPopulationByCountry());
+    }
+
+    /**
+     * USE CASE 25 served from the snapshot, ordered by country name like the SQL version.
+     */
+    @Override
+    public List<PopulationMetrics> getCountryPopulationReport() {
+        return byCountry(snapshot, countryTotals(), cityPopulationByCountry());
+    }
+
+    /**
+     * USE CASE 26 served from the snapshot's {@link GeographyTree}.
+     */
+    @Override
+    public long getWorldPopulationReport() {
+        return snapshot.getGeography().getWorld().getPopulation();
+    }
+
+    /**
+     * USE CASE 27 served from the snapshot's {@link GeographyTree}.
+     *
+     * @return The metrics for the continent, or null if the continent is unknown.
+     */
+    @Override
+    public PopulationMetrics getPopulationContinentReport(String continentName) {
+        GeographyTree.Node continent = snapshot.getGeography().get(GeographyTree.Level.CONTINENT, continentName);
+        if (continent == null) {
+            return null;
+        }
+
+        long total = continent.getPopulation();
+        long inCities = continent.getCityPopulation();
+
+        // The SQL for this use case does not round its percentages
+        double cityPercent = total == 0 ? 0.0 : inCities * 100.0 / total;
+        double nonCityPercent = total == 0 ? 0.0 : (total - inCities) * 100.0 / total;
+        return new PopulationMetrics().setAll(continent.getName(), PopulationMetrics.ReportType.CONTINENT,
+                total, inCities, total - inCities, cityPercent, nonCityPercent);
+    }
+
+    /**
+     * USE CASES 23 to 29 in one pass over the snapshot's countries.
+     */
+    @Override
+    public WorldReportPojo getWorldReport(String continentName, String regionName, String countryName) {
+        WorldReportAccumulator accumulator = new WorldReportAccumulator(continentName, regionName, countryName);
+        addCountries(snapshot, accumulator, countryTotals(), cityPopulationByCountry());
+        return accumulator.build(err());
+    }
+
+    /**
+     * Sums the population of the cities in each country, indexed by country row.
+     */
+    long[] cityPopulationByCountry() {
+        return aggregator.sumByCountry(snapshot);
+    }
+
+    /**
+     * @return The total population of each country, indexed by country row.
+     */
+    private long[] countryTotals() {
+        long[] totals = new long[snapshot.countryCount];
+        for (int row = 0; row < snapshot.countryCount; row++) {
+            totals[row] = snapshot.countryPopulations[row];
+        }
+        return totals;
+    }
+
+    /**
+     * Groups the countries by continent or region and orders the groups by total population.
+     * Shared with {@link LivePopulationMetrics}, which passes its running country totals.
+     *
+     * @param areas         The snapshot's dense codes for the continents or regions.
+     * @param countryTotals The total population of each country row.
+     * @param inCities      The population in cities of each country row.
+     */
+    static List<PopulationMetrics> groupBy(WorldSnapshot snapshot, AreaCodes areas, PopulationMetrics.ReportType reportType,
+                                           long[] countryTotals, long[] inCities) {
+        long[] totals = new long[areas.size()];
+        long[] areaInCities = new long[areas.size()];
+
+        for (int row = 0; row < snapshot.countryCount; row++) {
+            int area = areas.of(row);
+            totals[area] += countryTotals[row];
+            areaInCities[area] += inCities[row];
+        }
+
+        List<PopulationMetrics> groups = new ArrayList<>(areas.size());
+        for (int area = 0; area < areas.size(); area++) {
+            groups.add(metrics(snapshot.symbols.symbol(areas.symbol(area)), reportType, totals[area], areaInCities[area]));
+        }
+        groups.sort(Comparator.comparingLong(PopulationMetrics::getTotalPopulation).reversed());
+        return groups;
+    }
+
+    /**
+     * Sums the countries of one continent or region.
+     *
+     * @param areas The snapshot's dense codes for the continents or regions.
+     * @param name  The name of the continent or region.
+     * @return The metrics of the area, or null if no country is in it.
+     */
+    static PopulationMetrics group(WorldSnapshot snapshot, AreaCodes areas, String name,
+                                   PopulationMetrics.ReportType reportType, long[] countryTotals, long[] inCities) {
+        int symbol = snapshot.symbols.find(name);
+        int area = symbol < 0 ? -1 : areas.find(symbol);
+        if (area < 0) {
+            return null;
+        }
+
+        long total = 0;
+        long areaInCities = 0;
+        for (int row = 0; row < snapshot.countryCount; row++) {
+            if (areas.of(row) == area) {
+                total += countryTotals[row];
+                areaInCities += inCities[row];
+            }
+        }
+        return metrics(name, reportType, total, areaInCities);
+    }
+
+    /**
+     * Lists every country, ordered by name like the SQL version.
+     */
+    static List<PopulationMetrics> byCountry(WorldSnapshot snapshot, long[] countryTotals, long[] inCities) {
+        List<PopulationMetrics> countries = new ArrayList<>(snapshot.countryCount);
+        for (int row = 0; row < snapshot.countryCount; row++) {
+            countries.add(metrics(snapshot.countryNames[row], PopulationMetrics.ReportType.COUNTRY,
+                    countryTotals[row], inCities[row]));
+        }
+
+        // MySQL sorts names accent and case insensitively
+        Collator collator = Collator.getInstance(Locale.ROOT);
+        collator.setStrength(Collator.PRIMARY);
+        countries.sort(Comparator.comparing(PopulationMetrics::getNameOfArea, collator));
+        return countries;
+    }
+
+    /**
+     * Adds every country to a world report.
+     */
+    static void addCountries(WorldSnapshot snapshot, WorldReportAccumulator accumulator, long[] countryTotals,
+                             long[] inCities) {
+        for (int row = 0; row < snapshot.countryCount; row++) {
+            accumulator.add(snapshot.countryNames[row], snapshot.symbols.symbol(snapshot.countryContinents[row]),
+                    snapshot.symbols.symbol(snapshot.countryRegions[row]), countryTotals[row], inCities[row]);
+        }
+    }
+
+    /**
+     * Builds one row of the report, deriving the non-city figures the same way the SQL does.
+     */
+    static PopulationMetrics metrics(String name, PopulationMetrics.ReportType reportType, long total, long inCities) {
+        return WorldReportAccumulator.metrics(name, reportType, total, inCities);
+    }
+
+    /**
+     * Matches {@code ROUND((part / total) * 100, 2)} in MySQL.
+     */
+    static double percentage(long part, long total) {
+        return WorldReportAccumulator.percentage(part, total);
+    }
+}
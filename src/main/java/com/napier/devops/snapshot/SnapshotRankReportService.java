@@ -0,0 +1,412 @@
+package com.napier.devops.snapshot;
+
+import com.napier.devops.City;
+import com.napier.devops.Country;
+import com.napier.pojo.RankPojo;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Rank, percentile and neighbour reports served from a {@link WorldSnapshot}.
+ * <p>
+ * The city and country rows of every area in the snapshot's {@link GeographyTree} are sorted
+ * by population once, in the order of the list reports: largest first, ties by descending
+ * city ID or country code. A rank is then a binary search for the row in its area's order,
+ * and the neighbours around a rank are a slice of it, so neither scans the area. Cities rank
+ * within the world, their continent, region, country and district; countries within the
+ * world, their continent and region. Cities whose country is not in the snapshot rank only
+ * within the world and their district, as they sit outside the hierarchy.
+ */
+public class SnapshotRankReportService {
+
+    private final WorldSnapshot snapshot;
+    private final GeographyTree geography;
+
+    // The city and country rows of every area, largest population first
+    private final Map<GeographyTree.Node, Order> cityOrders = new IdentityHashMap<>();
+    private final Map<GeographyTree.Node, Order> countryOrders = new IdentityHashMap<>();
+
+    // City IDs in ascending order, and the row of each, so a city is found by binary search
+    private final int[] cityIds;
+    private final int[] cityRows;
+
+    private volatile PrintStream out;
+    private volatile PrintStream err;
+
+    public SnapshotRankReportService(WorldSnapshot snapshot) {
+        this.snapshot = snapshot;
+        this.geography = snapshot.getGeography();
+        GeographyTree.Node world = geography.getWorld();
+
+        // Walking the rows in population order fills every area's order already sorted
+        int[] cities = SnapshotCityReportService.sortByPopulation(snapshot);
+        cityOrders.put(world, new Order(cities));
+        for (int row : cities) {
+            for (GeographyTree.Node area = geography.cityNode(row).getParent();
+                 area != null && area != world; area = area.getParent()) {
+                cityOrders.computeIfAbsent(area, node -> new Order(node.getCityCount())).add(row);
+            }
+        }
+
+        int[] countries = SnapshotCountryReportService.sortByPopulation(snapshot);
+        countryOrders.put(world, new Order(countries));
+        for (int row : countries) {
+            for (GeographyTree.Node area = geography.countryNode(row).getParent();
+                 area != world; area = area.getParent()) {
+                countryOrders.computeIfAbsent(area, node -> new Order(node.getCountryCount())).add(row);
+            }
+        }
+
+        long[] idRows = new long[snapshot.cityCount];
+        for (int row = 0; row < idRows.length; row++) {
+            idRows[row] = ((long) snapshot.getCityId(row) << 32) | row;
+        }
+        Arrays.sort(idRows);
+        this.cityIds = new int[idRows.length];
+        this.cityRows = new int[idRows.length];
+        for (int i = 0; i < idRows.length; i++) {
+            cityIds[i] = (int) (idRows[i] >> 32);
+            cityRows[i] = (int) idRows[i];
+        }
+    }
+
+    /**
+     * Sends the reports and errors this service prints to other streams, such as ones that
+     * discard them during a warm-up.
+     *
+     * @param out The stream for reports, or null for {@link System#out}.
+     * @param err The stream for errors, or null for {@link System#err}.
+     */
+    public void setOutput(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
+    }
+
+    /**
+     * @return The stream reports are printed to.
+     */
+    protected PrintStream out() {
+        PrintStream stream = out;
+        return stream != null ? stream : System.out;
+    }
+
+    /**
+     * @return The stream errors are printed to.
+     */
+    protected PrintStream err() {
+        PrintStream stream = err;
+        return stream != null ? stream : System.err;
+    }
+
+    /**
+     * Ranks a city by population within one of the areas it is in.
+     *
+     * @param cityId The ID of the city.
+     * @param scope  The level of the area: world, continent, region, country or district.
+     * @return The city's rank, or null if the city or area is not found.
+     */
+    public RankPojo getCityRank(int cityId, GeographyTree.Level scope) {
+        if (!isCityScope(scope)) {
+            return null;
+        }
+        int index = Arrays.binarySearch(cityIds, cityId);
+        if (index < 0) {
+            err().println("Error: No city found with ID: " + cityId);
+            return null;
+        }
+        int row = cityRows[index];
+
+        GeographyTree.Node area = enclosing(geography.cityNode(row), scope);
+        if (area == null) {
+            err().println("Error: City " + snapshot.getCityName(row) + " has no "
+                    + levelName(scope).toLowerCase(Locale.ROOT) + ".");
+            return null;
+        }
+        Order order = cityOrders.get(area);
+        return rank(snapshot.getCityName(row), snapshot.getCityPopulation(row), area,
+                order.positionOf(row, this::compareCities), order.size);
+    }
+
+    /**
+     * Ranks a city by population within one of the areas it is in. When several cities share
+     * the name, the largest is ranked.
+     *
+     * @param cityName The name of the city, in any case.
+     * @param scope    The level of the area: world, continent, region, country or district.
+     * @return The city's rank, or null if the city or area is not found.
+     */
+    public RankPojo getCityRank(String cityName, GeographyTree.Level scope) {
+        if (cityName == null || cityName.trim().isEmpty()) {
+            err().println("Error: City name cannot be null or empty.");
+            return null;
+        }
+        GeographyTree.Node city = geography.get(GeographyTree.Level.CITY, cityName);
+        if (city == null) {
+            err().println("Error: No city found with name: " + cityName);
+            return null;
+        }
+        return getCityRank(city.getId(), scope);
+    }
+
+    /**
+     * Ranks a country by population within the world or its continent or region.
+     *
+     * @param countryCode The code of the country, such as "USA".
+     * @param scope       The level of the area: world, continent or region.
+     * @return The country's rank, or null if the country is not found.
+     */
+    public RankPojo getCountryRank(String countryCode, GeographyTree.Level scope) {
+        if (!isCountryScope(scope)) {
+            return null;
+        }
+        if (countryCode == null || countryCode.trim().isEmpty()) {
+            err().println("Error: Country code cannot be null or empty.");
+            return null;
+        }
+        int row = snapshot.findCountryRow(countryCode.toUpperCase(Locale.ROOT));
+        if (row < 0) {
+            err().println("Error: No country found with code: " + countryCode);
+            return null;
+        }
+
+        GeographyTree.Node area = enclosing(geography.countryNode(row), scope);
+        Order order = countryOrders.get(area);
+        return rank(snapshot.getCountryName(row), snapshot.getCountryPopulation(row), area,
+                order.positionOf(row, this::compareCountries), order.size);
+    }
+
+    /**
+     * Lists the cities ranked around a position within an area. A district name used in
+     * several countries means the first such district in the snapshot.
+     *
+     * @param scope     The level of the area: world, continent, region, country or district.
+     * @param scopeName The name of the area, in any case; ignored for the world.
+     * @param rank      The position to look around, 1 for the largest city.
+     * @param radius    How many places either side of the position to include.
+     * @return The cities from rank - radius to rank + radius, cut off at the ends of the area,
+     * largest first, or an empty list if the area or rank is not found.
+     */
+    public List<City> getCitiesAroundRank(GeographyTree.Level scope, String scopeName, int rank, int radius) {
+        if (!isCityScope(scope)) {
+            return new ArrayList<>();
+        }
+        return around(cityOrders, scope, scopeName, rank, radius, snapshot::toCity);
+    }
+
+    /**
+     * Lists the countries ranked around a position within an area.
+     *
+     * @param scope     The level of the area: world, continent or region.
+     * @param scopeName The name of the area, in any case; ignored for the world.
+     * @param rank      The position to look around, 1 for the largest country.
+     * @param radius    How many places either side of the position to include.
+     * @return The countries from rank - radius to rank + radius, cut off at the ends of the
+     * area, largest first, or an empty list if the area or rank is not found.
+     */
+    public List<Country> getCountriesAroundRank(GeographyTree.Level scope, String scopeName, int rank, int radius) {
+        if (!isCountryScope(scope)) {
+            return new ArrayList<>();
+        }
+        return around(countryOrders, scope, scopeName, rank, radius, snapshot::toCountry);
+    }
+
+    /**
+     * Prints the rank of a city within one of the areas it is in.
+     *
+     * @param cityName The name of the city.
+     * @param scope    The level of the area.
+     */
+    public void printCityRank(String cityName, GeographyTree.Level scope) {
+        RankPojo rank = getCityRank(cityName, scope);
+        if (rank != null) {
+            out().println(rank);
+        }
+    }
+
+    /**
+     * Prints the rank of a country within the world or its continent or region.
+     *
+     * @param countryCode The code of the country.
+     * @param scope       The level of the area.
+     */
+    public void printCountryRank(String countryCode, GeographyTree.Level scope) {
+        RankPojo rank = getCountryRank(countryCode, scope);
+        if (rank != null) {
+            out().println(rank);
+        }
+    }
+
+    /**
+     * Prints the cities ranked around a position within an area, each with its rank.
+     */
+    public void printCitiesAroundRank(GeographyTree.Level scope, String scopeName, int rank, int radius) {
+        printAround("Cities", getCitiesAroundRank(scope, scopeName, rank, radius), scope, scopeName, rank, radius);
+    }
+
+    /**
+     * Prints the countries ranked around a position within an area, each with its rank.
+     */
+    public void printCountriesAroundRank(GeographyTree.Level scope, String scopeName, int rank, int radius) {
+        printAround("Countries", getCountriesAroundRank(scope, scopeName, rank, radius), scope, scopeName, rank, radius);
+    }
+
+    private void printAround(String what, List<?> rows, GeographyTree.Level scope, String scopeName, int rank, int radius) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        String area = scope == GeographyTree.Level.WORLD ? "the World" : scopeName;
+        out().println("Report: " + what + " around rank " + rank + " in " + area);
+        out().println("=".repeat(80));
+
+        int first = Math.max(1, rank - radius);
+        for (int i = 0; i < rows.size(); i++) {
+            out().println("#" + (first + i) + "\t" + rows.get(i));
+        }
+    }
+
+    private <T> List<T> around(Map<GeographyTree.Node, Order> orders, GeographyTree.Level scope, String scopeName,
+                               int rank, int radius, IntFunction<T> toRow) {
+        List<T> rows = new ArrayList<>();
+
+        Order order;
+        if (scope == GeographyTree.Level.WORLD) {
+            order = orders.get(geography.getWorld());
+        } else {
+            GeographyTree.Node area = geography.get(scope, scopeName);
+            if (area == null) {
+                err().println("Error: No " + levelName(scope).toLowerCase(Locale.ROOT) + " found with name: " + scopeName);
+                return rows;
+            }
+            order = orders.get(area);
+        }
+
+        int size = order == null ? 0 : order.size;
+        if (rank < 1 || rank > size) {
+            err().println("Error: Rank must be between 1 and " + size + ".");
+            return rows;
+        }
+        if (radius < 0) {
+            err().println("Error: Radius cannot be negative.");
+            return rows;
+        }
+
+        int from = Math.max(0, rank - 1 - radius);
+        int to = (int) Math.min(size, (long) rank + radius);
+        for (int i = from; i < to; i++) {
+            rows.add(toRow.apply(order.rows[i]));
+        }
+        return rows;
+    }
+
+    /**
+     * @return The area of a level that a node is in, or null if it is outside the hierarchy.
+     */
+    private GeographyTree.Node enclosing(GeographyTree.Node node, GeographyTree.Level scope) {
+        if (scope == GeographyTree.Level.WORLD) {
+            return geography.getWorld();
+        }
+        while (node != null && node.getLevel() != scope) {
+            node = node.getParent();
+        }
+        return node;
+    }
+
+    private RankPojo rank(String name, long population, GeographyTree.Node area, int position, int size) {
+        RankPojo rank = new RankPojo();
+        rank.setName(name);
+        rank.setPopulation(population);
+        rank.setScope(levelName(area.getLevel()));
+        rank.setScopeName(area.getName());
+        rank.setRank(position + 1);
+        rank.setScopeSize(size);
+        rank.setPercentile(100.0 * (size - position) / size);
+        return rank;
+    }
+
+    private boolean isCityScope(GeographyTree.Level scope) {
+        if (scope == null || scope == GeographyTree.Level.CITY) {
+            err().println("Error: Cities can only be ranked within the world, a continent, region, country or district.");
+            return false;
+        }
+        return true;
+    }
+
+    private boolean isCountryScope(GeographyTree.Level scope) {
+        if (scope == null || scope.compareTo(GeographyTree.Level.REGION) > 0) {
+            err().println("Error: Countries can only be ranked within the world, a continent or region.");
+            return false;
+        }
+        return true;
+    }
+
+    private static String levelName(GeographyTree.Level level) {
+        String name = level.name();
+        return name.charAt(0) + name.substring(1).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Orders two city rows the way the list reports do; negative if the first comes first.
+     */
+    private int compareCities(int a, int b) {
+        int order = Integer.compare(snapshot.getCityPopulation(b), snapshot.getCityPopulation(a));
+        return order != 0 ? order : Integer.compare(snapshot.getCityId(b), snapshot.getCityId(a));
+    }
+
+    /**
+     * Orders two country rows the way the list reports do; negative if the first comes first.
+     */
+    private int compareCountries(int a, int b) {
+        int order = Integer.compare(snapshot.countryPopulations[b], snapshot.countryPopulations[a]);
+        return order != 0 ? order : snapshot.countryCodes[b].compareTo(snapshot.countryCodes[a]);
+    }
+
+    /**
+     * The rows of one area in population order.
+     */
+    private static final class Order {
+        private final int[] rows;
+        private int size;
+
+        Order(int capacity) {
+            this.rows = new int[capacity];
+        }
+
+        Order(int[] rows) {
+            this.rows = rows;
+            this.size = rows.length;
+        }
+
+        void add(int row) {
+            rows[size++] = row;
+        }
+
+        /**
+         * Binary searches for a row known to be in the order.
+         */
+        int positionOf(int row, RowComparator comparator) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (comparator.compare(rows[mid], row) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowComparator {
+        int compare(int a, int b);
+    }
+}
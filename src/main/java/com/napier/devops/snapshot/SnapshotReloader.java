@@ -0,0 +1,334 @@
+package com.napier.devops.snapshot;
+
+import com.napier.devops.service.CityIndexes;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the current {@link WorldSnapshot} and refreshes it from the database without pausing
+ * the reports.
+ * <p>
+ * A reload builds a new snapshot, the city indexes and the report services over it off to
+ * the side, then swaps them in together with a single write to a volatile reference. Readers take the current
+ * {@link Version} once per report and use it to the end, so a report that started before a
+ * swap finishes on the old version, and no reader ever waits for a reload. Reloads are run
+ * one at a time, so version numbers only go up.
+ */
+public class SnapshotReloader implements Closeable {
+
+    /**
+     * Reads a new snapshot, usually with {@link WorldSnapshot#load}.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        WorldSnapshot load() throws SQLException, IOException;
+    }
+
+    /**
+     * One loaded snapshot with the indexes and report services built over it. Versions do not change.
+     */
+    public static final class Version {
+        private final long number;
+        private final WorldSnapshot snapshot;
+        private final CityIndexes indexes;
+        private final SnapshotPopulationMetricsReportService metrics;
+        private final long loadedAt;
+        private final long loadMillis;
+
+        // Built up front for snapshots on the heap, on first use for those off it
+        private volatile SnapshotRankReportService ranks;
+
+        // Only needed to fall back to while the database is down, so built on first use
+        private volatile SnapshotCityReportService cities;
+        private volatile SnapshotCountryReportService countries;
+
+        /**
+         * @param startNanos When loading began, from {@link System#nanoTime()}, so the load time
+         *                   includes building the indexes, metrics and ranks here.
+         */
+        private Version(long number, WorldSnapshot snapshot, long startNanos) {
+            this.number = number;
+            this.snapshot = snapshot;
+            // Nothing that holds every city is built on the heap for a snapshot whose cities are off it
+            this.indexes = snapshot.isOffHeap() ? CityIndexes.ofCountries(snapshot) : CityIndexes.of(snapshot);
+            this.metrics = new SnapshotPopulationMetricsReportService(snapshot);
+            if (!snapshot.isOffHeap()) {
+                // Also builds the geography tree, so the first report on a new version is not the one to pay for it
+                this.ranks = new SnapshotRankReportService(snapshot);
+            }
+            this.loadMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            this.loadedAt = System.currentTimeMillis();
+        }
+
+        /**
+         * @return The version number, 1 for the first snapshot loaded.
+         */
+        public long getNumber() {
+            return number;
+        }
+
+        public WorldSnapshot getSnapshot() {
+            return snapshot;
+        }
+
+        public SnapshotPopulationMetricsReportService getMetrics() {
+            return metrics;
+        }
+
+        /**
+         * @return The rank reports. For a snapshot off the heap they, and the geography tree
+         * of every city they need, are built by the first call.
+         */
+        public SnapshotRankReportService getRanks() {
+            SnapshotRankReportService service = ranks;
+            if (service == null) {
+                synchronized (this) {
+                    service = ranks;
+                    if (service == null) {
+                        service = new SnapshotRankReportService(snapshot);
+                        ranks = service;
+                    }
+                }
+            }
+            return service;
+        }
+
+        /**
+         * @return Whether the rank reports have been built yet.
+         */
+        boolean hasRanks() {
+            return ranks != null;
+        }
+
+        /**
+         * @return The capital, city name, population and country indexes of this version's snapshot.
+         */
+        public CityIndexes getIndexes() {
+            return indexes;
+        }
+
+        /**
+         * @return The city reports served from this version's snapshot, with its indexes.
+         */
+        public SnapshotCityReportService getCities() {
+            SnapshotCityReportService service = cities;
+            if (service == null) {
+                synchronized (this) {
+                    service = cities;
+                    if (service == null) {
+                        // A snapshot off the heap has no city indexes to share, and the fallback has no database to use instead
+                        service = snapshot.isOffHeap() ? new SnapshotCityReportService(snapshot)
+                                : new SnapshotCityReportService(snapshot, indexes);
+                        cities = service;
+                    }
+                }
+            }
+            return service;
+        }
+
+        /**
+         * @return The country reports served from this version's snapshot.
+         */
+        public SnapshotCountryReportService getCountries() {
+            SnapshotCountryReportService service = countries;
+            if (service == null) {
+                synchronized (this) {
+                    service = countries;
+                    if (service == null) {
+                        service = new SnapshotCountryReportService(snapshot);
+                        countries = service;
+                    }
+                }
+            }
+            return service;
+        }
+
+        /**
+         * @return When the version was swapped in, in milliseconds since the epoch.
+         */
+        public long getLoadedAt() {
+            return loadedAt;
+        }
+
+        /**
+         * @return How long loading and building the version took, in milliseconds.
+         */
+        public long getLoadMillis() {
+            return loadMillis;
+        }
+    }
+
+    private final Loader loader;
+    private final Object reloadLock = new Object();
+    private final List<Consumer<Version>> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile Version current;
+    private volatile long reloads;
+    private volatile long failedReloads;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param loader Reads each new snapshot.
+     */
+    public SnapshotReloader(Loader loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * @return The version to serve reports from, or null before the first load.
+     */
+    public Version current() {
+        return current;
+    }
+
+    /**
+     * Loads a new snapshot and swaps it in. Waits for a reload already running.
+     *
+     * @return The new version.
+     * @throws SQLException If the snapshot cannot be read; the current version stays in use.
+     * @throws IOException  If the snapshot cannot be read; the current version stays in use.
+     */
+    public Version reload() throws SQLException, IOException {
+        synchronized (reloadLock) {
+            long start = System.nanoTime();
+            WorldSnapshot snapshot;
+            try {
+                snapshot = loader.load();
+            } catch (SQLException | IOException | RuntimeException e) {
+                failedReloads++;
+                throw e;
+            }
+            return swap(snapshot, start);
+        }
+    }
+
+    /**
+     * Runs {@link #reload()}, printing instead of throwing when it fails.
+     *
+     * @return True if a new version was swapped in.
+     */
+    public boolean tryReload() {
+        try {
+            Version version = reload();
+            System.out.println("Snapshot version " + version.getNumber() + " loaded in " + version.getLoadMillis()
+                    + " ms: " + version.getSnapshot().getCountryCount() + " countries, "
+                    + version.getSnapshot().getCityCount() + " cities");
+            return true;
+        } catch (SQLException | IOException | RuntimeException e) {
+            System.out.println("Could not reload snapshot: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Swaps in a snapshot built elsewhere, such as a copy of the current one moved off the heap.
+     *
+     * @param snapshot The snapshot to serve from now on.
+     * @return The new version.
+     */
+    public Version swap(WorldSnapshot snapshot) {
+        synchronized (reloadLock) {
+            return swap(snapshot, System.nanoTime());
+        }
+    }
+
+    private Version swap(WorldSnapshot snapshot, long start) {
+        Version previous = current;
+        long number = previous == null ? 1 : previous.getNumber() + 1;
+        Version next = new Version(number, snapshot, start);
+        current = next;
+        reloads++;
+        for (Consumer<Version> listener : listeners) {
+            listener.accept(next);
+        }
+        return next;
+    }
+
+    /**
+     * Calls a listener after every swap, on the thread that made it.
+     *
+     * @param listener Told about each new version.
+     */
+    public void addListener(Consumer<Version> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Runs {@link #tryReload()} in the background every period, starting one period from now.
+     *
+     * @param periodMillis Time between the end of one reload and the start of the next.
+     */
+    public synchronized void start(long periodMillis) {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "snapshot-reload");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::tryReload, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops the background reloads, waiting briefly for one in progress to finish. The
+     * current version stays in use.
+     */
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            try {
+                scheduler.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            scheduler = null;
+        }
+    }
+
+    /**
+     * @return The number of the current version, or 0 before the first load.
+     */
+    public long getVersion() {
+        Version version = current;
+        return version == null ? 0 : version.getNumber();
+    }
+
+    /**
+     * @return How long the current version took to load, in milliseconds, or 0 before the first load.
+     */
+    public long getLastReloadMillis() {
+        Version version = current;
+        return version == null ? 0 : version.getLoadMillis();
+    }
+
+    /**
+     * @return The number of versions swapped in.
+     */
+    public long getReloads() {
+        return reloads;
+    }
+
+    /**
+     * @return The number of reloads that failed and left the current version in use.
+     */
+    public long getFailedReloads() {
+        return failedReloads;
+    }
+
+    /**
+     * Prints the reload metrics.
+     */
+    public void printStats() {
+        System.out.println("Snapshot reloads: version " + getVersion() + ", " + getReloads() + " loaded, "
+                + getFailedReloads() + " failed, last took " + getLastReloadMillis() + " ms");
+    }
+}
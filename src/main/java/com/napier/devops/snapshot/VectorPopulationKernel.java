@@ -0,0 +1,100 @@
+package com.napier.devops.snapshot;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link PopulationKernel} on the widest int vectors the CPU has.
+ * <p>
+ * Widening every lane to long would halve the lanes summed per instruction, so sums stay
+ * in int lanes instead: each value is split into its high and low 16 bits, which are
+ * accumulated separately. A block of up to {@link #BLOCK} vectors cannot overflow either
+ * accumulator, and after each block both are added into a long. The result is exact for any
+ * int values. Only loaded when the {@code jdk.incubator.vector} module is present.
+ */
+final class VectorPopulationKernel implements PopulationKernel {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    /**
+     * Vectors summed before the accumulators are flushed: 2^15 low halves of at most
+     * 2^16 - 1 each stay below 2^31.
+     */
+    static final int BLOCK = 1 << 15;
+
+    @Override
+    public long sum(int[] values) {
+        return sum(values, null, 0);
+    }
+
+    @Override
+    public long sumWhereEqual(int[] values, int[] keys, int key) {
+        if (keys.length != values.length) {
+            throw new IllegalArgumentException("Columns differ in length");
+        }
+        return sum(values, keys, key);
+    }
+
+    @Override
+    public int countWhereEqual(int[] keys, int key) {
+        int count = 0;
+        int row = 0;
+        int upper = SPECIES.loopBound(keys.length);
+        for (; row < upper; row += SPECIES.length()) {
+            count += IntVector.fromArray(SPECIES, keys, row).eq(key).trueCount();
+        }
+        for (; row < keys.length; row++) {
+            if (keys[row] == key) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Sums the values, or only those whose key matches when keys are given.
+     */
+    private static long sum(int[] values, int[] keys, int key) {
+        long sum = 0;
+        int step = SPECIES.length();
+        int upper = SPECIES.loopBound(values.length);
+        IntVector zero = IntVector.zero(SPECIES);
+
+        int row = 0;
+        while (row < upper) {
+            int blockEnd = (int) Math.min(upper, row + (long) BLOCK * step);
+            IntVector low = zero;
+            IntVector high = zero;
+            for (; row < blockEnd; row += step) {
+                IntVector value = IntVector.fromArray(SPECIES, values, row);
+                if (keys != null) {
+                    VectorMask<Integer> match = IntVector.fromArray(SPECIES, keys, row).eq(key);
+                    value = zero.blend(value, match);
+                }
+                low = low.add(value.and(0xFFFF));
+                high = high.add(value.lanewise(VectorOperators.ASHR, 16));
+            }
+            sum += (lanes(high) << 16) + lanes(low);
+        }
+
+        for (; row < values.length; row++) {
+            if (keys == null || keys[row] == key) {
+                sum += values[row];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Adds the lanes of an accumulator as longs, since their total may not fit an int.
+     */
+    private static long lanes(IntVector vector) {
+        long sum = 0;
+        for (int lane = 0; lane < SPECIES.length(); lane++) {
+            sum += vector.lane(lane);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,490 @@
+package com.napier.devops.snapshot;
+
+import com.napier.devops.City;
+import com.napier.devops.CityRecord;
+import com.napier.devops.Country;
+import com.napier.devops.CountryRecord;
+import com.napier.devops.SymbolTable;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * An immutable, column-oriented copy of the country, city and countrylanguage tables held in memory.
+ * <p>
+ * Every column is indexed by row. Continent, region, district and language are stored as
+ * {@link SymbolTable} codes, and each city and language row points at its country by row
+ * index, so the snapshot engine can group and join without hashing or comparing strings.
+ * City and country names can be shared between snapshots through {@link Builder#names},
+ * so snapshots of different years loaded side by side hold one copy of every name they
+ * have in common.
+ * <p>
+ * The country and language columns are plain arrays. The city columns, which grow with the
+ * dataset, can be moved out of the heap into direct or file-mapped memory with
+ * {@link #offHeap()}, after which the reports read them from there.
+ */
+public class WorldSnapshot {
+
+    final SymbolTable symbols;
+
+    // Country columns
+    final int countryCount;
+    final String[] countryCodes;
+    final String[] countryNames;
+    final int[] countryContinents;
+    final int[] countryRegions;
+    final int[] countryPopulations;
+    final int[] countryCapitals;
+
+    // Dense per-snapshot codes for the continents and regions of the country rows
+    final AreaCodes continents;
+    final AreaCodes regions;
+
+    // City columns, on or off the heap
+    final int cityCount;
+    final CityColumns cities;
+
+    // Country language columns
+    final int languageCount;
+    final int[] languageCountries;
+    final int[] languageNames;
+    final boolean[] languageOfficial;
+    final double[] languagePercentages;
+
+    private final Map<String, Integer> countryRows;
+
+    // Built on first use
+    private volatile GeographyTree geography;
+
+    private WorldSnapshot(Builder builder) {
+        this.symbols = builder.symbols;
+
+        this.countryCount = builder.countryCount;
+        this.countryCodes = Arrays.copyOf(builder.countryCodes, countryCount);
+        this.countryNames = Arrays.copyOf(builder.countryNames, countryCount);
+        this.countryContinents = Arrays.copyOf(builder.countryContinents, countryCount);
+        this.countryRegions = Arrays.copyOf(builder.countryRegions, countryCount);
+        this.countryPopulations = Arrays.copyOf(builder.countryPopulations, countryCount);
+        this.countryCapitals = Arrays.copyOf(builder.countryCapitals, countryCount);
+        this.continents = AreaCodes.of(countryContinents, countryCount);
+        this.regions = AreaCodes.of(countryRegions, countryCount);
+
+        this.countryRows = new HashMap<>(countryCount * 2);
+        for (int row = 0; row < countryCount; row++) {
+            countryRows.put(countryCodes[row], row);
+        }
+
+        this.cityCount = builder.cityCount;
+
+        // Resolve each city's country code to a country row once, at build time
+        int[] cityCountries = new int[cityCount];
+        for (int row = 0; row < cityCount; row++) {
+            Integer countryRow = countryRows.get(builder.cityCountryCodes[row]);
+            cityCountries[row] = countryRow == null ? -1 : countryRow;
+        }
+        this.cities = CityColumns.heap(cityCount, Arrays.copyOf(builder.cityIds, cityCount),
+                Arrays.copyOf(builder.cityNames, cityCount), cityCountries,
+                Arrays.copyOf(builder.cityDistricts, cityCount), Arrays.copyOf(builder.cityPopulations, cityCount));
+
+        this.languageCount = builder.languageCount;
+        this.languageNames = Arrays.copyOf(builder.languageNames, languageCount);
+        this.languageOfficial = Arrays.copyOf(builder.languageOfficial, languageCount);
+        this.languagePercentages = Arrays.copyOf(builder.languagePercentages, languageCount);
+        this.languageCountries = new int[languageCount];
+        for (int row = 0; row < languageCount; row++) {
+            Integer countryRow = countryRows.get(builder.languageCountryCodes[row]);
+            languageCountries[row] = countryRow == null ? -1 : countryRow;
+        }
+    }
+
+    /**
+     * Shares every column of another snapshot except the city columns.
+     */
+    private WorldSnapshot(WorldSnapshot source, CityColumns cities) {
+        this.symbols = source.symbols;
+        this.countryCount = source.countryCount;
+        this.countryCodes = source.countryCodes;
+        this.countryNames = source.countryNames;
+        this.countryContinents = source.countryContinents;
+        this.countryRegions = source.countryRegions;
+        this.countryPopulations = source.countryPopulations;
+        this.countryCapitals = source.countryCapitals;
+        this.continents = source.continents;
+        this.regions = source.regions;
+        this.countryRows = source.countryRows;
+        this.cityCount = source.cityCount;
+        this.cities = cities;
+        this.languageCount = source.languageCount;
+        this.languageCountries = source.languageCountries;
+        this.languageNames = source.languageNames;
+        this.languageOfficial = source.languageOfficial;
+        this.languagePercentages = source.languagePercentages;
+    }
+
+    /**
+     * Loads a snapshot of the country, city and countrylanguage tables.
+     *
+     * @param connection The connection to the world database.
+     * @return A new snapshot.
+     * @throws SQLException If any of the tables cannot be read.
+     */
+    public static WorldSnapshot load(Connection connection) throws SQLException {
+        Builder builder = builder();
+
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT Code, Name, Continent, Region, Population, Capital FROM country")) {
+            while (rs.next()) {
+                builder.addCountry(rs.getString("Code"), rs.getString("Name"), rs.getString("Continent"),
+                        rs.getString("Region"), rs.getInt("Population"), rs.getInt("Capital"));
+            }
+        }
+
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT ID, Name, CountryCode, District, Population FROM city")) {
+            while (rs.next()) {
+                builder.addCity(rs.getInt("ID"), rs.getString("Name"), rs.getString("CountryCode"),
+                        rs.getString("District"), rs.getInt("Population"));
+            }
+        }
+
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT CountryCode, Language, IsOfficial, Percentage FROM countrylanguage")) {
+            while (rs.next()) {
+                builder.addLanguage(rs.getString("CountryCode"), rs.getString("Language"),
+                        "T".equals(rs.getString("IsOfficial")), rs.getDouble("Percentage"));
+            }
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * @return A builder that encodes its strings with a symbol table of its own, so the
+     * districts and names of a snapshot go away with it.
+     */
+    public static Builder builder() {
+        return new Builder(new SymbolTable());
+    }
+
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    public int getCountryCount() {
+        return countryCount;
+    }
+
+    public int getCityCount() {
+        return cityCount;
+    }
+
+    /**
+     * Copies the city columns into direct memory, outside the Java heap.
+     *
+     * @return A snapshot sharing every other column with this one.
+     */
+    public WorldSnapshot offHeap() {
+        return new WorldSnapshot(this, cities.toDirect());
+    }
+
+    /**
+     * Copies the city columns into memory mapped from a file, outside the Java heap.
+     *
+     * @param file The file to hold the city columns, which is created or replaced.
+     * @return A snapshot sharing every other column with this one.
+     * @throws IOException If the file cannot be written or mapped.
+     */
+    public WorldSnapshot offHeap(Path file) throws IOException {
+        return new WorldSnapshot(this, cities.toMapped(file));
+    }
+
+    /**
+     * @return True if the city columns are outside the Java heap.
+     */
+    public boolean isOffHeap() {
+        return cities.isOffHeap();
+    }
+
+    public int getLanguageCount() {
+        return languageCount;
+    }
+
+    /**
+     * @param code A country code such as "USA".
+     * @return The row of the country, or -1 if it is not in the snapshot.
+     */
+    public int findCountryRow(String code) {
+        Integer row = countryRows.get(code);
+        return row == null ? -1 : row;
+    }
+
+    public String getCountryCode(int row) {
+        return countryCodes[row];
+    }
+
+    public String getCountryName(int row) {
+        return countryNames[row];
+    }
+
+    /**
+     * @return The symbol code of the country's continent.
+     */
+    public int getCountryContinent(int row) {
+        return countryContinents[row];
+    }
+
+    /**
+     * @return The symbol code of the country's region.
+     */
+    public int getCountryRegion(int row) {
+        return countryRegions[row];
+    }
+
+    public int getCountryPopulation(int row) {
+        return countryPopulations[row];
+    }
+
+    /**
+     * @return The ID of the country's capital city, or 0 if it has none.
+     */
+    public int getCountryCapital(int row) {
+        return countryCapitals[row];
+    }
+
+    public int getCityId(int row) {
+        return cities.id(row);
+    }
+
+    public String getCityName(int row) {
+        return cities.name(row);
+    }
+
+    /**
+     * @return The country row of the city, or -1 if its country is not in the snapshot.
+     */
+    public int getCityCountry(int row) {
+        return cities.country(row);
+    }
+
+    /**
+     * @return The symbol code of the city's district.
+     */
+    public int getCityDistrict(int row) {
+        return cities.district(row);
+    }
+
+    public int getCityPopulation(int row) {
+        return cities.population(row);
+    }
+
+    /**
+     * @return The country code of the city, as stored in the city table.
+     */
+    public String getCityCountryCode(int row) {
+        int countryRow = cities.country(row);
+        return countryRow < 0 ? null : countryCodes[countryRow];
+    }
+
+    /**
+     * @return The country row of the language, or -1 if its country is not in the snapshot.
+     */
+    public int getLanguageCountry(int row) {
+        return languageCountries[row];
+    }
+
+    /**
+     * @return The symbol code of the language.
+     */
+    public int getLanguageName(int row) {
+        return languageNames[row];
+    }
+
+    public boolean isLanguageOfficial(int row) {
+        return languageOfficial[row];
+    }
+
+    /**
+     * @return The percentage of the country's population that speaks the language.
+     */
+    public double getLanguagePercentage(int row) {
+        return languagePercentages[row];
+    }
+
+    /**
+     * Materialises a city row as a {@link City}.
+     */
+    public City toCity(int row) {
+        return new City().setAll(cities.id(row), cities.name(row), getCityCountryCode(row),
+                symbols.symbol(cities.district(row)), cities.population(row));
+    }
+
+    /**
+     * Materialises a country row as a {@link Country}.
+     */
+    public Country toCountry(int row) {
+        return new Country().setAll(countryCodes[row], countryNames[row], symbols.symbol(countryContinents[row]),
+                symbols.symbol(countryRegions[row]), countryPopulations[row], countryCapitals[row]);
+    }
+
+    /**
+     * Reads a city row as an immutable record. Nothing is cached, so each call builds a new one.
+     */
+    public CityRecord toCityRecord(int row) {
+        return new CityRecord(cities.id(row), cities.name(row), getCityCountryCode(row),
+                symbols.symbol(cities.district(row)), cities.population(row));
+    }
+
+    /**
+     * Reads a country row as an immutable record. Nothing is cached, so each call builds a new one.
+     */
+    public CountryRecord toCountryRecord(int row) {
+        return new CountryRecord(countryCodes[row], countryNames[row], symbols.symbol(countryContinents[row]),
+                symbols.symbol(countryRegions[row]), countryPopulations[row], countryCapitals[row]);
+    }
+
+    /**
+     * @return The geography hierarchy with its population totals, built on first use and
+     * then shared by every report served from this snapshot.
+     */
+    public GeographyTree getGeography() {
+        GeographyTree tree = geography;
+        if (tree == null) {
+            synchronized (this) {
+                tree = geography;
+                if (tree == null) {
+                    tree = GeographyTree.of(this);
+                    geography = tree;
+                }
+            }
+        }
+        return tree;
+    }
+
+    /**
+     * @return Every city in row order, as a read-only view that is safe to share.
+     */
+    public RecordListView<CityRecord> getCityRecords() {
+        return RecordListView.of(this::toCityRecord, cityCount);
+    }
+
+    /**
+     * @return Every country in row order, as a read-only view that is safe to share.
+     */
+    public RecordListView<CountryRecord> getCountryRecords() {
+        return RecordListView.of(this::toCountryRecord, countryCount);
+    }
+
+    /**
+     * Collects rows into a snapshot, growing its column arrays as needed.
+     */
+    public static class Builder {
+        private final SymbolTable symbols;
+        private UnaryOperator<String> names = UnaryOperator.identity();
+
+        private int countryCount;
+        private String[] countryCodes = new String[256];
+        private String[] countryNames = new String[256];
+        private int[] countryContinents = new int[256];
+        private int[] countryRegions = new int[256];
+        private int[] countryPopulations = new int[256];
+        private int[] countryCapitals = new int[256];
+
+        private int cityCount;
+        private int[] cityIds = new int[4096];
+        private String[] cityNames = new String[4096];
+        private String[] cityCountryCodes = new String[4096];
+        private int[] cityDistricts = new int[4096];
+        private int[] cityPopulations = new int[4096];
+
+        private int languageCount;
+        private String[] languageCountryCodes = new String[1024];
+        private int[] languageNames = new int[1024];
+        private boolean[] languageOfficial = new boolean[1024];
+        private double[] languagePercentages = new double[1024];
+
+        Builder(SymbolTable symbols) {
+            this.symbols = symbols;
+        }
+
+        /**
+         * Passes every city and country name through a dictionary, such as one shared by
+         * several snapshots. By default names are kept as given.
+         *
+         * @param names Returns the copy of a name to keep.
+         * @return This builder.
+         */
+        public Builder names(UnaryOperator<String> names) {
+            this.names = names;
+            return this;
+        }
+
+        public Builder addCountry(String code, String name, String continent, String region, int population, int capital) {
+            if (countryCount == countryCodes.length) {
+                int capacity = countryCount * 2;
+                countryCodes = Arrays.copyOf(countryCodes, capacity);
+                countryNames = Arrays.copyOf(countryNames, capacity);
+                countryContinents = Arrays.copyOf(countryContinents, capacity);
+                countryRegions = Arrays.copyOf(countryRegions, capacity);
+                countryPopulations = Arrays.copyOf(countryPopulations, capacity);
+                countryCapitals = Arrays.copyOf(countryCapitals, capacity);
+            }
+
+            countryCodes[countryCount] = symbols.intern(code);
+            countryNames[countryCount] = names.apply(name);
+            countryContinents[countryCount] = symbols.code(continent);
+            countryRegions[countryCount] = symbols.code(region);
+            countryPopulations[countryCount] = population;
+            countryCapitals[countryCount] = capital;
+            countryCount++;
+            return this;
+        }
+
+        public Builder addCity(int id, String name, String countryCode, String district, int population) {
+            if (cityCount == cityIds.length) {
+                int capacity = cityCount * 2;
+                cityIds = Arrays.copyOf(cityIds, capacity);
+                cityNames = Arrays.copyOf(cityNames, capacity);
+                cityCountryCodes = Arrays.copyOf(cityCountryCodes, capacity);
+                cityDistricts = Arrays.copyOf(cityDistricts, capacity);
+                cityPopulations = Arrays.copyOf(cityPopulations, capacity);
+            }
+
+            cityIds[cityCount] = id;
+            cityNames[cityCount] = names.apply(name);
+            cityCountryCodes[cityCount] = countryCode;
+            cityDistricts[cityCount] = symbols.code(district);
+            cityPopulations[cityCount] = population;
+            cityCount++;
+            return this;
+        }
+
+        public Builder addLanguage(String countryCode, String language, boolean official, double percentage) {
+            if (languageCount == languageNames.length) {
+                int capacity = languageCount * 2;
+                languageCountryCodes = Arrays.copyOf(languageCountryCodes, capacity);
+                languageNames = Arrays.copyOf(languageNames, capacity);
+                languageOfficial = Arrays.copyOf(languageOfficial, capacity);
+                languagePercentages = Arrays.copyOf(languagePercentages, capacity);
+            }
+
+            languageCountryCodes[languageCount] = countryCode;
+            languageNames[languageCount] = symbols.code(language);
+            languageOfficial[languageCount] = official;
+            languagePercentages[languageCount] = percentage;
+            languageCount++;
+            return this;
+        }
+
+        public WorldSnapshot build() {
+            return new WorldSnapshot(this);
+        }
+    }
+}
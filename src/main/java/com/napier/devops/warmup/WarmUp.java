@@ -0,0 +1,209 @@
+package com.napier.devops.warmup;
+
+import com.napier.devops.SymbolTable;
+import com.napier.devops.generator.WorldDataGenerator;
+import com.napier.devops.service.*;
+import com.napier.devops.snapshot.SnapshotCityReportService;
+import com.napier.devops.snapshot.SnapshotCountryReportService;
+import com.napier.devops.snapshot.SnapshotPopulationMetricsReportService;
+import com.napier.devops.snapshot.WorldSnapshot;
+import com.napier.pojo.Page;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Runs every get*, print* and search* report path against a small built-in dataset before the
+ * application serves real reports, so class loading, JDBC driver start-up and JIT
+ * compilation of the report code happen up front instead of on the first real request.
+ * <p>
+ * The JDBC services run against a {@link WarmUpConnection}, and the snapshot services
+ * against a small generated world, so no database is needed and warm-up can run while
+ * the database is still starting. Each service is given a stream that discards its report
+ * output, and the generated world interns its values into a throwaway symbol table; the time
+ * of the first call and the steady state time of each path are returned for logging.
+ * <p>
+ * Running this class on its own exercises the same classes the application loads, which
+ * is how the Dockerfile records a class data sharing archive.
+ */
+public class WarmUp {
+
+    public static final int DEFAULT_ITERATIONS = 200;
+
+    /**
+     * Rows every warm-up query returns.
+     */
+    private static final int ROWS = 50;
+
+    /**
+     * Size of the generated world the snapshot services run against.
+     */
+    private static final double SNAPSHOT_SCALE = 0.05;
+
+    private final int iterations;
+
+    /**
+     * @param iterations How many times to call each path after the first call.
+     */
+    public WarmUp(int iterations) {
+        this.iterations = iterations;
+    }
+
+    /**
+     * Time taken by one report path.
+     *
+     * @param path        The service and method.
+     * @param firstNanos  The first call, including class loading.
+     * @param steadyNanos The average of the calls after it.
+     * @param failed      Whether the path threw an exception.
+     */
+    public record Timing(String path, long firstNanos, long steadyNanos, boolean failed) {
+        @Override
+        public String toString() {
+            return String.format("%-72s first %9.3f ms   steady %9.1f us%s", path, firstNanos / 1e6,
+                    steadyNanos / 1e3, failed ? "   (failed)" : "");
+        }
+    }
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ITERATIONS;
+        printReport(new WarmUp(iterations).run());
+    }
+
+    /**
+     * Exercises every report path.
+     *
+     * @return The timing of each path, in the order they ran.
+     */
+    public List<Timing> run() {
+        List<Timing> timings = new ArrayList<>();
+
+        try {
+            // Load the driver here too, its static initialiser is a large part of a cold start
+            Class.forName("com.mysql.cj.jdbc.Driver");
+        } catch (ClassNotFoundException e) {
+            System.out.println("Could not load SQL driver " + e.getMessage());
+        }
+
+        // The made-up continents and regions go into a table of their own, dropped after warm-up
+        SymbolTable.withGeography(new SymbolTable(), () -> exerciseAll(timings));
+        return timings;
+    }
+
+    /**
+     * Exercises every service, each printing to a stream that discards its output.
+     */
+    private void exerciseAll(List<Timing> timings) {
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+        Connection connection = WarmUpConnection.create(ROWS);
+        WorldSnapshot snapshot = new WorldDataGenerator(SNAPSHOT_SCALE, 1).generateSnapshot();
+
+        CityReportService cities = new CityReportService(connection);
+        CityReportService indexed = new CityReportService(connection);
+        indexed.setCapitalIndex(CapitalIndex.of(snapshot));
+        indexed.setCityNameIndex(CityNameIndex.of(snapshot));
+        CountryReportService countries = new CountryReportService(connection);
+        PopulationMetricsReportService metrics = new PopulationMetricsReportService(connection);
+        SnapshotCityReportService snapshotCities = new SnapshotCityReportService(snapshot);
+        SnapshotCountryReportService snapshotCountries = new SnapshotCountryReportService(snapshot);
+        SnapshotPopulationMetricsReportService snapshotMetrics = new SnapshotPopulationMetricsReportService(snapshot);
+
+        cities.setOutput(discard, discard);
+        indexed.setOutput(discard, discard);
+        countries.setOutput(discard, discard);
+        metrics.setOutput(discard, discard);
+        snapshotCities.setOutput(discard, discard);
+        snapshotCountries.setOutput(discard, discard);
+        snapshotMetrics.setOutput(discard, discard);
+
+        exercise("CityReportService", cities, timings);
+        exercise("CityReportService (indexed)", indexed, timings);
+        exercise("CountryReportService", countries, timings);
+        exercise("PopulationMetricsReportService", metrics, timings);
+        exercise("SnapshotCityReportService", snapshotCities, timings);
+        exercise("SnapshotCountryReportService", snapshotCountries, timings);
+        exercise("SnapshotPopulationMetricsReportService", snapshotMetrics, timings);
+    }
+
+    /**
+     * Prints how long warm-up took and the timing of each path.
+     */
+    public static void printReport(List<Timing> timings) {
+        long total = 0;
+        for (Timing timing : timings) {
+            total += timing.firstNanos();
+        }
+        System.out.println("Warm-up: " + timings.size() + " report paths, first calls took "
+                + total / 1_000_000 + " ms");
+        timings.forEach(System.out::println);
+    }
+
+    /**
+     * Calls each public get*, print* and search* method of a service once, timed, then repeatedly.
+     */
+    private void exercise(String label, Object service, List<Timing> timings) {
+        Method[] methods = service.getClass().getMethods();
+        Arrays.sort(methods, Comparator.comparing(Method::getName).thenComparing(Method::getParameterCount));
+
+        for (Method method : methods) {
+            String name = method.getName();
+            if (method.getDeclaringClass() == Object.class || Modifier.isStatic(method.getModifiers())
+                    || !(name.startsWith("get") || name.startsWith("print") || name.startsWith("search"))) {
+                continue;
+            }
+
+            Object[] args = arguments(method);
+            if (args == null) {
+                continue;
+            }
+
+            boolean failed = false;
+            long start = System.nanoTime();
+            failed |= !call(service, method, args);
+            long first = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                failed |= !call(service, method, args);
+            }
+            long steady = iterations == 0 ? 0 : (System.nanoTime() - start) / iterations;
+
+            timings.add(new Timing(label + "." + name + "(" + method.getParameterCount() + ")", first, steady, failed));
+        }
+    }
+
+    /**
+     * Sample arguments for a report method, or null if it takes a type warm-up cannot supply.
+     */
+    private static Object[] arguments(Method method) {
+        Class<?>[] types = method.getParameterTypes();
+        Object[] args = new Object[types.length];
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] == int.class) {
+                args[i] = 10;
+            } else if (types[i] == String.class) {
+                // Paged reports take a resume token, which is null for the first page
+                args[i] = method.getReturnType() == Page.class ? null : "Asia";
+            } else {
+                return null;
+            }
+        }
+        return args;
+    }
+
+    private static boolean call(Object service, Method method, Object[] args) {
+        try {
+            method.invoke(service, args);
+            return true;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.napier.devops.warmup;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Locale;
+
+/**
+ * A JDBC connection that needs no database, for exercising the report services during
+ * warm-up. Every query returns the same small table, whatever columns it asks for:
+ * strings that look like the column they are read from and numbers that fall row by row,
+ * so the services' reading, sorting and formatting code runs as it would for real data.
+ */
+public final class WarmUpConnection {
+
+    private static final String[] CONTINENTS = {"Asia", "Europe", "North America", "Africa", "Oceania", "South America"};
+
+    private WarmUpConnection() {
+    }
+
+    /**
+     * @param rows The number of rows every query returns.
+     * @return A connection backed by the built-in table.
+     */
+    public static Connection create(int rows) {
+        return proxy(Connection.class, (proxy, method, args) -> switch (method.getName()) {
+            case "prepareStatement" -> statement(PreparedStatement.class, rows);
+            case "createStatement" -> statement(Statement.class, rows);
+            case "isValid" -> true;
+            default -> defaultValue(method);
+        });
+    }
+
+    private static <T extends Statement> T statement(Class<T> type, int rows) {
+        return proxy(type, (proxy, method, args) -> method.getName().equals("executeQuery")
+                ? resultSet(rows)
+                : defaultValue(method));
+    }
+
+    private static ResultSet resultSet(int rows) {
+        int[] row = {-1};
+        return proxy(ResultSet.class, (proxy, method, args) -> switch (method.getName()) {
+            case "next" -> ++row[0] < rows;
+            case "getString" -> text(String.valueOf(args[0]), row[0]);
+            case "getInt" -> (rows - row[0]) * 100_000;
+            case "getLong" -> (rows - row[0]) * 1_000_000L;
+            case "getDouble" -> 100.0 / (row[0] + 2);
+            case "wasNull" -> false;
+            default -> defaultValue(method);
+        });
+    }
+
+    /**
+     * A value that looks like it belongs in the named column.
+     */
+    private static String text(String column, int row) {
+        String name = column.toLowerCase(Locale.ROOT);
+        if (name.contains("code")) {
+            return "W" + (char) ('A' + row / 26 % 26) + (char) ('A' + row % 26);
+        }
+        if (name.contains("continent")) {
+            return CONTINENTS[row % CONTINENTS.length];
+        }
+        if (name.contains("official")) {
+            return row % 2 == 0 ? "T" : "F";
+        }
+        return "Warm-up " + column + " " + row;
+    }
+
+    private static Object defaultValue(Method method) {
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == double.class) {
+            return 0.0;
+        } else if (type == float.class) {
+            return 0.0f;
+        } else if (type == short.class) {
+            return (short) 0;
+        } else if (type == byte.class) {
+            return (byte) 0;
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+}
@@ -0,0 +1,114 @@
+package com.napier.devops.wire;
+
+import com.napier.devops.City;
+import com.napier.devops.Country;
+import com.napier.pojo.StaleList;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.napier.devops.wire.WireFormat.*;
+
+/**
+ * Fetches reports from a {@link ReportServer} over one connection, one report at a time.
+ */
+public class ReportClient implements Closeable {
+
+    private final SocketChannel channel;
+    private final ByteBuffer prefix = ByteBuffer.allocate(LENGTH_PREFIX);
+    private ByteBuffer frame = ByteBuffer.allocate(8192);
+
+    /**
+     * @param host The host the server runs on.
+     * @param port The port it listens on.
+     * @throws IOException If the server cannot be reached.
+     */
+    public ReportClient(String host, int port) throws IOException {
+        this.channel = SocketChannel.open(new InetSocketAddress(host, port));
+    }
+
+    /**
+     * Runs a city report.
+     *
+     * @param report A report with {@link WireFormat#CITY_ROWS}.
+     * @param text   The text argument, or null if the report takes none.
+     * @param number The number argument, or 0 if the report takes none.
+     * @return The cities in report order, in a {@link StaleList} if the server served them
+     * from an older copy.
+     * @throws IOException If the connection fails or the server reports an error.
+     */
+    public List<City> getCities(WireReport report, String text, int number) throws IOException {
+        if (report.getRowType() != CITY_ROWS) {
+            throw new IllegalArgumentException(report + " is not a city report");
+        }
+        RowDecoder decoder = fetch(report, text, number);
+        List<City> cities = decoder.isStale() ? new StaleList<>() : new ArrayList<>();
+        decoder.getRows().forEach(row -> cities.add((City) row));
+        return cities;
+    }
+
+    /**
+     * Runs a country report.
+     *
+     * @param report A report with {@link WireFormat#COUNTRY_ROWS}.
+     * @param text   The text argument, or null if the report takes none.
+     * @param number The number argument, or 0 if the report takes none.
+     * @return The countries in report order, in a {@link StaleList} if the server served them
+     * from an older copy.
+     * @throws IOException If the connection fails or the server reports an error.
+     */
+    public List<Country> getCountries(WireReport report, String text, int number) throws IOException {
+        if (report.getRowType() != COUNTRY_ROWS) {
+            throw new IllegalArgumentException(report + " is not a country report");
+        }
+        RowDecoder decoder = fetch(report, text, number);
+        List<Country> countries = decoder.isStale() ? new StaleList<>() : new ArrayList<>();
+        decoder.getRows().forEach(row -> countries.add((Country) row));
+        return countries;
+    }
+
+    private RowDecoder fetch(WireReport report, String text, int number) throws IOException {
+        ByteBuffer request = request(report, text, number);
+        while (request.hasRemaining()) {
+            channel.write(request);
+        }
+
+        RowDecoder decoder = new RowDecoder();
+        boolean more = true;
+        while (more) {
+            prefix.clear();
+            readFully(prefix);
+            int length = prefix.getInt(0);
+            if (length <= 0 || length > MAX_FRAME) {
+                throw new IOException("Frame of " + length + " bytes");
+            }
+
+            if (frame.capacity() < length) {
+                frame = ByteBuffer.allocate(Math.max(length, frame.capacity() * 2));
+            }
+            frame.clear().limit(length);
+            readFully(frame);
+            more = decoder.decode(frame.flip());
+        }
+        return decoder;
+    }
+
+    private void readFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Server closed the connection");
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,380 @@
+package com.napier.devops.wire;
+
+import com.napier.devops.service.CityReportService;
+import com.napier.devops.service.CountryReportService;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.napier.devops.wire.WireFormat.*;
+
+/**
+ * Serves city and country reports to internal clients over TCP in the binary format
+ * described in {@link WireFormat}.
+ * <p>
+ * One thread runs a selector over every client connection and only moves bytes: reports
+ * run on a pool of worker threads, so a slow query on one connection does not hold up
+ * accepting, reading and writing on the others. A worker encodes the first frame of its
+ * reply and hands it back to the selector, which sends it and encodes the rest a frame at
+ * a time as the socket accepts it. Each connection has at most one report running, so a
+ * client may send its next request before the reply to the last one has arrived, and
+ * requests are answered in order.
+ */
+public class ReportServer implements Closeable {
+
+    /**
+     * Size of the frames replies are cut into.
+     */
+    static final int FRAME_BYTES = 64 * 1024;
+
+    /**
+     * Largest request frame accepted. Requests only carry a report code and two arguments.
+     */
+    static final int MAX_REQUEST = 4096;
+
+    /**
+     * Worker threads running reports when no number is given.
+     */
+    public static final int DEFAULT_WORKERS = 4;
+
+    private final CityReportService cityReportService;
+    private final CountryReportService countryReportService;
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final ExecutorService workers;
+
+    // Replies the workers have finished, waiting for the selector thread to send them
+    private final Queue<Reply> replies = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = true;
+    private Thread thread;
+
+    /**
+     * Opens the server socket. Nothing is served until {@link #serve()} or {@link #start()}.
+     *
+     * @param cityReportService    Service the city reports run against.
+     * @param countryReportService Service the country reports run against.
+     * @param port                 Port to listen on, or 0 for any free port.
+     * @throws IOException If the port cannot be bound.
+     */
+    public ReportServer(CityReportService cityReportService, CountryReportService countryReportService, int port)
+            throws IOException {
+        this(cityReportService, countryReportService, port, DEFAULT_WORKERS);
+    }
+
+    /**
+     * Opens the server socket. Nothing is served until {@link #serve()} or {@link #start()}.
+     *
+     * @param cityReportService    Service the city reports run against.
+     * @param countryReportService Service the country reports run against.
+     * @param port                 Port to listen on, or 0 for any free port.
+     * @param workers              Threads that run reports, at least 1.
+     * @throws IOException If the port cannot be bound.
+     */
+    public ReportServer(CityReportService cityReportService, CountryReportService countryReportService, int port,
+                        int workers) throws IOException {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Workers must be at least 1");
+        }
+        this.cityReportService = cityReportService;
+        this.countryReportService = countryReportService;
+        this.workers = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "report-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * @return The port the server is listening on.
+     */
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * Serves clients on a background thread.
+     */
+    public synchronized void start() {
+        if (thread == null) {
+            thread = new Thread(this::serve, "report-server");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Serves clients on the calling thread until the server is closed.
+     */
+    public void serve() {
+        System.out.println("Report server listening on port " + getPort());
+        try {
+            loop();
+        } finally {
+            release();
+        }
+    }
+
+    private void loop() {
+        while (running) {
+            try {
+                selector.select();
+            } catch (IOException | ClosedSelectorException e) {
+                break;
+            }
+            if (!selector.isOpen()) {
+                break;
+            }
+            sendReplies();
+
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                try {
+                    if (key.isValid() && key.isAcceptable()) {
+                        accept();
+                    }
+                    if (key.isValid() && key.isReadable()) {
+                        read(key);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        write(key);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    key.cancel();
+                    closeQuietly(key.channel());
+                }
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel client = server.accept();
+        if (client != null) {
+            client.configureBlocking(false);
+            client.register(selector, SelectionKey.OP_READ, new Session());
+        }
+    }
+
+    private void read(SelectionKey key) throws IOException {
+        Session session = (Session) key.attachment();
+        if (((SocketChannel) key.channel()).read(session.in) < 0) {
+            key.cancel();
+            key.channel().close();
+            return;
+        }
+        if (nextRequest(key)) {
+            write(key);
+        } else {
+            readWhileIdle(key);
+        }
+    }
+
+    /**
+     * Starts sending the replies the workers have finished.
+     */
+    private void sendReplies() {
+        Reply reply;
+        while ((reply = replies.poll()) != null) {
+            SelectionKey key = reply.key();
+            if (!key.isValid()) {
+                continue;
+            }
+            Session session = (Session) key.attachment();
+            session.running = false;
+            session.encoder = reply.encoder();
+            session.out = reply.out();
+            try {
+                write(key);
+            } catch (IOException | RuntimeException e) {
+                key.cancel();
+                closeQuietly(key.channel());
+            }
+        }
+    }
+
+    /**
+     * Sends as much of the reply as the socket takes, then moves on to the next request.
+     */
+    private void write(SelectionKey key) throws IOException {
+        Session session = (Session) key.attachment();
+        SocketChannel client = (SocketChannel) key.channel();
+
+        while (session.out != null) {
+            client.write(session.out);
+            if (session.out.hasRemaining()) {
+                key.interestOps(SelectionKey.OP_WRITE);
+                return;
+            }
+            if (session.encoder != null && session.encoder.hasNext()) {
+                session.encoder.next(session.out);
+            } else {
+                session.out = null;
+                session.encoder = null;
+                nextRequest(key);
+            }
+        }
+        readWhileIdle(key);
+    }
+
+    /**
+     * Reads from the client only while no report is running and the request buffer has
+     * room. A full buffer would otherwise leave the socket readable, and the selector
+     * would wake up again at once for as long as the report ran.
+     */
+    private static void readWhileIdle(SelectionKey key) {
+        Session session = (Session) key.attachment();
+        boolean idle = !session.running && session.in.hasRemaining();
+        key.interestOps(idle ? SelectionKey.OP_READ : 0);
+    }
+
+    /**
+     * Starts the reply to the next buffered request, if one has fully arrived and no report
+     * is still running or being sent.
+     *
+     * @return Whether a reply is ready to send. A report handed to a worker is sent once the
+     * worker has finished it.
+     * @throws IOException If the request is too large to be one.
+     */
+    private boolean nextRequest(SelectionKey key) throws IOException {
+        Session session = (Session) key.attachment();
+        if (session.out != null || session.running || session.in.position() < LENGTH_PREFIX) {
+            return false;
+        }
+
+        int length = session.in.getInt(0);
+        if (length < 0 || length > MAX_REQUEST) {
+            throw new IOException("Request of " + length + " bytes");
+        }
+        if (session.in.position() < LENGTH_PREFIX + length) {
+            return false;
+        }
+
+        // The request is read before compacting, which moves the bytes under it
+        reply(key, session.in.slice(LENGTH_PREFIX, length));
+        session.in.flip();
+        session.in.position(LENGTH_PREFIX + length);
+        session.in.compact();
+        return session.out != null;
+    }
+
+    /**
+     * Answers a bad request at once, or hands the report to a worker.
+     */
+    private void reply(SelectionKey key, ByteBuffer request) {
+        Session session = (Session) key.attachment();
+        WireReport report;
+        String text;
+        int number;
+        try {
+            report = WireReport.fromCode(readVarint(request));
+            text = readString(request);
+            number = (int) readSignedVarint(request);
+        } catch (RuntimeException e) {
+            session.out = RowEncoder.error("Malformed request");
+            return;
+        }
+
+        if (report == null) {
+            session.out = RowEncoder.error("Unknown report");
+            return;
+        }
+
+        session.running = true;
+        workers.execute(() -> {
+            // The session's frame is free until the reply is posted back
+            Reply reply;
+            try {
+                RowEncoder encoder = new RowEncoder(report.getRowType(),
+                        report.run(cityReportService, countryReportService, text, number));
+                encoder.next(session.frame);
+                reply = new Reply(key, encoder, session.frame);
+            } catch (RuntimeException e) {
+                reply = new Reply(key, null, RowEncoder.error(e.getMessage()));
+            }
+            replies.add(reply);
+            selector.wakeup();
+        });
+    }
+
+    /**
+     * Stops serving and closes every connection.
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+
+        Thread serving;
+        synchronized (this) {
+            serving = thread;
+        }
+        if (serving == null) {
+            // Nothing is serving on another thread, or the caller is the one serving
+            release();
+        } else if (serving != Thread.currentThread()) {
+            try {
+                serving.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Closes the connections, the selector and the server socket.
+     */
+    private synchronized void release() {
+        workers.shutdownNow();
+        if (selector.isOpen()) {
+            for (SelectionKey key : selector.keys()) {
+                closeQuietly(key.channel());
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // Nothing more to do with a selector that will not close
+            }
+        }
+        closeQuietly(server);
+    }
+
+    private static void closeQuietly(Channel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Nothing more to do with a channel that will not close
+        }
+    }
+
+    /**
+     * The request bytes received and the reply being sent on one connection. Only the
+     * selector thread touches it, apart from the frame a worker fills while the report runs.
+     */
+    private static class Session {
+        private final ByteBuffer in = ByteBuffer.allocate(LENGTH_PREFIX + MAX_REQUEST);
+        private final ByteBuffer frame = ByteBuffer.allocate(FRAME_BYTES);
+        private ByteBuffer out;
+        private RowEncoder encoder;
+        private boolean running;
+    }
+
+    /**
+     * A finished report: the first frame to send and the encoder of the rest, if any.
+     */
+    private record Reply(SelectionKey key, RowEncoder encoder, ByteBuffer out) {
+    }
+}
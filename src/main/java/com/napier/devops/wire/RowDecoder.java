@@ -0,0 +1,99 @@
+package com.napier.devops.wire;
+
+import com.napier.devops.City;
+import com.napier.devops.Country;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.napier.devops.wire.WireFormat.*;
+
+/**
+ * Decodes the frames of one report reply back into cities or countries, keeping the
+ * string dictionary the {@link RowEncoder} built up across the frames.
+ */
+public class RowDecoder {
+
+    private final List<String> dictionary = new ArrayList<>();
+    private final List<Object> rows = new ArrayList<>();
+    private boolean ended;
+    private boolean stale;
+
+    /**
+     * Decodes one frame.
+     *
+     * @param frame The frame, without its length prefix.
+     * @return Whether more frames follow.
+     * @throws IOException If the frame is an error or is malformed.
+     */
+    public boolean decode(ByteBuffer frame) throws IOException {
+        if (ended) {
+            throw new IOException("Frame after the end of the reply");
+        }
+
+        try {
+            byte type = frame.get();
+            switch (type) {
+                case END -> {
+                    long total = readVarint(frame);
+                    if (total != rows.size()) {
+                        throw new IOException("Expected " + total + " rows, received " + rows.size());
+                    }
+                    stale = (frame.get() & STALE) != 0;
+                    ended = true;
+                }
+                case CITY_ROWS -> {
+                    while (frame.hasRemaining()) {
+                        rows.add(new City().setAll(readNullableInt(frame), readDictionary(frame),
+                                readDictionary(frame), readDictionary(frame), readNullableInt(frame)));
+                    }
+                }
+                case COUNTRY_ROWS -> {
+                    while (frame.hasRemaining()) {
+                        rows.add(new Country().setAll(readDictionary(frame), readDictionary(frame),
+                                readDictionary(frame), readDictionary(frame), readNullableInt(frame),
+                                readNullableInt(frame)));
+                    }
+                }
+                case ERROR -> throw new IOException("Report failed: " + readString(frame));
+                default -> throw new IOException("Unknown frame type " + type);
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Malformed frame", e);
+        }
+        return !ended;
+    }
+
+    /**
+     * @return The rows decoded so far.
+     */
+    public List<Object> getRows() {
+        return rows;
+    }
+
+    /**
+     * @return True if the end frame said the rows were served from an older copy.
+     */
+    public boolean isStale() {
+        return stale;
+    }
+
+    private String readDictionary(ByteBuffer frame) {
+        long entry = readVarint(frame);
+        if (entry == 0) {
+            return null;
+        }
+        if (entry == 1) {
+            String value = readString(frame);
+            dictionary.add(value);
+            return value;
+        }
+        if (entry - 2 >= dictionary.size()) {
+            throw new IllegalArgumentException("Unknown dictionary entry " + (entry - 2));
+        }
+        return dictionary.get((int) (entry - 2));
+    }
+}
@@ -0,0 +1,141 @@
+package com.napier.devops.wire;
+
+import com.napier.devops.City;
+import com.napier.devops.Country;
+import com.napier.pojo.Staleness;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.napier.devops.wire.WireFormat.*;
+
+/**
+ * Encodes the rows of one report into frames, a buffer at a time.
+ * <p>
+ * Frames are produced on demand, so a server only ever holds the frame it is sending and
+ * a slow client holds back encoding rather than filling memory. Strings are dictionary
+ * coded for the whole reply: the first time a country code, district or name appears it
+ * is sent in full, and after that as its position in the dictionary. A string is written
+ * as 0 for null, 1 followed by the string for a new entry, or its position plus 2.
+ */
+public class RowEncoder {
+
+    private final byte rowType;
+    private final List<?> rows;
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private int next;
+    private boolean ended;
+
+    /**
+     * @param rowType {@link WireFormat#CITY_ROWS} or {@link WireFormat#COUNTRY_ROWS}.
+     * @param rows    The report's cities or countries, in report order. If they are
+     *                {@link Staleness#isStale stale} the end frame says so.
+     */
+    public RowEncoder(byte rowType, List<?> rows) {
+        this.rowType = rowType;
+        this.rows = rows;
+    }
+
+    /**
+     * @return Whether there is another frame, the end frame included.
+     */
+    public boolean hasNext() {
+        return !ended;
+    }
+
+    /**
+     * Fills a buffer with the next frame, as many rows as fit followed by the end frame
+     * once the rows run out. The buffer is cleared first and flipped ready to write.
+     *
+     * @param buffer A buffer of up to {@link WireFormat#MAX_FRAME} bytes.
+     * @throws IllegalStateException If a single row cannot fit in the buffer.
+     */
+    public void next(ByteBuffer buffer) {
+        buffer.clear();
+        buffer.position(LENGTH_PREFIX);
+
+        if (next == rows.size()) {
+            buffer.put(END);
+            writeVarint(buffer, rows.size());
+            buffer.put(Staleness.isStale(rows) ? STALE : 0);
+            ended = true;
+        } else {
+            buffer.put(rowType);
+            int first = next;
+            while (next < rows.size() && buffer.remaining() >= maxSize(rows.get(next))) {
+                write(buffer, rows.get(next++));
+            }
+            if (next == first) {
+                throw new IllegalStateException("Row " + first + " does not fit in a frame");
+            }
+        }
+
+        buffer.putInt(0, buffer.position() - LENGTH_PREFIX);
+        buffer.flip();
+    }
+
+    /**
+     * @return A complete error frame.
+     */
+    public static ByteBuffer error(String message) {
+        String text = message == null ? "" : message;
+        ByteBuffer frame = ByteBuffer.allocate(LENGTH_PREFIX + 1 + 5 + text.length() * 3);
+        frame.position(LENGTH_PREFIX);
+        frame.put(ERROR);
+        writeString(frame, text);
+        frame.putInt(0, frame.position() - LENGTH_PREFIX);
+        return frame.flip();
+    }
+
+    private void write(ByteBuffer buffer, Object row) {
+        if (row instanceof City city) {
+            writeNullableInt(buffer, city.getId());
+            writeDictionary(buffer, city.getName());
+            writeDictionary(buffer, city.getCountryCode());
+            writeDictionary(buffer, city.getDistrict());
+            writeNullableInt(buffer, city.getPopulation());
+        } else {
+            Country country = (Country) row;
+            writeDictionary(buffer, country.getCode());
+            writeDictionary(buffer, country.getName());
+            writeDictionary(buffer, country.getContinent());
+            writeDictionary(buffer, country.getRegion());
+            writeNullableInt(buffer, country.getPopulation());
+            writeNullableInt(buffer, country.getCapital());
+        }
+    }
+
+    private void writeDictionary(ByteBuffer buffer, String value) {
+        if (value == null) {
+            writeVarint(buffer, 0);
+            return;
+        }
+
+        Integer entry = dictionary.get(value);
+        if (entry != null) {
+            writeVarint(buffer, entry + 2L);
+        } else {
+            dictionary.put(value, dictionary.size());
+            writeVarint(buffer, 1);
+            writeString(buffer, value);
+        }
+    }
+
+    /**
+     * The most bytes a row can take, with every string new and every number at full length.
+     */
+    private static int maxSize(Object row) {
+        if (row instanceof City city) {
+            return 2 * 5 + maxSize(city.getName()) + maxSize(city.getCountryCode()) + maxSize(city.getDistrict());
+        }
+        Country country = (Country) row;
+        return 2 * 5 + maxSize(country.getCode()) + maxSize(country.getName())
+                + maxSize(country.getContinent()) + maxSize(country.getRegion());
+    }
+
+    private static int maxSize(String value) {
+        return value == null ? 1 : 1 + 5 + value.length() * 3;
+    }
+}
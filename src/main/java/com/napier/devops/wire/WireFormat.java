@@ -0,0 +1,140 @@
+package com.napier.devops.wire;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The framing and primitive encodings of the binary report protocol.
+ * <p>
+ * Every message is a frame: a four byte big-endian length followed by that many bytes.
+ * A request frame holds a report code, a text argument and a number argument. The reply
+ * is zero or more row frames, each holding the row type and then rows up to the end of
+ * the frame, with no count of its own. An end frame with the total row count and a flags
+ * byte follows, or an error frame with a message. The {@link #STALE} flag says the rows were served from an older copy because
+ * the database was unavailable.
+ * <p>
+ * Numbers are varints: seven bits per byte, low bits first, the top bit set on every byte
+ * but the last, so a typical city population takes three bytes instead of its six or seven
+ * digits. Nullable numbers are stored plus one, with zero meaning null. Strings go through
+ * a {@link RowEncoder} dictionary and are sent in full only the first time they appear.
+ */
+public final class WireFormat {
+
+    /**
+     * Bytes in the length prefix of a frame.
+     */
+    public static final int LENGTH_PREFIX = 4;
+
+    /**
+     * Largest frame either side accepts. Row frames are cut well below this.
+     */
+    public static final int MAX_FRAME = 1 << 20;
+
+    // Frame types
+    public static final byte END = 0;
+    public static final byte CITY_ROWS = 1;
+    public static final byte COUNTRY_ROWS = 2;
+    public static final byte ERROR = 3;
+
+    // End frame flags
+    public static final byte STALE = 1;
+
+    private WireFormat() {
+    }
+
+    /**
+     * Writes a number that is never negative as a varint.
+     */
+    public static void writeVarint(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Reads a varint written by {@link #writeVarint}.
+     *
+     * @throws IllegalArgumentException If the varint is longer than a long allows.
+     */
+    public static long readVarint(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    /**
+     * Writes a number that may be negative, zigzag encoded so small negatives stay short.
+     */
+    public static void writeSignedVarint(ByteBuffer buffer, long value) {
+        writeVarint(buffer, (value << 1) ^ (value >> 63));
+    }
+
+    public static long readSignedVarint(ByteBuffer buffer) {
+        long zigzag = readVarint(buffer);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    /**
+     * Writes a number that may be null, as the zigzag value plus one with zero for null.
+     */
+    public static void writeNullableInt(ByteBuffer buffer, Integer value) {
+        writeVarint(buffer, value == null ? 0 : ((((long) value) << 1) ^ (value >> 31)) + 1);
+    }
+
+    public static Integer readNullableInt(ByteBuffer buffer) {
+        long stored = readVarint(buffer);
+        if (stored == 0) {
+            return null;
+        }
+        long zigzag = stored - 1;
+        return (int) ((zigzag >>> 1) ^ -(zigzag & 1));
+    }
+
+    /**
+     * Writes a string as its UTF-8 length and bytes, outside any dictionary.
+     */
+    public static void writeString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(buffer, bytes.length);
+        buffer.put(bytes);
+    }
+
+    public static String readString(ByteBuffer buffer) {
+        long length = readVarint(buffer);
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[(int) length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Encodes a request frame, length prefix included.
+     *
+     * @param report The report to run.
+     * @param text   The text argument, such as a continent, or null if the report takes none.
+     * @param number The number argument, such as N, or 0 if the report takes none.
+     * @return The frame, ready to write.
+     */
+    public static ByteBuffer request(WireReport report, String text, int number) {
+        byte[] bytes = text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer frame = ByteBuffer.allocate(LENGTH_PREFIX + 2 * 5 + bytes.length + 10);
+        frame.position(LENGTH_PREFIX);
+        writeVarint(frame, report.getCode());
+        writeVarint(frame, bytes.length);
+        frame.put(bytes);
+        writeSignedVarint(frame, number);
+        frame.putInt(0, frame.position() - LENGTH_PREFIX);
+        return frame.flip();
+    }
+}
@@ -0,0 +1,88 @@
+package com.napier.devops.wire;
+
+import com.napier.devops.service.CityReportService;
+import com.napier.devops.service.CountryReportService;
+
+import java.util.List;
+
+/**
+ * The reports the binary protocol serves, with the code a request names them by.
+ * Codes are part of the protocol, so existing ones must not be renumbered.
+ */
+public enum WireReport {
+    ALL_CITIES(1, WireFormat.CITY_ROWS,
+            (cities, countries, text, n) -> cities.getAllCitiesByPopulationLargestToSmallest()),
+    CITIES_IN_CONTINENT(2, WireFormat.CITY_ROWS,
+            (cities, countries, text, n) -> cities.getAllCitiesInContinentByPopulationLargestToSmallest(text)),
+    CITIES_IN_REGION(3, WireFormat.CITY_ROWS,
+            (cities, countries, text, n) -> cities.getAllCitiesInRegionByPopulationLargestToSmallest(text)),
+    CITIES_IN_COUNTRY(4, WireFormat.CITY_ROWS,
+            (cities, countries, text, n) -> cities.getAllCitiesInCountryByPopulationLargestToSmallest(text)),
+    CITIES_IN_DISTRICT(5, WireFormat.CITY_ROWS,
+            (cities, countries, text, n) -> cities.getAllCitiesInDistrictByPopulationLargestToSmallest(text)),
+    TOP_CITIES(6, WireFormat.CITY_ROWS,
+            (cities, countries, text, n) -> cities.getTopNCitiesByPopulationLargestToSmallest(n)),
+    TOP_CITIES_IN_CONTINENT(7, WireFormat.CITY_ROWS,
+            (cities, countries, text, n) -> cities.getTopCitiesByContinent(text, n)),
+    TOP_CITIES_IN_REGION(8, WireFormat.CITY_ROWS,
+            (cities, countries, text, n) -> cities.getTopCitiesByRegion(text, n)),
+    ALL_CAPITALS(9, WireFormat.CITY_ROWS,
+            (cities, countries, text, n) -> cities.getAllCapitalCitiesByPopulation()),
+    CAPITALS_IN_CONTINENT(10, WireFormat.CITY_ROWS,
+            (cities, countries, text, n) -> cities.getAllCapitalCitiesInContinentByPopulation(text)),
+    CAPITALS_IN_REGION(11, WireFormat.CITY_ROWS,
+            (cities, countries, text, n) -> cities.getAllCapitalCitiesInRegionByPopulation(text)),
+    SEARCH_CITIES(12, WireFormat.CITY_ROWS,
+            (cities, countries, text, n) -> cities.searchCities(text, n)),
+    ALL_COUNTRIES(20, WireFormat.COUNTRY_ROWS,
+            (cities, countries, text, n) -> countries.getAllCountriesByPopulationLargestToSmallest()),
+    COUNTRIES_IN_CONTINENT(21, WireFormat.COUNTRY_ROWS,
+            (cities, countries, text, n) -> countries.getAllCountriesInContinentByPopulationLargestToSmallest(text)),
+    COUNTRIES_IN_REGION(22, WireFormat.COUNTRY_ROWS,
+            (cities, countries, text, n) -> countries.getAllCountriesInRegionByPopulationLargestToSmallest(text));
+
+    /**
+     * Runs a report against the services.
+     */
+    @FunctionalInterface
+    interface Query {
+        List<?> run(CityReportService cities, CountryReportService countries, String text, int n);
+    }
+
+    private final int code;
+    private final byte rowType;
+    private final Query query;
+
+    WireReport(int code, byte rowType, Query query) {
+        this.code = code;
+        this.rowType = rowType;
+        this.query = query;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * @return {@link WireFormat#CITY_ROWS} or {@link WireFormat#COUNTRY_ROWS}.
+     */
+    public byte getRowType() {
+        return rowType;
+    }
+
+    List<?> run(CityReportService cities, CountryReportService countries, String text, int n) {
+        return query.run(cities, countries, text, n);
+    }
+
+    /**
+     * @return The report with a code, or null if there is none.
+     */
+    public static WireReport fromCode(long code) {
+        for (WireReport report : values()) {
+            if (report.code == code) {
+                return report;
+            }
+        }
+        return null;
+    }
+}
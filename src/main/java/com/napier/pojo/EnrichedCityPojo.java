@@ -0,0 +1,56 @@
+package com.napier.pojo;
+
+import com.napier.devops.City;
+
+/**
+ * Represents a city together with the name, continent and region of its country.
+ * @since 19th October 2026
+ */
+public class EnrichedCityPojo {
+    private City city;
+    private String countryName;
+    private String continent;
+    private String region;
+
+    public City getCity() {
+        return city;
+    }
+
+    public void setCity(City city) {
+        this.city = city;
+    }
+
+    /**
+     * @return The name of the city's country, or null if the country is not known.
+     */
+    public String getCountryName() {
+        return countryName;
+    }
+
+    public void setCountryName(String countryName) {
+        this.countryName = countryName;
+    }
+
+    public String getContinent() {
+        return continent;
+    }
+
+    public void setContinent(String continent) {
+        this.continent = continent;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public void setRegion(String region) {
+        this.region = region;
+    }
+
+    @Override
+    public String toString() {
+        return "City { id=" + city.getId() + ", name='" + city.getName() + "', country='" + countryName
+                + "' (" + city.getCountryCode() + "), continent='" + continent + "', region='" + region
+                + "', district='" + city.getDistrict() + "', population=" + city.getPopulation() + " }\n";
+    }
+}
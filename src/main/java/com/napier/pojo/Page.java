@@ -0,0 +1,54 @@
+package com.napier.pojo;
+
+import java.util.List;
+
+/**
+ * One page of a report, with the token to fetch the page after it.
+ *
+ * @param <T> The type of row in the report.
+ */
+public class Page<T> {
+    private final List<T> items;
+    private final String nextToken;
+    private final boolean stale;
+
+    public Page(List<T> items, String nextToken) {
+        this(items, nextToken, false);
+    }
+
+    /**
+     * @param stale Whether the page was served from an older copy because the database was unavailable.
+     */
+    public Page(List<T> items, String nextToken, boolean stale) {
+        this.items = items;
+        this.nextToken = nextToken;
+        this.stale = stale;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * @return The token for the next page, or null if this is the last page.
+     */
+    public String getNextToken() {
+        return nextToken;
+    }
+
+    public boolean hasNext() {
+        return nextToken != null;
+    }
+
+    /**
+     * @return True if the page was served from an older copy because the database was unavailable.
+     */
+    public boolean isStale() {
+        return stale;
+    }
+
+    @Override
+    public String toString() {
+        return "Page{items=" + items.size() + ", nextToken=" + nextToken + (stale ? ", stale" : "") + "}";
+    }
+}
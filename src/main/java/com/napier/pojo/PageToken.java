@@ -0,0 +1,57 @@
+package com.napier.pojo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Marks where a page of a population report ended: the population and key (city ID or
+ * country code) of its last row. The next page starts straight after that row, so fetching
+ * a page deep into a report costs the same as fetching the first one.
+ * <p>
+ * Tokens are passed to callers as opaque strings with {@link #encode()} and turned back
+ * into positions with {@link #decode(String)}.
+ */
+public class PageToken {
+    private final long population;
+    private final String key;
+
+    public PageToken(long population, String key) {
+        this.population = population;
+        this.key = key;
+    }
+
+    public long getPopulation() {
+        return population;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return The token as a URL-safe string.
+     */
+    public String encode() {
+        String text = population + ":" + key;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param token A string returned by {@link #encode()}.
+     * @return The position the token marks.
+     * @throws IllegalArgumentException If the string is not a page token.
+     */
+    public static PageToken decode(String token) {
+        String text = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        int separator = text.indexOf(':');
+        if (separator <= 0 || separator == text.length() - 1) {
+            throw new IllegalArgumentException("Invalid page token: " + token);
+        }
+        return new PageToken(Long.parseLong(text.substring(0, separator)), text.substring(separator + 1));
+    }
+
+    @Override
+    public String toString() {
+        return "PageToken{population=" + population + ", key='" + key + "'}";
+    }
+}
@@ -0,0 +1,85 @@
+package com.napier.pojo;
+
+import java.text.NumberFormat;
+import java.util.Locale;
+
+/**
+ * Represents how the cities of an area are spread over population buckets.
+ * <p>
+ * With bounds b1 &lt; b2 &lt; ... &lt; bn there are n + 1 buckets: below b1, from each
+ * bound up to the next, and b{@code n} or more.
+ * @since 19th October 2026
+ */
+public class PopulationHistogramPojo {
+    private String name;
+    private int[] bounds;
+    private int[] cityCounts;
+    private long[] populations;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return The lower bound of every bucket after the first.
+     */
+    public int[] getBounds() {
+        return bounds;
+    }
+
+    public void setBounds(int[] bounds) {
+        this.bounds = bounds;
+    }
+
+    /**
+     * @return The number of cities in each bucket.
+     */
+    public int[] getCityCounts() {
+        return cityCounts;
+    }
+
+    public void setCityCounts(int[] cityCounts) {
+        this.cityCounts = cityCounts;
+    }
+
+    /**
+     * @return The population living in the cities of each bucket.
+     */
+    public long[] getPopulations() {
+        return populations;
+    }
+
+    public void setPopulations(long[] populations) {
+        this.populations = populations;
+    }
+
+    /**
+     * @param bucket The bucket, from 0.
+     * @return The population range of the bucket, such as "1,000,000 - 4,999,999".
+     */
+    public String getLabel(int bucket) {
+        NumberFormat nf = NumberFormat.getInstance(Locale.US);
+        if (bucket == 0) {
+            return "< " + nf.format(bounds[0]);
+        }
+        if (bucket == bounds.length) {
+            return ">= " + nf.format(bounds[bounds.length - 1]);
+        }
+        return nf.format(bounds[bucket - 1]) + " - " + nf.format(bounds[bucket] - 1L);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("Population Histogram for " + name + ":");
+        for (int bucket = 0; bucket < cityCounts.length; bucket++) {
+            text.append(String.format("%n%-25s %,8d cities %,15d people", getLabel(bucket), cityCounts[bucket],
+                    populations[bucket]));
+        }
+        return text.toString();
+    }
+
+}
@@ -11,6 +11,7 @@ public class PopulationReportPojo {
     private double percentageInCities;
     private long populationNotInCities;
     private double percentageNotInCities;
+    private boolean stale;
 
     public String getName() {
         return name;
@@ -60,6 +61,17 @@ public class PopulationReportPojo {
         this.percentageNotInCities = percentageNotInCities;
     }
 
+    /**
+     * @return True if the report was served from an older copy because the database was unavailable.
+     */
+    public boolean isStale() {
+        return stale;
+    }
+
+    public void setStale(boolean stale) {
+        this.stale = stale;
+    }
+
     @Override
     public String toString() {
         return String.format(
@@ -0,0 +1,97 @@
+package com.napier.pojo;
+
+/**
+ * Represents where a city or country ranks by population within an area.
+ * @since 19th October 2026
+ */
+public class RankPojo {
+    private String name;
+    private long population;
+    private String scope;
+    private String scopeName;
+    private int rank;
+    private int scopeSize;
+    private double percentile;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getPopulation() {
+        return population;
+    }
+
+    public void setPopulation(long population) {
+        this.population = population;
+    }
+
+    /**
+     * @return The level of the area ranked within, such as "Continent".
+     */
+    public String getScope() {
+        return scope;
+    }
+
+    public void setScope(String scope) {
+        this.scope = scope;
+    }
+
+    public String getScopeName() {
+        return scopeName;
+    }
+
+    public void setScopeName(String scopeName) {
+        this.scopeName = scopeName;
+    }
+
+    /**
+     * @return The position in the area's population order, 1 for the largest.
+     */
+    public int getRank() {
+        return rank;
+    }
+
+    public void setRank(int rank) {
+        this.rank = rank;
+    }
+
+    /**
+     * @return The number of cities or countries ranked in the area.
+     */
+    public int getScopeSize() {
+        return scopeSize;
+    }
+
+    public void setScopeSize(int scopeSize) {
+        this.scopeSize = scopeSize;
+    }
+
+    /**
+     * @return The percentage of the area's cities or countries ranked at or below this one,
+     * 100 for the largest.
+     */
+    public double getPercentile() {
+        return percentile;
+    }
+
+    public void setPercentile(double percentile) {
+        this.percentile = percentile;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                """
+                Rank of %s within %s (%s):
+                Population: %,d
+                Rank: %,d of %,d
+                Percentile: %.2f""",
+                name, scopeName, scope, population, rank, scopeSize, percentile
+        );
+    }
+
+}
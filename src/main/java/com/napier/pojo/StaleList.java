@@ -0,0 +1,25 @@
+package com.napier.pojo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * The rows of a report that was served from an older copy because the database was
+ * unavailable. It is an ordinary list otherwise, so callers that do not care still work.
+ *
+ * @param <T> The type of row in the report.
+ */
+public class StaleList<T> extends ArrayList<T> {
+
+    private static final long serialVersionUID = 1L;
+
+    public StaleList() {
+    }
+
+    /**
+     * @param rows The rows of the report, in report order.
+     */
+    public StaleList(Collection<? extends T> rows) {
+        super(rows);
+    }
+}
@@ -0,0 +1,93 @@
+package com.napier.pojo;
+
+import com.napier.devops.PopulationMetrics;
+
+import java.util.List;
+
+/**
+ * Marks report results as stale, and reads the mark back.
+ * <p>
+ * The report methods return plain lists and beans, so the mark travels with the result
+ * itself: lists become a {@link StaleList}, and pages and population reports carry a flag.
+ * A single city, a single country or a bare number has nowhere to keep it and is returned
+ * unmarked.
+ */
+public final class Staleness {
+
+    /**
+     * The line printed ahead of a report that was served stale.
+     */
+    public static final String NOTE = "Note: The database is unavailable, this report may be out of date.";
+
+    private Staleness() {
+    }
+
+    /**
+     * @param result A report result served from an older copy, may be null.
+     * @return The result marked as stale. Lists, pages and reports are copied rather than
+     * changed, as the older copy may hand out the same objects again.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T mark(T result) {
+        if (result instanceof List<?> list) {
+            return (T) new StaleList<>(list);
+        }
+        if (result instanceof Page<?> page) {
+            return (T) new Page<>(page.getItems(), page.getNextToken(), true);
+        }
+        if (result instanceof PopulationMetrics metrics) {
+            PopulationMetrics copy = new PopulationMetrics().setAll(metrics.getNameOfArea(), metrics.getReportType(),
+                    metrics.getTotalPopulation(), metrics.getCityPopulation(), metrics.getNonCityPopulation(),
+                    metrics.getCityPopulationPercentage(), metrics.getNonCityPopulationPercentage());
+            copy.setStale(true);
+            return (T) copy;
+        }
+        if (result instanceof PopulationReportPojo report) {
+            PopulationReportPojo copy = new PopulationReportPojo();
+            copy.setName(report.getName());
+            copy.setTotalPopulation(report.getTotalPopulation());
+            copy.setPopulationInCities(report.getPopulationInCities());
+            copy.setPercentageInCities(report.getPercentageInCities());
+            copy.setPopulationNotInCities(report.getPopulationNotInCities());
+            copy.setPercentageNotInCities(report.getPercentageNotInCities());
+            copy.setStale(true);
+            return (T) copy;
+        }
+        if (result instanceof WorldReportPojo world) {
+            WorldReportPojo copy = new WorldReportPojo();
+            copy.setContinents(world.getContinents());
+            copy.setRegions(world.getRegions());
+            copy.setCountries(world.getCountries());
+            copy.setWorldPopulation(world.getWorldPopulation());
+            copy.setContinent(world.getContinent());
+            copy.setRegion(world.getRegion());
+            copy.setCountry(world.getCountry());
+            copy.setStale(true);
+            return (T) copy;
+        }
+        return result;
+    }
+
+    /**
+     * @param result A report result, may be null.
+     * @return True if the result was marked by {@link #mark}.
+     */
+    public static boolean isStale(Object result) {
+        if (result instanceof StaleList<?>) {
+            return true;
+        }
+        if (result instanceof Page<?> page) {
+            return page.isStale();
+        }
+        if (result instanceof PopulationMetrics metrics) {
+            return metrics.isStale();
+        }
+        if (result instanceof PopulationReportPojo report) {
+            return report.isStale();
+        }
+        if (result instanceof WorldReportPojo world) {
+            return world.isStale();
+        }
+        return false;
+    }
+}
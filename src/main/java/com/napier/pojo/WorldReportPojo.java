@@ -0,0 +1,108 @@
+package com.napier.pojo;
+
+import com.napier.devops.PopulationMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The population reports of use cases 23 to 29, produced together from one pass over the countries.
+ */
+public class WorldReportPojo {
+    private List<PopulationMetrics> continents = new ArrayList<>();
+    private List<PopulationMetrics> regions = new ArrayList<>();
+    private List<PopulationMetrics> countries = new ArrayList<>();
+    private long worldPopulation;
+    private PopulationMetrics continent;
+    private PopulationReportPojo region;
+    private PopulationReportPojo country;
+    private boolean stale;
+
+    /**
+     * @return USE CASE 23, every continent, largest population first.
+     */
+    public List<PopulationMetrics> getContinents() {
+        return continents;
+    }
+
+    public void setContinents(List<PopulationMetrics> continents) {
+        this.continents = continents;
+    }
+
+    /**
+     * @return USE CASE 24, every region, largest population first.
+     */
+    public List<PopulationMetrics> getRegions() {
+        return regions;
+    }
+
+    public void setRegions(List<PopulationMetrics> regions) {
+        this.regions = regions;
+    }
+
+    /**
+     * @return USE CASE 25, every country, ordered by name.
+     */
+    public List<PopulationMetrics> getCountries() {
+        return countries;
+    }
+
+    public void setCountries(List<PopulationMetrics> countries) {
+        this.countries = countries;
+    }
+
+    /**
+     * @return USE CASE 26, the population of the world.
+     */
+    public long getWorldPopulation() {
+        return worldPopulation;
+    }
+
+    public void setWorldPopulation(long worldPopulation) {
+        this.worldPopulation = worldPopulation;
+    }
+
+    /**
+     * @return USE CASE 27, the requested continent, or null if it is unknown.
+     */
+    public PopulationMetrics getContinent() {
+        return continent;
+    }
+
+    public void setContinent(PopulationMetrics continent) {
+        this.continent = continent;
+    }
+
+    /**
+     * @return USE CASE 28, the requested region, or null if no region was named.
+     */
+    public PopulationReportPojo getRegion() {
+        return region;
+    }
+
+    public void setRegion(PopulationReportPojo region) {
+        this.region = region;
+    }
+
+    /**
+     * @return USE CASE 29, the requested country, or null if no country was named.
+     */
+    public PopulationReportPojo getCountry() {
+        return country;
+    }
+
+    public void setCountry(PopulationReportPojo country) {
+        this.country = country;
+    }
+
+    /**
+     * @return True if the reports were served from an older copy because the database was unavailable.
+     */
+    public boolean isStale() {
+        return stale;
+    }
+
+    public void setStale(boolean stale) {
+        this.stale = stale;
+    }
+}
@@ -674,4 +674,64 @@ public class AppTest {
         assertNotSame(firstCityService, secondCityService, "Services should be reinitialized");
         assertEquals(mockConnection2, app.getCon(), "New connection should be set");
     }
-}
\ No newline at end of file
+
+    /**
+     * Test that the capital index is skipped, not failed, when the connection could not be made.
+     */
+    @Test
+    void testLoadCapitalIndexWithoutConnection() {
+        // Arrange
+        app.setCon(null);
+
+        // Act
+        assertDoesNotThrow(() -> app.loadCapitalIndex());
+
+        // Assert
+        assertTrue(outContent.toString().contains("Could not build capital index: not connected to the database"));
+    }
+
+    /**
+     * Test that the city name index is skipped, not failed, when the connection could not be made.
+     */
+    @Test
+    void testLoadCityNameIndexWithoutConnection() {
+        // Arrange
+        app.setCon(null);
+
+        // Act
+        assertDoesNotThrow(() -> app.loadCityNameIndex());
+
+        // Assert
+        assertTrue(outContent.toString().contains("Could not build city name index: not connected to the database"));
+    }
+
+    /**
+     * Test that the population index is skipped, not failed, when the connection could not be made.
+     */
+    @Test
+    void testLoadPopulationIndexWithoutConnection() {
+        // Arrange
+        app.setCon(null);
+
+        // Act
+        assertDoesNotThrow(() -> app.loadPopulationIndex());
+
+        // Assert
+        assertTrue(outContent.toString().contains("Could not build population index: not connected to the database"));
+    }
+
+    /**
+     * Test that the country table is skipped, not failed, when the connection could not be made.
+     */
+    @Test
+    void testLoadCountryTableWithoutConnection() {
+        // Arrange
+        app.setCon(null);
+
+        // Act
+        assertDoesNotThrow(() -> app.loadCountryTable());
+
+        // Assert
+        assertTrue(outContent.toString().contains("Could not build country table: not connected to the database"));
+    }
+}
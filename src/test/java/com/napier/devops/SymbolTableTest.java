@@ -0,0 +1,123 @@
+package com.napier.devops;
+
+import com.napier.devops.snapshot.WorldSnapshot;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the SymbolTable class.
+ */
+public class SymbolTableTest {
+
+    /**
+     * Equal values get the same code and the same canonical instance.
+     */
+    @Test
+    void testInternReturnsCanonicalInstance() {
+        SymbolTable table = new SymbolTable();
+
+        String first = table.intern(new String("Western Europe"));
+        String second = table.intern(new String("Western Europe"));
+
+        assertSame(first, second);
+        assertEquals(table.code("Western Europe"), table.code(new String("Western Europe")));
+        assertEquals(1, table.size());
+    }
+
+    /**
+     * Codes are small, dense and map back to their symbol.
+     */
+    @Test
+    void testCodesAreDense() {
+        SymbolTable table = new SymbolTable();
+
+        for (int i = 0; i < 200; i++) {
+            assertEquals(i, table.code("District " + i));
+        }
+
+        assertEquals(200, table.size());
+        assertEquals("District 150", table.symbol(150));
+        assertEquals(150, table.find("District 150"));
+    }
+
+    /**
+     * Unknown and null values are handled without being added.
+     */
+    @Test
+    void testFindUnknownAndNull() {
+        SymbolTable table = new SymbolTable();
+
+        assertEquals(-1, table.find("Atlantis"));
+        assertEquals(-1, table.find(null));
+        assertNull(table.intern(null));
+        assertEquals(0, table.size());
+    }
+
+    /**
+     * Countries intern their continent and region through the shared table, and nothing with
+     * an open set of values, such as a district or country code, goes into it.
+     */
+    @Test
+    void testOnlyClosedSetsShared() {
+        City city = new City().setAll(1, "Kabul", new String("QQA"), new String("Unshared District"), 1780000);
+        Country country = new Country().setAll(new String("QQA"), "Afghanistan", new String("Asia"),
+                new String("Southern and Central Asia"), 22720000, 1);
+        new CityRecord(2, "Qandahar", "QQA", "Unshared Record District", 237500);
+
+        assertSame(SymbolTable.geography().intern("Asia"), country.getContinent());
+        assertSame(SymbolTable.geography().intern("Southern and Central Asia"), country.getRegion());
+        assertEquals(-1, SymbolTable.geography().find("QQA"));
+        assertEquals(-1, SymbolTable.geography().find("Unshared District"));
+        assertEquals(-1, SymbolTable.geography().find("Unshared Record District"));
+        assertEquals("Unshared District", city.getDistrict());
+    }
+
+    /**
+     * Each snapshot encodes its strings in a table of its own.
+     */
+    @Test
+    void testSnapshotsHaveOwnTables() {
+        WorldSnapshot first = WorldSnapshot.builder()
+                .addCountry("QQB", "Nowhere", "Asia", "Eastern Asia", 1000, 7)
+                .addCity(7, "Snapshot City", "QQB", "Snapshot District", 500)
+                .build();
+        WorldSnapshot second = WorldSnapshot.builder().build();
+
+        assertNotSame(first.getSymbols(), second.getSymbols());
+        assertNotSame(SymbolTable.geography(), first.getSymbols());
+        assertTrue(first.getSymbols().find("Snapshot District") >= 0);
+        assertEquals(-1, SymbolTable.geography().find("Snapshot District"));
+        assertEquals(-1, SymbolTable.geography().find("QQB"));
+    }
+
+    /**
+     * A stand-in table catches what the calling thread interns and is gone after the task;
+     * other threads keep the shared table throughout.
+     */
+    @Test
+    void testWithGeographyIsPerThread() throws InterruptedException {
+        SymbolTable shared = SymbolTable.geography();
+        SymbolTable scoped = new SymbolTable();
+        SymbolTable[] seenByOtherThread = new SymbolTable[1];
+
+        SymbolTable.withGeography(scoped, () -> {
+            assertSame(scoped, SymbolTable.geography());
+            new Country().setAll("QQZ", "Nowhere", "Scoped Continent", "Scoped Region", 1, null);
+
+            Thread other = new Thread(() -> seenByOtherThread[0] = SymbolTable.geography());
+            other.start();
+            try {
+                other.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        assertSame(shared, SymbolTable.geography());
+        assertSame(shared, seenByOtherThread[0]);
+        assertTrue(scoped.find("Scoped Region") >= 0);
+        assertEquals(-1, shared.find("Scoped Region"));
+        assertEquals(-1, shared.find("Scoped Continent"));
+    }
+}
@@ -0,0 +1,129 @@
+package com.napier.devops.coalescing;
+
+import com.napier.devops.City;
+import com.napier.devops.PopulationMetrics;
+import com.napier.devops.service.CapitalIndex;
+import com.napier.devops.service.CityReportService;
+import com.napier.devops.service.CountryReportService;
+import com.napier.devops.service.PopulationMetricsReportService;
+import com.napier.devops.snapshot.SnapshotCityReportService;
+import com.napier.devops.snapshot.SnapshotTestData;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the coalescing report service decorators.
+ */
+public class CoalescingReportServiceTest {
+
+    /**
+     * A dashboard refresh of the same report runs one query.
+     */
+    @Test
+    void testConcurrentReportRunsOnce() throws Exception {
+        PopulationMetricsReportService delegate = mock(PopulationMetricsReportService.class);
+        CountDownLatch release = new CountDownLatch(1);
+        List<PopulationMetrics> report = List.of(new PopulationMetrics().setAll("Asia",
+                PopulationMetrics.ReportType.CONTINENT, 3705025700L, 697604103L, 3007421597L, 18.83, 81.17));
+        when(delegate.getContinentPopulationReport()).thenAnswer(invocation -> {
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            return report;
+        });
+
+        RequestCoalescer coalescer = new RequestCoalescer();
+        PopulationMetricsReportService service = new CoalescingPopulationMetricsReportService(delegate, coalescer);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<PopulationMetrics>>> results = List.of(
+                    pool.submit(service::getContinentPopulationReport),
+                    pool.submit(service::getContinentPopulationReport),
+                    pool.submit(service::getContinentPopulationReport),
+                    pool.submit(service::getContinentPopulationReport));
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (coalescer.getCoalesced() < 3 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            // Every caller gets its own copy of the rows, so none can change another's
+            Set<PopulationMetrics> rows = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Future<List<PopulationMetrics>> result : results) {
+                List<PopulationMetrics> continents = result.get(5, TimeUnit.SECONDS);
+                assertEquals(1, continents.size());
+                assertEquals("Asia", continents.get(0).getNameOfArea());
+                assertEquals(3705025700L, continents.get(0).getTotalPopulation());
+                assertEquals(18.83, continents.get(0).getCityPopulationPercentage());
+                rows.add(continents.get(0));
+            }
+            assertEquals(4, rows.size());
+            assertFalse(rows.contains(report.get(0)));
+        } finally {
+            pool.shutdownNow();
+        }
+
+        verify(delegate, times(1)).getContinentPopulationReport();
+        assertEquals(3, coalescer.getCoalesced("PopulationMetricsReportService.getContinentPopulationReport"));
+    }
+
+    /**
+     * Arguments are passed through and the indexes are set on the service that runs the reports.
+     */
+    @Test
+    void testDelegation() {
+        CityReportService cities = mock(CityReportService.class);
+        CountryReportService countries = mock(CountryReportService.class);
+        List<City> asia = List.of(new City().setAll(1024, "Mumbai (Bombay)", "IND", "Maharashtra", 10500000));
+        when(cities.getTopCitiesByContinent("Asia", 10)).thenReturn(asia);
+        CapitalIndex index = mock(CapitalIndex.class);
+
+        RequestCoalescer coalescer = new RequestCoalescer();
+        CityReportService service = new CoalescingCityReportService(cities, coalescer);
+        service.setCapitalIndex(index);
+        service.printTopCitiesByContinent("Asia", 10);
+
+        assertEquals(asia, service.getTopCitiesByContinent("Asia", 10));
+        verify(cities).setCapitalIndex(index);
+        verify(cities, times(2)).getTopCitiesByContinent("Asia", 10);
+
+        new CoalescingCountryReportService(countries, coalescer).getCountryByCode("USA");
+        verify(countries).getCountryByCode("USA");
+        assertEquals(3, coalescer.getExecutions());
+    }
+
+    /**
+     * The fetch size reaches the service that runs the reports, and streamed reports run on
+     * it for each caller, so printing streams instead of reading the report into a list.
+     */
+    @Test
+    void testStreamingReachesDelegate() {
+        CityReportService delegate = new SnapshotCityReportService(SnapshotTestData.world());
+        CityReportService service = new CoalescingCityReportService(delegate, new RequestCoalescer());
+
+        service.setStreamFetchSize(100);
+        assertEquals(100, delegate.getStreamFetchSize());
+        assertEquals(100, service.getStreamFetchSize());
+
+        List<String> names = new ArrayList<>();
+        assertEquals(12, service.forEachCityByPopulation(city -> names.add(city.getName())));
+        assertEquals("São Paulo", names.get(0));
+        assertEquals(2, service.forEachCityInRegionByPopulation("Western Africa", city -> { }));
+        assertEquals(6, service.forEachCityInContinentByPopulation("North America", city -> { }));
+
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        service.setOutput(new PrintStream(printed), new PrintStream(printed));
+        service.printAllCitiesByPopulationLargestToSmallest();
+        assertTrue(printed.toString().contains("Ottawa"));
+    }
+}
@@ -0,0 +1,173 @@
+package com.napier.devops.coalescing;
+
+import com.napier.devops.City;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the in-flight request table.
+ */
+public class RequestCoalescerTest {
+
+    /**
+     * Callers arriving while a call runs share its single execution and its result.
+     */
+    @Test
+    void testConcurrentCallsShareOneExecution() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+
+        try {
+            List<Future<List<String>>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(pool.submit(() -> coalescer.call("top", () -> {
+                    runs.incrementAndGet();
+                    await(release);
+                    return new ArrayList<>(List.of("Shanghai", "Mumbai"));
+                }, "Asia", 10)));
+            }
+
+            waitFor(() -> coalescer.getCoalesced() == 7);
+            release.countDown();
+
+            List<String> first = results.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<List<String>> result : results) {
+                assertEquals(List.of("Shanghai", "Mumbai"), result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, runs.get());
+            assertEquals(8, coalescer.getCalls());
+            assertEquals(1, coalescer.getExecutions());
+            assertEquals(7, coalescer.getCoalesced("top"));
+            assertEquals(0, coalescer.getInFlight());
+
+            // Each caller has its own list, so changing one leaves the others alone
+            first.add("Delhi");
+            for (Future<List<String>> result : results.subList(1, results.size())) {
+                assertEquals(List.of("Shanghai", "Mumbai"), result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Callers that join a run get copies of its beans, and the caller that ran it does not
+     * share its beans with them either.
+     */
+    @Test
+    void testJoinedCallersGetCopies() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        CountDownLatch release = new CountDownLatch(1);
+        City city = new City().setAll(1024, "Mumbai (Bombay)", "IND", "Maharashtra", 10500000);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+
+        try {
+            List<Future<City>> results = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                results.add(pool.submit(() -> coalescer.call("city", () -> {
+                    await(release);
+                    return city;
+                }, 1024)));
+            }
+
+            waitFor(() -> coalescer.getCoalesced() == 1);
+            release.countDown();
+
+            City first = results.get(0).get(5, TimeUnit.SECONDS);
+            City second = results.get(1).get(5, TimeUnit.SECONDS);
+            assertNotSame(first, second);
+            assertNotSame(city, first);
+            assertNotSame(city, second);
+
+            first.setPopulation(0);
+            assertEquals(10500000, second.getPopulation());
+            assertEquals(10500000, city.getPopulation());
+            assertEquals("Mumbai (Bombay)", second.getName());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * A call nobody joined hands back its own result without copying it.
+     */
+    @Test
+    void testUnsharedResultIsNotCopied() {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        City city = new City().setAll(1, "Kabul", "AFG", "Kabol", 1780000);
+
+        assertSame(city, coalescer.call("city", () -> city, 1));
+    }
+
+    /**
+     * Different arguments and calls that do not overlap each run on their own.
+     */
+    @Test
+    void testSeparateCalls() {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        AtomicInteger runs = new AtomicInteger();
+
+        coalescer.call("top", runs::incrementAndGet, "Asia", 10);
+        coalescer.call("top", runs::incrementAndGet, "Asia", 10);
+        coalescer.call("top", runs::incrementAndGet, "Europe", 10);
+        coalescer.call("top", runs::incrementAndGet, (Object) null);
+
+        assertEquals(4, runs.get());
+        assertEquals(0, coalescer.getCoalesced());
+    }
+
+    /**
+     * A failure reaches every caller waiting on it, and the next call runs again.
+     */
+    @Test
+    void testFailureIsShared() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+
+        try {
+            List<Future<Object>> results = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                results.add(pool.submit(() -> coalescer.call("report", () -> {
+                    await(release);
+                    throw new IllegalStateException("database down");
+                })));
+            }
+
+            waitFor(() -> coalescer.getCoalesced() == 1);
+            release.countDown();
+
+            for (Future<Object> result : results) {
+                ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+                assertEquals("database down", e.getCause().getMessage());
+            }
+            assertEquals("ok", coalescer.call("report", () -> "ok"));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(5);
+        }
+    }
+}
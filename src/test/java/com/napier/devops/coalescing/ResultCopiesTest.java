@@ -0,0 +1,110 @@
+package com.napier.devops.coalescing;
+
+import com.napier.devops.City;
+import com.napier.devops.CityRecord;
+import com.napier.devops.PopulationMetrics;
+import com.napier.pojo.EnrichedCityPojo;
+import com.napier.pojo.Page;
+import com.napier.pojo.PopulationHistogramPojo;
+import com.napier.pojo.PopulationReportPojo;
+import com.napier.pojo.Staleness;
+import com.napier.pojo.WorldReportPojo;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the copies handed to callers of a coalesced call.
+ */
+public class ResultCopiesTest {
+
+    /**
+     * Beans inside lists, pages and enriched cities are copied, not shared.
+     */
+    @Test
+    void testCopiesNestedBeans() {
+        City city = new City().setAll(1, "Kabul", "AFG", "Kabol", 1780000);
+        EnrichedCityPojo enriched = new EnrichedCityPojo();
+        enriched.setCity(city);
+        enriched.setCountryName("Afghanistan");
+        Page<EnrichedCityPojo> page = new Page<>(List.of(enriched), "next");
+
+        @SuppressWarnings("unchecked")
+        Page<EnrichedCityPojo> copy = (Page<EnrichedCityPojo>) ResultCopies.copy(page);
+
+        assertEquals("next", copy.getNextToken());
+        EnrichedCityPojo copied = copy.getItems().get(0);
+        assertNotSame(enriched, copied);
+        assertNotSame(city, copied.getCity());
+        assertEquals("Afghanistan", copied.getCountryName());
+        assertEquals("Kabul", copied.getCity().getName());
+        assertEquals(1780000, copied.getCity().getPopulation());
+    }
+
+    /**
+     * Every part of a world report is copied, including the histogram arrays.
+     */
+    @Test
+    void testCopiesReports() {
+        WorldReportPojo world = new WorldReportPojo();
+        world.setContinents(List.of(new PopulationMetrics().setAll("Asia", PopulationMetrics.ReportType.CONTINENT,
+                100, 40, 60, 40.0, 60.0)));
+        world.setWorldPopulation(6078749450L);
+        PopulationReportPojo region = new PopulationReportPojo();
+        region.setName("Caribbean");
+        region.setTotalPopulation(38140000);
+        world.setRegion(region);
+
+        WorldReportPojo copy = (WorldReportPojo) ResultCopies.copy(world);
+
+        assertNotSame(world.getContinents().get(0), copy.getContinents().get(0));
+        assertEquals("Asia", copy.getContinents().get(0).getNameOfArea());
+        assertEquals(40.0, copy.getContinents().get(0).getCityPopulationPercentage());
+        assertEquals(6078749450L, copy.getWorldPopulation());
+        assertNotSame(region, copy.getRegion());
+        assertEquals(38140000, copy.getRegion().getTotalPopulation());
+        assertNull(copy.getCountry());
+
+        PopulationHistogramPojo histogram = new PopulationHistogramPojo();
+        histogram.setBounds(new int[]{1000});
+        histogram.setCityCounts(new int[]{2, 3});
+        histogram.setPopulations(new long[]{500, 9000});
+        PopulationHistogramPojo histogramCopy = (PopulationHistogramPojo) ResultCopies.copy(histogram);
+        histogramCopy.getCityCounts()[0] = 99;
+        assertEquals(2, histogram.getCityCounts()[0]);
+        assertArrayEquals(new long[]{500, 9000}, histogramCopy.getPopulations());
+    }
+
+    /**
+     * Copies of stale lists, pages and reports are still marked as stale.
+     */
+    @Test
+    void testKeepsStaleMark() {
+        City city = new City().setAll(1, "Kabul", "AFG", "Kabol", 1780000);
+        Object list = ResultCopies.copy(Staleness.mark(List.of(city)));
+        assertTrue(Staleness.isStale(list));
+        assertNotSame(city, ((List<?>) list).get(0));
+        assertFalse(Staleness.isStale(ResultCopies.copy(List.of(city))));
+
+        assertTrue(Staleness.isStale(ResultCopies.copy(Staleness.mark(new Page<>(List.of(city), null)))));
+        assertTrue(Staleness.isStale(ResultCopies.copy(Staleness.mark(new PopulationReportPojo()))));
+        assertTrue(Staleness.isStale(ResultCopies.copy(Staleness.mark(new WorldReportPojo()))));
+        assertTrue(Staleness.isStale(ResultCopies.copy(Staleness.mark(new PopulationMetrics()))));
+    }
+
+    /**
+     * Values that cannot change are passed on, and unknown mutable types are refused.
+     */
+    @Test
+    void testImmutableAndUnknown() {
+        CityRecord record = new CityRecord(1, "Kabul", "AFG", "Kabol", 1780000);
+        assertSame(record, ResultCopies.copy(record));
+        assertSame("Kabul", ResultCopies.copy("Kabul"));
+        assertEquals(42L, ResultCopies.copy(42L));
+        assertNull(ResultCopies.copy(null));
+
+        assertThrows(IllegalArgumentException.class, () -> ResultCopies.copy(new StringBuilder("Kabul")));
+    }
+}
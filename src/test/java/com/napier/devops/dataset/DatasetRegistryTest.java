@@ -0,0 +1,146 @@
+package com.napier.devops.dataset;
+
+import com.napier.devops.generator.WorldDataGenerator;
+import com.napier.devops.snapshot.SnapshotFile;
+import com.napier.devops.snapshot.WorldSnapshot;
+import com.napier.devops.warmup.WarmUpConnection;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the dataset registry.
+ */
+public class DatasetRegistryTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Each snapshot dataset has its own services, and names common to two snapshots are held once.
+     */
+    @Test
+    void testSnapshotDatasets() throws IOException {
+        Path small = directory.resolve("small.snap");
+        Path large = directory.resolve("large.snap");
+        new WorldDataGenerator(0.05, 1).write("snapshot", small);
+        new WorldDataGenerator(0.10, 1).write("snapshot", large);
+
+        try (DatasetRegistry registry = new DatasetRegistry()) {
+            assertEquals(2, registry.configure("2019=" + small + ", 2020=" + large, location -> null));
+
+            Dataset first = registry.get("2019");
+            Dataset second = registry.get("2020");
+            assertEquals(List.of("2019", "2020"), registry.getNames());
+            assertNotSame(first.getCityReportService(), second.getCityReportService());
+            assertTrue(first.getCityReportService().getAllCitiesByPopulationLargestToSmallest().size()
+                    < second.getCityReportService().getAllCitiesByPopulationLargestToSmallest().size());
+
+            WorldSnapshot a = first.getSnapshot();
+            WorldSnapshot b = second.getSnapshot();
+            int shared = 0;
+            for (int row = 0; row < a.getCountryCount(); row++) {
+                int other = b.findCountryRow(a.getCountryCode(row));
+                if (other >= 0 && a.getCountryName(row).equals(b.getCountryName(other))) {
+                    assertSame(a.getCountryName(row), b.getCountryName(other));
+                    shared++;
+                }
+            }
+            assertTrue(shared > 0);
+
+            // Names stay while a dataset uses them and go with the last one
+            int both = registry.names.size();
+            assertTrue(registry.remove("2019"));
+            assertTrue(registry.names.size() > 0);
+            assertTrue(registry.names.size() < both);
+            assertSame(b.getCountryName(0), registry.names.acquire(new String(b.getCountryName(0))));
+            registry.names.release(b.getCountryName(0));
+            registry.remove("2020");
+            assertEquals(0, registry.names.size());
+        }
+    }
+
+    /**
+     * Closing the registry gives back the names of every dataset, however often it is closed.
+     */
+    @Test
+    void testCloseReleasesNames() throws IOException {
+        Path file = directory.resolve("world.snap");
+        new WorldDataGenerator(0.05, 1).write("snapshot", file);
+
+        DatasetRegistry registry = new DatasetRegistry();
+        registry.registerSnapshotFile("2019", file);
+        registry.registerSnapshotFile("2019", file);
+        registry.registerSnapshotFile("2020", file);
+        assertTrue(registry.names.size() > 0);
+
+        registry.close();
+        registry.close();
+        assertEquals(0, registry.names.size());
+    }
+
+    /**
+     * Database datasets use the connection the opener returns, and a bad entry is skipped.
+     */
+    @Test
+    void testConfigure() {
+        try (DatasetRegistry registry = new DatasetRegistry()) {
+            int loaded = registry.configure("db=jdbc:census:3306,missing=" + directory.resolve("none.snap"),
+                    location -> {
+                        assertEquals("census:3306", location);
+                        return WarmUpConnection.create(3);
+                    });
+
+            assertEquals(1, loaded);
+            assertEquals(List.of("db"), registry.getNames());
+            assertNull(registry.get("db").getSnapshot());
+            assertEquals(3, registry.get("db").getCountryReportService().getAllCountriesByPopulationLargestToSmallest().size());
+            assertTrue(registry.remove("db"));
+            assertFalse(registry.remove("db"));
+            assertNull(registry.get("db"));
+        }
+    }
+
+    /**
+     * A malformed entry is reported on the error stream and the rest still load.
+     */
+    @Test
+    void testConfigureSkipsMalformedEntry() {
+        PrintStream originalErr = System.err;
+        ByteArrayOutputStream errContent = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(errContent));
+        try (DatasetRegistry registry = new DatasetRegistry()) {
+            int loaded = registry.configure("nameOnly,db=jdbc:census:3306,=source",
+                    location -> WarmUpConnection.create(3));
+
+            assertEquals(1, loaded);
+            assertEquals(List.of("db"), registry.getNames());
+        } finally {
+            System.setErr(originalErr);
+        }
+        assertTrue(errContent.toString().contains("Error: Dataset entry must be name=source: nameOnly"));
+        assertTrue(errContent.toString().contains("Error: Dataset entry must be name=source: =source"));
+    }
+
+    /**
+     * Entries are split into names and sources in order.
+     */
+    @Test
+    void testParse() {
+        Map<String, String> entries = DatasetRegistry.parse(" 2019 = /data/a.snap ,,2020=jdbc:db:3306");
+
+        assertEquals(List.of("2019", "2020"), List.copyOf(entries.keySet()));
+        assertEquals("/data/a.snap", entries.get("2019"));
+        assertTrue(DatasetRegistry.parse(null).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> DatasetRegistry.parse("nameOnly"));
+        assertThrows(IllegalArgumentException.class, () -> DatasetRegistry.parse("=source"));
+    }
+}
@@ -0,0 +1,218 @@
+package com.napier.devops.diagnostics;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.sql.*;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the query diagnostics mode using mocked database connections.
+ */
+public class QueryDiagnosticsTest {
+
+    private static final String PLAN_JSON = """
+            {
+              "query_block": {
+                "ordering_operation": {
+                  "using_filesort": true,
+                  "nested_loop": [
+                    { "table": { "table_name": "c", "access_type": "ALL", "rows_examined_per_scan": 4079 } },
+                    { "table": { "table_name": "co", "access_type": "eq_ref", "key": "PRIMARY" } }
+                  ]
+                }
+              }
+            }""";
+
+    @Mock
+    private Connection mockConnection;
+
+    @Mock
+    private PreparedStatement mockPreparedStatement;
+
+    @Mock
+    private PreparedStatement mockExplainStatement;
+
+    @Mock
+    private ResultSet mockResultSet;
+
+    @Mock
+    private ResultSet mockExplainResultSet;
+
+    private final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+    private final PrintStream originalOut = System.out;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        MockitoAnnotations.openMocks(this);
+
+        when(mockConnection.prepareStatement(anyString())).thenAnswer(invocation ->
+                ((String) invocation.getArgument(0)).startsWith("EXPLAIN") ? mockExplainStatement : mockPreparedStatement);
+        when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
+        when(mockExplainStatement.executeQuery()).thenReturn(mockExplainResultSet);
+        when(mockExplainResultSet.next()).thenReturn(true, false);
+        when(mockExplainResultSet.getString(1)).thenReturn(PLAN_JSON);
+
+        System.setOut(new PrintStream(outContent));
+    }
+
+    @AfterEach
+    void restoreStreams() {
+        System.setOut(originalOut);
+    }
+
+    /**
+     * The plan parser should pick out full table scans and filesorts.
+     */
+    @Test
+    void testQueryPlanDetectsFullScanAndFilesort() {
+        QueryPlan plan = new QueryPlan("SELECT 1", PLAN_JSON);
+
+        assertEquals(List.of("c"), plan.getFullScanTables());
+        assertTrue(plan.isUsingFilesort());
+        assertTrue(plan.hasWarnings());
+    }
+
+    /**
+     * A plan without scans or sorts has no warnings, and a missing plan is handled.
+     */
+    @Test
+    void testQueryPlanWithoutWarnings() {
+        QueryPlan indexed = new QueryPlan("SELECT 1", "{ \"table\": { \"table_name\": \"city\", \"access_type\": \"ref\" } }");
+        QueryPlan missing = new QueryPlan("SELECT 1", null);
+
+        assertFalse(indexed.hasWarnings());
+        assertFalse(missing.hasWarnings());
+        assertTrue(missing.getFullScanTables().isEmpty());
+    }
+
+    /**
+     * Each distinct SQL string should be explained once, with the same parameters it ran with.
+     */
+    @Test
+    void testPlanCapturedOncePerSql() throws SQLException {
+        QueryDiagnostics diagnostics = new QueryDiagnostics(mockConnection, Long.MAX_VALUE);
+        Connection connection = DiagnosticConnection.wrap(mockConnection, diagnostics);
+        String sql = "SELECT ID FROM city WHERE District = ?";
+
+        for (int i = 0; i < 3; i++) {
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                pstmt.setString(1, "California");
+                pstmt.executeQuery();
+            }
+        }
+
+        verify(mockConnection, times(1)).prepareStatement("EXPLAIN FORMAT=JSON " + sql);
+        verify(mockExplainStatement).setObject(1, "California");
+        verify(mockPreparedStatement, times(3)).executeQuery();
+
+        QueryPlan plan = diagnostics.getPlan(sql);
+        assertNotNull(plan);
+        assertTrue(plan.isUsingFilesort());
+        assertTrue(outContent.toString().contains("full table scan on: [c]"));
+    }
+
+    /**
+     * Executions over the threshold are logged with their parameters and plan.
+     */
+    @Test
+    void testSlowQueryLogged() throws SQLException {
+        QueryDiagnostics diagnostics = new QueryDiagnostics(mockConnection, 0);
+        Connection connection = DiagnosticConnection.wrap(mockConnection, diagnostics);
+
+        try (PreparedStatement pstmt = connection.prepareStatement("SELECT ID FROM city WHERE Population > ? LIMIT ?")) {
+            pstmt.setInt(1, 1000000);
+            pstmt.setInt(2, 10);
+            pstmt.executeQuery();
+        }
+
+        String output = outContent.toString();
+        assertTrue(output.contains("Slow query"));
+        assertTrue(output.contains("parameters: [1000000, 10]"));
+        assertTrue(output.contains("\"using_filesort\": true"));
+    }
+
+    /**
+     * Plain statements are timed as well and the query result is passed through unchanged.
+     */
+    @Test
+    void testPlainStatementPassesThrough() throws SQLException {
+        Statement mockStatement = mock(Statement.class);
+        when(mockConnection.createStatement()).thenReturn(mockStatement);
+        when(mockStatement.executeQuery(anyString())).thenReturn(mockResultSet);
+
+        QueryDiagnostics diagnostics = new QueryDiagnostics(mockConnection, Long.MAX_VALUE);
+        Connection connection = DiagnosticConnection.wrap(mockConnection, diagnostics);
+
+        try (Statement stmt = connection.createStatement()) {
+            assertSame(mockResultSet, stmt.executeQuery("SELECT SUM(Population) FROM country"));
+        }
+
+        assertNotNull(diagnostics.getPlan("SELECT SUM(Population) FROM country"));
+        assertFalse(outContent.toString().contains("Slow query"));
+    }
+
+    /**
+     * A failing EXPLAIN must not break the report query itself.
+     */
+    @Test
+    void testExplainFailureDoesNotBreakQuery() throws SQLException {
+        when(mockExplainStatement.executeQuery()).thenThrow(new SQLException("EXPLAIN not supported"));
+
+        QueryDiagnostics diagnostics = new QueryDiagnostics(mockConnection, Long.MAX_VALUE);
+        Connection connection = DiagnosticConnection.wrap(mockConnection, diagnostics);
+
+        try (PreparedStatement pstmt = connection.prepareStatement("SELECT 1")) {
+            assertSame(mockResultSet, pstmt.executeQuery());
+        }
+
+        assertNull(diagnostics.getPlan("SELECT 1").getJson());
+        assertTrue(outContent.toString().contains("Explain failed"));
+    }
+
+    /**
+     * A slow EXPLAIN must not hold up statements recorded by other threads, even the same one.
+     */
+    @Test
+    void testSlowExplainDoesNotBlockOtherStatements() throws Exception {
+        CountDownLatch explaining = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PreparedStatement blockingStatement = mock(PreparedStatement.class);
+        when(blockingStatement.executeQuery()).thenAnswer(invocation -> {
+            explaining.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return mockExplainResultSet;
+        });
+        // Only the first EXPLAIN blocks; the others answer at once
+        when(mockConnection.prepareStatement(anyString())).thenReturn(blockingStatement, mockExplainStatement);
+        when(mockExplainResultSet.next()).thenReturn(true);
+
+        QueryDiagnostics diagnostics = new QueryDiagnostics(mockConnection, Long.MAX_VALUE);
+        Thread slow = new Thread(() -> diagnostics.record("SELECT 1", List.of(), 0));
+        slow.start();
+        assertTrue(explaining.await(5, TimeUnit.SECONDS));
+
+        diagnostics.record("SELECT 2", List.of(), 0);
+        diagnostics.record("SELECT 1", List.of(), 0);
+        assertNotNull(diagnostics.getPlan("SELECT 2"));
+        QueryPlan plan = diagnostics.getPlan("SELECT 1");
+        assertNotNull(plan);
+
+        assertEquals(1, release.getCount());
+        release.countDown();
+        slow.join(5000);
+        // The plan stored first is kept
+        assertSame(plan, diagnostics.getPlan("SELECT 1"));
+    }
+}
@@ -0,0 +1,161 @@
+package com.napier.devops.generator;
+
+import com.napier.devops.snapshot.SnapshotFile;
+import com.napier.devops.snapshot.WorldSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the synthetic world data generator.
+ */
+public class WorldDataGeneratorTest {
+
+    /**
+     * Scale 1 is the size of world.sql and the tables grow with the scale.
+     */
+    @Test
+    void testRowCounts() {
+        WorldDataGenerator base = new WorldDataGenerator(1, 42);
+        assertEquals(239, base.getCountryCount());
+        assertEquals(4079, base.getCityCount());
+
+        WorldDataGenerator large = new WorldDataGenerator(100, 42);
+        assertEquals(2390, large.getCountryCount());
+        assertEquals(407900, large.getCityCount());
+
+        assertEquals(17576, new WorldDataGenerator(1_000_000, 42).getCountryCount());
+        assertThrows(IllegalArgumentException.class, () -> new WorldDataGenerator(0, 42));
+    }
+
+    /**
+     * The same seed gives the same rows, a different seed different rows.
+     */
+    @Test
+    void testDeterministic() {
+        WorldSnapshot first = new WorldDataGenerator(2, 7).generateSnapshot();
+        WorldSnapshot second = new WorldDataGenerator(2, 7).generateSnapshot();
+        WorldSnapshot other = new WorldDataGenerator(2, 8).generateSnapshot();
+
+        assertEquals(first.getCityCount(), second.getCityCount());
+        for (int row = 0; row < first.getCityCount(); row++) {
+            assertEquals(first.toCity(row).toString(), second.toCity(row).toString());
+        }
+        for (int row = 0; row < first.getCountryCount(); row++) {
+            assertEquals(first.toCountry(row).toString(), second.toCountry(row).toString());
+        }
+
+        boolean differs = false;
+        for (int row = 0; row < first.getCityCount() && !differs; row++) {
+            differs = !first.toCity(row).toString().equals(other.toCity(row).toString());
+        }
+        assertTrue(differs);
+    }
+
+    /**
+     * Generated rows respect the keys and column limits of the world schema.
+     */
+    @Test
+    void testRowsFitSchema() {
+        WorldSnapshot snapshot = new WorldDataGenerator(5, 42).generateSnapshot();
+
+        assertEquals(534, snapshot.getCountryCount());
+        assertEquals(20395, snapshot.getCityCount());
+        Set<String> names = new HashSet<>();
+        for (int row = 0; row < snapshot.getCountryCount(); row++) {
+            assertEquals(3, snapshot.getCountryCode(row).length());
+            assertTrue(snapshot.getCountryName(row).length() <= 52);
+            assertTrue(names.add(snapshot.getCountryName(row)));
+            assertTrue(snapshot.getCountryPopulation(row) >= 0);
+
+            int capital = snapshot.getCountryCapital(row);
+            if (capital != 0) {
+                int cityRow = capital - 1;
+                assertEquals(capital, snapshot.getCityId(cityRow));
+                assertEquals(row, snapshot.getCityCountry(cityRow));
+            }
+        }
+
+        long[] cityTotals = new long[snapshot.getCountryCount()];
+        for (int row = 0; row < snapshot.getCityCount(); row++) {
+            assertEquals(row + 1, snapshot.getCityId(row));
+            assertTrue(snapshot.getCityCountry(row) >= 0);
+            assertTrue(snapshot.getCityName(row).length() <= 35);
+            assertTrue(snapshot.getSymbols().symbol(snapshot.getCityDistrict(row)).length() <= 20);
+            cityTotals[snapshot.getCityCountry(row)] += snapshot.getCityPopulation(row);
+        }
+        // A country is never smaller than the cities in it
+        for (int row = 0; row < snapshot.getCountryCount(); row++) {
+            assertTrue(cityTotals[row] <= snapshot.getCountryPopulation(row));
+        }
+
+        double[] percentages = new double[snapshot.getCountryCount()];
+        for (int row = 0; row < snapshot.getLanguageCount(); row++) {
+            percentages[snapshot.getLanguageCountry(row)] += snapshot.getLanguagePercentage(row);
+        }
+        for (double total : percentages) {
+            assertTrue(total > 0 && total <= 100.05);
+        }
+    }
+
+    /**
+     * The SQL script creates the schema and batches the rows into multi-row inserts.
+     */
+    @Test
+    void testSqlOutput(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("world.sql");
+        new WorldDataGenerator(1, 42).write("sql", file);
+
+        String sql = Files.readString(file, StandardCharsets.UTF_8);
+        assertTrue(sql.startsWith("-- Synthetic world database: 239 countries, 4079 cities"));
+        assertTrue(sql.contains("CREATE TABLE `city`"));
+        assertEquals(1, occurrences(sql, "INSERT INTO `country`"));
+        assertEquals(5, occurrences(sql, "INSERT INTO `city` VALUES "));
+        assertTrue(sql.contains("INSERT INTO `countrylanguage` VALUES ('AAA',"));
+        assertTrue(sql.trim().endsWith("SET UNIQUE_CHECKS=1;"));
+    }
+
+    /**
+     * A generated snapshot file reads back to the same rows as the in-memory snapshot.
+     */
+    @Test
+    void testSnapshotOutput(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("world.snapshot");
+        WorldDataGenerator generator = new WorldDataGenerator(3, 11);
+        generator.write("snapshot", file);
+
+        WorldSnapshot expected = generator.generateSnapshot();
+        WorldSnapshot actual = SnapshotFile.read(file);
+
+        assertEquals(expected.getCountryCount(), actual.getCountryCount());
+        assertEquals(expected.getCityCount(), actual.getCityCount());
+        assertEquals(expected.getLanguageCount(), actual.getLanguageCount());
+        for (int row = 0; row < expected.getCityCount(); row++) {
+            assertEquals(expected.toCity(row).toString(), actual.toCity(row).toString());
+        }
+    }
+
+    /**
+     * Unknown formats are rejected.
+     */
+    @Test
+    void testUnknownFormat(@TempDir Path dir) {
+        assertThrows(IllegalArgumentException.class,
+                () -> new WorldDataGenerator(1, 42).write("csv", dir.resolve("world.csv")));
+    }
+
+    private static int occurrences(String text, String needle) {
+        int count = 0;
+        for (int i = text.indexOf(needle); i >= 0; i = text.indexOf(needle, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
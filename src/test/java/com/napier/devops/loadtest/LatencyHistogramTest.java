@@ -0,0 +1,77 @@
+package com.napier.devops.loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the latency histogram.
+ */
+public class LatencyHistogramTest {
+
+    /**
+     * Percentiles are never below the true value and at most one bucket width above it.
+     */
+    @Test
+    void testPercentilesWithinBucketError() {
+        Random random = new Random(7);
+        long[] samples = new long[100_000];
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < samples.length; i++) {
+            // Log-normal like real latencies: mostly around a millisecond with a long tail
+            samples[i] = (long) Math.exp(14 + random.nextGaussian());
+            histogram.record(samples[i]);
+        }
+        Arrays.sort(samples);
+
+        for (double percentile : new double[]{50, 90, 99, 99.9, 100}) {
+            long exact = samples[(int) Math.ceil(samples.length * percentile / 100) - 1];
+            long reported = histogram.getPercentile(percentile);
+            assertTrue(reported >= exact, "p" + percentile + " below the true value");
+            assertTrue(reported <= exact * 1.02, "p" + percentile + " " + reported + " too far above " + exact);
+        }
+        assertEquals(samples[samples.length - 1], histogram.getMax());
+        assertEquals(samples.length, histogram.getCount());
+    }
+
+    /**
+     * Every value maps to a bucket whose range contains it, and buckets follow value order.
+     */
+    @Test
+    void testBucketsCoverValues() {
+        long[] values = {0, 1, 127, 128, 129, 255, 256, 1_000, 1_000_000, 123_456_789_012L, Long.MAX_VALUE};
+        int previous = -1;
+        for (long value : values) {
+            int bucket = LatencyHistogram.bucket(value);
+            assertTrue(bucket >= previous);
+            assertTrue(LatencyHistogram.highestInBucket(bucket) >= value, "Bucket of " + value + " ends below it");
+            assertTrue(bucket == 0 || LatencyHistogram.highestInBucket(bucket - 1) < value,
+                    "Value " + value + " also fits the previous bucket");
+            previous = bucket;
+        }
+    }
+
+    /**
+     * Merged histograms hold the samples of both.
+     */
+    @Test
+    void testAdd() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        first.record(100);
+        first.record(-5);
+        second.record(300);
+
+        first.add(second);
+
+        assertEquals(3, first.getCount());
+        assertEquals(300, first.getMax());
+        assertEquals(0, first.getPercentile(0));
+        assertEquals(100, first.getPercentile(50));
+        assertTrue(first.getPercentile(100) >= 300);
+        assertEquals(0, new LatencyHistogram().getPercentile(99));
+    }
+}
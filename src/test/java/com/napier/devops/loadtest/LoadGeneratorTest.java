@@ -0,0 +1,186 @@
+package com.napier.devops.loadtest;
+
+import com.napier.devops.dataset.Dataset;
+import com.napier.devops.snapshot.SnapshotTestData;
+import com.napier.devops.snapshot.WorldSnapshot;
+import com.napier.devops.wire.ReportServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the load generator.
+ */
+public class LoadGeneratorTest {
+
+    /**
+     * A closed loop run against the in-memory services runs every use case without errors.
+     */
+    @Test
+    void testClosedLoopRunsEveryUseCase() throws Exception {
+        WorldSnapshot snapshot = SnapshotTestData.world();
+        LoadTarget target = ServiceTarget.of(Dataset.ofSnapshot("test", "test", snapshot));
+        LoadGenerator generator = new LoadGenerator(target, Workload.uniform(), ParameterPool.of(snapshot), 4, 0, 1);
+
+        LoadResult result = generator.run(0, 500);
+
+        assertEquals(0, result.getErrors(), result.getFirstError());
+        assertEquals(EnumSet.allOf(UseCase.class), result.getLatenciesByUseCase().keySet());
+        assertEquals(result.getRequests(), result.getLatenciesByUseCase().values().stream()
+                .mapToLong(LatencyHistogram::getCount).sum());
+        assertTrue(result.getThroughput() > 0);
+        assertTrue(result.getLatencies().getPercentile(50) <= result.getLatencies().getPercentile(99.9));
+    }
+
+    /**
+     * An open loop run sends requests at the target rate, not as fast as the target answers.
+     */
+    @Test
+    void testOpenLoopHoldsRate() throws Exception {
+        WorldSnapshot snapshot = SnapshotTestData.world();
+        LoadTarget target = ServiceTarget.of(Dataset.ofSnapshot("test", "test", snapshot));
+        LoadGenerator generator = new LoadGenerator(target, Workload.standard(), ParameterPool.of(snapshot), 2, 200, 1);
+
+        LoadResult result = generator.run(100, 1000);
+
+        assertTrue(result.getRequests() >= 150 && result.getRequests() <= 250,
+                "Expected about 200 requests, got " + result.getRequests());
+    }
+
+    /**
+     * Failed requests are counted, and their latency still recorded.
+     */
+    @Test
+    void testErrorsCounted() throws Exception {
+        LoadTarget failing = new LoadTarget() {
+            @Override
+            public boolean supports(UseCase useCase) {
+                return true;
+            }
+
+            @Override
+            public Session open() {
+                return new Session() {
+                    @Override
+                    public void run(UseCase useCase, String text, int n) {
+                        throw new IllegalStateException("down");
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                };
+            }
+        };
+
+        LoadResult result = new LoadGenerator(failing, Workload.parse("WORLD_POPULATION=1"),
+                ParameterPool.defaults(), 1, 100, 1).run(0, 200);
+
+        assertTrue(result.getRequests() > 0);
+        assertEquals(result.getRequests(), result.getErrors());
+        assertTrue(result.getFirstError().contains("down"));
+    }
+
+    /**
+     * The target's output is discarded during the run and restored after it, while the
+     * JVM's own streams are never swapped.
+     */
+    @Test
+    void testDiscardsTargetOutputOnly() throws Exception {
+        PrintStream systemOut = System.out;
+        PrintStream systemErr = System.err;
+        List<PrintStream> outputs = new ArrayList<>();
+        boolean[] swapped = {false};
+        LoadTarget target = new LoadTarget() {
+            @Override
+            public boolean supports(UseCase useCase) {
+                return true;
+            }
+
+            @Override
+            public void setOutput(PrintStream out, PrintStream err) {
+                outputs.add(out);
+                outputs.add(err);
+            }
+
+            @Override
+            public Session open() {
+                return new Session() {
+                    @Override
+                    public void run(UseCase useCase, String text, int n) {
+                        if (System.out != systemOut || System.err != systemErr) {
+                            swapped[0] = true;
+                        }
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                };
+            }
+        };
+
+        LoadResult result = new LoadGenerator(target, Workload.parse("WORLD_POPULATION=1"),
+                ParameterPool.defaults(), 1, 100, 1).run(0, 100);
+
+        assertTrue(result.getRequests() > 0);
+        assertFalse(swapped[0]);
+        assertEquals(4, outputs.size());
+        assertNotNull(outputs.get(0));
+        assertNotSame(systemOut, outputs.get(0));
+        assertSame(outputs.get(0), outputs.get(1));
+        assertNull(outputs.get(2));
+        assertNull(outputs.get(3));
+    }
+
+    /**
+     * Through the binary protocol only the use cases it serves are sent.
+     */
+    @Test
+    void testWireTargetSendsServedUseCases() throws Exception {
+        Dataset dataset = Dataset.ofSnapshot("test", "test", SnapshotTestData.world());
+        try (ReportServer server = new ReportServer(dataset.getCityReportService(), dataset.getCountryReportService(), 0)) {
+            server.start();
+            LoadGenerator generator = new LoadGenerator(new WireTarget("localhost", server.getPort()),
+                    Workload.uniform(), ParameterPool.of(dataset.getSnapshot()), 2, 0, 1);
+
+            LoadResult result = generator.run(0, 300);
+
+            assertEquals(0, result.getErrors(), result.getFirstError());
+            assertTrue(result.getRequests() > 0);
+            for (UseCase useCase : result.getLatenciesByUseCase().keySet()) {
+                assertNotNull(useCase.getWireReport(), useCase + " is not served over the wire");
+            }
+        }
+    }
+
+    /**
+     * Mixes name use cases by name or number, and pick them in proportion to their weights.
+     */
+    @Test
+    void testWorkloadWeights() {
+        Workload workload = Workload.parse("CITIES_IN_COUNTRY=3, 26=1");
+        assertEquals(Set.of(UseCase.CITIES_IN_COUNTRY, UseCase.WORLD_POPULATION), Set.copyOf(workload.getUseCases()));
+
+        Random random = new Random(3);
+        int cities = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (workload.next(random) == UseCase.CITIES_IN_COUNTRY) {
+                cities++;
+            }
+        }
+        assertEquals(7_500, cities, 300);
+
+        assertThrows(IllegalArgumentException.class, () -> Workload.parse("NOPE=1"));
+        assertThrows(IllegalArgumentException.class, () -> Workload.parse("7=x"));
+        assertThrows(IllegalArgumentException.class, () -> Workload.parse("7=0"));
+        assertEquals(1, workload.filter(useCase -> useCase.getNumber() == 26).getUseCases().size());
+    }
+}
@@ -0,0 +1,80 @@
+package com.napier.devops.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the circuit breaker.
+ */
+public class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong(1_000);
+    private final CircuitBreaker breaker = new CircuitBreaker(3, 500, now::get);
+
+    /**
+     * The breaker opens after the threshold of failures in a row, and a success resets the count.
+     */
+    @Test
+    void testOpensAfterConsecutiveFailures() {
+        breaker.recordFailure();
+        breaker.recordFailure();
+        breaker.recordSuccess();
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.isAvailable());
+        assertFalse(breaker.allowRequest());
+        assertEquals(1, breaker.getRejected());
+    }
+
+    /**
+     * After the cool-down one probe goes through; its outcome closes or reopens the breaker.
+     */
+    @Test
+    void testHalfOpenProbe() {
+        for (int i = 0; i < 3; i++) {
+            breaker.recordFailure();
+        }
+        now.addAndGet(500);
+        assertTrue(breaker.isAvailable());
+        assertTrue(breaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest(), "only one probe at a time");
+
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+
+        now.addAndGet(500);
+        assertTrue(breaker.allowRequest());
+        breaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+    }
+
+    /**
+     * Failures and refusals are remembered for the thread that saw them.
+     */
+    @Test
+    void testThreadFailureFlag() throws InterruptedException {
+        assertFalse(breaker.clearThreadFailure());
+        breaker.recordFailure();
+
+        boolean[] otherThread = new boolean[1];
+        Thread thread = new Thread(() -> otherThread[0] = breaker.clearThreadFailure());
+        thread.start();
+        thread.join();
+
+        assertFalse(otherThread[0]);
+        assertTrue(breaker.clearThreadFailure());
+        assertFalse(breaker.clearThreadFailure());
+        assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker(0, 100));
+    }
+}
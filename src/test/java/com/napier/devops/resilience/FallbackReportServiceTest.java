@@ -0,0 +1,172 @@
+package com.napier.devops.resilience;
+
+import com.napier.devops.City;
+import com.napier.devops.Country;
+import com.napier.devops.service.CityReportService;
+import com.napier.devops.service.CountryReportService;
+import com.napier.devops.snapshot.SnapshotCityReportService;
+import com.napier.devops.snapshot.SnapshotCountryReportService;
+import com.napier.devops.snapshot.SnapshotTestData;
+import com.napier.devops.snapshot.WorldSnapshot;
+import com.napier.pojo.Page;
+import com.napier.pojo.PopulationReportPojo;
+import com.napier.pojo.Staleness;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the report services that fall back to stale snapshot data.
+ */
+public class FallbackReportServiceTest {
+
+    private final PrintStream originalErr = System.err;
+    private final ByteArrayOutputStream errContent = new ByteArrayOutputStream();
+
+    private Connection raw;
+    private PreparedStatement statement;
+    private CircuitBreaker breaker;
+    private FallbackPolicy policy;
+    private WorldSnapshot snapshot;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        raw = mock(Connection.class);
+        statement = mock(PreparedStatement.class);
+        when(raw.prepareStatement(anyString())).thenReturn(statement);
+        breaker = new CircuitBreaker(2, 60_000);
+        policy = new FallbackPolicy(breaker, "the test snapshot");
+        snapshot = SnapshotTestData.world();
+        System.setErr(new PrintStream(errContent));
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.setErr(originalErr);
+    }
+
+    /**
+     * A report whose query times out is served from the snapshot and flagged as stale, and
+     * once the breaker opens the database is not asked at all.
+     */
+    @Test
+    void testFailedQueryServedStale() throws SQLException {
+        when(statement.executeQuery()).thenThrow(new SQLTimeoutException("Query timed out"));
+        CityReportService service = new FallbackCityReportService(
+                new CityReportService(ResilientConnection.wrap(raw, breaker, 5)),
+                new SnapshotCityReportService(snapshot), policy);
+
+        for (int i = 0; i < 2; i++) {
+            List<City> cities = service.getAllCitiesInCountryByPopulationLargestToSmallest("USA");
+            assertEquals("New York", cities.get(0).getName());
+            assertTrue(Staleness.isStale(cities));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        List<City> top = service.getTopCitiesByCountry("United States", 10);
+        assertEquals(4, top.size());
+        assertTrue(Staleness.isStale(top));
+        verify(statement, times(2)).executeQuery();
+        assertTrue(errContent.toString().contains("serving stale data from the test snapshot"));
+    }
+
+    /**
+     * A healthy database serves the report, even an empty one, without the stale flag.
+     */
+    @Test
+    void testHealthyQueryServedLive() throws SQLException {
+        ResultSet resultSet = mock(ResultSet.class);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        CountryReportService service = new FallbackCountryReportService(
+                new CountryReportService(ResilientConnection.wrap(raw, breaker, 5)),
+                new SnapshotCountryReportService(snapshot), policy);
+
+        List<Country> countries = service.getAllCountriesInContinentByPopulationLargestToSmallest("Atlantis");
+        assertTrue(countries.isEmpty());
+        assertFalse(Staleness.isStale(countries));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals("", errContent.toString());
+    }
+
+    /**
+     * A fallback given as a supplier is asked for its service on every stale report, so it
+     * can follow a snapshot that is reloaded.
+     */
+    @Test
+    void testFallbackFollowsSupplier() throws SQLException {
+        when(statement.executeQuery()).thenThrow(new SQLTimeoutException("Query timed out"));
+        WorldSnapshot[] current = {snapshot};
+        CountryReportService service = new FallbackCountryReportService(
+                new CountryReportService(ResilientConnection.wrap(raw, breaker, 5)),
+                () -> new SnapshotCountryReportService(current[0]), policy);
+
+        assertEquals(7, service.getAllCountriesByPopulationLargestToSmallest().size());
+        current[0] = WorldSnapshot.builder()
+                .addCountry("NLD", "Netherlands", "Europe", "Western Europe", 16000000, 5)
+                .build();
+        List<Country> countries = service.getAllCountriesByPopulationLargestToSmallest();
+        assertEquals("Netherlands", countries.get(0).getName());
+        assertTrue(Staleness.isStale(countries));
+    }
+
+    /**
+     * Pages and population reports served from the snapshot carry the stale mark, without
+     * marking the snapshot's own results, and the printed report says it is stale.
+     */
+    @Test
+    void testStaleMarkOnPagesAndReports() throws SQLException {
+        when(statement.executeQuery()).thenThrow(new SQLTimeoutException("Query timed out"));
+        SnapshotCountryReportService fallback = new SnapshotCountryReportService(snapshot);
+        CountryReportService service = new FallbackCountryReportService(
+                new CountryReportService(ResilientConnection.wrap(raw, breaker, 5)), fallback, policy);
+
+        Page<Country> page = service.getCountriesByPopulationPage(2, null);
+        assertTrue(page.isStale());
+        assertEquals(2, page.getItems().size());
+        assertTrue(page.hasNext());
+
+        PopulationReportPojo region = service.getRegionPopulationReport("Western Africa");
+        assertTrue(region.isStale());
+        assertEquals("Western Africa", region.getName());
+        assertFalse(fallback.getRegionPopulationReport("Western Africa").isStale());
+        assertFalse(Staleness.isStale(fallback.getAllCountriesByPopulationLargestToSmallest()));
+
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        service.setOutput(new PrintStream(report), null);
+        service.printRegionPopulationReport("Western Africa");
+        assertTrue(report.toString().startsWith(Staleness.NOTE));
+    }
+
+    /**
+     * The fetch size reaches the database service, and a streamed report whose query fails
+     * before its first city is streamed from the snapshot instead.
+     */
+    @Test
+    void testStreamedReportFallsBack() throws SQLException {
+        when(raw.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(statement);
+        when(statement.executeQuery()).thenThrow(new SQLTimeoutException("Query timed out"));
+        CityReportService database = new CityReportService(ResilientConnection.wrap(raw, breaker, 5));
+        CityReportService service = new FallbackCityReportService(database,
+                new SnapshotCityReportService(snapshot), policy);
+
+        service.setStreamFetchSize(100);
+        assertEquals(100, database.getStreamFetchSize());
+
+        List<String> names = new ArrayList<>();
+        assertEquals(2, service.forEachCityInRegionByPopulation("Western Africa", city -> names.add(city.getName())));
+        assertEquals(List.of("Lagos", "Abuja"), names);
+        assertTrue(errContent.toString().contains("serving stale data from the test snapshot"));
+        verify(statement).setFetchSize(100);
+    }
+}
@@ -0,0 +1,81 @@
+package com.napier.devops.resilience;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the connection wrapper that adds timeouts and a circuit breaker.
+ */
+public class ResilientConnectionTest {
+
+    private Connection raw;
+    private PreparedStatement statement;
+    private CircuitBreaker breaker;
+    private Connection connection;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        raw = mock(Connection.class);
+        statement = mock(PreparedStatement.class);
+        when(raw.prepareStatement(anyString())).thenReturn(statement);
+        breaker = new CircuitBreaker(2, 60_000);
+        connection = ResilientConnection.wrap(raw, breaker, 7);
+    }
+
+    /**
+     * Every statement gets the query timeout.
+     */
+    @Test
+    void testStatementsGetTimeout() throws SQLException {
+        Statement plain = mock(Statement.class);
+        when(raw.createStatement()).thenReturn(plain);
+
+        connection.prepareStatement("SELECT 1").executeQuery();
+        connection.createStatement();
+
+        verify(statement).setQueryTimeout(7);
+        verify(plain).setQueryTimeout(7);
+        verify(statement).executeQuery();
+    }
+
+    /**
+     * Timeouts open the breaker, after which queries fail without reaching the database.
+     */
+    @Test
+    void testTimeoutsOpenBreaker() throws SQLException {
+        when(statement.executeQuery()).thenThrow(new SQLTimeoutException("Query timed out"));
+
+        for (int i = 0; i < 2; i++) {
+            PreparedStatement prepared = connection.prepareStatement("SELECT 1");
+            assertThrows(SQLTimeoutException.class, prepared::executeQuery);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        PreparedStatement prepared = connection.prepareStatement("SELECT 1");
+        SQLException refused = assertThrows(SQLException.class, prepared::executeQuery);
+        assertEquals(ResilientConnection.CIRCUIT_OPEN_MESSAGE, refused.getMessage());
+        verify(statement, times(2)).executeQuery();
+    }
+
+    /**
+     * Errors from a database that answered leave the breaker closed.
+     */
+    @Test
+    void testQueryErrorsDoNotOpenBreaker() throws SQLException {
+        when(statement.executeQuery()).thenThrow(new SQLSyntaxErrorException("Unknown column", "42S22"));
+
+        for (int i = 0; i < 3; i++) {
+            PreparedStatement prepared = connection.prepareStatement("SELECT nope");
+            assertThrows(SQLSyntaxErrorException.class, prepared::executeQuery);
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(ResilientConnection.isUnhealthy(new SQLException("Communications link failure", "08S01")));
+        assertFalse(ResilientConnection.isUnhealthy(new SQLException("Duplicate entry", "23000")));
+    }
+}
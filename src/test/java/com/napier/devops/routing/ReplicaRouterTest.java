@@ -0,0 +1,183 @@
+package com.napier.devops.routing;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.*;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for routing report queries to read replicas, using mocked connections.
+ */
+public class ReplicaRouterTest {
+
+    private Connection primary;
+    private Connection first;
+    private Connection second;
+    private ResultSet firstStatus;
+    private ResultSet secondStatus;
+    private ReplicaRouter router;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        primary = mock(Connection.class);
+        when(primary.prepareStatement(anyString())).thenAnswer(invocation -> mock(PreparedStatement.class));
+
+        firstStatus = mock(ResultSet.class);
+        secondStatus = mock(ResultSet.class);
+        first = replicaConnection(firstStatus);
+        second = replicaConnection(secondStatus);
+
+        router = new ReplicaRouter(primary, List.of(
+                new ReplicaNode("replica-1", () -> first),
+                new ReplicaNode("replica-2", () -> second)), 30);
+    }
+
+    /**
+     * Statements go to the replica with the fewest still open, and never to the primary.
+     */
+    @Test
+    void testLeastOutstandingBalancing() throws SQLException {
+        setLag(firstStatus, 0);
+        setLag(secondStatus, 0);
+        router.checkHealth();
+        Connection connection = router.connection();
+
+        PreparedStatement a = connection.prepareStatement("SELECT 1");
+        PreparedStatement b = connection.prepareStatement("SELECT 2");
+        assertEquals(1, router.getReplicas().get(0).getOutstanding());
+        assertEquals(1, router.getReplicas().get(1).getOutstanding());
+
+        // Closing a statement frees its replica, which then takes the next one
+        a.close();
+        a.close();
+        ReplicaNode idle = router.getReplicas().get(0).getOutstanding() == 0
+                ? router.getReplicas().get(0) : router.getReplicas().get(1);
+        connection.prepareStatement("SELECT 3");
+        assertEquals(1, idle.getOutstanding());
+        b.close();
+
+        verify(primary, never()).prepareStatement(anyString());
+        verify(first, atLeastOnce()).prepareStatement(anyString());
+        verify(second, atLeastOnce()).prepareStatement(anyString());
+    }
+
+    /**
+     * A replica lagging past the limit is ejected and comes back once it catches up.
+     */
+    @Test
+    void testLaggingReplicaEjected() throws SQLException {
+        setLag(firstStatus, 120);
+        setLag(secondStatus, 2);
+        router.checkHealth();
+
+        assertFalse(router.getReplicas().get(0).isHealthy());
+        assertEquals(120, router.getReplicas().get(0).getLagSeconds());
+        for (int i = 0; i < 4; i++) {
+            router.connection().prepareStatement("SELECT 1");
+        }
+        verify(first, never()).prepareStatement(anyString());
+        verify(second, times(4)).prepareStatement(anyString());
+
+        setLag(firstStatus, 5);
+        router.checkHealth();
+        assertTrue(router.getReplicas().get(0).isHealthy());
+    }
+
+    /**
+     * With stopped replication or unreachable replicas, queries fall back to the primary.
+     */
+    @Test
+    void testFallbackToPrimary() throws SQLException {
+        when(firstStatus.next()).thenReturn(true);
+        when(firstStatus.getLong("Seconds_Behind_Source")).thenReturn(0L);
+        when(firstStatus.wasNull()).thenReturn(true);
+        router = new ReplicaRouter(primary, List.of(
+                new ReplicaNode("replica-1", () -> first),
+                new ReplicaNode("replica-2", () -> {
+                    throw new SQLException("Connection refused");
+                })), 30);
+
+        router.checkHealth();
+
+        assertFalse(router.getReplicas().get(0).isHealthy());
+        assertFalse(router.getReplicas().get(1).isHealthy());
+        router.connection().prepareStatement("SELECT 1");
+        verify(primary).prepareStatement("SELECT 1");
+    }
+
+    /**
+     * A query that fails on a replica ejects it straight away.
+     */
+    @Test
+    void testFailedQueryEjects() throws SQLException {
+        setLag(firstStatus, 0);
+        setLag(secondStatus, 0);
+        PreparedStatement failing = mock(PreparedStatement.class);
+        when(failing.executeQuery()).thenThrow(new SQLException("Lost connection"));
+        when(first.prepareStatement("SELECT 1")).thenReturn(failing);
+        when(second.prepareStatement("SELECT 1")).thenReturn(failing);
+        router.checkHealth();
+
+        PreparedStatement statement = router.connection().prepareStatement("SELECT 1");
+        assertThrows(SQLException.class, statement::executeQuery);
+
+        long healthy = router.getReplicas().stream().filter(ReplicaNode::isHealthy).count();
+        assertEquals(1, healthy);
+    }
+
+    /**
+     * Calls other than creating statements always go to the primary.
+     */
+    @Test
+    void testOtherCallsUsePrimary() throws SQLException {
+        setLag(firstStatus, 0);
+        setLag(secondStatus, 0);
+        router.checkHealth();
+
+        router.connection().setAutoCommit(false);
+        router.connection().close();
+
+        verify(primary).setAutoCommit(false);
+        verify(primary).close();
+        verify(first, never()).close();
+    }
+
+    /**
+     * Older servers are checked with SHOW SLAVE STATUS.
+     */
+    @Test
+    void testLegacyStatusCommand() throws SQLException {
+        Connection legacy = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet status = mock(ResultSet.class);
+        when(legacy.createStatement()).thenReturn(statement);
+        when(statement.executeQuery("SHOW REPLICA STATUS")).thenThrow(new SQLSyntaxErrorException("syntax"));
+        when(statement.executeQuery("SHOW SLAVE STATUS")).thenReturn(status);
+        when(status.next()).thenReturn(true);
+        when(status.getLong("Seconds_Behind_Master")).thenReturn(7L);
+
+        assertEquals(7, ReplicaRouter.replicationLag(legacy));
+    }
+
+    private static Connection replicaConnection(ResultSet status) throws SQLException {
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        when(connection.isValid(anyInt())).thenReturn(true);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(status);
+        when(connection.prepareStatement(anyString())).thenAnswer(invocation -> mock(PreparedStatement.class));
+        return connection;
+    }
+
+    private static void setLag(ResultSet status, long lag) throws SQLException {
+        when(status.next()).thenReturn(true);
+        when(status.getLong("Seconds_Behind_Source")).thenReturn(lag);
+        when(status.wasNull()).thenReturn(false);
+    }
+}
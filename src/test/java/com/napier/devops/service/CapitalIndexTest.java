@@ -0,0 +1,100 @@
+package com.napier.devops.service;
+
+import com.napier.devops.City;
+import com.napier.devops.snapshot.SnapshotTestData;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the precomputed capital city index.
+ */
+public class CapitalIndexTest {
+
+    /**
+     * Every capital is in the index, largest first.
+     */
+    @Test
+    void testTopFromSnapshot() {
+        CapitalIndex index = CapitalIndex.of(SnapshotTestData.world());
+
+        // Antarctica has no capital
+        assertEquals(6, index.size());
+        assertEquals(List.of("Cairo", "Buenos Aires", "Brasília", "Washington", "Abuja"),
+                names(index.top(5)));
+        assertEquals(6, index.top(Integer.MAX_VALUE).size());
+    }
+
+    /**
+     * Continent and region filters keep only matching capitals, ignoring case like the database.
+     */
+    @Test
+    void testFilters() {
+        CapitalIndex index = CapitalIndex.of(SnapshotTestData.world());
+
+        assertEquals(List.of("Cairo", "Abuja"), names(index.topInContinent("Africa", 10)));
+        assertEquals(List.of("Cairo"), names(index.topInContinent("africa", 1)));
+        assertEquals(List.of("Washington", "Ottawa"), names(index.topInRegion("North America", 10)));
+        assertTrue(index.topInContinent("Atlantis", 10).isEmpty());
+        assertTrue(index.topInRegion("Antarctica", 10).isEmpty());
+    }
+
+    /**
+     * Loading runs the join once and keeps the enriched columns.
+     */
+    @Test
+    void testLoad() throws SQLException {
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(rs);
+        when(rs.next()).thenReturn(true, true, true, false);
+        when(rs.getInt("ID")).thenReturn(1890, 2331, 3580);
+        when(rs.getString("CityName")).thenReturn("Shanghai", "Seoul", "Moscow");
+        when(rs.getString("District")).thenReturn("Shanghai", "Seoul", "Moscow (City)");
+        when(rs.getString("CountryCode")).thenReturn("CHN", "KOR", "RUS");
+        when(rs.getInt("Population")).thenReturn(9696300, 9981619, 8389200);
+        when(rs.getString("Continent")).thenReturn("Asia", "Asia", "Europe");
+        when(rs.getString("Region")).thenReturn("Eastern Asia", "Eastern Asia", "Eastern Europe");
+
+        CapitalIndex index = CapitalIndex.load(connection);
+
+        assertEquals(List.of("Seoul", "Shanghai", "Moscow"), names(index.top(3)));
+        assertEquals(List.of("Seoul", "Shanghai"), names(index.topInRegion("Eastern Asia", 5)));
+        City moscow = index.topInContinent("Europe", 1).get(0);
+        assertEquals("Moscow (City)", moscow.getDistrict());
+        assertEquals("RUS", moscow.getCountryCode());
+        verify(statement, times(1)).executeQuery(anyString());
+    }
+
+    /**
+     * With an index set the service answers all six capital reports without the database.
+     */
+    @Test
+    void testServiceUsesIndex() {
+        Connection connection = mock(Connection.class);
+        CityReportService service = new CityReportService(connection);
+        service.setCapitalIndex(CapitalIndex.of(SnapshotTestData.world()));
+
+        assertEquals(6, service.getAllCapitalCitiesByPopulation().size());
+        assertEquals(2, service.getAllCapitalCitiesInContinentByPopulation("South America").size());
+        assertEquals(1, service.getAllCapitalCitiesInRegionByPopulation("Western Africa").size());
+        assertEquals(List.of("Cairo"), names(service.getTopCapitalCitiesByPopulation(1)));
+        assertEquals(List.of("Cairo"), names(service.getTopCapitalCitiesByContinent("Africa", 1)));
+        assertEquals(List.of("Washington"), names(service.getTopCapitalCitiesByRegion("North America", 1)));
+        verifyNoInteractions(connection);
+    }
+
+    private static List<String> names(List<City> cities) {
+        return cities.stream().map(City::getName).toList();
+    }
+}
@@ -0,0 +1,125 @@
+package com.napier.devops.service;
+
+import com.napier.devops.City;
+import com.napier.devops.snapshot.SnapshotTestData;
+import com.napier.devops.snapshot.WorldSnapshot;
+import com.napier.pojo.PopulationReportPojo;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the in-memory city name search.
+ */
+public class CityNameIndexTest {
+
+    private final CityNameIndex index = CityNameIndex.of(SnapshotTestData.world());
+
+    /**
+     * Names are lower-cased, stripped of accents and punctuation.
+     */
+    @Test
+    void testNormalize() {
+        assertEquals("sao paulo", CityNameIndex.normalize("São Paulo"));
+        assertEquals("montreal", CityNameIndex.normalize("  MONTRÉAL "));
+        assertEquals("mumbai bombay", CityNameIndex.normalize("Mumbai (Bombay)"));
+        assertEquals("", CityNameIndex.normalize(null));
+    }
+
+    /**
+     * Prefixes of a name or of any word in it match, whatever the case or accents.
+     */
+    @Test
+    void testPrefixSearch() {
+        assertEquals(List.of("New York"), names(index.search("new yor", 10)));
+        assertEquals(List.of("São Paulo"), names(index.search("Sao Paulo", 10)));
+        assertEquals(List.of("Montréal"), names(index.search("montre", 10)));
+        assertEquals(List.of("San Francisco"), names(index.search("franc", 10)));
+    }
+
+    /**
+     * Prefix matches are ranked by population.
+     */
+    @Test
+    void testRankedByPopulation() {
+        WorldSnapshot snapshot = WorldSnapshot.builder()
+                .addCountry("USA", "United States", "North America", "North America", 278357000, 0)
+                .addCity(1, "San Jose", "USA", "California", 894943)
+                .addCity(2, "San Diego", "USA", "California", 1223400)
+                .addCity(3, "San Antonio", "USA", "Texas", 1144646)
+                .addCity(4, "Santa Ana", "USA", "California", 337977)
+                .build();
+        CityNameIndex sanIndex = CityNameIndex.of(snapshot);
+
+        assertEquals(List.of("San Diego", "San Antonio", "San Jose", "Santa Ana"), names(sanIndex.search("san", 10)));
+        assertEquals(List.of("San Diego", "San Antonio"), names(sanIndex.search("SAN", 2)));
+    }
+
+    /**
+     * Typos still find the city through shared trigrams, after any prefix matches.
+     */
+    @Test
+    void testFuzzySearch() {
+        assertEquals(List.of("Los Angeles"), names(index.search("los angelos", 10)));
+        assertEquals(List.of("Washington"), names(index.search("washingtn", 10)));
+        assertEquals("Brasília", index.best("brasilla").getName());
+        assertTrue(index.search("zzzzqqq", 10).isEmpty());
+        assertTrue(index.search("  ", 10).isEmpty());
+    }
+
+    /**
+     * An exact name wins over larger cities that merely start with it.
+     */
+    @Test
+    void testBestPrefersWholeName() {
+        WorldSnapshot snapshot = WorldSnapshot.builder()
+                .addCountry("GBR", "United Kingdom", "Europe", "British Islands", 59623400, 0)
+                .addCity(1, "York", "GBR", "England", 104425)
+                .addCity(2, "Yorkshire Town", "GBR", "England", 900000)
+                .build();
+
+        assertEquals("York", CityNameIndex.of(snapshot).best("york").getName());
+        assertEquals("Yorkshire Town", CityNameIndex.of(snapshot).best("yorks").getName());
+    }
+
+    /**
+     * The service resolves loose city names through the index only when asked to; the
+     * population report queries the name as given.
+     */
+    @Test
+    void testServiceUsesIndex() throws SQLException {
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(rs);
+        when(rs.next()).thenReturn(true);
+        when(rs.getLong(anyString())).thenReturn(9968485L);
+
+        CityReportService service = new CityReportService(connection);
+        assertTrue(service.searchCities("sao", 5).isEmpty());
+
+        service.setCityNameIndex(index);
+        assertEquals(List.of("São Paulo"), names(service.searchCities("sao", 5)));
+
+        assertEquals("São Paulo", service.searchBestCity("sao paolo").getName());
+
+        // The population report queries the name as given rather than another city's
+        PopulationReportPojo report = service.getCityPopulationReport("sao paulo");
+        assertEquals("sao paulo", report.getName());
+        verify(statement, times(2)).setString(1, "sao paulo");
+        verify(statement, never()).setString(1, "São Paulo");
+    }
+
+    private static List<String> names(List<City> cities) {
+        return cities.stream().map(City::getName).toList();
+    }
+}
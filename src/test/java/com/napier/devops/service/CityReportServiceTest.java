@@ -1,6 +1,11 @@
 package com.napier.devops.service;
 
 import com.napier.devops.City;
+import com.napier.devops.snapshot.SnapshotTestData;
+import com.napier.pojo.EnrichedCityPojo;
+import com.napier.pojo.Page;
+import com.napier.pojo.PageToken;
+import com.napier.pojo.PopulationHistogramPojo;
 import com.napier.pojo.PopulationReportPojo;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,11 +15,14 @@ import org.mockito.MockitoAnnotations;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.lang.reflect.Proxy;
 import java.sql.*;
+import java.util.ArrayList;
 import java.util.List;
 
 import static com.napier.constant.Constant.*;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -3135,4 +3143,264 @@ public class CityReportServiceTest {
         assertTrue(error.contains("Error: Region parameter cannot be null or empty"));
     }
 
-}
\ No newline at end of file
+    /**
+     * USE CASE 7, paged: the first page has no seek condition and returns a token for the next page.
+     */
+    @Test
+    void testGetCitiesByPopulationPage_FirstPage() throws SQLException {
+        when(mockResultSet.next()).thenReturn(true, true, true, false);
+        when(mockResultSet.getInt("ID")).thenReturn(1024, 2331, 206);
+        when(mockResultSet.getString("Name")).thenReturn("Mumbai (Bombay)", "Seoul", "São Paulo");
+        when(mockResultSet.getString("CountryCode")).thenReturn("IND", "KOR", "BRA");
+        when(mockResultSet.getString("District")).thenReturn("Maharashtra", "Seoul", "São Paulo");
+        when(mockResultSet.getInt("Population")).thenReturn(10500000, 9981619, 9968485);
+
+        Page<City> page = cityReportService.getCitiesByPopulationPage(2, null);
+
+        assertEquals(2, page.getItems().size());
+        assertEquals("Seoul", page.getItems().get(1).getName());
+        assertTrue(page.hasNext());
+        PageToken token = PageToken.decode(page.getNextToken());
+        assertEquals(9981619, token.getPopulation());
+        assertEquals("2331", token.getKey());
+        verify(mockConnection).prepareStatement(
+                "SELECT ID, Name, CountryCode, District, Population FROM city ORDER BY Population DESC, ID DESC LIMIT ?");
+        verify(mockPreparedStatement).setInt(1, 3);
+    }
+
+    /**
+     * USE CASE 7, paged: a resume token seeks past the last row instead of using OFFSET.
+     */
+    @Test
+    void testGetCitiesByPopulationPage_ResumesAfterToken() throws SQLException {
+        when(mockResultSet.next()).thenReturn(true, false);
+        when(mockResultSet.getInt("ID")).thenReturn(206);
+        when(mockResultSet.getString("Name")).thenReturn("São Paulo");
+        when(mockResultSet.getInt("Population")).thenReturn(9968485);
+
+        Page<City> page = cityReportService.getCitiesByPopulationPage(2, new PageToken(9981619, "2331").encode());
+
+        assertEquals(1, page.getItems().size());
+        assertFalse(page.hasNext());
+        verify(mockConnection).prepareStatement(contains("WHERE Population < ? OR (Population = ? AND ID < ?)"));
+        verify(mockConnection, never()).prepareStatement(contains("OFFSET"));
+        verify(mockPreparedStatement).setLong(1, 9981619);
+        verify(mockPreparedStatement).setLong(2, 9981619);
+        verify(mockPreparedStatement).setInt(3, 2331);
+        verify(mockPreparedStatement).setInt(4, 3);
+    }
+
+    /**
+     * USE CASE 7, paged: invalid page sizes and tokens return an empty last page without querying.
+     */
+    @Test
+    void testGetCitiesByPopulationPage_InvalidInput() throws SQLException {
+        assertTrue(cityReportService.getCitiesByPopulationPage(0, null).getItems().isEmpty());
+        assertTrue(cityReportService.getCitiesByPopulationPage(10, "not a token!").getItems().isEmpty());
+        assertFalse(cityReportService.getCitiesByPopulationPage(10, new PageToken(100, "USA").encode()).hasNext());
+
+        verify(mockConnection, never()).prepareStatement(anyString());
+        String error = errContent.toString();
+        assertTrue(error.contains("Error: Page size must be greater than 0."));
+        assertTrue(error.contains("Error: Invalid page token."));
+    }
+
+    /**
+     * Streamed reports read through a forward-only cursor with the configured fetch size.
+     */
+    @Test
+    void testStreamedReportUsesCursor() throws SQLException {
+        when(mockConnection.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(mockPreparedStatement);
+        when(mockResultSet.next()).thenReturn(true, true, false);
+        when(mockResultSet.getInt("ID")).thenReturn(1024, 1025);
+        when(mockResultSet.getString("Name")).thenReturn("Mumbai", "Delhi");
+        when(mockResultSet.getInt("Population")).thenReturn(10500000, 7206704);
+        cityReportService.setStreamFetchSize(500);
+
+        List<City> cities = new ArrayList<>();
+        long count = cityReportService.forEachCityInContinentByPopulation("Asia", cities::add);
+
+        assertEquals(2, count);
+        assertEquals("Delhi", cities.get(1).getName());
+        verify(mockConnection).prepareStatement(contains("WHERE co.Continent = ?"),
+                eq(ResultSet.TYPE_FORWARD_ONLY), eq(ResultSet.CONCUR_READ_ONLY));
+        verify(mockPreparedStatement).setFetchSize(500);
+        verify(mockPreparedStatement).setString(1, "Asia");
+        verify(mockResultSet).close();
+        assertThrows(IllegalArgumentException.class, () -> cityReportService.setStreamFetchSize(-1));
+    }
+
+    /**
+     * With streaming on, the print method writes cities as they are read and counts them at the end.
+     */
+    @Test
+    void testPrintStreamed() throws SQLException {
+        when(mockConnection.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(mockPreparedStatement);
+        when(mockResultSet.next()).thenReturn(true, false);
+        when(mockResultSet.getString("Name")).thenReturn("Tokyo");
+        cityReportService.setStreamFetchSize(100);
+
+        cityReportService.printAllCitiesByPopulationLargestToSmallest();
+
+        String output = outContent.toString();
+        assertTrue(output.indexOf("name='Tokyo'") < output.indexOf("Total cities found: 1"));
+        verify(mockConnection, never()).prepareStatement(anyString());
+    }
+
+    /**
+     * A million-row streamed report opens a forward-only cursor with the fetch size, and hands
+     * each city over as soon as its row is read, so no rows pile up however many there are.
+     */
+    @Test
+    void testMillionRowStreamKeepsHeapBounded() {
+        int rows = 1_000_000;
+        Cursor cursor = new Cursor(rows);
+        CityReportService service = new CityReportService(cursor.connection());
+        service.setStreamFetchSize(1000);
+        int[] rowsAhead = {0};
+
+        long count = service.forEachCityByPopulation(city ->
+                rowsAhead[0] = Math.max(rowsAhead[0], cursor.row - city.getId()));
+
+        assertEquals(rows, count);
+        assertEquals(0, rowsAhead[0], "The service read rows ahead of the consumer");
+        assertEquals(ResultSet.TYPE_FORWARD_ONLY, cursor.resultSetType);
+        assertEquals(ResultSet.CONCUR_READ_ONLY, cursor.concurrency);
+        assertEquals(1000, cursor.fetchSize);
+    }
+
+    /**
+     * Without an index the range reports bind the area and both ends of the range.
+     */
+    @Test
+    void testPopulationRangeQuery() throws SQLException {
+        when(mockResultSet.next()).thenReturn(true, false);
+        when(mockResultSet.getInt("ID")).thenReturn(69);
+        when(mockResultSet.getString("Name")).thenReturn("Buenos Aires");
+        when(mockResultSet.getString("CountryCode")).thenReturn("ARG");
+        when(mockResultSet.getString("District")).thenReturn("Distrito Federal");
+        when(mockResultSet.getInt("Population")).thenReturn(2982146);
+
+        List<City> cities = cityReportService.getCitiesInRegionInPopulationRange("South America", 1_000_000, 5_000_000);
+
+        assertEquals(1, cities.size());
+        assertEquals("Buenos Aires", cities.get(0).getName());
+        verify(mockPreparedStatement).setString(1, "South America");
+        verify(mockPreparedStatement).setInt(2, 1_000_000);
+        verify(mockPreparedStatement).setInt(3, 5_000_000);
+
+        assertTrue(cityReportService.getCitiesInPopulationRange(5, 1).isEmpty());
+        assertTrue(cityReportService.getCitiesInContinentInPopulationRange(" ", 1, 5).isEmpty());
+        assertTrue(errContent.toString().contains("Error: Minimum population cannot be greater than maximum population."));
+    }
+
+    /**
+     * Without an index the histogram groups the database's bucket counts by continent.
+     */
+    @Test
+    void testContinentPopulationHistogramQuery() throws SQLException {
+        when(mockResultSet.next()).thenReturn(true, true, true, false);
+        when(mockResultSet.getString("Continent")).thenReturn("South America", "Africa", "South America");
+        when(mockResultSet.getInt("Bucket")).thenReturn(1, 2, 2);
+        when(mockResultSet.getInt("Cities")).thenReturn(2, 1, 1);
+        when(mockResultSet.getLong("Population")).thenReturn(4952014L, 6789479L, 9968485L);
+
+        List<PopulationHistogramPojo> histograms = cityReportService.getContinentPopulationHistogram(1_000_000, 5_000_000);
+
+        assertEquals(2, histograms.size());
+        assertEquals("Africa", histograms.get(0).getName());
+        assertArrayEquals(new int[]{0, 2, 1}, histograms.get(1).getCityCounts());
+        assertArrayEquals(new long[]{0, 4952014L, 9968485L}, histograms.get(1).getPopulations());
+        verify(mockConnection).prepareStatement(contains("INTERVAL(city.Population, ?, ?)"));
+        verify(mockPreparedStatement).setInt(2, 5_000_000);
+
+        when(mockResultSet.next()).thenReturn(true, false);
+        cityReportService.printContinentPopulationHistogram(1_000_000, 5_000_000);
+        assertTrue(outContent.toString().contains("Population Histogram for South America:"));
+
+        assertTrue(cityReportService.getContinentPopulationHistogram(5, 5).isEmpty());
+        assertTrue(errContent.toString().contains("Error: Histogram bounds must be in increasing order."));
+    }
+
+    /**
+     * The reports with each city's country join the queried cities to the country table.
+     */
+    @Test
+    void testTopNCitiesWithCountry() throws SQLException {
+        assertTrue(cityReportService.getTopNCitiesWithCountryByPopulation(2).isEmpty());
+        assertTrue(errContent.toString().contains("Error: Country table is not available."));
+
+        when(mockResultSet.next()).thenReturn(true, true, false);
+        when(mockResultSet.getInt("ID")).thenReturn(206, 69);
+        when(mockResultSet.getString("Name")).thenReturn("São Paulo", "Buenos Aires");
+        when(mockResultSet.getString("CountryCode")).thenReturn("BRA", "ARG");
+        when(mockResultSet.getString("District")).thenReturn("São Paulo", "Distrito Federal");
+        when(mockResultSet.getInt("Population")).thenReturn(9968485, 2982146);
+        cityReportService.setCountryTable(CountryTable.of(SnapshotTestData.world()));
+
+        List<EnrichedCityPojo> cities = cityReportService.getTopNCitiesWithCountryByPopulation(2);
+
+        assertEquals(2, cities.size());
+        assertEquals("Brazil", cities.get(0).getCountryName());
+        assertEquals("Argentina", cities.get(1).getCountryName());
+        assertEquals("South America", cities.get(1).getRegion());
+        verify(mockConnection, times(1)).prepareStatement(anyString());
+
+        when(mockResultSet.next()).thenReturn(true, false);
+        when(mockResultSet.getString("CountryCode")).thenReturn("BRA");
+        cityReportService.printTopNCitiesWithCountryByPopulation(1);
+        assertTrue(outContent.toString().contains("Report: Top 1 Cities in the World with their Country by Population"));
+        assertTrue(outContent.toString().contains("country='Brazil' (BRA), continent='South America'"));
+    }
+
+    /**
+     * A connection whose queries return rows generated as they are read, like a server-side cursor.
+     */
+    /**
+     * A database cursor over generated cities that records how it was opened and how far it has read.
+     */
+    private static class Cursor {
+        private final int rows;
+        private int row;
+        private int resultSetType;
+        private int concurrency;
+        private int fetchSize;
+
+        Cursor(int rows) {
+            this.rows = rows;
+        }
+
+        Connection connection() {
+            ResultSet resultSet = (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                    new Class<?>[]{ResultSet.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "next" -> ++row <= rows;
+                        case "getInt" -> args[0].equals("ID") ? row : rows - row;
+                        case "getString" -> switch ((String) args[0]) {
+                            case "CountryCode" -> "C" + row % 200;
+                            case "District" -> "District " + row % 1000;
+                            default -> "City " + row;
+                        };
+                        default -> null;
+                    });
+            PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("setFetchSize")) {
+                            fetchSize = (Integer) args[0];
+                        }
+                        return method.getName().equals("executeQuery") ? resultSet : null;
+                    });
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if (!method.getName().equals("prepareStatement")) {
+                            return null;
+                        }
+                        if (args.length == 3) {
+                            resultSetType = (Integer) args[1];
+                            concurrency = (Integer) args[2];
+                        }
+                        return statement;
+                    });
+        }
+    }
+}
@@ -3,6 +3,8 @@ package com.napier.devops.service;
 
 import com.napier.devops.Country;
 import com.napier.pojo.LanguageReportPojo;
+import com.napier.pojo.Page;
+import com.napier.pojo.PageToken;
 import com.napier.pojo.PopulationReportPojo;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -638,4 +640,38 @@ public class CountryReportServiceTest {
         List<LanguageReportPojo> reports = countryReportService.getMajorLanguageReport();
         assertTrue(reports.isEmpty());
     }
+
+    /**
+     * Paging through all countries: each page resumes after the last (population, code) seen.
+     */
+    @Test
+    void testGetCountriesByPopulationPage() throws SQLException {
+        when(mockResultSet.next()).thenReturn(true, true, false, true, false);
+        when(mockResultSet.getString("code")).thenReturn("CHN", "IND", "USA");
+        when(mockResultSet.getString("name")).thenReturn("China", "India", "United States");
+        when(mockResultSet.getInt("population")).thenReturn(1277558000, 1013662000, 278357000);
+
+        Page<Country> first = countryReportService.getCountriesByPopulationPage(1, null);
+        assertEquals(1, first.getItems().size());
+        assertEquals("CHN", first.getItems().get(0).getCode());
+        assertEquals("CHN", PageToken.decode(first.getNextToken()).getKey());
+
+        Page<Country> second = countryReportService.getCountriesByPopulationPage(1, first.getNextToken());
+        assertEquals("USA", second.getItems().get(0).getCode());
+        assertFalse(second.hasNext());
+
+        verify(mockConnection).prepareStatement(contains("WHERE population < ? OR (population = ? AND code < ?)"));
+        verify(mockPreparedStatement, times(2)).setLong(anyInt(), eq(1277558000L));
+        verify(mockPreparedStatement).setString(3, "CHN");
+    }
+
+    /**
+     * Paging rejects a page size below one and tokens it did not issue.
+     */
+    @Test
+    void testGetCountriesByPopulationPage_InvalidInput() throws SQLException {
+        assertTrue(countryReportService.getCountriesByPopulationPage(-1, null).getItems().isEmpty());
+        assertTrue(countryReportService.getCountriesByPopulationPage(5, "%%%").getItems().isEmpty());
+        verify(mockConnection, never()).prepareStatement(anyString());
+    }
 }
@@ -0,0 +1,108 @@
+package com.napier.devops.service;
+
+import com.napier.devops.City;
+import com.napier.devops.generator.WorldDataGenerator;
+import com.napier.devops.snapshot.SnapshotTestData;
+import com.napier.devops.snapshot.WorldSnapshot;
+import com.napier.pojo.EnrichedCityPojo;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the in-memory country table.
+ */
+public class CountryTableTest {
+
+    /**
+     * Cities are joined to their country by code, ignoring case.
+     */
+    @Test
+    void testEnrichFromSnapshot() {
+        CountryTable table = CountryTable.of(SnapshotTestData.world());
+
+        assertEquals(7, table.size());
+        int row = table.rowOf("usa");
+        assertEquals("USA", table.getCode(row));
+        assertEquals(row, table.rowOf("USA"));
+
+        List<EnrichedCityPojo> cities = table.enrich(List.of(
+                new City().setAll(3793, "New York", "USA", "New York", 8008278),
+                new City().setAll(2754, "Lagos", "NGA", "Lagos", 1518000)));
+        assertEquals("United States", cities.get(0).getCountryName());
+        assertEquals("North America", cities.get(0).getContinent());
+        assertEquals("North America", cities.get(0).getRegion());
+        assertEquals("Nigeria", cities.get(1).getCountryName());
+        assertEquals("Africa", cities.get(1).getContinent());
+        assertEquals("Lagos", cities.get(1).getCity().getName());
+    }
+
+    /**
+     * Codes that are not three letters, or have no country, are not found.
+     */
+    @Test
+    void testUnknownCodes() {
+        CountryTable table = CountryTable.of(SnapshotTestData.world());
+
+        assertEquals(-1, table.rowOf("XXX"));
+        assertEquals(-1, table.rowOf("US"));
+        assertEquals(-1, table.rowOf("U1A"));
+        assertEquals(-1, table.rowOf("[[["));
+        assertEquals(-1, table.rowOf(null));
+
+        EnrichedCityPojo lost = table.enrich(new City().setAll(9, "Lost City", "XXX", "Nowhere", 1000));
+        assertNull(lost.getCountryName());
+        assertNull(lost.getContinent());
+        assertEquals(0, CountryTable.slot("AAA"));
+        assertEquals(26 * 26 * 26 - 1, CountryTable.slot("zzz"));
+    }
+
+    /**
+     * On a generated world every country is found at its snapshot row.
+     */
+    @Test
+    void testMatchesSnapshotRows() {
+        WorldSnapshot snapshot = new WorldDataGenerator(0.5, 3).generateSnapshot();
+        CountryTable table = CountryTable.of(snapshot);
+
+        for (int row = 0; row < snapshot.getCountryCount(); row++) {
+            assertEquals(row, table.rowOf(snapshot.getCountryCode(row)));
+            assertEquals(snapshot.getCountryName(row), table.getName(row));
+        }
+        for (int row = 0; row < snapshot.getCityCount(); row += 13) {
+            EnrichedCityPojo city = table.enrich(snapshot.toCity(row));
+            assertEquals(snapshot.toCountry(snapshot.getCityCountry(row)).getRegion(), city.getRegion());
+        }
+    }
+
+    /**
+     * The table is read with one query.
+     */
+    @Test
+    void testLoad() throws SQLException {
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getString("Code")).thenReturn("NLD");
+        when(resultSet.getString("Name")).thenReturn("Netherlands");
+        when(resultSet.getString("Continent")).thenReturn("Europe");
+        when(resultSet.getString("Region")).thenReturn("Western Europe");
+
+        CountryTable table = CountryTable.load(connection);
+
+        assertEquals(1, table.size());
+        assertEquals("Western Europe", table.getRegion(table.rowOf("NLD")));
+        verify(statement, times(1)).executeQuery(anyString());
+    }
+}
@@ -0,0 +1,132 @@
+package com.napier.devops.service;
+
+import com.napier.devops.City;
+import com.napier.devops.generator.WorldDataGenerator;
+import com.napier.devops.snapshot.SnapshotTestData;
+import com.napier.devops.snapshot.WorldSnapshot;
+import com.napier.pojo.PopulationHistogramPojo;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the sorted population index.
+ */
+public class PopulationIndexTest {
+
+    /**
+     * Ranges include both ends and keep the largest city first.
+     */
+    @Test
+    void testRangesFromSnapshot() {
+        PopulationIndex index = PopulationIndex.of(SnapshotTestData.world());
+
+        assertEquals(12, index.size());
+        assertEquals(List.of("Los Angeles", "Buenos Aires", "Brasília", "Lagos", "Montréal"),
+                names(index.inRange(1_000_000, 5_000_000)));
+        assertEquals(List.of("Buenos Aires", "Brasília"), names(index.inRangeInContinent("south america", 1_000_000, 5_000_000)));
+        assertEquals(List.of("Buenos Aires", "Brasília"), names(index.inRangeInRegion("South America", 1_000_000, 5_000_000)));
+        assertEquals(List.of("Lagos"), names(index.inRangeInContinent("Africa", 1518000, 1518000)));
+        assertTrue(index.inRange(10_000_000, 20_000_000).isEmpty());
+        assertTrue(index.inRangeInRegion("Atlantis", 0, Integer.MAX_VALUE).isEmpty());
+    }
+
+    /**
+     * Each continent's cities are counted into the bucket of their population.
+     */
+    @Test
+    void testContinentHistograms() {
+        PopulationIndex index = PopulationIndex.of(SnapshotTestData.world());
+
+        List<PopulationHistogramPojo> histograms = index.continentHistograms(new int[]{1_000_000, 5_000_000});
+
+        // Antarctica has no cities
+        assertEquals(List.of("Africa", "North America", "South America"),
+                histograms.stream().map(PopulationHistogramPojo::getName).toList());
+        assertArrayEquals(new int[]{1, 1, 1}, histograms.get(0).getCityCounts());
+        assertArrayEquals(new int[]{3, 2, 1}, histograms.get(1).getCityCounts());
+        assertArrayEquals(new long[]{776733L + 572059 + 335277, 3694820L + 1016376, 8008278}, histograms.get(1).getPopulations());
+        assertArrayEquals(new int[]{0, 2, 1}, histograms.get(2).getCityCounts());
+        assertEquals("1,000,000 - 4,999,999", histograms.get(2).getLabel(1));
+        assertEquals(">= 5,000,000", histograms.get(2).getLabel(2));
+    }
+
+    /**
+     * On a generated world the ranges and histograms agree with a scan of every city.
+     */
+    @Test
+    void testMatchesScan() {
+        WorldSnapshot snapshot = new WorldDataGenerator(0.2, 11).generateSnapshot();
+        PopulationIndex index = PopulationIndex.of(snapshot);
+        int min = 200_000;
+        int max = 900_000;
+
+        List<Integer> expected = IntStream.range(0, snapshot.getCityCount())
+                .filter(row -> snapshot.getCityPopulation(row) >= min && snapshot.getCityPopulation(row) <= max)
+                .boxed()
+                .sorted(Comparator.comparingInt(snapshot::getCityPopulation).thenComparingInt(snapshot::getCityId).reversed())
+                .map(snapshot::getCityId)
+                .toList();
+        assertEquals(expected, index.inRange(min, max).stream().map(City::getId).toList());
+
+        int[] bounds = {100_000, 500_000, 1_000_000};
+        int total = 0;
+        for (PopulationHistogramPojo histogram : index.continentHistograms(bounds)) {
+            int inRange = index.inRangeInContinent(histogram.getName(), 500_000, 999_999).size();
+            assertEquals(inRange, histogram.getCityCounts()[2], histogram.getName());
+            for (int count : histogram.getCityCounts()) {
+                total += count;
+            }
+        }
+        int known = (int) IntStream.range(0, snapshot.getCityCount())
+                .filter(row -> snapshot.getCityCountry(row) >= 0).count();
+        assertEquals(known, total);
+    }
+
+    /**
+     * Loading runs one query, and the service then answers without the database.
+     */
+    @Test
+    void testLoadAndServiceUsesIndex() throws SQLException {
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(rs);
+        when(rs.next()).thenReturn(true, true, true, false);
+        when(rs.getInt("ID")).thenReturn(1890, 2331, 3580);
+        when(rs.getString("CityName")).thenReturn("Shanghai", "Seoul", "Moscow");
+        when(rs.getString("District")).thenReturn("Shanghai", "Seoul", "Moscow (City)");
+        when(rs.getString("CountryCode")).thenReturn("CHN", "KOR", "RUS");
+        when(rs.getInt("Population")).thenReturn(9696300, 9981619, 8389200);
+        when(rs.getString("Continent")).thenReturn("Asia", "Asia", "Europe");
+        when(rs.getString("Region")).thenReturn("Eastern Asia", "Eastern Asia", "Eastern Europe");
+
+        PopulationIndex index = PopulationIndex.load(connection);
+        verify(statement, times(1)).executeQuery(anyString());
+
+        Connection unused = mock(Connection.class);
+        CityReportService service = new CityReportService(unused);
+        service.setPopulationIndex(index);
+
+        assertEquals(List.of("Seoul", "Shanghai"), names(service.getCitiesInContinentInPopulationRange("Asia", 9_000_000, 10_000_000)));
+        assertEquals(List.of("Moscow"), names(service.getCitiesInRegionInPopulationRange("Eastern Europe", 0, 9_000_000)));
+        assertEquals(3, service.getCitiesInPopulationRange(0, Integer.MAX_VALUE).size());
+        assertEquals(2, service.getContinentPopulationHistogram(9_000_000).size());
+        verifyNoInteractions(unused);
+    }
+
+    private static List<String> names(List<City> cities) {
+        return cities.stream().map(City::getName).toList();
+    }
+}
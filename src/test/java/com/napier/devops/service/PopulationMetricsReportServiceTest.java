@@ -1,6 +1,7 @@
 package com.napier.devops.service;
 
 import com.napier.devops.PopulationMetrics;
+import com.napier.pojo.WorldReportPojo;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
@@ -378,4 +379,56 @@ public class PopulationMetricsReportServiceTest {
         String errorOutput = outContent.toString();
         assertTrue(errorOutput.contains("Error: Could not retrieve population"));
     }
-}
\ No newline at end of file
+
+    /**
+     * USE CASES 23 to 29 are accumulated from the rows of a single query.
+     */
+    @Test
+    void testGetWorldReport() throws SQLException {
+        when(mockResultSet.next()).thenReturn(true, true, true, false);
+        when(mockResultSet.getString("Name")).thenReturn("Argentina", "Brazil", "Nigeria");
+        when(mockResultSet.getString("Continent")).thenReturn("South America", "South America", "Africa");
+        when(mockResultSet.getString("Region")).thenReturn("South America", "South America", "Western Africa");
+        when(mockResultSet.getLong("Population")).thenReturn(37032000L, 170115000L, 111506000L);
+        when(mockResultSet.getLong("CityPopulation")).thenReturn(3000000L, 10000000L, 0L);
+
+        WorldReportPojo report = populationMetricsService.getWorldReport("south america", "South America", "Brazil");
+
+        verify(mockStatement, times(1)).executeQuery(contains("LEFT JOIN"));
+        verify(mockConnection, never()).prepareStatement(anyString());
+
+        assertEquals(List.of("South America", "Africa"),
+                report.getContinents().stream().map(PopulationMetrics::getNameOfArea).toList());
+        assertEquals(List.of("South America", "Western Africa"),
+                report.getRegions().stream().map(PopulationMetrics::getNameOfArea).toList());
+        assertEquals(List.of("Argentina", "Brazil", "Nigeria"),
+                report.getCountries().stream().map(PopulationMetrics::getNameOfArea).toList());
+        assertEquals(6.28, report.getContinents().get(0).getCityPopulationPercentage(), 0.0);
+        assertEquals(318653000L, report.getWorldPopulation());
+
+        assertEquals("South America", report.getContinent().getNameOfArea());
+        assertEquals(13000000L, report.getContinent().getCityPopulation());
+        assertEquals(207147000L, report.getRegion().getTotalPopulation());
+        assertEquals(170115000L, report.getCountry().getTotalPopulation());
+        assertEquals(10000000L * 100.0 / 170115000, report.getCountry().getPercentageInCities(), 1e-9);
+    }
+
+    /**
+     * A failed world report reads like seven failed queries.
+     */
+    @Test
+    void testGetWorldReportFailure() throws SQLException {
+        when(mockStatement.executeQuery(anyString())).thenThrow(new SQLException("Connection lost"));
+
+        WorldReportPojo report = populationMetricsService.getWorldReport("Asia", "Caribbean", "France");
+
+        assertTrue(report.getContinents().isEmpty());
+        assertEquals(-1, report.getWorldPopulation());
+        assertNull(report.getContinent());
+        assertNull(report.getCountry());
+        assertTrue(outContent.toString().contains("Query failed: Connection lost"));
+
+        populationMetricsService.printWorldPopulationReport(report.getWorldPopulation());
+        assertTrue(outContent.toString().contains("Error: Could not retrieve world population."));
+    }
+}
@@ -0,0 +1,121 @@
+package com.napier.devops.snapshot;
+
+import com.napier.devops.City;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the city columns held on and off the heap.
+ */
+public class CityColumnsTest {
+
+    /**
+     * Direct columns hold the same rows, names with accents included.
+     */
+    @Test
+    void testDirectColumnsMatchHeap() {
+        WorldSnapshot heap = SnapshotTestData.world();
+        WorldSnapshot direct = heap.offHeap();
+
+        assertFalse(heap.isOffHeap());
+        assertTrue(direct.isOffHeap());
+        assertTrue(direct.cities.populations.isDirect());
+        assertSameCities(heap, direct);
+        assertEquals("São Paulo", direct.getCityName(rowOf(direct, 206)));
+    }
+
+    /**
+     * File-mapped columns hold the same rows and are written to the file.
+     */
+    @Test
+    void testMappedColumnsMatchHeap(@TempDir Path dir) throws IOException {
+        WorldSnapshot heap = SnapshotTestData.world();
+        Path file = dir.resolve("cities.bin");
+        WorldSnapshot mapped = heap.offHeap(file);
+
+        assertTrue(mapped.isOffHeap());
+        assertSameCities(heap, mapped);
+        // Four int columns, one offset per row and one past the end, and the name bytes
+        assertTrue(Files.size(file) > (long) heap.getCityCount() * 5 * Integer.BYTES);
+    }
+
+    /**
+     * Every snapshot report reads the off-heap columns and gives the same results.
+     */
+    @Test
+    void testReportsMatchOffHeap() {
+        WorldSnapshot heap = SnapshotTestData.world();
+        WorldSnapshot direct = heap.offHeap();
+
+        assertEquals(names(new SnapshotCityReportService(heap).getAllCitiesByPopulationLargestToSmallest()),
+                names(new SnapshotCityReportService(direct).getAllCitiesByPopulationLargestToSmallest()));
+        assertEquals(names(new SnapshotCityReportService(heap).getTopCitiesByDistrict("Distrito Federal", 5)),
+                names(new SnapshotCityReportService(direct).getTopCitiesByDistrict("Distrito Federal", 5)));
+        assertArrayEquals(new CityPopulationAggregator().sumByCountry(heap),
+                new CityPopulationAggregator().sumByCountry(direct));
+        assertEquals(heap.getGeography().getWorld().getCityPopulation(),
+                direct.getGeography().getWorld().getCityPopulation());
+        assertEquals(heap.getGeography().getWorld().getCityCount(), direct.getGeography().getWorld().getCityCount());
+        assertEquals(new SnapshotPopulationMetricsReportService(heap).getContinentPopulationReport().toString(),
+                new SnapshotPopulationMetricsReportService(direct).getContinentPopulationReport().toString());
+    }
+
+    /**
+     * The kernels read direct buffers with the same results as arrays.
+     */
+    @Test
+    void testKernelOverDirectBuffers() {
+        int[] values = {5, 7, Integer.MAX_VALUE, Integer.MAX_VALUE, -3};
+        int[] keys = {1, 2, 1, 1, 2};
+        IntBuffer directValues = direct(values);
+        IntBuffer directKeys = direct(keys);
+
+        for (PopulationKernel kernel : new PopulationKernel[]{PopulationKernel.scalar(), PopulationKernel.get()}) {
+            assertEquals(kernel.sum(values), kernel.sum(directValues));
+            assertEquals(kernel.sum(values), kernel.sum(IntBuffer.wrap(values)));
+            assertEquals(kernel.sumWhereEqual(values, keys, 1), kernel.sumWhereEqual(directValues, directKeys, 1));
+            assertEquals(kernel.countWhereEqual(keys, 2), kernel.countWhereEqual(directKeys, 2));
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> PopulationKernel.scalar().sumWhereEqual(directValues, direct(new int[2]), 1));
+    }
+
+    private static void assertSameCities(WorldSnapshot expected, WorldSnapshot actual) {
+        assertEquals(expected.getCityCount(), actual.getCityCount());
+        for (int row = 0; row < expected.getCityCount(); row++) {
+            assertEquals(expected.toCity(row).toString(), actual.toCity(row).toString());
+            assertEquals(expected.getCityCountry(row), actual.getCityCountry(row));
+            assertEquals(expected.getCityDistrict(row), actual.getCityDistrict(row));
+        }
+    }
+
+    private static int rowOf(WorldSnapshot snapshot, int id) {
+        for (int row = 0; row < snapshot.getCityCount(); row++) {
+            if (snapshot.getCityId(row) == id) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    private static List<String> names(List<City> cities) {
+        return cities.stream().map(City::getName).toList();
+    }
+
+    private static IntBuffer direct(int[] values) {
+        IntBuffer buffer = ByteBuffer.allocateDirect(values.length * Integer.BYTES)
+                .order(ByteOrder.nativeOrder()).asIntBuffer();
+        buffer.put(0, values);
+        return buffer;
+    }
+}
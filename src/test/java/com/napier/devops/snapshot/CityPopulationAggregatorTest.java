@@ -0,0 +1,91 @@
+package com.napier.devops.snapshot;
+
+import com.napier.devops.PopulationMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the fork/join city population aggregator.
+ */
+public class CityPopulationAggregatorTest {
+
+    /**
+     * Splitting into tiny chunks gives the same sums as a single pass.
+     */
+    @Test
+    void testSmallChunksMatchSinglePass() {
+        WorldSnapshot snapshot = SnapshotTestData.world();
+
+        long[] single = new CityPopulationAggregator(ForkJoinPool.commonPool(), Integer.MAX_VALUE).sumByCountry(snapshot);
+        long[] chunked = new CityPopulationAggregator(ForkJoinPool.commonPool(), 1).sumByCountry(snapshot);
+
+        assertArrayEquals(single, chunked);
+        assertEquals(8008278L + 3694820 + 776733 + 572059, single[snapshot.findCountryRow("USA")]);
+        assertEquals(0, single[snapshot.findCountryRow("ATA")]);
+    }
+
+    /**
+     * A larger random table is summed exactly when split across the pool.
+     */
+    @Test
+    void testLargeTableAcrossPool() {
+        Random random = new Random(42);
+        WorldSnapshot.Builder builder = WorldSnapshot.builder();
+        String[] codes = new String[50];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = "Q" + (char) ('A' + i / 26) + (char) ('A' + i % 26);
+            builder.addCountry(codes[i], "Country " + i, "Asia", "Region " + (i % 5), 1_000_000_000, 0);
+        }
+
+        long[] expected = new long[codes.length];
+        for (int id = 1; id <= 200_000; id++) {
+            int country = random.nextInt(codes.length);
+            int population = random.nextInt(5_000_000);
+            expected[country] += population;
+            builder.addCity(id, "City " + id, codes[country], "District", population);
+        }
+        WorldSnapshot snapshot = builder.build();
+
+        long[] sums = new CityPopulationAggregator(new ForkJoinPool(4), 1000).sumByCountry(snapshot);
+
+        for (int i = 0; i < codes.length; i++) {
+            assertEquals(expected[i], sums[snapshot.findCountryRow(codes[i])]);
+        }
+    }
+
+    /**
+     * The reports are identical whatever the chunk size.
+     */
+    @Test
+    void testReportsIndependentOfChunkSize() {
+        WorldSnapshot snapshot = SnapshotTestData.world();
+        SnapshotPopulationMetricsReportService sequential = new SnapshotPopulationMetricsReportService(snapshot,
+                new CityPopulationAggregator(ForkJoinPool.commonPool(), Integer.MAX_VALUE));
+        SnapshotPopulationMetricsReportService parallel = new SnapshotPopulationMetricsReportService(snapshot,
+                new CityPopulationAggregator(ForkJoinPool.commonPool(), 2));
+
+        assertSameMetrics(sequential.getContinentPopulationReport(), parallel.getContinentPopulationReport());
+        assertSameMetrics(sequential.getRegionPopulationReport(), parallel.getRegionPopulationReport());
+        assertSameMetrics(sequential.getCountryPopulationReport(), parallel.getCountryPopulationReport());
+    }
+
+    /**
+     * The chunk size must be positive.
+     */
+    @Test
+    void testInvalidChunkSize() {
+        assertThrows(IllegalArgumentException.class, () -> new CityPopulationAggregator(ForkJoinPool.commonPool(), 0));
+    }
+
+    private void assertSameMetrics(List<PopulationMetrics> expected, List<PopulationMetrics> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).toString(), actual.get(i).toString());
+        }
+    }
+}
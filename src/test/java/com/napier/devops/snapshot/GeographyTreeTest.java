@@ -0,0 +1,114 @@
+package com.napier.devops.snapshot;
+
+import com.napier.devops.PopulationMetrics;
+import com.napier.devops.generator.WorldDataGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the geography hierarchy and its precomputed totals.
+ */
+public class GeographyTreeTest {
+
+    /**
+     * Each level holds the areas below it, with totals and counts added up the tree.
+     */
+    @Test
+    void testHierarchy() {
+        GeographyTree tree = GeographyTree.of(SnapshotTestData.world());
+        GeographyTree.Node world = tree.getWorld();
+
+        assertEquals(4, world.getChildren().size());
+        assertEquals(696627000L, world.getPopulation());
+        assertEquals(7, world.getCountryCount());
+        assertEquals(12, world.getCityCount());
+
+        GeographyTree.Node america = tree.get(GeographyTree.Level.CONTINENT, "north AMERICA");
+        assertSame(world, america.getParent());
+        assertEquals(309504000L, america.getPopulation());
+        assertEquals(8008278L + 3694820 + 776733 + 572059 + 335277 + 1016376, america.getCityPopulation());
+
+        GeographyTree.Node california = tree.get(GeographyTree.Level.DISTRICT, "California");
+        assertEquals("United States", california.getParent().getName());
+        assertEquals(3694820L + 776733, california.getPopulation());
+        assertEquals(2, california.getChildren().size());
+        assertEquals(0, california.getCountryCount());
+
+        GeographyTree.Node antarctica = tree.get(GeographyTree.Level.COUNTRY, "Antarctica");
+        assertEquals(0, antarctica.getCityCount());
+        assertTrue(antarctica.getChildren().isEmpty());
+    }
+
+    /**
+     * A name may match several nodes, and unknown names match none.
+     */
+    @Test
+    void testFind() {
+        GeographyTree tree = GeographyTree.of(SnapshotTestData.world());
+
+        List<GeographyTree.Node> federal = tree.find(GeographyTree.Level.DISTRICT, "distrito federal");
+        assertEquals(2, federal.size());
+        assertEquals(List.of("Brazil", "Argentina"), federal.stream().map(node -> node.getParent().getName()).toList());
+        assertTrue(tree.find(GeographyTree.Level.CITY, "Atlantis").isEmpty());
+        assertTrue(tree.find(GeographyTree.Level.CITY, null).isEmpty());
+        assertNull(tree.get(GeographyTree.Level.REGION, "Nowhere"));
+        assertEquals(3805, tree.get(GeographyTree.Level.CITY, "San Francisco").getId());
+    }
+
+    /**
+     * Cities whose country is missing are found by name but left out of the country totals.
+     */
+    @Test
+    void testCitiesWithoutCountry() {
+        WorldSnapshot snapshot = WorldSnapshot.builder()
+                .addCountry("GBR", "United Kingdom", "Europe", "British Islands", 59623400, 456)
+                .addCity(456, "London", "GBR", "England", 7285000)
+                .addCity(9000, "Londinium", "ROM", "England", 30000)
+                .build();
+        GeographyTree tree = GeographyTree.of(snapshot);
+
+        assertEquals(7285000L, tree.getWorld().getCityPopulation());
+        assertEquals(1, tree.getWorld().getCityCount());
+        List<GeographyTree.Node> england = tree.find(GeographyTree.Level.DISTRICT, "England");
+        assertEquals(2, england.size());
+        assertNull(england.get(1).getParent());
+        assertEquals(30000L, tree.get(GeographyTree.Level.CITY, "Londinium").getPopulation());
+    }
+
+    /**
+     * On a generated world the node totals match the grouped reports and direct scans.
+     */
+    @Test
+    void testMatchesScansOnGeneratedWorld() {
+        WorldSnapshot snapshot = new WorldDataGenerator(0.5, 3).generateSnapshot();
+        GeographyTree tree = snapshot.getGeography();
+        SnapshotPopulationMetricsReportService metrics = new SnapshotPopulationMetricsReportService(snapshot);
+
+        assertSame(tree, snapshot.getGeography());
+        for (PopulationMetrics continent : metrics.getContinentPopulationReport()) {
+            GeographyTree.Node node = tree.get(GeographyTree.Level.CONTINENT, continent.getNameOfArea());
+            assertEquals(continent.getTotalPopulation(), node.getPopulation());
+            assertEquals(continent.getCityPopulation(), node.getCityPopulation());
+        }
+        for (PopulationMetrics region : metrics.getRegionPopulationReport()) {
+            long total = 0;
+            long inCities = 0;
+            for (GeographyTree.Node node : tree.find(GeographyTree.Level.REGION, region.getNameOfArea())) {
+                total += node.getPopulation();
+                inCities += node.getCityPopulation();
+            }
+            assertEquals(region.getTotalPopulation(), total);
+            assertEquals(region.getCityPopulation(), inCities);
+        }
+
+        long cities = 0;
+        for (int row = 0; row < snapshot.getCityCount(); row++) {
+            cities += snapshot.getCityPopulation(row);
+        }
+        assertEquals(cities, tree.getWorld().getCityPopulation());
+        assertEquals(snapshot.getCityCount(), tree.getWorld().getCityCount());
+    }
+}
@@ -0,0 +1,157 @@
+package com.napier.devops.snapshot;
+
+import com.napier.devops.PopulationMetrics;
+import com.napier.devops.service.WorldReportAccumulator;
+import com.napier.pojo.WorldReportPojo;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the running population totals.
+ */
+public class LivePopulationMetricsTest {
+
+    /**
+     * Before any change the live totals match the snapshot reports.
+     */
+    @Test
+    void testStartsFromSnapshot() {
+        WorldSnapshot snapshot = SnapshotTestData.world();
+        SnapshotPopulationMetricsReportService expected = new SnapshotPopulationMetricsReportService(snapshot);
+        LivePopulationMetrics live = new LivePopulationMetrics(snapshot);
+
+        assertSameMetrics(expected.getContinentPopulationReport(), live.getContinents());
+        assertSameMetrics(expected.getRegionPopulationReport(), live.getRegions());
+        assertSameMetrics(expected.getCountryPopulationReport(), live.getCountries());
+        assertEquals(expected.getWorldPopulationReport(), live.getWorldPopulation());
+
+        WorldReportAccumulator accumulator = new WorldReportAccumulator("Africa", "Western Africa", "Brazil");
+        live.addCountriesTo(accumulator);
+        WorldReportPojo report = accumulator.build(System.err);
+        WorldReportPojo expectedReport = expected.getWorldReport("Africa", "Western Africa", "Brazil");
+        assertSameMetrics(expectedReport.getContinents(), report.getContinents());
+        assertEquals(expectedReport.getWorldPopulation(), report.getWorldPopulation());
+        assertEquals(expectedReport.getCountry().getTotalPopulation(), report.getCountry().getTotalPopulation());
+        assertNull(live.getContinent("Atlantis"));
+    }
+
+    /**
+     * A deleted snapshot city can be inserted again under the same ID.
+     */
+    @Test
+    void testReinsertDeletedCity() {
+        LivePopulationMetrics live = new LivePopulationMetrics(SnapshotTestData.world());
+        long before = live.getCountry("EGY").getCityPopulation();
+
+        assertTrue(live.deleteCity(608));
+        assertFalse(live.updateCityPopulation(608, 1));
+        live.insertCity(608, "NGA", 100);
+
+        assertEquals(before - 6789479, live.getCountry("EGY").getCityPopulation());
+        assertTrue(live.updateCityPopulation(608, 300));
+        assertThrows(IllegalArgumentException.class, () -> live.insertCity(608, "NGA", 100));
+        assertTrue(live.deleteCity(608));
+        assertFalse(live.deleteCity(608));
+    }
+
+    /**
+     * Inserting, resizing and deleting cities gives the same totals as rebuilding from scratch.
+     */
+    @Test
+    void testCityChangesMatchRebuild() {
+        LivePopulationMetrics live = new LivePopulationMetrics(SnapshotTestData.world());
+
+        live.insertCity(3800, "USA", 1000000);
+        assertTrue(live.updateCityPopulation(206, 10000000));
+        assertTrue(live.deleteCity(2752));
+        assertFalse(live.deleteCity(2752));
+        assertFalse(live.updateCityPopulation(99999, 1));
+
+        WorldSnapshot rebuilt = WorldSnapshot.builder()
+                .addCountry("USA", "United States", "North America", "North America", 278357000, 3813)
+                .addCountry("CAN", "Canada", "North America", "North America", 31147000, 1822)
+                .addCountry("BRA", "Brazil", "South America", "South America", 170115000, 211)
+                .addCountry("ARG", "Argentina", "South America", "South America", 37032000, 69)
+                .addCountry("NGA", "Nigeria", "Africa", "Western Africa", 111506000, 2754)
+                .addCountry("EGY", "Egypt", "Africa", "Northern Africa", 68470000, 608)
+                .addCountry("ATA", "Antarctica", "Antarctica", "Antarctica", 0, 0)
+                .addCity(3793, "New York", "USA", "New York", 8008278)
+                .addCity(3794, "Los Angeles", "USA", "California", 3694820)
+                .addCity(3805, "San Francisco", "USA", "California", 776733)
+                .addCity(3813, "Washington", "USA", "District of Columbia", 572059)
+                .addCity(3800, "Chicago", "USA", "Illinois", 1000000)
+                .addCity(1822, "Ottawa", "CAN", "Ontario", 335277)
+                .addCity(1810, "Montréal", "CAN", "Québec", 1016376)
+                .addCity(206, "São Paulo", "BRA", "São Paulo", 10000000)
+                .addCity(211, "Brasília", "BRA", "Distrito Federal", 1969868)
+                .addCity(69, "Buenos Aires", "ARG", "Distrito Federal", 2982146)
+                .addCity(2754, "Abuja", "NGA", "Federal Capital Dist", 350100)
+                .addCity(608, "Cairo", "EGY", "Kairo", 6789479)
+                .build();
+        SnapshotPopulationMetricsReportService expected = new SnapshotPopulationMetricsReportService(rebuilt);
+
+        assertSameMetrics(expected.getContinentPopulationReport(), live.getContinents());
+        assertSameMetrics(expected.getRegionPopulationReport(), live.getRegions());
+        assertSameMetrics(expected.getCountryPopulationReport(), live.getCountries());
+    }
+
+    /**
+     * A change moves the country, region and continent together, percentages included.
+     */
+    @Test
+    void testChangePropagatesUpHierarchy() {
+        LivePopulationMetrics live = new LivePopulationMetrics(SnapshotTestData.world());
+        long countryBefore = live.getCountry("NGA").getCityPopulation();
+        long regionBefore = live.getRegion("Western Africa").getCityPopulation();
+        long continentBefore = live.getContinent("Africa").getCityPopulation();
+
+        live.updateCityPopulation(2752, 1518000 + 500000);
+
+        assertEquals(countryBefore + 500000, live.getCountry("NGA").getCityPopulation());
+        assertEquals(regionBefore + 500000, live.getRegion("Western Africa").getCityPopulation());
+        assertEquals(continentBefore + 500000, live.getContinent("Africa").getCityPopulation());
+
+        PopulationMetrics nigeria = live.getCountry("NGA");
+        assertEquals(111506000 - 2368100, nigeria.getNonCityPopulation());
+        assertEquals(2.12, nigeria.getCityPopulationPercentage());
+        assertEquals(97.88, nigeria.getNonCityPopulationPercentage());
+    }
+
+    /**
+     * Country population changes reach the region, continent and world.
+     */
+    @Test
+    void testCountryPopulationChange() {
+        LivePopulationMetrics live = new LivePopulationMetrics(SnapshotTestData.world());
+        long world = live.getWorldPopulation();
+
+        assertTrue(live.updateCountryPopulation("ATA", 1000));
+        assertFalse(live.updateCountryPopulation("XXX", 1000));
+
+        assertEquals(world + 1000, live.getWorldPopulation());
+        assertEquals(1000, live.getContinent("Antarctica").getTotalPopulation());
+        assertEquals(100.0, live.getContinent("Antarctica").getNonCityPopulationPercentage());
+    }
+
+    /**
+     * Cities must belong to a known country and have a new ID.
+     */
+    @Test
+    void testInvalidInserts() {
+        LivePopulationMetrics live = new LivePopulationMetrics(SnapshotTestData.world());
+
+        assertThrows(IllegalArgumentException.class, () -> live.insertCity(1, "XXX", 100));
+        assertThrows(IllegalArgumentException.class, () -> live.insertCity(608, "EGY", 100));
+        assertNull(live.getRegion("Atlantis"));
+    }
+
+    private void assertSameMetrics(List<PopulationMetrics> expected, List<PopulationMetrics> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).toString(), actual.get(i).toString());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.napier.devops.snapshot;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH comparison of the scalar and vector population kernels on synthetic columns of
+ * 10 million rows and more. Not run by the tests; run it with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.napier.devops.snapshot.PopulationKernelBenchmark}, or from an IDE.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector", "-Xmx2g"})
+public class PopulationKernelBenchmark {
+
+    @Param({"10000000", "50000000"})
+    private int rows;
+
+    private int[] populations;
+    private int[] districts;
+    private PopulationKernel scalar;
+    private PopulationKernel vector;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        populations = new int[rows];
+        districts = new int[rows];
+        for (int row = 0; row < rows; row++) {
+            populations[row] = random.nextInt(10_000_000);
+            districts[row] = random.nextInt(1_000);
+        }
+        scalar = PopulationKernel.scalar();
+        vector = PopulationKernel.vector();
+        if (vector == null) {
+            throw new IllegalStateException("Run with --add-modules jdk.incubator.vector");
+        }
+    }
+
+    @Benchmark
+    public long sumScalar() {
+        return scalar.sum(populations);
+    }
+
+    @Benchmark
+    public long sumVector() {
+        return vector.sum(populations);
+    }
+
+    @Benchmark
+    public long sumDistrictScalar() {
+        return scalar.sumWhereEqual(populations, districts, 7);
+    }
+
+    @Benchmark
+    public long sumDistrictVector() {
+        return vector.sumWhereEqual(populations, districts, 7);
+    }
+
+    @Benchmark
+    public int countDistrictScalar() {
+        return scalar.countWhereEqual(districts, 7);
+    }
+
+    @Benchmark
+    public int countDistrictVector() {
+        return vector.countWhereEqual(districts, 7);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PopulationKernelBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,92 @@
+package com.napier.devops.snapshot;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Unit tests for the population sum kernels.
+ */
+public class PopulationKernelTest {
+
+    @AfterEach
+    void tearDown() {
+        PopulationKernel.disableVector();
+    }
+
+    /**
+     * The scalar kernel sums and counts exactly.
+     */
+    @Test
+    void testScalar() {
+        PopulationKernel kernel = PopulationKernel.scalar();
+        int[] values = {5, 7, Integer.MAX_VALUE, Integer.MAX_VALUE, -3};
+        int[] keys = {1, 2, 1, 1, 2};
+
+        assertEquals(5L + 7 + 2L * Integer.MAX_VALUE - 3, kernel.sum(values));
+        assertEquals(5L + 2L * Integer.MAX_VALUE, kernel.sumWhereEqual(values, keys, 1));
+        assertEquals(3, kernel.countWhereEqual(keys, 1));
+        assertEquals(0, kernel.countWhereEqual(keys, 9));
+        assertEquals(0, kernel.sum(new int[0]));
+        assertThrows(IllegalArgumentException.class, () -> kernel.sumWhereEqual(values, new int[2], 1));
+    }
+
+    /**
+     * The vector kernel matches the scalar one exactly, including values near the int limits,
+     * lengths that leave a scalar tail, and columns long enough to flush its accumulators.
+     */
+    @Test
+    void testVectorMatchesScalar() {
+        PopulationKernel vector = PopulationKernel.vector();
+        assumeTrue(vector != null, "Vector API module not present");
+        PopulationKernel scalar = PopulationKernel.scalar();
+        Random random = new Random(11);
+
+        for (int length : new int[]{0, 1, 7, 16, 1_000, 33_333, 1_500_001}) {
+            int[] values = new int[length];
+            int[] keys = new int[length];
+            for (int row = 0; row < length; row++) {
+                values[row] = switch (random.nextInt(4)) {
+                    case 0 -> Integer.MAX_VALUE - random.nextInt(100);
+                    case 1 -> Integer.MIN_VALUE + random.nextInt(100);
+                    default -> random.nextInt(10_000_000);
+                };
+                keys[row] = random.nextInt(5);
+            }
+
+            assertEquals(scalar.sum(values), vector.sum(values), "sum of " + length);
+            for (int key = 0; key < 6; key++) {
+                assertEquals(scalar.sumWhereEqual(values, keys, key), vector.sumWhereEqual(values, keys, key),
+                        "sum of key " + key + " in " + length);
+                assertEquals(scalar.countWhereEqual(keys, key), vector.countWhereEqual(keys, key),
+                        "count of key " + key + " in " + length);
+            }
+        }
+    }
+
+    /**
+     * The snapshot reports give the same totals with either kernel.
+     */
+    @Test
+    void testReportsMatchWithEitherKernel() {
+        WorldSnapshot snapshot = SnapshotTestData.world();
+        SnapshotCityReportService cities = new SnapshotCityReportService(snapshot);
+        SnapshotCountryReportService countries = new SnapshotCountryReportService(snapshot);
+        SnapshotPopulationMetricsReportService metrics = new SnapshotPopulationMetricsReportService(snapshot);
+
+        long world = metrics.getWorldPopulationReport();
+        long district = cities.getDistrictPopulationReport("california").getTotalPopulation();
+        long region = countries.getRegionPopulationReport("South America").getTotalPopulation();
+        assertTrue(world > 0 && district > 0 && region > 0);
+
+        assumeTrue(PopulationKernel.enableVector(), "Vector API module not present");
+        assertSame(PopulationKernel.vector(), PopulationKernel.get());
+        assertEquals(world, metrics.getWorldPopulationReport());
+        assertEquals(district, cities.getDistrictPopulationReport("california").getTotalPopulation());
+        assertEquals(region, countries.getRegionPopulationReport("South America").getTotalPopulation());
+    }
+}
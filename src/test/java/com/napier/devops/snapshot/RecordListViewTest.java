@@ -0,0 +1,115 @@
+package com.napier.devops.snapshot;
+
+import com.napier.devops.City;
+import com.napier.devops.CityRecord;
+import com.napier.devops.Country;
+import com.napier.devops.CountryRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the read-only record views over snapshot rows.
+ */
+public class RecordListViewTest {
+
+    private SnapshotCityReportService cityService;
+    private SnapshotCountryReportService countryService;
+
+    @BeforeEach
+    void setUp() {
+        WorldSnapshot snapshot = SnapshotTestData.world();
+        cityService = new SnapshotCityReportService(snapshot);
+        countryService = new SnapshotCountryReportService(snapshot);
+    }
+
+    /**
+     * The record views list the same rows, in the same order, as the bean reports.
+     */
+    @Test
+    void testViewsMatchBeanReports() {
+        assertEquals(cities(cityService.getAllCitiesByPopulationLargestToSmallest()),
+                cityService.getCityRecordsByPopulation());
+        assertEquals(cities(cityService.getTopNCitiesByPopulationLargestToSmallest(3)),
+                cityService.getTopNCityRecordsByPopulation(3));
+        assertEquals(cities(cityService.getAllCitiesInContinentByPopulationLargestToSmallest("north america")),
+                cityService.getCityRecordsInContinent("north america"));
+        assertEquals(countries(countryService.getAllCountriesByPopulationLargestToSmallest()),
+                countryService.getCountryRecordsByPopulation());
+        assertEquals(countries(countryService.getAllCountriesInContinentByPopulationLargestToSmallest("Africa")),
+                countryService.getCountryRecordsInContinent("Africa"));
+    }
+
+    /**
+     * Views read the same rows instead of copying them, and the same view is handed to every caller.
+     */
+    @Test
+    void testViewsShareRows() {
+        RecordListView<CityRecord> all = cityService.getCityRecordsByPopulation();
+
+        assertSame(all, cityService.getCityRecordsByPopulation());
+        assertEquals(all.get(0), cityService.getTopNCityRecordsByPopulation(1).get(0));
+        assertEquals(all.get(2), all.subList(1, 4).subList(1, 2).get(0));
+        assertEquals(all.size(), cityService.getTopNCityRecordsByPopulation(Integer.MAX_VALUE).size());
+        assertTrue(cityService.getTopNCityRecordsByPopulation(0).isEmpty());
+        assertTrue(cityService.getTopNCityRecordsByPopulation(-1).isEmpty());
+    }
+
+    /**
+     * Views cannot be changed or read out of range.
+     */
+    @Test
+    void testViewsAreReadOnly() {
+        RecordListView<CountryRecord> countries = countryService.getCountryRecordsByPopulation();
+        CountryRecord first = countries.get(0);
+
+        assertThrows(UnsupportedOperationException.class, () -> countries.set(0, first));
+        assertThrows(UnsupportedOperationException.class, () -> countries.add(first));
+        assertThrows(UnsupportedOperationException.class, () -> countries.remove(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> countries.get(countries.size()));
+        assertThrows(IndexOutOfBoundsException.class, () -> countries.subList(1, 2).get(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> countries.subList(2, 1));
+    }
+
+    /**
+     * A record converts to a bean and back unchanged, and prints like the bean.
+     */
+    @Test
+    void testRecordsRoundTrip() {
+        CityRecord city = cityService.getCityRecordsByPopulation().get(0);
+        CountryRecord country = countryService.getCountryRecordsByPopulation().get(0);
+
+        assertEquals(city, CityRecord.of(city.toCity()));
+        assertEquals(country, CountryRecord.of(country.toCountry()));
+        assertEquals(city.toCity().toString(), city.toString());
+        assertEquals(country.toCountry().toString(), country.toString());
+        assertEquals(new CityRecord(0, null, null, null, 0), CityRecord.of(new City()));
+        assertEquals(new CountryRecord(null, null, null, null, 0, 0), CountryRecord.of(new Country()));
+    }
+
+    /**
+     * Records are read from the snapshot when they are asked for, not kept per row.
+     */
+    @Test
+    void testRecordsBuiltOnDemand() {
+        WorldSnapshot snapshot = SnapshotTestData.world();
+        RecordListView<CityRecord> cities = snapshot.getCityRecords();
+
+        assertNotSame(cities.get(0), cities.get(0));
+        assertEquals(snapshot.toCityRecord(0), cities.get(0));
+        assertEquals(CityRecord.of(snapshot.toCity(0)), cities.get(0));
+        assertEquals(CountryRecord.of(snapshot.toCountry(1)), snapshot.getCountryRecords().get(1));
+        assertEquals(snapshot.getCityCount(), cities.size());
+    }
+
+    private static List<CityRecord> cities(List<City> cities) {
+        return cities.stream().map(CityRecord::of).toList();
+    }
+
+    private static List<CountryRecord> countries(List<Country> countries) {
+        return countries.stream().map(CountryRecord::of).toList();
+    }
+}
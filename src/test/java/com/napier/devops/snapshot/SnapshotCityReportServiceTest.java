@@ -0,0 +1,158 @@
+package com.napier.devops.snapshot;
+
+import com.napier.devops.City;
+import com.napier.pojo.Page;
+import com.napier.pojo.PopulationReportPojo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the city reports served from a snapshot.
+ */
+public class SnapshotCityReportServiceTest {
+
+    private SnapshotCityReportService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new SnapshotCityReportService(SnapshotTestData.world());
+    }
+
+    /**
+     * Every city comes back, largest first.
+     */
+    @Test
+    void testAllCities() {
+        List<City> cities = service.getAllCitiesByPopulationLargestToSmallest();
+
+        assertEquals(List.of("São Paulo", "New York", "Cairo", "Los Angeles", "Buenos Aires", "Brasília",
+                "Lagos", "Montréal", "San Francisco", "Washington", "Abuja", "Ottawa"), names(cities));
+        assertEquals(List.of("São Paulo", "New York"), names(service.getTopNCitiesByPopulationLargestToSmallest(2)));
+        assertTrue(service.getTopNCitiesByPopulationLargestToSmallest(0).isEmpty());
+    }
+
+    /**
+     * Filters match ignoring case and keep the population order.
+     */
+    @Test
+    void testFilters() {
+        assertEquals(List.of("New York", "Los Angeles", "Montréal", "San Francisco", "Washington", "Ottawa"),
+                names(service.getAllCitiesInContinentByPopulationLargestToSmallest("north america")));
+        assertEquals(List.of("Lagos", "Abuja"),
+                names(service.getAllCitiesInRegionByPopulationLargestToSmallest("Western Africa")));
+        assertEquals(List.of("Los Angeles", "San Francisco"),
+                names(service.getAllCitiesInDistrictByPopulationLargestToSmallest("California")));
+        assertEquals(List.of("Montréal", "Ottawa"),
+                names(service.getAllCitiesInCountryByPopulationLargestToSmallest("can")));
+        assertEquals(List.of("São Paulo"), names(service.getTopCitiesByCountry("Brazil", 1)));
+        assertEquals(List.of("Cairo", "Lagos"), names(service.getTopCitiesByContinent("Africa", 2)));
+        assertTrue(service.getAllCitiesInContinentByPopulationLargestToSmallest("Atlantis").isEmpty());
+        assertTrue(service.getAllCitiesInRegionByPopulationLargestToSmallest(" ").isEmpty());
+    }
+
+    /**
+     * Capitals come from the index built from the snapshot.
+     */
+    @Test
+    void testCapitals() {
+        assertEquals(List.of("Cairo", "Buenos Aires", "Brasília"), names(service.getTopCapitalCitiesByPopulation(3)));
+        assertEquals(List.of("Washington", "Ottawa"),
+                names(service.getAllCapitalCitiesInContinentByPopulation("North America")));
+    }
+
+    /**
+     * Pages follow on from each other without gaps or repeats.
+     */
+    @Test
+    void testPages() {
+        List<City> all = new ArrayList<>();
+        Page<City> page = service.getCitiesByPopulationPage(5, null);
+        int pages = 1;
+        all.addAll(page.getItems());
+        while (page.hasNext()) {
+            page = service.getCitiesByPopulationPage(5, page.getNextToken());
+            all.addAll(page.getItems());
+            pages++;
+        }
+
+        assertEquals(3, pages);
+        assertEquals(names(service.getAllCitiesByPopulationLargestToSmallest()), names(all));
+        assertTrue(service.getCitiesByPopulationPage(5, "not a token").getItems().isEmpty());
+    }
+
+    /**
+     * District and city population reports, the city matched by its exact name.
+     */
+    @Test
+    void testPopulationReports() {
+        PopulationReportPojo district = service.getDistrictPopulationReport("Distrito Federal");
+        assertEquals(4952014, district.getTotalPopulation());
+        assertEquals(100.0, district.getPercentageInCities());
+
+        PopulationReportPojo city = service.getCityPopulationReport("são paulo");
+        assertEquals("são paulo", city.getName());
+        assertEquals(9968485, city.getTotalPopulation());
+        assertEquals(0, city.getPopulationNotInCities());
+
+        // A misspelt name is not swapped for another city
+        PopulationReportPojo misspelt = service.getCityPopulationReport("Sao Paolo");
+        assertEquals("Sao Paolo", misspelt.getName());
+        assertEquals(0, misspelt.getTotalPopulation());
+
+        assertNull(service.getCityPopulationReport(""));
+        assertEquals(0, service.getDistrictPopulationReport("Nowhere").getTotalPopulation());
+    }
+
+    /**
+     * Loose names are resolved by the separate search, which the report can then be run on.
+     */
+    @Test
+    void testSearchBestCity() {
+        City city = service.searchBestCity("Sao Paolo");
+        assertEquals("São Paulo", city.getName());
+        assertEquals(9968485, service.getCityPopulationReport(city.getName()).getTotalPopulation());
+
+        assertNull(service.searchBestCity(""));
+        assertNull(service.searchBestCity("Zzzzzz"));
+    }
+
+    private static List<String> names(List<City> cities) {
+        return cities.stream().map(City::getName).toList();
+    }
+
+    /**
+     * The streamed reports walk the snapshot in the same order as the lists, and the print
+     * methods stream from it once a fetch size is set.
+     */
+    @Test
+    void testStreamedReports() {
+        List<City> all = new ArrayList<>();
+        assertEquals(12, service.forEachCityByPopulation(all::add));
+        assertEquals(names(service.getAllCitiesByPopulationLargestToSmallest()), names(all));
+
+        List<City> inContinent = new ArrayList<>();
+        service.forEachCityInContinentByPopulation("north america", inContinent::add);
+        assertEquals(names(service.getAllCitiesInContinentByPopulationLargestToSmallest("north america")),
+                names(inContinent));
+
+        List<City> inRegion = new ArrayList<>();
+        service.forEachCityInRegionByPopulation("Western Africa", inRegion::add);
+        assertEquals(List.of("Lagos", "Abuja"), names(inRegion));
+        assertEquals(0, service.forEachCityInRegionByPopulation(null, city -> fail()));
+
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        service.setOutput(new PrintStream(printed), new PrintStream(printed));
+        service.setStreamFetchSize(5);
+        service.printAllCitiesByPopulationLargestToSmallest();
+        service.printAllCitiesInRegionByPopulationLargestToSmallest("Western Africa");
+        assertTrue(printed.toString().contains("São Paulo"));
+        assertTrue(printed.toString().contains("Abuja"));
+    }
+}
@@ -0,0 +1,88 @@
+package com.napier.devops.snapshot;
+
+import com.napier.devops.Country;
+import com.napier.pojo.LanguageReportPojo;
+import com.napier.pojo.Page;
+import com.napier.pojo.PopulationReportPojo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the country reports served from a snapshot.
+ */
+public class SnapshotCountryReportServiceTest {
+
+    private SnapshotCountryReportService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new SnapshotCountryReportService(SnapshotTestData.world());
+    }
+
+    /**
+     * Countries come back largest first, filtered ignoring case.
+     */
+    @Test
+    void testCountryLists() {
+        assertEquals(List.of("USA", "BRA", "NGA", "EGY", "ARG", "CAN", "ATA"),
+                codes(service.getAllCountriesByPopulationLargestToSmallest()));
+        assertEquals(List.of("BRA", "ARG"),
+                codes(service.getAllCountriesInRegionByPopulationLargestToSmallest("south america")));
+        assertEquals(List.of("NGA", "EGY"),
+                codes(service.getAllCountriesInContinentByPopulationLargestToSmallest("Africa")));
+        assertEquals("United States", service.getCountryByCode("usa").getName());
+        assertNull(service.getCountryByCode("XXX"));
+    }
+
+    /**
+     * Pages follow on from each other without gaps or repeats.
+     */
+    @Test
+    void testPages() {
+        Page<Country> first = service.getCountriesByPopulationPage(4, null);
+        Page<Country> second = service.getCountriesByPopulationPage(4, first.getNextToken());
+
+        assertEquals(List.of("USA", "BRA", "NGA", "EGY"), codes(first.getItems()));
+        assertEquals(List.of("ARG", "CAN", "ATA"), codes(second.getItems()));
+        assertFalse(second.hasNext());
+    }
+
+    /**
+     * Region and country population reports.
+     */
+    @Test
+    void testPopulationReports() {
+        PopulationReportPojo region = service.getRegionPopulationReport("South America");
+        assertEquals(207147000, region.getTotalPopulation());
+        assertEquals(14920499, region.getPopulationInCities());
+
+        PopulationReportPojo country = service.getCountryPopulationReport("Nigeria");
+        assertEquals(111506000, country.getTotalPopulation());
+        assertEquals(1868100, country.getPopulationInCities());
+        assertEquals(111506000 - 1868100, country.getPopulationNotInCities());
+
+        assertNull(service.getRegionPopulationReport(null));
+    }
+
+    /**
+     * Speakers are summed across countries and ordered largest first.
+     */
+    @Test
+    void testMajorLanguages() {
+        List<LanguageReportPojo> languages = service.getMajorLanguageReport();
+
+        assertEquals(List.of("English", "Arabic", "Spanish"), languages.stream().map(LanguageReportPojo::getLanguage).toList());
+        assertEquals(258756522L, languages.get(0).getSpeakers());
+        assertEquals(67648360L, languages.get(1).getSpeakers());
+        assertEquals(56723751L, languages.get(2).getSpeakers());
+        assertEquals(696627000L, languages.get(0).getWorldPopulation());
+    }
+
+    private static List<String> codes(List<Country> countries) {
+        return countries.stream().map(Country::getCode).toList();
+    }
+}
@@ -0,0 +1,54 @@
+package com.napier.devops.snapshot;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for reading and writing snapshot files.
+ */
+public class SnapshotFileTest {
+
+    /**
+     * Every row survives a write and read, including accented names.
+     */
+    @Test
+    void testRoundTrip(@TempDir Path dir) throws IOException {
+        WorldSnapshot snapshot = SnapshotTestData.world();
+        Path file = dir.resolve("world.snapshot");
+
+        SnapshotFile.write(snapshot, file);
+        WorldSnapshot read = SnapshotFile.read(file);
+
+        assertEquals(snapshot.getCountryCount(), read.getCountryCount());
+        assertEquals(snapshot.getCityCount(), read.getCityCount());
+        assertEquals(snapshot.getLanguageCount(), read.getLanguageCount());
+        for (int row = 0; row < snapshot.getCountryCount(); row++) {
+            assertEquals(snapshot.toCountry(row).toString(), read.toCountry(row).toString());
+        }
+        for (int row = 0; row < snapshot.getCityCount(); row++) {
+            assertEquals(snapshot.toCity(row).toString(), read.toCity(row).toString());
+        }
+        for (int row = 0; row < snapshot.getLanguageCount(); row++) {
+            assertEquals(snapshot.getLanguageCountry(row), read.getLanguageCountry(row));
+            assertEquals(snapshot.getLanguageName(row), read.getLanguageName(row));
+            assertEquals(snapshot.getLanguagePercentage(row), read.getLanguagePercentage(row));
+        }
+    }
+
+    /**
+     * Files that are not snapshots are rejected.
+     */
+    @Test
+    void testRejectsOtherFiles(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("world.sql");
+        Files.writeString(file, "DROP DATABASE IF EXISTS `world`;");
+
+        assertThrows(IOException.class, () -> SnapshotFile.read(file));
+    }
+}
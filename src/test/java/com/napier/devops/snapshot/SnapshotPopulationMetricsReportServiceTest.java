@@ -0,0 +1,174 @@
+package com.napier.devops.snapshot;
+
+import com.napier.devops.PopulationMetrics;
+import com.napier.pojo.PopulationReportPojo;
+import com.napier.pojo.WorldReportPojo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the population metrics served from a WorldSnapshot.
+ */
+public class SnapshotPopulationMetricsReportServiceTest {
+
+    private SnapshotPopulationMetricsReportService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new SnapshotPopulationMetricsReportService(SnapshotTestData.world());
+    }
+
+    /**
+     * USE CASE 23: continents are ordered by total population and use rounded percentages.
+     */
+    @Test
+    void testGetContinentPopulationReport() {
+        List<PopulationMetrics> continents = service.getContinentPopulationReport();
+
+        assertEquals(4, continents.size());
+        assertEquals("North America", continents.get(0).getNameOfArea());
+        assertEquals("Antarctica", continents.get(3).getNameOfArea());
+
+        PopulationMetrics northAmerica = continents.get(0);
+        long cities = 8008278L + 3694820 + 776733 + 572059 + 335277 + 1016376;
+        assertEquals(309504000L, northAmerica.getTotalPopulation());
+        assertEquals(cities, northAmerica.getCityPopulation());
+        assertEquals(309504000L - cities, northAmerica.getNonCityPopulation());
+        assertEquals(4.65, northAmerica.getCityPopulationPercentage(), 0.0001);
+        assertEquals(95.35, northAmerica.getNonCityPopulationPercentage(), 0.0001);
+        assertEquals(PopulationMetrics.ReportType.CONTINENT, northAmerica.getReportType());
+
+        // Division by zero gives NULL in MySQL, which is read back as 0
+        PopulationMetrics antarctica = continents.get(3);
+        assertEquals(0, antarctica.getTotalPopulation());
+        assertEquals(0.0, antarctica.getCityPopulationPercentage());
+    }
+
+    /**
+     * USE CASE 24: regions are grouped by their own code, not the continent's.
+     */
+    @Test
+    void testGetRegionPopulationReport() {
+        List<PopulationMetrics> regions = service.getRegionPopulationReport();
+
+        assertEquals(5, regions.size());
+        assertEquals("North America", regions.get(0).getNameOfArea());
+        assertTrue(regions.stream().anyMatch(r -> r.getNameOfArea().equals("Western Africa")
+                && r.getTotalPopulation() == 111506000L
+                && r.getCityPopulation() == 1868100L));
+        regions.forEach(r -> assertEquals(PopulationMetrics.ReportType.REGION, r.getReportType()));
+    }
+
+    /**
+     * USE CASE 25: one row per country, ordered by name.
+     */
+    @Test
+    void testGetCountryPopulationReport() {
+        List<PopulationMetrics> countries = service.getCountryPopulationReport();
+
+        assertEquals(7, countries.size());
+        assertEquals("Antarctica", countries.get(0).getNameOfArea());
+        assertEquals("United States", countries.get(6).getNameOfArea());
+
+        PopulationMetrics egypt = countries.get(4);
+        assertEquals("Egypt", egypt.getNameOfArea());
+        assertEquals(6789479L, egypt.getCityPopulation());
+        assertEquals(9.92, egypt.getCityPopulationPercentage(), 0.0001);
+        assertEquals(90.08, egypt.getNonCityPopulationPercentage(), 0.0001);
+    }
+
+    /**
+     * USE CASE 26: the world population is the sum of all countries.
+     */
+    @Test
+    void testGetWorldPopulationReport() {
+        assertEquals(278357000L + 31147000 + 170115000 + 37032000 + 111506000 + 68470000,
+                service.getWorldPopulationReport());
+    }
+
+    /**
+     * USE CASE 27: a single continent keeps unrounded percentages; unknown names give null.
+     */
+    @Test
+    void testGetPopulationContinentReport() {
+        PopulationMetrics africa = service.getPopulationContinentReport("Africa");
+
+        assertNotNull(africa);
+        assertEquals(179976000L, africa.getTotalPopulation());
+        assertEquals(8657579L, africa.getCityPopulation());
+        assertEquals(8657579 * 100.0 / 179976000, africa.getCityPopulationPercentage(), 1e-9);
+
+        assertNull(service.getPopulationContinentReport("Atlantis"));
+        assertNull(service.getPopulationContinentReport("Western Africa"));
+    }
+
+    /**
+     * The percentage helper follows MySQL decimal division and rounding.
+     */
+    @Test
+    void testPercentageMatchesMySqlRounding() {
+        assertEquals(33.33, SnapshotPopulationMetricsReportService.percentage(1, 3), 0.0);
+        assertEquals(66.67, SnapshotPopulationMetricsReportService.percentage(2, 3), 0.0);
+        assertEquals(0.0, SnapshotPopulationMetricsReportService.percentage(5, 0), 0.0);
+    }
+
+    /**
+     * USE CASES 23 to 29 together give the same figures as the separate reports.
+     */
+    @Test
+    void testGetWorldReportMatchesSeparateReports() {
+        WorldReportPojo report = service.getWorldReport("africa", "South America", "Brazil");
+
+        assertEquals(names(service.getContinentPopulationReport()), names(report.getContinents()));
+        assertEquals(names(service.getRegionPopulationReport()), names(report.getRegions()));
+        assertEquals(names(service.getCountryPopulationReport()), names(report.getCountries()));
+        assertEquals(4.65, report.getContinents().get(0).getCityPopulationPercentage(), 0.0);
+        assertEquals(service.getWorldPopulationReport(), report.getWorldPopulation());
+
+        PopulationMetrics africa = service.getPopulationContinentReport("Africa");
+        assertEquals("Africa", report.getContinent().getNameOfArea());
+        assertEquals(africa.getCityPopulation(), report.getContinent().getCityPopulation());
+        assertEquals(africa.getCityPopulationPercentage(), report.getContinent().getCityPopulationPercentage(), 0.0);
+
+        SnapshotCountryReportService countries = new SnapshotCountryReportService(SnapshotTestData.world());
+        PopulationReportPojo region = countries.getRegionPopulationReport("South America");
+        assertEquals(region.getTotalPopulation(), report.getRegion().getTotalPopulation());
+        assertEquals(region.getPopulationInCities(), report.getRegion().getPopulationInCities());
+        PopulationReportPojo brazil = countries.getCountryPopulationReport("Brazil");
+        assertEquals(brazil.getTotalPopulation(), report.getCountry().getTotalPopulation());
+        assertEquals(brazil.getPercentageInCities(), report.getCountry().getPercentageInCities(), 0.0);
+
+        WorldReportPojo unnamed = service.getWorldReport("Atlantis", "", null);
+        assertNull(unnamed.getContinent());
+        assertNull(unnamed.getRegion());
+        assertNull(unnamed.getCountry());
+    }
+
+    private static List<String> names(List<PopulationMetrics> rows) {
+        return rows.stream().map(PopulationMetrics::getNameOfArea).toList();
+    }
+
+    /**
+     * Continents and regions get their own dense codes, however many other symbols the
+     * symbol table holds.
+     */
+    @Test
+    void testAreasHaveDenseCodes() {
+        WorldSnapshot snapshot = SnapshotTestData.world();
+        for (int i = 0; i < 1000; i++) {
+            snapshot.symbols.code("District " + i);
+        }
+
+        assertEquals(4, snapshot.continents.size());
+        assertEquals(5, snapshot.regions.size());
+        assertEquals("North America", snapshot.symbols.symbol(snapshot.continents.symbol(snapshot.continents.of(0))));
+        assertEquals(snapshot.continents.of(0), snapshot.continents.of(1));
+        assertEquals(-1, snapshot.regions.find(snapshot.symbols.find("District 0")));
+        assertEquals(4, new SnapshotPopulationMetricsReportService(snapshot).getContinentPopulationReport().size());
+        assertNull(new LivePopulationMetrics(snapshot).getRegion("District 0"));
+    }
+}
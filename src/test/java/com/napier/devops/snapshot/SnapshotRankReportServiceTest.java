@@ -0,0 +1,214 @@
+package com.napier.devops.snapshot;
+
+import com.napier.devops.City;
+import com.napier.devops.Country;
+import com.napier.devops.generator.WorldDataGenerator;
+import com.napier.pojo.RankPojo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the rank, percentile and neighbour reports.
+ */
+public class SnapshotRankReportServiceTest {
+
+    private final PrintStream originalOut = System.out;
+    private final PrintStream originalErr = System.err;
+    private final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream errContent = new ByteArrayOutputStream();
+
+    private SnapshotRankReportService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new SnapshotRankReportService(SnapshotTestData.world());
+        System.setOut(new PrintStream(outContent));
+        System.setErr(new PrintStream(errContent));
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.setOut(originalOut);
+        System.setErr(originalErr);
+    }
+
+    /**
+     * A city ranks within each area it is in, by name or ID.
+     */
+    @Test
+    void testCityRank() {
+        RankPojo africa = service.getCityRank("lagos", GeographyTree.Level.CONTINENT);
+        assertEquals("Lagos", africa.getName());
+        assertEquals("Continent", africa.getScope());
+        assertEquals("Africa", africa.getScopeName());
+        assertEquals(2, africa.getRank());
+        assertEquals(3, africa.getScopeSize());
+        assertEquals(66.67, africa.getPercentile(), 0.01);
+
+        RankPojo world = service.getCityRank(2752, GeographyTree.Level.WORLD);
+        assertEquals(7, world.getRank());
+        assertEquals(12, world.getScopeSize());
+        assertEquals(50.0, world.getPercentile(), 0.001);
+
+        RankPojo california = service.getCityRank("San Francisco", GeographyTree.Level.DISTRICT);
+        assertEquals(2, california.getRank());
+        assertEquals(2, california.getScopeSize());
+
+        // Brasília's district shares its name with Buenos Aires' but is a different area
+        RankPojo federal = service.getCityRank("Brasília", GeographyTree.Level.DISTRICT);
+        assertEquals(1, federal.getRank());
+        assertEquals(1, federal.getScopeSize());
+        assertEquals(100.0, federal.getPercentile(), 0.001);
+    }
+
+    /**
+     * A country ranks within the world and its continent and region.
+     */
+    @Test
+    void testCountryRank() {
+        RankPojo world = service.getCountryRank("arg", GeographyTree.Level.WORLD);
+        assertEquals("Argentina", world.getName());
+        assertEquals(5, world.getRank());
+        assertEquals(7, world.getScopeSize());
+
+        RankPojo region = service.getCountryRank("CAN", GeographyTree.Level.REGION);
+        assertEquals("North America", region.getScopeName());
+        assertEquals(2, region.getRank());
+        assertEquals(50.0, region.getPercentile(), 0.001);
+
+        assertEquals(1, service.getCountryRank("EGY", GeographyTree.Level.REGION).getScopeSize());
+    }
+
+    /**
+     * The neighbours of a rank are the slice of the area's order around it.
+     */
+    @Test
+    void testAroundRank() {
+        List<City> africa = service.getCitiesAroundRank(GeographyTree.Level.CONTINENT, "AFRICA", 2, 1);
+        assertEquals(List.of("Cairo", "Lagos", "Abuja"), africa.stream().map(City::getName).toList());
+
+        List<City> top = service.getCitiesAroundRank(GeographyTree.Level.WORLD, null, 1, 1);
+        assertEquals(List.of("São Paulo", "New York"), top.stream().map(City::getName).toList());
+
+        List<Country> bottom = service.getCountriesAroundRank(GeographyTree.Level.WORLD, null, 7, 2);
+        assertEquals(List.of("ARG", "CAN", "ATA"), bottom.stream().map(Country::getCode).toList());
+
+        assertTrue(service.getCitiesAroundRank(GeographyTree.Level.CONTINENT, "Africa", 4, 1).isEmpty());
+        assertTrue(service.getCitiesAroundRank(GeographyTree.Level.CONTINENT, "Atlantis", 1, 1).isEmpty());
+        assertTrue(service.getCountriesAroundRank(GeographyTree.Level.REGION, "Antarctica", 1, -1).isEmpty());
+    }
+
+    /**
+     * Ranks agree with the positions in the list reports on a generated world.
+     */
+    @Test
+    void testRanksMatchListReports() {
+        WorldSnapshot snapshot = new WorldDataGenerator(0.2, 5).generateSnapshot();
+        SnapshotRankReportService ranks = new SnapshotRankReportService(snapshot);
+        SnapshotCityReportService cities = new SnapshotCityReportService(snapshot);
+        SnapshotCountryReportService countries = new SnapshotCountryReportService(snapshot);
+
+        List<City> world = cities.getAllCitiesByPopulationLargestToSmallest();
+        for (int i = 0; i < world.size(); i += 97) {
+            assertEquals(i + 1, ranks.getCityRank(world.get(i).getId(), GeographyTree.Level.WORLD).getRank());
+        }
+
+        String code = snapshot.getCountryCode(0);
+        List<City> inCountry = cities.getAllCitiesInCountryByPopulationLargestToSmallest(code);
+        for (int i = 0; i < inCountry.size(); i++) {
+            RankPojo rank = ranks.getCityRank(inCountry.get(i).getId(), GeographyTree.Level.COUNTRY);
+            assertEquals(i + 1, rank.getRank());
+            assertEquals(inCountry.size(), rank.getScopeSize());
+        }
+
+        String continent = snapshot.toCountry(0).getContinent();
+        List<Country> inContinent = countries.getAllCountriesInContinentByPopulationLargestToSmallest(continent);
+        for (int i = 0; i < inContinent.size(); i++) {
+            assertEquals(i + 1, ranks.getCountryRank(inContinent.get(i).getCode(), GeographyTree.Level.CONTINENT).getRank());
+        }
+    }
+
+    /**
+     * Cities without a known country rank only within the world and their district, and bad
+     * arguments are reported instead of thrown.
+     */
+    @Test
+    void testErrors() {
+        WorldSnapshot snapshot = WorldSnapshot.builder()
+                .addCountry("NLD", "Netherlands", "Europe", "Western Europe", 15864000, 5)
+                .addCity(5, "Amsterdam", "NLD", "Noord-Holland", 731200)
+                .addCity(9, "Lost City", "XXX", "Nowhere", 1000)
+                .build();
+        SnapshotRankReportService lost = new SnapshotRankReportService(snapshot);
+
+        assertEquals(2, lost.getCityRank("Lost City", GeographyTree.Level.WORLD).getRank());
+        assertEquals(1, lost.getCityRank("Lost City", GeographyTree.Level.DISTRICT).getScopeSize());
+        assertNull(lost.getCityRank("Lost City", GeographyTree.Level.CONTINENT));
+
+        assertNull(service.getCityRank("Lagos", GeographyTree.Level.CITY));
+        assertNull(service.getCityRank("Atlantis", GeographyTree.Level.WORLD));
+        assertNull(service.getCityRank(-1, GeographyTree.Level.WORLD));
+        assertNull(service.getCountryRank("USA", GeographyTree.Level.COUNTRY));
+        assertNull(service.getCountryRank("XXX", GeographyTree.Level.WORLD));
+        assertTrue(errContent.toString().contains("Error: City Lost City has no continent."));
+        assertTrue(errContent.toString().contains("Error: No city found with name: Atlantis"));
+    }
+
+    /**
+     * The print methods show the rank and the numbered neighbours.
+     */
+    @Test
+    void testPrint() {
+        service.printCityRank("Lagos", GeographyTree.Level.CONTINENT);
+        service.printCountryRank("USA", GeographyTree.Level.WORLD);
+        service.printCitiesAroundRank(GeographyTree.Level.COUNTRY, "United States", 2, 1);
+        service.printCountriesAroundRank(GeographyTree.Level.CONTINENT, "Africa", 1, 0);
+
+        String output = outContent.toString();
+        assertTrue(output.contains("Rank of Lagos within Africa (Continent):"));
+        assertTrue(output.contains("Rank: 2 of 3"));
+        assertTrue(output.contains("Percentile: 100.00"));
+        assertTrue(output.contains("Report: Cities around rank 2 in United States"));
+        assertTrue(output.contains("#1\tCity"));
+        assertTrue(output.contains("#3\tCity"));
+        assertTrue(output.contains("Report: Countries around rank 1 in Africa"));
+    }
+
+    /**
+     * Cities are found by ID among IDs that are out of order, and the output goes to the
+     * streams the service was given rather than the JVM's.
+     */
+    @Test
+    void testIdLookupAndOutputStreams() {
+        WorldSnapshot snapshot = WorldSnapshot.builder()
+                .addCountry("NLD", "Netherlands", "Europe", "Western Europe", 15864000, 5)
+                .addCity(40, "Utrecht", "NLD", "Utrecht", 234323)
+                .addCity(5, "Amsterdam", "NLD", "Noord-Holland", 731200)
+                .addCity(17, "Rotterdam", "NLD", "Zuid-Holland", 593321)
+                .build();
+        SnapshotRankReportService netherlands = new SnapshotRankReportService(snapshot);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        netherlands.setOutput(new PrintStream(out), new PrintStream(err));
+
+        assertEquals("Amsterdam", netherlands.getCityRank(5, GeographyTree.Level.WORLD).getName());
+        assertEquals(2, netherlands.getCityRank(17, GeographyTree.Level.COUNTRY).getRank());
+        assertEquals(3, netherlands.getCityRank(40, GeographyTree.Level.WORLD).getRank());
+        assertNull(netherlands.getCityRank(6, GeographyTree.Level.WORLD));
+        assertNull(netherlands.getCityRank(41, GeographyTree.Level.WORLD));
+        netherlands.printCityRank("Utrecht", GeographyTree.Level.REGION);
+
+        assertTrue(err.toString().contains("Error: No city found with ID: 6"));
+        assertTrue(err.toString().contains("Error: No city found with ID: 41"));
+        assertTrue(out.toString().contains("Rank of Utrecht within Western Europe (Region):"));
+        assertEquals("", errContent.toString());
+        assertEquals("", outContent.toString());
+    }
+}
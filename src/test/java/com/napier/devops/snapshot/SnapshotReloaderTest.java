@@ -0,0 +1,240 @@
+package com.napier.devops.snapshot;
+
+import com.napier.devops.generator.WorldDataGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for reloading the snapshot and swapping it in.
+ */
+public class SnapshotReloaderTest {
+
+    private final PrintStream originalOut = System.out;
+    private final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+
+    @BeforeEach
+    void setUp() {
+        System.setOut(new PrintStream(outContent));
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    /**
+     * A world with only the given country, so each load can be told apart.
+     */
+    private static WorldSnapshot world(int population) {
+        return WorldSnapshot.builder()
+                .addCountry("NLD", "Netherlands", "Europe", "Western Europe", population, 5)
+                .addCity(5, "Amsterdam", "NLD", "Noord-Holland", 731200)
+                .build();
+    }
+
+    /**
+     * Every reload is a new version, and a version taken before a swap keeps its snapshot.
+     */
+    @Test
+    void testReloadSwapsVersions() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        SnapshotReloader reloader = new SnapshotReloader(() -> world(1000000 * loads.incrementAndGet()));
+        assertNull(reloader.current());
+        assertEquals(0, reloader.getVersion());
+
+        SnapshotReloader.Version first = reloader.reload();
+        SnapshotReloader.Version second = reloader.reload();
+
+        assertEquals(1, first.getNumber());
+        assertEquals(2, second.getNumber());
+        assertSame(second, reloader.current());
+        assertEquals(2, reloader.getReloads());
+        assertEquals(1000000L, first.getMetrics().getWorldPopulationReport());
+        assertEquals(2000000L, second.getMetrics().getWorldPopulationReport());
+        assertEquals(1, first.getRanks().getCityRank("Amsterdam", GeographyTree.Level.WORLD).getRank());
+
+        SnapshotReloader.Version swapped = reloader.swap(world(5));
+        assertEquals(3, swapped.getNumber());
+        assertEquals(5, new ReloadingPopulationMetricsReportService(reloader).getWorldPopulationReport());
+    }
+
+    /**
+     * Reports are served from the current version while a reload is still loading.
+     */
+    @Test
+    void testReportsDoNotWaitForReload() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        SnapshotReloader reloader = new SnapshotReloader(() -> {
+            if (loads.incrementAndGet() > 1) {
+                loading.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return world(2000000);
+            }
+            return world(1000000);
+        });
+        reloader.reload();
+        ReloadingPopulationMetricsReportService service = new ReloadingPopulationMetricsReportService(reloader);
+
+        Thread background = new Thread(reloader::tryReload);
+        background.start();
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        assertEquals(1000000L, service.getWorldPopulationReport());
+        assertEquals("Europe", service.getContinentPopulationReport().get(0).getNameOfArea());
+
+        release.countDown();
+        background.join(5000);
+        assertEquals(2000000L, service.getWorldPopulationReport());
+        assertEquals(2, reloader.getVersion());
+        assertTrue(outContent.toString().contains("Snapshot version 2 loaded in"));
+    }
+
+    /**
+     * A failed reload keeps the current version and is counted.
+     */
+    @Test
+    void testFailedReloadKeepsVersion() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        SnapshotReloader reloader = new SnapshotReloader(() -> {
+            if (loads.incrementAndGet() > 1) {
+                throw new SQLException("Communications link failure");
+            }
+            return world(1000000);
+        });
+        SnapshotReloader.Version first = reloader.reload();
+
+        assertFalse(reloader.tryReload());
+        assertThrows(SQLException.class, reloader::reload);
+
+        assertSame(first, reloader.current());
+        assertEquals(1, reloader.getReloads());
+        assertEquals(2, reloader.getFailedReloads());
+        assertTrue(outContent.toString().contains("Could not reload snapshot: Communications link failure"));
+
+        reloader.printStats();
+        assertTrue(outContent.toString().contains("Snapshot reloads: version 1, 1 loaded, 2 failed"));
+    }
+
+    /**
+     * Listeners hear about every new version, and the background reloads stop on close.
+     */
+    @Test
+    void testListenersAndBackgroundReload() throws Exception {
+        SnapshotReloader reloader = new SnapshotReloader(() -> world(1000000));
+        List<Long> versions = new ArrayList<>();
+        CountDownLatch reloaded = new CountDownLatch(3);
+        reloader.addListener(version -> {
+            synchronized (versions) {
+                versions.add(version.getNumber());
+            }
+            reloaded.countDown();
+        });
+
+        reloader.reload();
+        try (reloader) {
+            reloader.start(10);
+            assertTrue(reloaded.await(5, TimeUnit.SECONDS));
+        }
+        long stopped = reloader.getVersion();
+        Thread.sleep(50);
+
+        assertEquals(stopped, reloader.getVersion());
+        synchronized (versions) {
+            assertEquals(List.of(1L, 2L, 3L), versions.subList(0, 3));
+        }
+    }
+
+    /**
+     * The city indexes are published with the snapshot they were built from, so a report
+     * reading the current version never sees indexes of an older one.
+     */
+    @Test
+    void testIndexesSwapWithVersion() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        SnapshotReloader reloader = new SnapshotReloader(() -> WorldSnapshot.builder()
+                .addCountry("NLD", "Netherlands", "Europe", "Western Europe", 16000000, 5)
+                .addCity(5, "Amsterdam", "NLD", "Noord-Holland", 700000 + loads.incrementAndGet())
+                .build());
+        ReloadingCityReportService service = new ReloadingCityReportService(null, reloader);
+
+        SnapshotReloader.Version first = reloader.reload();
+        assertSame(first.getIndexes(), service.getIndexes());
+        assertEquals(700001, service.getAllCapitalCitiesByPopulation().get(0).getPopulation());
+
+        SnapshotReloader.Version second = reloader.reload();
+        assertSame(second.getIndexes(), service.getIndexes());
+        assertEquals(700002, service.getAllCapitalCitiesByPopulation().get(0).getPopulation());
+        assertEquals(700002, service.getCitiesInPopulationRange(0, 1000000).get(0).getPopulation());
+        assertEquals(700001, first.getIndexes().getCapitalIndex().top(1).get(0).getPopulation());
+
+        // Indexes set on the service do not replace the version's
+        service.setCapitalIndex(null);
+        assertSame(second.getIndexes(), service.getIndexes());
+        assertEquals(700002, second.getCities().getTopCapitalCitiesByPopulation(1).get(0).getPopulation());
+        assertSame(second.getCities(), second.getCities());
+    }
+
+    /**
+     * A version over a snapshot kept off the heap builds nothing per city on the heap: no
+     * name or population index, and no rank reports until they are asked for. A version
+     * over a snapshot on the heap builds them all up front.
+     */
+    @Test
+    void testOffHeapVersionBuildsNoCityStructures() throws Exception {
+        WorldSnapshot generated = new WorldDataGenerator(2, 7).generateSnapshot();
+
+        SnapshotReloader.Version offHeap = new SnapshotReloader(generated::offHeap).reload();
+        assertNull(offHeap.getIndexes().getCityNameIndex());
+        assertNull(offHeap.getIndexes().getPopulationIndex());
+        assertNotNull(offHeap.getIndexes().getCountryTable());
+        assertFalse(offHeap.hasRanks());
+        assertNotNull(offHeap.getRanks());
+        assertTrue(offHeap.hasRanks());
+
+        SnapshotReloader.Version onHeap = new SnapshotReloader(() -> generated).reload();
+        assertNotNull(onHeap.getIndexes().getCityNameIndex());
+        assertNotNull(onHeap.getIndexes().getPopulationIndex());
+        assertTrue(onHeap.hasRanks());
+    }
+
+    /**
+     * In snapshot mode the streamed reports walk the current version rather than the database.
+     */
+    @Test
+    void testReloadingServiceStreamsCurrentSnapshot() throws Exception {
+        SnapshotReloader reloader = new SnapshotReloader(() -> world(1000000));
+        reloader.reload();
+        ReloadingCityReportService service = new ReloadingCityReportService(null, reloader);
+
+        List<String> names = new ArrayList<>();
+        assertEquals(1, service.forEachCityByPopulation(city -> names.add(city.getName())));
+        assertEquals(1, service.forEachCityInContinentByPopulation("Europe", city -> names.add(city.getName())));
+        assertEquals(1, service.forEachCityInRegionByPopulation("Western Europe", city -> names.add(city.getName())));
+        assertEquals(List.of("Amsterdam", "Amsterdam", "Amsterdam"), names);
+
+        reloader.swap(WorldSnapshot.builder()
+                .addCountry("NLD", "Netherlands", "Europe", "Western Europe", 1000000, 5)
+                .addCity(5, "Amsterdam", "NLD", "Noord-Holland", 731200)
+                .addCity(6, "Rotterdam", "NLD", "Zuid-Holland", 593321)
+                .build());
+        assertEquals(2, service.forEachCityByPopulation(city -> { }));
+    }
+}
@@ -0,0 +1,45 @@
+package com.napier.devops.snapshot;
+
+/**
+ * A small, hand-checked world used by the snapshot engine tests.
+ */
+public final class SnapshotTestData {
+
+    private SnapshotTestData() {
+    }
+
+    /**
+     * @return A snapshot with seven countries across five continents, twelve cities and eight language rows.
+     */
+    public static WorldSnapshot world() {
+        return WorldSnapshot.builder()
+                .addCountry("USA", "United States", "North America", "North America", 278357000, 3813)
+                .addCountry("CAN", "Canada", "North America", "North America", 31147000, 1822)
+                .addCountry("BRA", "Brazil", "South America", "South America", 170115000, 211)
+                .addCountry("ARG", "Argentina", "South America", "South America", 37032000, 69)
+                .addCountry("NGA", "Nigeria", "Africa", "Western Africa", 111506000, 2754)
+                .addCountry("EGY", "Egypt", "Africa", "Northern Africa", 68470000, 608)
+                .addCountry("ATA", "Antarctica", "Antarctica", "Antarctica", 0, 0)
+                .addCity(3793, "New York", "USA", "New York", 8008278)
+                .addCity(3794, "Los Angeles", "USA", "California", 3694820)
+                .addCity(3805, "San Francisco", "USA", "California", 776733)
+                .addCity(3813, "Washington", "USA", "District of Columbia", 572059)
+                .addCity(1822, "Ottawa", "CAN", "Ontario", 335277)
+                .addCity(1810, "Montréal", "CAN", "Québec", 1016376)
+                .addCity(206, "São Paulo", "BRA", "São Paulo", 9968485)
+                .addCity(211, "Brasília", "BRA", "Distrito Federal", 1969868)
+                .addCity(69, "Buenos Aires", "ARG", "Distrito Federal", 2982146)
+                .addCity(2754, "Abuja", "NGA", "Federal Capital Dist", 350100)
+                .addCity(2752, "Lagos", "NGA", "Lagos", 1518000)
+                .addCity(608, "Cairo", "EGY", "Kairo", 6789479)
+                .addLanguage("USA", "English", true, 86.2)
+                .addLanguage("USA", "Spanish", false, 7.5)
+                .addLanguage("CAN", "English", true, 60.4)
+                .addLanguage("CAN", "French", true, 23.4)
+                .addLanguage("BRA", "Portuguese", true, 97.5)
+                .addLanguage("ARG", "Spanish", true, 96.8)
+                .addLanguage("NGA", "Yoruba", false, 21.4)
+                .addLanguage("EGY", "Arabic", true, 98.8)
+                .build();
+    }
+}
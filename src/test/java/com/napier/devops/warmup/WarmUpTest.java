@@ -0,0 +1,108 @@
+package com.napier.devops.warmup;
+
+import com.napier.devops.Country;
+import com.napier.devops.SymbolTable;
+import com.napier.devops.service.CountryReportService;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the start-up warm-up phase.
+ */
+public class WarmUpTest {
+
+    /**
+     * Every report path runs without a database and is timed.
+     */
+    @Test
+    void testExercisesEveryPath() {
+        List<WarmUp.Timing> timings = new WarmUp(2).run();
+
+        List<String> paths = timings.stream().map(WarmUp.Timing::path).toList();
+        assertTrue(paths.contains("CityReportService.getAllCapitalCitiesByPopulation(0)"));
+        assertTrue(paths.contains("CityReportService (indexed).searchCities(2)"));
+        assertTrue(paths.contains("CountryReportService.getCountriesByPopulationPage(2)"));
+        assertTrue(paths.contains("PopulationMetricsReportService.printWorldPopulationReport(0)"));
+        assertTrue(paths.contains("SnapshotPopulationMetricsReportService.getCountryPopulationReport(0)"));
+
+        for (WarmUp.Timing timing : timings) {
+            assertFalse(timing.failed(), timing.path());
+            assertTrue(timing.firstNanos() > 0, timing.path());
+        }
+    }
+
+    /**
+     * Report output is discarded during warm-up and the streams are put back afterwards.
+     */
+    @Test
+    void testRestoresOutput() {
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+
+        new WarmUp(0).run();
+
+        assertSame(out, System.out);
+        assertSame(err, System.err);
+    }
+
+    /**
+     * Each service prints to its own discarding stream, so nothing reaches the console and
+     * the console streams are never swapped, leaving other threads' output alone.
+     */
+    @Test
+    void testLeavesConsoleAlone() throws InterruptedException {
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        PrintStream capture = new PrintStream(console, true);
+        Thread warmUp = new Thread(() -> new WarmUp(20).run());
+        try {
+            System.setOut(capture);
+            System.setErr(capture);
+            warmUp.start();
+            while (warmUp.isAlive()) {
+                assertSame(capture, System.out);
+                assertSame(capture, System.err);
+                Thread.sleep(1);
+            }
+            warmUp.join();
+        } finally {
+            System.setOut(out);
+            System.setErr(err);
+        }
+
+        assertEquals("", console.toString());
+    }
+
+    /**
+     * The generated world and the warm-up rows do not add symbols to the shared table.
+     */
+    @Test
+    void testLeavesSharedSymbolsAlone() {
+        int before = SymbolTable.geography().size();
+
+        new WarmUp(0).run();
+
+        assertEquals(before, SymbolTable.geography().size());
+    }
+
+    /**
+     * The built-in connection returns the same small table for any query.
+     */
+    @Test
+    void testWarmUpConnection() {
+        CountryReportService service = new CountryReportService(WarmUpConnection.create(5));
+
+        List<Country> countries = service.getAllCountriesByPopulationLargestToSmallest();
+
+        assertEquals(5, countries.size());
+        assertEquals("WAA", countries.get(0).getCode());
+        assertEquals("Asia", countries.get(0).getContinent());
+        assertTrue(countries.get(0).getPopulation() > countries.get(4).getPopulation());
+    }
+}
@@ -0,0 +1,252 @@
+package com.napier.devops.wire;
+
+import com.napier.devops.City;
+import com.napier.devops.Country;
+import com.napier.devops.service.CityReportService;
+import com.napier.devops.service.CountryReportService;
+import com.napier.devops.warmup.WarmUpConnection;
+import com.napier.pojo.Staleness;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.net.InetSocketAddress;
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the report server and client over a loopback socket.
+ */
+public class ReportServerTest {
+
+    private CityReportService cityReportService;
+    private CountryReportService countryReportService;
+    private ReportServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Enough rows that a reply takes several frames
+        Connection connection = WarmUpConnection.create(5000);
+        cityReportService = new CityReportService(connection);
+        countryReportService = new CountryReportService(connection);
+        server = new ReportServer(cityReportService, countryReportService, 0);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    /**
+     * Reports arrive as the services return them, one after another on one connection.
+     */
+    @Test
+    void testReports() throws IOException {
+        try (ReportClient client = new ReportClient("localhost", server.getPort())) {
+            List<City> cities = client.getCities(WireReport.ALL_CITIES, null, 0);
+            List<Country> countries = client.getCountries(WireReport.COUNTRIES_IN_CONTINENT, "Asia", 0);
+            List<City> top = client.getCities(WireReport.TOP_CITIES, null, 10);
+
+            assertEquals(cityReportService.getAllCitiesByPopulationLargestToSmallest().toString(), cities.toString());
+            assertEquals(countryReportService.getAllCountriesInContinentByPopulationLargestToSmallest("Asia").toString(),
+                    countries.toString());
+            assertEquals(cityReportService.getTopNCitiesByPopulationLargestToSmallest(10).toString(), top.toString());
+        }
+    }
+
+    /**
+     * Several clients are served at once.
+     */
+    @Test
+    void testConcurrentClients() throws IOException {
+        try (ReportClient first = new ReportClient("localhost", server.getPort());
+             ReportClient second = new ReportClient("localhost", server.getPort())) {
+            assertEquals(5000, first.getCities(WireReport.ALL_CITIES, null, 0).size());
+            assertEquals(5000, second.getCountries(WireReport.ALL_COUNTRIES, null, 0).size());
+            assertEquals(5000, first.getCities(WireReport.CITIES_IN_REGION, "Caribbean", 0).size());
+        }
+    }
+
+    /**
+     * An unknown report code gets an error frame and the connection stays usable.
+     */
+    @Test
+    void testUnknownReport() throws IOException {
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress("localhost", server.getPort()))) {
+            ByteBuffer request = ByteBuffer.allocate(16);
+            request.putInt(3).put((byte) 99).put((byte) 0).put((byte) 0).flip();
+            channel.write(request);
+
+            ByteBuffer reply = ByteBuffer.allocate(64);
+            while (reply.position() < WireFormat.LENGTH_PREFIX
+                    || reply.position() < WireFormat.LENGTH_PREFIX + reply.getInt(0)) {
+                assertTrue(channel.read(reply) > 0);
+            }
+            reply.flip().position(WireFormat.LENGTH_PREFIX);
+            IOException e = assertThrows(IOException.class, () -> new RowDecoder().decode(reply));
+            assertEquals("Report failed: Unknown report", e.getMessage());
+        }
+
+        try (ReportClient client = new ReportClient("localhost", server.getPort())) {
+            assertThrows(IllegalArgumentException.class, () -> client.getCities(WireReport.ALL_COUNTRIES, null, 0));
+            assertEquals(cityReportService.getTopCitiesByContinent("Asia", 3).toString(),
+                    client.getCities(WireReport.TOP_CITIES_IN_CONTINENT, "Asia", 3).toString());
+        }
+    }
+
+    /**
+     * A slow report runs on a worker, so other connections are served while it runs and it
+     * still arrives afterwards.
+     */
+    @Test
+    void testSlowReportDoesNotBlockOtherClients() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CityReportService slow = new CityReportService(WarmUpConnection.create(10)) {
+            @Override
+            public List<City> getAllCitiesByPopulationLargestToSmallest() {
+                started.countDown();
+                try {
+                    assertTrue(release.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getAllCitiesByPopulationLargestToSmallest();
+            }
+        };
+
+        ExecutorService clients = Executors.newFixedThreadPool(2);
+        try (ReportServer slowServer = new ReportServer(slow, countryReportService, 0, 2)) {
+            slowServer.start();
+            Future<List<City>> blocked = clients.submit(() -> {
+                try (ReportClient client = new ReportClient("localhost", slowServer.getPort())) {
+                    return client.getCities(WireReport.ALL_CITIES, null, 0);
+                }
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            Future<List<Country>> other = clients.submit(() -> {
+                try (ReportClient client = new ReportClient("localhost", slowServer.getPort())) {
+                    return client.getCountries(WireReport.ALL_COUNTRIES, null, 0);
+                }
+            });
+            assertEquals(5000, other.get(5, TimeUnit.SECONDS).size());
+            assertFalse(blocked.isDone());
+
+            release.countDown();
+            assertEquals(10, blocked.get(5, TimeUnit.SECONDS).size());
+        } finally {
+            release.countDown();
+            clients.shutdownNow();
+        }
+    }
+
+    /**
+     * Requests sent while a report runs, more than the request buffer holds, wait in the
+     * socket and are all answered in order once the report finishes.
+     */
+    @Test
+    void testPipelinedRequestsWaitForRunningReport() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CityReportService slow = new CityReportService(WarmUpConnection.create(10)) {
+            @Override
+            public List<City> getAllCitiesByPopulationLargestToSmallest() {
+                started.countDown();
+                try {
+                    assertTrue(release.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getAllCitiesByPopulationLargestToSmallest();
+            }
+        };
+
+        try (ReportServer slowServer = new ReportServer(slow, countryReportService, 0);
+             SocketChannel channel = SocketChannel.open()) {
+            slowServer.start();
+            channel.connect(new InetSocketAddress("localhost", slowServer.getPort()));
+            write(channel, WireFormat.request(WireReport.ALL_CITIES, null, 0));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            int pipelined = 2 * ReportServer.MAX_REQUEST / WireFormat.request(WireReport.TOP_CITIES, null, 3).remaining();
+            for (int i = 0; i < pipelined; i++) {
+                write(channel, WireFormat.request(WireReport.TOP_CITIES, null, 3));
+            }
+            release.countDown();
+
+            assertEquals(10, readReply(channel).size());
+            int top = slow.getTopNCitiesByPopulationLargestToSmallest(3).size();
+            for (int i = 0; i < pipelined; i++) {
+                assertEquals(top, readReply(channel).size());
+            }
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private static void write(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static List<Object> readReply(SocketChannel channel) throws IOException {
+        RowDecoder decoder = new RowDecoder();
+        boolean more = true;
+        while (more) {
+            ByteBuffer prefix = ByteBuffer.allocate(WireFormat.LENGTH_PREFIX);
+            readFully(channel, prefix);
+            ByteBuffer frame = ByteBuffer.allocate(prefix.getInt(0));
+            readFully(channel, frame);
+            more = decoder.decode(frame.flip());
+        }
+        return decoder.getRows();
+    }
+
+    private static void readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            assertTrue(channel.read(buffer) >= 0, "Server closed the connection");
+        }
+    }
+
+    /**
+     * Rows the service served from an older copy arrive marked as stale, and fresh rows on
+     * the same connection do not.
+     */
+    @Test
+    void testStaleReportArrivesStale() throws IOException {
+        CityReportService stale = new CityReportService(WarmUpConnection.create(10)) {
+            @Override
+            public List<City> getAllCitiesByPopulationLargestToSmallest() {
+                return Staleness.mark(super.getAllCitiesByPopulationLargestToSmallest());
+            }
+        };
+
+        try (ReportServer staleServer = new ReportServer(stale, countryReportService, 0)) {
+            staleServer.start();
+            try (ReportClient client = new ReportClient("localhost", staleServer.getPort())) {
+                List<City> cities = client.getCities(WireReport.ALL_CITIES, null, 0);
+                assertEquals(10, cities.size());
+                assertTrue(Staleness.isStale(cities));
+                assertFalse(Staleness.isStale(client.getCities(WireReport.TOP_CITIES, null, 3)));
+            }
+        }
+    }
+
+    /**
+     * A server needs at least one worker to run reports on.
+     */
+    @Test
+    void testRejectsNoWorkers() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ReportServer(cityReportService, countryReportService, 0, 0));
+    }
+}
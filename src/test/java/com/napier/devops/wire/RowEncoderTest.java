@@ -0,0 +1,151 @@
+package com.napier.devops.wire;
+
+import com.napier.devops.City;
+import com.napier.devops.Country;
+import com.napier.devops.generator.WorldDataGenerator;
+import com.napier.devops.snapshot.WorldSnapshot;
+import com.napier.pojo.Staleness;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the binary encoding of report rows.
+ */
+public class RowEncoderTest {
+
+    /**
+     * Varints round trip, and small values take one byte.
+     */
+    @Test
+    void testVarints() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        WireFormat.writeVarint(buffer, 127);
+        assertEquals(1, buffer.position());
+        WireFormat.writeVarint(buffer, 10_500_000);
+        WireFormat.writeSignedVarint(buffer, -1);
+        WireFormat.writeNullableInt(buffer, null);
+        WireFormat.writeNullableInt(buffer, 0);
+        WireFormat.writeNullableInt(buffer, Integer.MIN_VALUE);
+        buffer.flip();
+
+        assertEquals(127, WireFormat.readVarint(buffer));
+        assertEquals(10_500_000, WireFormat.readVarint(buffer));
+        assertEquals(-1, WireFormat.readSignedVarint(buffer));
+        assertNull(WireFormat.readNullableInt(buffer));
+        assertEquals(0, WireFormat.readNullableInt(buffer));
+        assertEquals(Integer.MIN_VALUE, WireFormat.readNullableInt(buffer));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    /**
+     * Cities and countries, nulls and accents included, decode to what was encoded.
+     */
+    @Test
+    void testRoundTrip() throws IOException {
+        List<City> cities = List.of(
+                new City().setAll(206, "São Paulo", "BRA", "São Paulo", 9968485),
+                new City().setAll(1810, "Montréal", "CAN", "Québec", 1016376),
+                new City().setAll(7, null, "CAN", null, null));
+        List<Country> countries = List.of(
+                new Country().setAll("BRA", "Brazil", "South America", "South America", 170115000, 211),
+                new Country().setAll("ATA", "Antarctica", "Antarctica", "Antarctica", 0, null));
+
+        assertEquals(cities.toString(), decode(WireFormat.CITY_ROWS, cities, 1024).toString());
+        assertEquals(countries.toString(), decode(WireFormat.COUNTRY_ROWS, countries, 1024).toString());
+        assertEquals("[]", decode(WireFormat.CITY_ROWS, List.of(), 1024).toString());
+    }
+
+    /**
+     * Rows are split over as many frames as needed and the dictionary carries across them,
+     * coming out much smaller than the text of the rows.
+     */
+    @Test
+    void testFramesAndSize() throws IOException {
+        WorldSnapshot snapshot = new WorldDataGenerator(1.0, 7).generateSnapshot();
+        List<City> cities = new ArrayList<>();
+        for (int row = 0; row < snapshot.getCityCount(); row++) {
+            cities.add(snapshot.toCity(row));
+        }
+
+        RowEncoder encoder = new RowEncoder(WireFormat.CITY_ROWS, cities);
+        RowDecoder decoder = new RowDecoder();
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        int frames = 0;
+        long bytes = 0;
+        while (encoder.hasNext()) {
+            encoder.next(buffer);
+            bytes += buffer.remaining();
+            frames++;
+            buffer.position(WireFormat.LENGTH_PREFIX);
+            assertEquals(encoder.hasNext(), decoder.decode(buffer));
+        }
+
+        long text = 0;
+        for (City city : cities) {
+            text += (city.toString() + "\n").getBytes(StandardCharsets.UTF_8).length;
+        }
+
+        assertTrue(frames > 10);
+        assertEquals(cities.toString(), decoder.getRows().toString());
+        assertTrue(bytes * 2 < text, bytes + " bytes against " + text + " bytes of text");
+    }
+
+    /**
+     * The end frame says whether the rows were stale.
+     */
+    @Test
+    void testStaleFlag() throws IOException {
+        List<City> cities = List.of(new City().setAll(206, "São Paulo", "BRA", "São Paulo", 9968485));
+        assertTrue(decoder(WireFormat.CITY_ROWS, Staleness.mark(cities)).isStale());
+        assertFalse(decoder(WireFormat.CITY_ROWS, cities).isStale());
+        assertTrue(decoder(WireFormat.CITY_ROWS, Staleness.mark(List.of())).isStale());
+    }
+
+    /**
+     * Error frames and malformed frames surface as exceptions.
+     */
+    @Test
+    void testErrors() {
+        ByteBuffer error = RowEncoder.error("Unknown report");
+        error.position(WireFormat.LENGTH_PREFIX);
+        IOException e = assertThrows(IOException.class, () -> new RowDecoder().decode(error));
+        assertEquals("Report failed: Unknown report", e.getMessage());
+
+        ByteBuffer reference = ByteBuffer.wrap(new byte[]{WireFormat.CITY_ROWS, 2, 9});
+        assertThrows(IOException.class, () -> new RowDecoder().decode(reference));
+
+        ByteBuffer countMismatch = ByteBuffer.wrap(new byte[]{WireFormat.END, 3});
+        assertThrows(IOException.class, () -> new RowDecoder().decode(countMismatch));
+    }
+
+    private RowDecoder decoder(byte rowType, List<?> rows) throws IOException {
+        RowEncoder encoder = new RowEncoder(rowType, rows);
+        RowDecoder decoder = new RowDecoder();
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        while (encoder.hasNext()) {
+            encoder.next(buffer);
+            decoder.decode(buffer.position(WireFormat.LENGTH_PREFIX));
+        }
+        return decoder;
+    }
+
+    private List<Object> decode(byte rowType, List<?> rows, int frameBytes) throws IOException {
+        RowEncoder encoder = new RowEncoder(rowType, rows);
+        RowDecoder decoder = new RowDecoder();
+        ByteBuffer buffer = ByteBuffer.allocate(frameBytes);
+        while (encoder.hasNext()) {
+            encoder.next(buffer);
+            assertEquals(buffer.remaining() - WireFormat.LENGTH_PREFIX, buffer.getInt(0));
+            decoder.decode(buffer.position(WireFormat.LENGTH_PREFIX));
+        }
+        return decoder.getRows();
+    }
+}